@@ -1,60 +1,22 @@
 package at.jku.isse.ecco.adapter.file;
 
-import at.jku.isse.ecco.artifact.ArtifactData;
+import at.jku.isse.ecco.blob.BlobArtifactData;
+import at.jku.isse.ecco.blob.BlobStore;
 
 import javax.xml.bind.annotation.adapters.HexBinaryAdapter;
 import java.io.IOException;
-import java.io.InputStream;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
 import java.util.Arrays;
-import java.util.Objects;
-
-public class FileArtifactData implements ArtifactData {
-
-	private static byte[] getSHADigest(Path path) throws IOException, NoSuchAlgorithmException {
-		MessageDigest complete = MessageDigest.getInstance("SHA1");
-
-		try (InputStream fis = Files.newInputStream(path)) {
-			byte[] buffer = new byte[1024];
-			int numRead = 0;
-			while (numRead != -1) {
-				numRead = fis.read(buffer);
-				if (numRead > 0) {
-					complete.update(buffer, 0, numRead);
-				}
-			}
-		}
-
-		return complete.digest();
-	}
-
-//	private static final String HEXES = "0123456789ABCDEF";
-
-	private static String getHex(byte[] raw) {
-//		if (raw == null) {
-//			return null;
-//		}
-//		final StringBuilder hex = new StringBuilder(2 * raw.length);
-//		for (final byte b : raw) {
-//			hex.append(HEXES.charAt((b & 0xF0) >> 4)).append(HEXES.charAt((b & 0x0F)));
-//		}
-//		return hex.toString();
-		return new HexBinaryAdapter().marshal(raw);
-	}
-
-	private static byte[] getData(Path path) throws IOException {
-		return Files.readAllBytes(path);
-	}
 
-	// #########################################################
+/**
+ * The content of a file, which is kept in the blob store of the repository. The artifact data only consists of the digest and the size of the content.
+ */
+public class FileArtifactData implements BlobArtifactData {
 
 	private byte[] checksum;
 	private String hexChecksum;
-	private byte[] data;
+	private long size;
 
 	private transient Path path = null;
 	private String pathString = null;
@@ -64,24 +26,23 @@ public class FileArtifactData implements ArtifactData {
 		this.pathString = null;
 		this.checksum = null;
 		this.hexChecksum = null;
-		this.data = null;
+		this.size = 0;
 	}
 
-	public FileArtifactData(Path base, Path path) throws IOException {
-		//this.path = file.toPath().relativize(new File(".").toPath());
-		//this.path = base.relativize(path);
-		//this.path = path;
+	/**
+	 * Stores the content of the given file in the given blob store.
+	 *
+	 * @param blobStore The blob store of the repository.
+	 * @param base      The base directory.
+	 * @param path      The file relative to the base directory.
+	 */
+	public FileArtifactData(BlobStore blobStore, Path base, Path path) throws IOException {
 		this.path = path;
 		this.pathString = path.toString();
-		Path resolvedPath = base.resolve(path);
-		try {
-			this.checksum = FileArtifactData.getSHADigest(resolvedPath);
-			this.hexChecksum = FileArtifactData.getHex(this.checksum);
-		} catch (NoSuchAlgorithmException e) {
-			this.checksum = null;
-			this.hexChecksum = null;
-		}
-		this.data = FileArtifactData.getData(resolvedPath);
+		BlobStore.Blob blob = blobStore.put(base.resolve(path));
+		this.hexChecksum = blob.getDigest();
+		this.checksum = new HexBinaryAdapter().unmarshal(this.hexChecksum);
+		this.size = blob.getSize();
 	}
 
 	public byte[] getChecksum() {
@@ -113,7 +74,7 @@ public class FileArtifactData implements ArtifactData {
 
 	@Override
 	public int hashCode() {
-		return Objects.hash(this.checksum);
+		return Arrays.hashCode(this.checksum);
 	}
 
 	@Override
@@ -121,8 +82,18 @@ public class FileArtifactData implements ArtifactData {
 		return this.hexChecksum;
 	}
 
-	public byte[] getData() {
-		return data;
+	public long getSize() {
+		return this.size;
+	}
+
+	@Override
+	public String getBlobDigest() {
+		return this.hexChecksum;
+	}
+
+	@Override
+	public long getBlobSize() {
+		return this.size;
 	}
 
 	public String getIdentifier() {
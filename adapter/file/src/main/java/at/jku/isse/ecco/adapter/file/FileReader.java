@@ -1,6 +1,7 @@
 package at.jku.isse.ecco.adapter.file;
 
 import at.jku.isse.ecco.artifact.Artifact;
+import at.jku.isse.ecco.blob.BlobStore;
 import at.jku.isse.ecco.dao.EntityFactory;
 import at.jku.isse.ecco.listener.ReadListener;
 import at.jku.isse.ecco.adapter.ArtifactReader;
@@ -12,6 +13,7 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashSet;
@@ -24,12 +26,15 @@ i would say we include the folder structure in our artifact tree! that way we ca
 public class FileReader implements ArtifactReader<Path, Set<Node.Op>> {
 
 	private final EntityFactory entityFactory;
+	private final BlobStore blobStore;
 
 	@Inject
-	public FileReader(EntityFactory entityFactory) {
+	public FileReader(EntityFactory entityFactory, BlobStore blobStore) {
 		com.google.common.base.Preconditions.checkNotNull(entityFactory);
+		com.google.common.base.Preconditions.checkNotNull(blobStore);
 
 		this.entityFactory = entityFactory;
+		this.blobStore = blobStore;
 	}
 
 	@Override
@@ -49,6 +54,16 @@ public class FileReader implements ArtifactReader<Path, Set<Node.Op>> {
 		return (!Files.isDirectory(path) && Files.isRegularFile(path));
 	}
 
+	@Override
+	public boolean canRead(Path path, BasicFileAttributes attributes) {
+		return attributes.isRegularFile();
+	}
+
+	@Override
+	public boolean canReadIndependently() {
+		return true;
+	}
+
 	@Override
 	public Set<Node.Op> read(Path[] input) {
 		return this.read(Paths.get("."), input);
@@ -63,7 +78,7 @@ public class FileReader implements ArtifactReader<Path, Set<Node.Op>> {
 				Node.Op pluginNode = this.entityFactory.createNode(pluginArtifact);
 				nodes.add(pluginNode);
 
-				FileArtifactData fileArtifactData = new FileArtifactData(base, path);
+				FileArtifactData fileArtifactData = new FileArtifactData(this.blobStore, base, path);
 				Node.Op fileNode = this.entityFactory.createNode(this.entityFactory.createArtifact(fileArtifactData));
 				pluginNode.addChild(fileNode);
 			} catch (IOException e) {
@@ -1,9 +1,12 @@
 package at.jku.isse.ecco.adapter.file;
 
+import at.jku.isse.ecco.EccoException;
 import at.jku.isse.ecco.listener.WriteListener;
 import at.jku.isse.ecco.adapter.ArtifactWriter;
 import at.jku.isse.ecco.adapter.dispatch.PluginArtifactData;
+import at.jku.isse.ecco.blob.BlobStore;
 import at.jku.isse.ecco.tree.Node;
+import com.google.inject.Inject;
 
 import java.io.IOException;
 import java.nio.file.Files;
@@ -16,8 +19,13 @@ import java.util.Set;
 
 public class FileWriter implements ArtifactWriter<Set<Node>, Path> {
 
-	public FileWriter() {
+	private final BlobStore blobStore;
 
+	@Inject
+	public FileWriter(BlobStore blobStore) {
+		com.google.common.base.Preconditions.checkNotNull(blobStore);
+
+		this.blobStore = blobStore;
 	}
 
 	@Override
@@ -44,16 +52,16 @@ public class FileWriter implements ArtifactWriter<Set<Node>, Path> {
 				try {
 					Files.write(outputPath, new byte[]{});
 				} catch (IOException e) {
-					e.printStackTrace();
+					throw new EccoException("Could not write file " + outputPath, e);
 				}
 			} else {
 				for (Node childNode : node.getChildren()) {
 					FileArtifactData fileArtifact = (FileArtifactData) childNode.getArtifact().getData(); // TODO: node type must have Type parameter for artifact type it contains?
 					try {
 						// Path path = Files.write(artifact.getPath(), artifact.getData());
-						Files.write(outputPath, fileArtifact.getData());
+						this.blobStore.copyTo(fileArtifact.getBlobDigest(), outputPath);
 					} catch (IOException e) {
-						e.printStackTrace();
+						throw new EccoException("Could not write blob " + fileArtifact.getBlobDigest() + " to file " + outputPath, e);
 					}
 				}
 //				FileArtifactData fileArtifact = (FileArtifactData) node.getChildren().get(0).getArtifact().getData(); // TODO: node type must have Type parameter for artifact type it contains?
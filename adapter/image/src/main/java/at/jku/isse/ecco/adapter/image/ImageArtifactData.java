@@ -3,26 +3,29 @@ package at.jku.isse.ecco.adapter.image;
 import at.jku.isse.ecco.artifact.ArtifactData;
 
 import java.util.Arrays;
-import java.util.Objects;
 
 // TODO: preserve image type (and settings like global background color, and metadata!)
 
+/**
+ * The values of an image artifact, e.g. the size of an image, a position or region in it, or the color of a pixel or the packed ARGB colors of the pixels of a region.
+ * The hash of the values is computed once when it is first needed, so that artifacts with many values (e.g. tiles) are compared quickly. It is not stored, as it is derived from the values.
+ */
 public class ImageArtifactData implements ArtifactData {
 
+	private static final int MAX_PRINTED_VALUES = 4;
+
 	private final int[] values;
+	private transient int hash;
 
-	private String identifier;
 	private String type;
 
 	protected ImageArtifactData() {
 		this.values = null;
-		this.identifier = null;
 		this.type = null;
 	}
 
 	public ImageArtifactData(final int[] values, final String type) {
 		this.values = values;
-		this.identifier = Arrays.toString(values);
 		this.type = type;
 	}
 
@@ -43,17 +46,23 @@ public class ImageArtifactData implements ArtifactData {
 		if (getClass() != obj.getClass())
 			return false;
 		final ImageArtifactData other = (ImageArtifactData) obj;
-		return Arrays.equals(values, other.values);
+		return this.hashCode() == other.hashCode() && Arrays.equals(values, other.values);
 	}
 
 	@Override
 	public int hashCode() {
-		return Objects.hash(values);
+		int hash = this.hash;
+		if (hash == 0 && this.values != null) {
+			hash = Arrays.hashCode(this.values);
+			this.hash = hash;
+		}
+		return hash;
 	}
 
 	@Override
 	public String toString() {
-		return this.identifier;
+		if (this.values != null && this.values.length > MAX_PRINTED_VALUES)
+			return this.type + "[" + this.values.length + " values, hash " + Integer.toHexString(this.hashCode()) + "]";
+		return Arrays.toString(this.values);
 	}
-
 }
@@ -8,6 +8,7 @@ import at.jku.isse.ecco.adapter.ArtifactReader;
 import at.jku.isse.ecco.adapter.dispatch.PluginArtifactData;
 import at.jku.isse.ecco.tree.Node;
 import com.google.inject.Inject;
+import com.google.inject.name.Named;
 
 import javax.imageio.ImageIO;
 import java.awt.image.BufferedImage;
@@ -17,6 +18,7 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.*;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 
 public class ImageReader implements ArtifactReader<Path, Set<Node.Op>> {
@@ -24,9 +26,34 @@ public class ImageReader implements ArtifactReader<Path, Set<Node.Op>> {
 	public static final String TYPE_IMAGE = "IMAGE";
 	public static final String TYPE_POS = "POS";
 	public static final String TYPE_COLOR = "COLOR";
+	public static final String TYPE_PIXELS = "PIXELS";
+
+	public static final String GRANULARITY_PROPERTY = "image.granularity";
+	public static final String TILE_SIZE_PROPERTY = "image.tileSize";
+
+	/**
+	 * The granularity of the artifacts of an image.
+	 */
+	public enum Granularity {
+		/**
+		 * A position and a color artifact per pixel.
+		 */
+		PIXEL,
+		/**
+		 * A position artifact per row of pixels with the packed colors of the row as child.
+		 */
+		ROW,
+		/**
+		 * A position artifact per square tile of pixels (see {@link #setTileSize(int)}) with the packed colors of the tile as child.
+		 */
+		TILE
+	}
 
 	private final EntityFactory entityFactory;
 
+	private Granularity granularity = Granularity.PIXEL;
+	private int tileSize = 64;
+
 	@Inject
 	public ImageReader(final EntityFactory entityFactory) {
 		checkNotNull(entityFactory);
@@ -34,6 +61,57 @@ public class ImageReader implements ArtifactReader<Path, Set<Node.Op>> {
 		this.entityFactory = entityFactory;
 	}
 
+	public Granularity getGranularity() {
+		return this.granularity;
+	}
+
+	public void setGranularity(Granularity granularity) {
+		checkNotNull(granularity);
+
+		this.granularity = granularity;
+	}
+
+	/**
+	 * Sets the granularity from the {@link #GRANULARITY_PROPERTY} property (e.g. in the ecco.properties file), if there is one.
+	 *
+	 * @param granularity The name of the granularity (case insensitive).
+	 */
+	@Inject(optional = true)
+	public void setGranularity(@Named(GRANULARITY_PROPERTY) String granularity) {
+		try {
+			this.setGranularity(Granularity.valueOf(granularity.trim().toUpperCase()));
+		} catch (IllegalArgumentException e) {
+			throw new EccoException("Invalid image granularity: " + granularity, e);
+		}
+	}
+
+	public int getTileSize() {
+		return this.tileSize;
+	}
+
+	/**
+	 * @param tileSize The width and height of the tiles in pixels (tiles at the right and bottom borders of images may be smaller).
+	 */
+	public void setTileSize(int tileSize) {
+		checkArgument(tileSize > 0, "Expected tile size to be positive.");
+
+		this.tileSize = tileSize;
+	}
+
+	/**
+	 * Sets the tile size from the {@link #TILE_SIZE_PROPERTY} property (e.g. in the ecco.properties file), if there is one.
+	 *
+	 * @param tileSize The tile size.
+	 */
+	@Inject(optional = true)
+	public void setTileSize(@Named(TILE_SIZE_PROPERTY) String tileSize) {
+		try {
+			this.setTileSize(Integer.parseInt(tileSize.trim()));
+		} catch (IllegalArgumentException e) {
+			throw new EccoException("Invalid image tile size: " + tileSize, e);
+		}
+	}
+
 	@Override
 	public String getPluginId() {
 		return ImagePlugin.class.getName();
@@ -56,6 +134,18 @@ public class ImageReader implements ArtifactReader<Path, Set<Node.Op>> {
 			return false;
 	}
 
+	private static final String[] fileExtensions = new String[]{"jpg", "jpeg", "gif", "png"};
+
+	@Override
+	public String[] getFileExtensions() {
+		return fileExtensions;
+	}
+
+	@Override
+	public boolean canReadIndependently() {
+		return true;
+	}
+
 	@Override
 	public Set<Node.Op> read(Path[] input) {
 		return this.read(Paths.get("."), input);
@@ -91,7 +181,17 @@ public class ImageReader implements ArtifactReader<Path, Set<Node.Op>> {
 
 		final Node.Op imageNode = this.entityFactory.createNode(this.entityFactory.createArtifact(imageArtifactData));
 
-		List<Node.Op> pixelNode = parsePixelData(image);
+		List<Node.Op> pixelNode;
+		switch (this.granularity) {
+			case ROW:
+				pixelNode = parseRegions(image, image.getWidth(), 1);
+				break;
+			case TILE:
+				pixelNode = parseRegions(image, this.tileSize, this.tileSize);
+				break;
+			default:
+				pixelNode = parsePixelData(image);
+		}
 
 		pixelNode.forEach(imageNode::addChild);
 
@@ -137,6 +237,32 @@ public class ImageReader implements ArtifactReader<Path, Set<Node.Op>> {
 		return nodes;
 	}
 
+	/**
+	 * Creates a position node for every region of the given size with the packed ARGB colors of the pixels of the region as child.
+	 * The position artifacts consist of the x and y coordinates and the width and height of the region.
+	 */
+	private List<Node.Op> parseRegions(final BufferedImage image, final int regionWidth, final int regionHeight) {
+		assert image != null;
+
+		List<Node.Op> nodes = new ArrayList<>();
+		for (int y = 0; y < image.getHeight(); y += regionHeight) {
+			for (int x = 0; x < image.getWidth(); x += regionWidth) {
+				final int width = Math.min(regionWidth, image.getWidth() - x);
+				final int height = Math.min(regionHeight, image.getHeight() - y);
+
+				final ImageArtifactData posArtifactData = new ImageArtifactData(new int[]{x, y, width, height}, TYPE_POS);
+				final ImageArtifactData pixelsArtifactData = new ImageArtifactData(image.getRGB(x, y, width, height, null, 0, width), TYPE_PIXELS);
+
+				final Node.Op positionNode = this.entityFactory.createNode(this.entityFactory.createArtifact(posArtifactData));
+				positionNode.addChild(this.entityFactory.createNode(this.entityFactory.createArtifact(pixelsArtifactData)));
+
+				nodes.add(positionNode);
+			}
+		}
+
+		return nodes;
+	}
+
 
 	private Collection<ReadListener> listeners = new ArrayList<ReadListener>();
 
@@ -2,10 +2,11 @@ package at.jku.isse.ecco.adapter.image;
 
 import at.jku.isse.ecco.tree.Node;
 import javafx.scene.image.Image;
-import javafx.scene.image.PixelWriter;
+import javafx.scene.image.PixelFormat;
 import javafx.scene.image.WritableImage;
 
 import java.awt.image.BufferedImage;
+import java.util.Arrays;
 
 public class ImageUtil {
 
@@ -15,86 +16,15 @@ public class ImageUtil {
 
 	protected static Image createImage(Node pluginNode, int backgroundColor, boolean enableBlending) {
 		Node imageNode = (Node) pluginNode.getChildren().iterator().next();
-		// ImageArtifact imageArtifact = (ImageArtifact) fileNode.getAllChildren().iterator().next().getArtifact();
 		ImageArtifactData imageArtifact = (ImageArtifactData) imageNode.getArtifact().getData();
 		int width = imageArtifact.getValues()[0];
 		int height = imageArtifact.getValues()[1];
 
-		int defaultColor = 0;
-		{
-			int alpha = 128;
-			int red = 0;
-			int green = 255;
-			int blue = 0;
-			defaultColor = (blue & 0x000000ff) | ((green << 8) & 0x0000ff00) | ((red << 16) & 0x00ff0000) | ((alpha << 24) & 0xff000000);
-
-			defaultColor = backgroundColor;
-		}
-
 		WritableImage outputImage = new WritableImage(width, height);
-		PixelWriter pixelWriter = outputImage.getPixelWriter();
-
 		// TODO: include image metadata in artifacts, like type or color model
 
-		for (int i = 0; i < width; i++) {
-			for (int j = 0; j < height; j++) {
-				//outputImage.setRGB(i, j, defaultColor);
-				pixelWriter.setArgb(i, j, defaultColor);
-			}
-		}
-
-		for (Node posNode : imageNode.getChildren()) {
-			ImageArtifactData posArtifact = (ImageArtifactData) posNode.getArtifact().getData();
-			int x = posArtifact.getValues()[0];
-			int y = posArtifact.getValues()[1];
-
-			int color = 0;
-			if (posNode.getChildren().size() <= 0) {
-				//System.out.println("There is no color for pos (" + x + ", " + y + ").");
-				// color = 0;
-				color = defaultColor;
-			} else {
-				if (posNode.getChildren().size() > 1) {
-					//System.out.println("There is more than one color for pos (" + x + ", " + y + "). Picking the first one.");
-				}
-
-				int alpha = 0;
-				int red = 0;
-				int green = 0;
-				int blue = 0;
-
-				int relevantChildren = 0;
-				for (Node colorNode : posNode.getChildren()) {
-					ImageArtifactData colorArtifact = (ImageArtifactData) colorNode.getArtifact().getData();
-					int pixelColor = (colorArtifact.getValues()[3] & 0x000000ff) | ((colorArtifact.getValues()[2] << 8) & 0x0000ff00) | ((colorArtifact.getValues()[1] << 16) & 0x00ff0000) | ((colorArtifact.getValues()[0] << 24) & 0xff000000);
-
-					// TODO: store the actual background color of the image as image metadata nodes in the artifact tree and make use of it here!
-					if (backgroundColor != pixelColor) {
-						relevantChildren++;
-
-						alpha += colorArtifact.getValues()[0];
-						red += colorArtifact.getValues()[1];
-						green += colorArtifact.getValues()[2];
-						blue += colorArtifact.getValues()[3];
-					}
-
-					if (!enableBlending)
-						break;
-				}
-
-				if (enableBlending && relevantChildren > 0) {
-					alpha = alpha / relevantChildren;
-					red = red / relevantChildren;
-					green = green / relevantChildren;
-					blue = blue / relevantChildren;
-				}
-
-				color = 0;
-				color = (blue & 0x000000ff) | ((green << 8) & 0x0000ff00) | ((red << 16) & 0x00ff0000) | ((alpha << 24) & 0xff000000);
-			}
-			//outputImage.setRGB(x, y, color);
-			pixelWriter.setArgb(x, y, color);
-		}
+		int[] pixels = createPixels(imageNode, width, height, backgroundColor, enableBlending);
+		outputImage.getPixelWriter().setPixels(0, 0, width, height, PixelFormat.getIntArgbInstance(), pixels, 0, width);
 
 		return outputImage;
 	}
@@ -102,84 +32,100 @@ public class ImageUtil {
 
 	protected static BufferedImage createBufferedImage(Node pluginNode, int backgroundColor, boolean enableBlending) {
 		Node imageNode = (Node) pluginNode.getChildren().iterator().next();
-		// ImageArtifact imageArtifact = (ImageArtifact) fileNode.getAllChildren().iterator().next().getArtifact();
 		ImageArtifactData imageArtifact = (ImageArtifactData) imageNode.getArtifact().getData();
 		int width = imageArtifact.getValues()[0];
 		int height = imageArtifact.getValues()[1];
 
-		int defaultColor = 0;
-		{
-			int alpha = 128;
-			int red = 0;
-			int green = 255;
-			int blue = 0;
-			defaultColor = (blue & 0x000000ff) | ((green << 8) & 0x0000ff00) | ((red << 16) & 0x00ff0000) | ((alpha << 24) & 0xff000000);
-
-			defaultColor = backgroundColor;
-		}
-
 		BufferedImage outputImage = new BufferedImage(width, height, BufferedImage.TYPE_4BYTE_ABGR);
 		// TODO: include image metadata in artifacts, like type or color model
 
-		for (int i = 0; i < width; i++) {
-			for (int j = 0; j < height; j++) {
-				outputImage.setRGB(i, j, defaultColor);
-			}
-		}
+		int[] pixels = createPixels(imageNode, width, height, backgroundColor, enableBlending);
+		outputImage.setRGB(0, 0, width, height, pixels, 0, width);
 
-		for (Node posNode : imageNode.getChildren()) {
-			ImageArtifactData posArtifact = (ImageArtifactData) posNode.getArtifact().getData();
-			int x = posArtifact.getValues()[0];
-			int y = posArtifact.getValues()[1];
-
-			int color = 0;
-			if (posNode.getChildren().size() <= 0) {
-				//System.out.println("There is no color for pos (" + x + ", " + y + ").");
-				// color = 0;
-				color = defaultColor;
-			} else {
-				if (posNode.getChildren().size() > 1) {
-					//System.out.println("There is more than one color for pos (" + x + ", " + y + "). Picking the first one.");
-				}
+		return outputImage;
+	}
 
-				int alpha = 0;
-				int red = 0;
-				int green = 0;
-				int blue = 0;
 
-				int relevantChildren = 0;
-				for (Node colorNode : posNode.getChildren()) {
-					ImageArtifactData colorArtifact = (ImageArtifactData) colorNode.getArtifact().getData();
-					int pixelColor = (colorArtifact.getValues()[3] & 0x000000ff) | ((colorArtifact.getValues()[2] << 8) & 0x0000ff00) | ((colorArtifact.getValues()[1] << 16) & 0x00ff0000) | ((colorArtifact.getValues()[0] << 24) & 0xff000000);
+	/**
+	 * Assembles the ARGB colors of all pixels of an image (row by row) from the position nodes of the image node.
+	 * Position nodes either denote a single pixel with color nodes as children (see {@link ImageReader.Granularity#PIXEL}) or a region of pixels with nodes of packed colors of the region as children (see {@link ImageReader.Granularity#ROW} and {@link ImageReader.Granularity#TILE}).
+	 * Pixels without position or without colors get the background color. Pixels with more than one color get the average of the colors that differ from the background color if blending is enabled, or the first color otherwise.
+	 */
+	private static int[] createPixels(Node imageNode, int width, int height, int backgroundColor, boolean enableBlending) {
+		int defaultColor = backgroundColor;
 
-					// TODO: store the actual background color of the image as image metadata nodes in the artifact tree and make use of it here!
-					if (backgroundColor != pixelColor) {
-						relevantChildren++;
+		int[] pixels = new int[width * height];
+		Arrays.fill(pixels, defaultColor);
 
-						alpha += colorArtifact.getValues()[0];
-						red += colorArtifact.getValues()[1];
-						green += colorArtifact.getValues()[2];
-						blue += colorArtifact.getValues()[3];
+		for (Node posNode : imageNode.getChildren()) {
+			int[] position = ((ImageArtifactData) posNode.getArtifact().getData()).getValues();
+			int x = position[0];
+			int y = position[1];
+			int regionWidth = position.length > 2 ? position[2] : 1;
+			int regionHeight = position.length > 3 ? position[3] : 1;
+
+			ImageArtifactData[] colorArtifacts = new ImageArtifactData[posNode.getChildren().size()];
+			int i = 0;
+			for (Node colorNode : posNode.getChildren())
+				colorArtifacts[i++] = (ImageArtifactData) colorNode.getArtifact().getData();
+
+			for (int j = 0; j < regionHeight; j++) {
+				for (int k = 0; k < regionWidth; k++) {
+					int color;
+					if (colorArtifacts.length <= 0) {
+						color = defaultColor;
+					} else {
+						int alpha = 0;
+						int red = 0;
+						int green = 0;
+						int blue = 0;
+
+						int relevantChildren = 0;
+						for (ImageArtifactData colorArtifact : colorArtifacts) {
+							int pixelColor = getColor(colorArtifact, j * regionWidth + k);
+
+							// TODO: store the actual background color of the image as image metadata nodes in the artifact tree and make use of it here!
+							if (backgroundColor != pixelColor) {
+								relevantChildren++;
+
+								alpha += (pixelColor >>> 24) & 0xff;
+								red += (pixelColor >>> 16) & 0xff;
+								green += (pixelColor >>> 8) & 0xff;
+								blue += pixelColor & 0xff;
+							}
+
+							if (!enableBlending)
+								break;
+						}
+
+						if (enableBlending && relevantChildren > 0) {
+							alpha = alpha / relevantChildren;
+							red = red / relevantChildren;
+							green = green / relevantChildren;
+							blue = blue / relevantChildren;
+						}
+
+						color = (blue & 0x000000ff) | ((green << 8) & 0x0000ff00) | ((red << 16) & 0x00ff0000) | ((alpha << 24) & 0xff000000);
 					}
-
-					if (!enableBlending)
-						break;
-				}
-
-				if (enableBlending && relevantChildren > 0) {
-					alpha = alpha / relevantChildren;
-					red = red / relevantChildren;
-					green = green / relevantChildren;
-					blue = blue / relevantChildren;
+					pixels[(y + j) * width + x + k] = color;
 				}
-
-				color = 0;
-				color = (blue & 0x000000ff) | ((green << 8) & 0x0000ff00) | ((red << 16) & 0x00ff0000) | ((alpha << 24) & 0xff000000);
 			}
-			outputImage.setRGB(x, y, color);
 		}
 
-		return outputImage;
+		return pixels;
+	}
+
+	/**
+	 * @param colorArtifact Either a color artifact with the alpha, red, green and blue values of a single pixel or an artifact with the packed ARGB colors of a region of pixels.
+	 * @param index         The index of the pixel in the region.
+	 * @return The ARGB color of the pixel.
+	 */
+	private static int getColor(ImageArtifactData colorArtifact, int index) {
+		int[] values = colorArtifact.getValues();
+		if (ImageReader.TYPE_COLOR.equals(colorArtifact.getType()))
+			return (values[3] & 0x000000ff) | ((values[2] << 8) & 0x0000ff00) | ((values[1] << 16) & 0x00ff0000) | ((values[0] << 24) & 0xff000000);
+		else
+			return values[index];
 	}
 
 }
@@ -8,6 +8,8 @@ import javafx.embed.swing.SwingFXUtils;
 import javafx.scene.control.Button;
 import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
 import javafx.scene.layout.Background;
 import javafx.scene.layout.BackgroundFill;
 import javafx.scene.layout.BorderPane;
@@ -71,6 +73,12 @@ public class ImageViewer extends BorderPane implements ArtifactViewer {
 				this.setCenter(null);
 				int[] colors = imageArtifactData.getValues();
 				this.setBackground(new Background(new BackgroundFill(new Color(colors[1] / 255.0, colors[2] / 255.0, colors[3] / 255.0, colors[0] / 255.0), null, null)));
+			} else if (imageArtifactData.getType().equals(ImageReader.TYPE_PIXELS) && node.getParent() != null) {
+				int[] region = ((ImageArtifactData) node.getParent().getArtifact().getData()).getValues();
+				WritableImage image = new WritableImage(region[2], region[3]);
+				image.getPixelWriter().setPixels(0, 0, region[2], region[3], PixelFormat.getIntArgbInstance(), imageArtifactData.getValues(), 0, region[2]);
+				this.setCenter(new ImageView(image));
+				this.setBackground(Background.EMPTY);
 			}
 		}
 	}
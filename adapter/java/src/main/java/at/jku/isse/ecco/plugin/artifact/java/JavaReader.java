@@ -65,6 +65,13 @@ public class JavaReader implements ArtifactReader<Path, Set<Node.Op>> {
 			return false;
 	}
 
+	private static final String[] fileExtensions = new String[]{"java"};
+
+	@Override
+	public String[] getFileExtensions() {
+		return fileExtensions;
+	}
+
 
 	@Override
 	public Set<Node.Op> read(Path[] input) {
@@ -0,0 +1,263 @@
+package at.jku.isse.ecco.adapter.java;
+
+import at.jku.isse.ecco.EccoException;
+import at.jku.isse.ecco.artifact.Artifact;
+import at.jku.isse.ecco.artifact.ArtifactData;
+import at.jku.isse.ecco.dao.EntityFactory;
+import at.jku.isse.ecco.tree.Node;
+import com.google.common.io.BaseEncoding;
+import org.eclipse.jdt.core.dom.IBinding;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+
+/**
+ * Cache of the artifact trees read from compilation units, so that only compilation units that changed since they were last read need to be parsed again.
+ * Compilation units are identified by the digest of their file name and content. The cache is kept in memory and, if a directory is set, on disk as well.
+ * Cached compilation units keep the bindings they were resolved with, i.e. references to declarations in other compilation units are resolved again by their binding keys whenever the cached units are read.
+ */
+public class CompilationUnitCache {
+
+    /**
+     * Version of the cached trees that must be increased whenever the reader creates different trees for the same compilation units.
+     */
+    private static final int VERSION = 1;
+
+    private static final int MAX_CACHED_UNITS = 4096;
+
+    private static final String TEMP_FILE_PREFIX = "unit";
+
+
+    private final Map<String, CachedUnit> units = new LinkedHashMap<String, CachedUnit>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CachedUnit> eldest) {
+            return this.size() > MAX_CACHED_UNITS;
+        }
+    };
+
+    private Path directory = null;
+
+    /**
+     * @return The directory in which cached compilation units are stored, or null if they are only kept in memory.
+     */
+    public synchronized Path getDirectory() {
+        return this.directory;
+    }
+
+    /**
+     * @param directory The directory in which cached compilation units are stored, or null to keep them only in memory.
+     */
+    public synchronized void setDirectory(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Computes the digest that identifies the given compilation unit.
+     *
+     * @param file The file of the compilation unit.
+     * @return The digest of the file name and content.
+     */
+    public static String digest(Path file) {
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA1");
+            md.update((VERSION + ":" + file.getFileName() + ":").getBytes(StandardCharsets.UTF_8));
+            md.update(Files.readAllBytes(file));
+            return BaseEncoding.base16().encode(md.digest());
+        } catch (IOException | NoSuchAlgorithmException e) {
+            throw new EccoException("Error computing digest of compilation unit " + file, e);
+        }
+    }
+
+    /**
+     * @param digest The digest of the compilation unit.
+     * @return The cached compilation unit, or null if it is not cached.
+     */
+    public synchronized CachedUnit get(String digest) {
+        CachedUnit unit = this.units.get(digest);
+        if (unit == null && this.directory != null) {
+            Path file = this.directory.resolve(digest);
+            if (Files.exists(file)) {
+                try (ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+                    unit = (CachedUnit) in.readObject();
+                    this.units.put(digest, unit);
+                } catch (IOException | ClassNotFoundException | ClassCastException e) {
+                    // unreadable (e.g. outdated) entries are parsed again and overwritten
+                    unit = null;
+                }
+            }
+        }
+        return unit;
+    }
+
+    /**
+     * @param digest The digest of the compilation unit.
+     * @param unit   The cached compilation unit.
+     */
+    public synchronized void put(String digest, CachedUnit unit) {
+        this.units.put(digest, unit);
+        if (this.directory != null) {
+            try {
+                Files.createDirectories(this.directory);
+                Path tempFile = Files.createTempFile(this.directory, TEMP_FILE_PREFIX, null);
+                try {
+                    try (ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile)))) {
+                        out.writeObject(unit);
+                    }
+                    Files.move(tempFile, this.directory.resolve(digest), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                } finally {
+                    Files.deleteIfExists(tempFile);
+                }
+            } catch (IOException e) {
+                // the unit is still cached in memory and parsed again in later sessions
+            }
+        }
+    }
+
+
+    /**
+     * The artifact tree read from a compilation unit (below its plugin node) together with the references of its artifacts.
+     * The nodes are stored in pre-order. References to artifacts of the same compilation unit are stored by index, all other references by binding key.
+     */
+    public static final class CachedUnit implements Serializable {
+
+        private static final long serialVersionUID = VERSION;
+
+        private final ArtifactData[] data;
+        private final boolean[] ordered;
+        private final int[] childCounts;
+
+        private final int[] referencingArtifacts;
+        private final int[] referencingTargets;
+        private final String[] referencingKeys;
+
+        private final int[] referencedArtifacts;
+        private final String[] referencedKeys;
+
+        private CachedUnit(ArtifactData[] data, boolean[] ordered, int[] childCounts, int[] referencingArtifacts, int[] referencingTargets, String[] referencingKeys, int[] referencedArtifacts, String[] referencedKeys) {
+            this.data = data;
+            this.ordered = ordered;
+            this.childCounts = childCounts;
+            this.referencingArtifacts = referencingArtifacts;
+            this.referencingTargets = referencingTargets;
+            this.referencingKeys = referencingKeys;
+            this.referencedArtifacts = referencedArtifacts;
+            this.referencedKeys = referencedKeys;
+        }
+
+        /**
+         * @param unitNode    The root node of the artifact tree of the compilation unit.
+         * @param referencing The references of the artifacts of the compilation unit.
+         * @param referenced  The declarations of the compilation unit.
+         * @return The cached compilation unit, or null if the artifact tree cannot be cached because an unordered node contains equivalent children (which cannot be added to a node again).
+         */
+        public static CachedUnit create(Node.Op unitNode, List<JDTFileAstRequestor.Pair> referencing, Map<IBinding, ? extends Artifact.Op<?>> referenced) {
+            List<Node> nodes = new ArrayList<>();
+            Deque<Node> stack = new ArrayDeque<>();
+            stack.push(unitNode);
+            while (!stack.isEmpty()) {
+                Node node = stack.pop();
+                nodes.add(node);
+                List<? extends Node> children = node.getChildren();
+                for (int i = children.size() - 1; i >= 0; i--)
+                    stack.push(children.get(i));
+            }
+
+            ArtifactData[] data = new ArtifactData[nodes.size()];
+            boolean[] ordered = new boolean[nodes.size()];
+            int[] childCounts = new int[nodes.size()];
+            Map<Artifact<?>, Integer> indices = new IdentityHashMap<>();
+            for (int i = 0; i < nodes.size(); i++) {
+                Artifact<?> artifact = nodes.get(i).getArtifact();
+                if (!artifact.isOrdered() && hasEquivalentChildren(nodes.get(i)))
+                    return null;
+                data[i] = artifact.getData();
+                ordered[i] = artifact.isOrdered();
+                childCounts[i] = nodes.get(i).getChildren().size();
+                indices.put(artifact, i);
+            }
+
+            int[] referencingArtifacts = new int[referencing.size()];
+            int[] referencingTargets = new int[referencing.size()];
+            String[] referencingKeys = new String[referencing.size()];
+            int referencingCount = 0;
+            for (JDTFileAstRequestor.Pair pair : referencing) {
+                Integer artifact = indices.get(pair.getArtifact());
+                Integer target = pair.getBinding() == null ? null : indices.get(referenced.get(pair.getBinding()));
+                String key = pair.getBindingKey();
+                if (artifact != null && (target != null || key != null)) {
+                    referencingArtifacts[referencingCount] = artifact;
+                    referencingTargets[referencingCount] = target == null ? -1 : target;
+                    referencingKeys[referencingCount] = key;
+                    referencingCount++;
+                }
+            }
+
+            int[] referencedArtifacts = new int[referenced.size()];
+            String[] referencedKeys = new String[referenced.size()];
+            int referencedCount = 0;
+            for (Map.Entry<IBinding, ? extends Artifact.Op<?>> entry : referenced.entrySet()) {
+                Integer artifact = indices.get(entry.getValue());
+                String key = entry.getKey().getKey();
+                if (artifact != null && key != null) {
+                    referencedArtifacts[referencedCount] = artifact;
+                    referencedKeys[referencedCount] = key;
+                    referencedCount++;
+                }
+            }
+
+            return new CachedUnit(data, ordered, childCounts,
+                    Arrays.copyOf(referencingArtifacts, referencingCount), Arrays.copyOf(referencingTargets, referencingCount), Arrays.copyOf(referencingKeys, referencingCount),
+                    Arrays.copyOf(referencedArtifacts, referencedCount), Arrays.copyOf(referencedKeys, referencedCount));
+        }
+
+        private static boolean hasEquivalentChildren(Node node) {
+            Set<ArtifactData> data = new HashSet<>();
+            for (Node child : node.getChildren()) {
+                if (!data.add(child.getArtifact().getData()))
+                    return true;
+            }
+            return false;
+        }
+
+        /**
+         * Creates a new artifact tree of the compilation unit.
+         *
+         * @param entityFactory The entity factory used to create the artifacts and nodes.
+         * @param referencing   The list the references of the new artifacts are added to.
+         * @param referenced    The map the declarations of the new artifacts are added to by binding key.
+         * @return The root node of the new artifact tree.
+         */
+        public Node.Op createNodes(EntityFactory entityFactory, List<JDTFileAstRequestor.Pair> referencing, Map<String, Artifact.Op<?>> referenced) {
+            Node.Op[] nodes = new Node.Op[this.data.length];
+            int[] remainingChildren = this.childCounts.clone();
+            Deque<Integer> parents = new ArrayDeque<>();
+            for (int i = 0; i < this.data.length; i++) {
+                Artifact.Op<?> artifact = entityFactory.createArtifact(this.data[i]);
+                nodes[i] = this.ordered[i] ? entityFactory.createOrderedNode(artifact) : entityFactory.createNode(artifact);
+                if (!parents.isEmpty()) {
+                    int parent = parents.peek();
+                    nodes[parent].addChild(nodes[i]);
+                    if (--remainingChildren[parent] == 0)
+                        parents.pop();
+                }
+                if (this.childCounts[i] > 0)
+                    parents.push(i);
+            }
+
+            for (int i = 0; i < this.referencingArtifacts.length; i++) {
+                Artifact.Op<?> target = this.referencingTargets[i] < 0 ? null : nodes[this.referencingTargets[i]].getArtifact();
+                referencing.add(new JDTFileAstRequestor.Pair(nodes[this.referencingArtifacts[i]].getArtifact(), this.referencingKeys[i], target));
+            }
+            for (int i = 0; i < this.referencedArtifacts.length; i++)
+                referenced.put(this.referencedKeys[i], nodes[this.referencedArtifacts[i]].getArtifact());
+
+            return nodes[0];
+        }
+
+    }
+
+}
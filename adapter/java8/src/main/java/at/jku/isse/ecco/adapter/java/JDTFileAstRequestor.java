@@ -20,20 +20,42 @@ public class JDTFileAstRequestor extends FileASTRequestor {
     private final Path sourcesPath;
     private final Set<Node.Op> nodeSet = new HashSet<>();
     private final Map<IBinding, Artifact.Op<JavaTreeArtifactData>> referenced = new IdentityHashMap<>();
-    private final List<JDTFileAstRequestor.Pair> referencing = new LinkedList<>();
+    private final Map<String, Artifact.Op<?>> referencedByKey = new HashMap<>();
+    private final List<JDTFileAstRequestor.Pair> referencing = new ArrayList<>();
+    private final CompilationUnitCache cache;
+    private final Map<String, String> digests;
+    private Map<IBinding, Artifact.Op<JavaTreeArtifactData>> unitReferenced = referenced;
 
     public Map<IBinding, Artifact.Op<JavaTreeArtifactData>> getReferenced() {
         return referenced;
     }
 
+    /**
+     * Declarations by binding key, which are used to resolve references from and to cached compilation units. Only filled if a cache is used.
+     */
+    public Map<String, Artifact.Op<?>> getReferencedByKey() {
+        return referencedByKey;
+    }
+
     public List<Pair> getReferencing() {
         return referencing;
     }
 
     public JDTFileAstRequestor(EntityFactory entityFactory, Path sourcesPath) {
+        this(entityFactory, sourcesPath, null, Collections.emptyMap());
+    }
+
+    /**
+     * @param cache   The cache the artifact trees of the accepted compilation units are added to, or null.
+     * @param digests The digests (see {@link CompilationUnitCache#digest(Path)}) of the accepted compilation units by source file name.
+     */
+    public JDTFileAstRequestor(EntityFactory entityFactory, Path sourcesPath, CompilationUnitCache cache, Map<String, String> digests) {
         Objects.requireNonNull(entityFactory);
+        Objects.requireNonNull(digests);
         this.entityFactory = entityFactory;
         this.sourcesPath = sourcesPath;
+        this.cache = cache;
+        this.digests = digests;
     }
 
     @Override
@@ -49,9 +71,42 @@ public class JDTFileAstRequestor extends FileASTRequestor {
 
         Node.Op classNode = entityFactory.createOrderedNode(javaFileArtifact);
 
+        addPluginNode(Paths.get(sourceFileName), classNode);
+
+        // collect the declarations of the compilation unit separately to cache them
+        final int referencingStart = referencing.size();
+        unitReferenced = new IdentityHashMap<>();
+        readAst(cu, classNode);
+        referenced.putAll(unitReferenced);
+
+        if (cache != null) {
+            unitReferenced.forEach((binding, artifact) -> {
+                final String key = binding.getKey();
+                if (key != null)
+                    referencedByKey.put(key, artifact);
+            });
+            final String digest = digests.get(sourceFileName);
+            final CompilationUnitCache.CachedUnit unit = digest == null ? null : CompilationUnitCache.CachedUnit.create(classNode, referencing.subList(referencingStart, referencing.size()), unitReferenced);
+            if (unit != null)
+                cache.put(digest, unit);
+        }
+        unitReferenced = referenced;
+    }
+
+    /**
+     * Adds a compilation unit that was not parsed, but taken from the cache. Its references are resolved together with those of the accepted compilation units.
+     *
+     * @param javaFilePath The path of the source file.
+     * @param unit         The cached compilation unit.
+     */
+    public void acceptCachedUnit(Path javaFilePath, CompilationUnitCache.CachedUnit unit) {
+        Node.Op classNode = unit.createNodes(entityFactory, referencing, referencedByKey);
+
+        addPluginNode(sourcesPath.toAbsolutePath().resolve(javaFilePath), classNode);
+    }
 
+    private void addPluginNode(Path javaFilePath, Node.Op classNode) {
         Path sourceFilePath = sourcesPath.toAbsolutePath();
-        Path javaFilePath = Paths.get(sourceFileName);
 
         Artifact.Op<PluginArtifactData> pluginArtifactData = entityFactory.createArtifact(
                 new PluginArtifactData(JavaPlugin.getPluginIdStatic(),
@@ -62,8 +117,6 @@ public class JDTFileAstRequestor extends FileASTRequestor {
 
         pluginNode.addChild(classNode);
         nodeSet.add(pluginNode);
-
-        readAst(cu, classNode);
     }
 
     private void readAst(ASTNode jdtNode, Node.Op parentEccoNode) {
@@ -102,7 +155,7 @@ public class JDTFileAstRequestor extends FileASTRequestor {
         if (astNode == null || artifact == null) return;
         // We have 6 types here in Java 8, one additional in Java 9. See: org.eclipse.jdt.core.dom.IBinding
         ReferencingAstVisitor<JavaTreeArtifactData> referencingAstVisitor = new ReferencingAstVisitor<>(artifact);
-        ReferencedAstVisitor<JavaTreeArtifactData> referencedVisitor = new ReferencedAstVisitor<>(artifact, referenced);
+        ReferencedAstVisitor<JavaTreeArtifactData> referencedVisitor = new ReferencedAstVisitor<>(artifact, unitReferenced);
 
         astNode.accept(referencingAstVisitor);
         referencing.addAll(referencingAstVisitor.getReferencingPairs());
@@ -117,21 +170,51 @@ public class JDTFileAstRequestor extends FileASTRequestor {
     public static class Pair {
         private final IBinding binding;
         private final Artifact.Op<?> artifact;
+        private final String bindingKey;
+        private final Artifact.Op<?> target;
 
         public Pair(IBinding binding, Artifact.Op<?> artifact) {
-            this.binding = binding;
-            this.artifact = artifact;
+            this(artifact, binding);
         }
 
         public Pair(Artifact.Op<?> artifact, IBinding binding) {
             this.binding = binding;
             this.artifact = artifact;
+            this.bindingKey = null;
+            this.target = null;
         }
 
+        /**
+         * Creates a reference of a cached compilation unit.
+         *
+         * @param bindingKey The key of the referenced binding, or null.
+         * @param target     The referenced artifact if it belongs to the same compilation unit, or null to look it up by binding key.
+         */
+        public Pair(Artifact.Op<?> artifact, String bindingKey, Artifact.Op<?> target) {
+            this.binding = null;
+            this.artifact = artifact;
+            this.bindingKey = bindingKey;
+            this.target = target;
+        }
+
+        /**
+         * @return The referenced binding, or null if the reference was taken from the cache.
+         */
         public IBinding getBinding() {
             return binding;
         }
 
+        public String getBindingKey() {
+            return binding != null ? binding.getKey() : bindingKey;
+        }
+
+        /**
+         * @return The referenced artifact if it is already known, or null.
+         */
+        public Artifact.Op<?> getTarget() {
+            return target;
+        }
+
         public Artifact.Op<?> getArtifact() {
             return artifact;
         }
@@ -6,6 +6,7 @@ import at.jku.isse.ecco.listener.ReadListener;
 import at.jku.isse.ecco.adapter.ArtifactReader;
 import at.jku.isse.ecco.tree.Node;
 import com.google.inject.Inject;
+import com.google.inject.name.Named;
 import org.eclipse.jdt.core.BindingKey;
 import org.eclipse.jdt.core.JavaCore;
 import org.eclipse.jdt.core.dom.AST;
@@ -20,13 +21,51 @@ import java.util.*;
 import java.util.function.Consumer;
 
 public class JavaReader implements ArtifactReader<Path, Set<Node.Op>> {
+    public static final String INCREMENTAL_PROPERTY = "java.incremental";
+    public static final String PERSISTENT_CACHE_PROPERTY = "java.persistentCache";
+
+    public static final Path CACHE_DIR_NAME = Paths.get("cache", "java");
+
     private final EntityFactory entityFactory;
 
+    private final CompilationUnitCache cache = new CompilationUnitCache();
+    private boolean incremental = false;
+    private boolean persistentCache = false;
+    private Path repositoryDir = null;
+
     @Inject
     public JavaReader(EntityFactory entityFactory) {
         this.entityFactory = entityFactory;
     }
 
+    public boolean isIncremental() {
+        return incremental;
+    }
+
+    /**
+     * In incremental mode the artifact trees of compilation units are cached (see {@link CompilationUnitCache}) as long as this reader exists,
+     * i.e. during a session of the service, and only compilation units that changed since they were last read are parsed.
+     *
+     * @param incremental Whether to read compilation units incrementally.
+     */
+    @Inject(optional = true)
+    public void setIncremental(@Named(INCREMENTAL_PROPERTY) boolean incremental) {
+        this.incremental = incremental;
+    }
+
+    /**
+     * @param persistentCache Whether the cache of the incremental mode is also stored in the repository (in the {@link #CACHE_DIR_NAME} directory) and thus kept across sessions.
+     */
+    @Inject(optional = true)
+    public void setPersistentCache(@Named(PERSISTENT_CACHE_PROPERTY) boolean persistentCache) {
+        this.persistentCache = persistentCache;
+    }
+
+    @Inject(optional = true)
+    public void setRepositoryDir(@Named("repositoryDir") Path repositoryDir) {
+        this.repositoryDir = repositoryDir;
+    }
+
     @Override
     public String getPluginId() {
         return JavaPlugin.class.getName();
@@ -43,8 +82,16 @@ public class JavaReader implements ArtifactReader<Path, Set<Node.Op>> {
 
     }
 
+    @Override
+    public String[] getFileExtensions() {
+        return new String[]{"java"};
+    }
+
     @Override
     public Set<Node.Op> read(final Path base, Path[] input) {
+        if (incremental)
+            return readIncrementally(base, input);
+
         Consumer<FileASTRequestor> fileASTRequestorConsumer = createNewParser(base, input);
         JDTFileAstRequestor fileAstRequestor = new JDTFileAstRequestor(entityFactory, base);
 
@@ -54,11 +101,54 @@ public class JavaReader implements ArtifactReader<Path, Set<Node.Op>> {
         return fileAstRequestor.getNodes();
     }
 
+    /**
+     * Takes the compilation units that did not change from the cache and parses only the others.
+     * The source folder is still the environment of the parser, so bindings to declarations in unchanged compilation units are resolved without parsing them completely.
+     */
+    private Set<Node.Op> readIncrementally(final Path base, Path[] input) {
+        cache.setDirectory(persistentCache && repositoryDir != null ? repositoryDir.resolve(CACHE_DIR_NAME) : null);
+
+        final Path absoluteBase = base.toAbsolutePath();
+        final Map<String, String> digests = new HashMap<>();
+        final Map<Path, CompilationUnitCache.CachedUnit> cachedUnits = new LinkedHashMap<>();
+        final List<Path> changedFiles = new ArrayList<>();
+        for (Path file : input) {
+            final Path sourceFile = absoluteBase.resolve(file);
+            final String digest = CompilationUnitCache.digest(sourceFile);
+            final CompilationUnitCache.CachedUnit cachedUnit = cache.get(digest);
+            if (cachedUnit != null) {
+                cachedUnits.put(file, cachedUnit);
+            } else {
+                changedFiles.add(file);
+                digests.put(sourceFile.toString(), digest);
+            }
+        }
+
+        JDTFileAstRequestor fileAstRequestor = new JDTFileAstRequestor(entityFactory, base, cache, digests);
+        if (!changedFiles.isEmpty())
+            createNewParser(base, changedFiles.toArray(new Path[0])).accept(fileAstRequestor);
+        cachedUnits.forEach(fileAstRequestor::acceptCachedUnit);
+
+        resolveReferences(fileAstRequestor);
+        return fileAstRequestor.getNodes();
+    }
+
+    /**
+     * Resolves references by binding, or by binding key if either the referencing or the referenced artifact was taken from the cache.
+     */
     private void resolveReferences(JDTFileAstRequestor fileAstRequestor) {
         final List<JDTFileAstRequestor.Pair> referencing = fileAstRequestor.getReferencing();
         final Map<IBinding, Artifact.Op<JavaTreeArtifactData>> referenced = fileAstRequestor.getReferenced();
+        final Map<String, Artifact.Op<?>> referencedByKey = fileAstRequestor.getReferencedByKey();
         for (JDTFileAstRequestor.Pair pair : referencing) {
-            final Artifact.Op<JavaTreeArtifactData> reference = referenced.get(pair.getBinding());
+            Artifact.Op<?> reference = pair.getTarget();
+            if (reference == null && pair.getBinding() != null)
+                reference = referenced.get(pair.getBinding());
+            if (reference == null && !referencedByKey.isEmpty()) {
+                final String bindingKey = pair.getBindingKey();
+                if (bindingKey != null)
+                    reference = referencedByKey.get(bindingKey);
+            }
             if (reference != null) {
                 pair.getArtifact().addUses(reference);
             }
@@ -87,9 +177,23 @@ public class JavaReader implements ArtifactReader<Path, Set<Node.Op>> {
     public static final String MAXIMUM_SUPPORTED_JAVA_VERSION = JavaCore.VERSION_1_8;
     public static final int AST_VERSION = AST.JLS9;
 
+    // the environment does not change during the lifetime of the reader, so it is set up only once
+    private final String[] classpath = new String[]{System.getProperty("java.class.path")};
+    private Map<String, String> compilerOptions = null;
+
+    private synchronized Map<String, String> getCompilerOptions() {
+        if (compilerOptions == null) {
+            final Hashtable<String, String> options = JavaCore.getOptions();
+            options.put(JavaCore.COMPILER_COMPLIANCE, MAXIMUM_SUPPORTED_JAVA_VERSION);
+            options.put(JavaCore.COMPILER_SOURCE, MAXIMUM_SUPPORTED_JAVA_VERSION);
+            options.put(JavaCore.COMPILER_CODEGEN_TARGET_PLATFORM, MAXIMUM_SUPPORTED_JAVA_VERSION);
+            compilerOptions = Collections.unmodifiableMap(options);
+        }
+        return compilerOptions;
+    }
+
     public Consumer<FileASTRequestor> createNewParser(Path sourceFolderPath, Path[] sourceFiles) {
         String sourceFolder = sourceFolderPath.toString();
-        String[] classpath = new String[]{System.getProperty("java.class.path")};
 
         final ASTParser parser = ASTParser.newParser(AST_VERSION);
         //Configure parser
@@ -101,12 +205,7 @@ public class JavaReader implements ArtifactReader<Path, Set<Node.Op>> {
 
         parser.setKind(ASTParser.K_COMPILATION_UNIT); // Always parse whole java files
 
-        final Hashtable<String, String> options = JavaCore.getOptions();
-        options.put(JavaCore.COMPILER_COMPLIANCE, MAXIMUM_SUPPORTED_JAVA_VERSION);
-        options.put(JavaCore.COMPILER_SOURCE, MAXIMUM_SUPPORTED_JAVA_VERSION);
-        options.put(JavaCore.COMPILER_CODEGEN_TARGET_PLATFORM, MAXIMUM_SUPPORTED_JAVA_VERSION);
-
-        parser.setCompilerOptions(options);
+        parser.setCompilerOptions(getCompilerOptions());
 
         final String[] bindingKeys = Arrays.stream(sourceFiles)
                 .map(Object::toString)
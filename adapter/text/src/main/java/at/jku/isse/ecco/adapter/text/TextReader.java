@@ -49,6 +49,18 @@ public class TextReader implements ArtifactReader<Path, Set<Node.Op>> {
 			return false;
 	}
 
+	private static final String[] fileExtensions = new String[]{"txt"};
+
+	@Override
+	public String[] getFileExtensions() {
+		return fileExtensions;
+	}
+
+	@Override
+	public boolean canReadIndependently() {
+		return true;
+	}
+
 	@Override
 	public Set<Node.Op> read(Path[] input) {
 		return this.read(Paths.get("."), input);
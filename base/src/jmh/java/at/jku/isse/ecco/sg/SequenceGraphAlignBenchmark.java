@@ -0,0 +1,117 @@
+package at.jku.isse.ecco.sg;
+
+import at.jku.isse.ecco.adapter.text.LineArtifactData;
+import at.jku.isse.ecco.artifact.Artifact;
+import at.jku.isse.ecco.storage.mem.artifact.BaseArtifact;
+import at.jku.isse.ecco.storage.mem.sg.BaseSequenceGraph;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the dynamic programming alignment of {@link SequenceGraphOperator#align(List)} with the original branch and bound alignment {@link SequenceGraphOperator#alignBranchAndBound(List)}.
+ * <p>
+ * The input is either synthetic (a text of the given number of lines of which every variant removes and inserts a few lines) or the lines of the Canvas.java file of the examples/dpl_variants (directory can be changed via the system property "ecco.examples").
+ * All but the last variant are sequenced into a sequence graph, the last variant is aligned to it.
+ * <p>
+ * The synthetic inputs are kept small because the branch and bound alignment grows exponentially (about 30 seconds per alignment for 1000 lines).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xss256m") // the branch and bound alignment recurses once per symbol
+@State(Scope.Thread)
+public class SequenceGraphAlignBenchmark {
+
+	@Param({"synthetic-100", "synthetic-500", "dpl-canvas"})
+	public String input;
+
+	private static final int SYNTHETIC_VARIANTS = 5;
+
+	private static final int SYNTHETIC_CHANGE_RATE = 50;
+
+	private SequenceGraph.Op sequenceGraph;
+	private List<Artifact.Op<?>> artifacts;
+	private int currentSequenceNumber;
+
+
+	@Setup(Level.Trial)
+	public void setupTrial() throws IOException {
+		List<List<String>> variants;
+		if (this.input.startsWith("synthetic-"))
+			variants = createSyntheticVariants(Integer.parseInt(this.input.substring("synthetic-".length())), SYNTHETIC_VARIANTS);
+		else
+			variants = readVariants(Paths.get(System.getProperty("ecco.examples", "../examples")).resolve("dpl_variants"), "src/Canvas.java");
+
+		this.sequenceGraph = new BaseSequenceGraph();
+		for (List<String> variant : variants.subList(0, variants.size() - 1))
+			this.sequenceGraph.sequenceArtifacts(createArtifacts(variant));
+		this.artifacts = createArtifacts(variants.get(variants.size() - 1));
+		this.currentSequenceNumber = this.sequenceGraph.getCurrentSequenceNumber();
+	}
+
+	@Setup(Level.Invocation)
+	public void setupInvocation() {
+		// align assigns sequence numbers to the artifacts and possibly new ones in the sequence graph
+		for (Artifact.Op<?> artifact : this.artifacts)
+			artifact.setSequenceNumber(Artifact.UNASSIGNED_SEQUENCE_NUMBER);
+		this.sequenceGraph.setCurrentSequenceNumber(this.currentSequenceNumber);
+	}
+
+
+	@Benchmark
+	public int[] dynamicProgramming() {
+		return new SequenceGraphOperator(this.sequenceGraph).align(this.artifacts);
+	}
+
+	@Benchmark
+	public int[] branchAndBound() {
+		return new SequenceGraphOperator(this.sequenceGraph).alignBranchAndBound(this.artifacts);
+	}
+
+
+	private static List<List<String>> createSyntheticVariants(int lines, int count) {
+		Random random = new Random(42);
+		List<List<String>> variants = new ArrayList<>();
+		for (int v = 0; v < count; v++) {
+			List<String> variant = new ArrayList<>();
+			for (int i = 0; i < lines; i++) {
+				if (random.nextInt(SYNTHETIC_CHANGE_RATE) == 0) // insert a line only in this variant
+					variant.add("variant " + v + " line " + i);
+				if (random.nextInt(SYNTHETIC_CHANGE_RATE) != 0) // remove a line only in this variant
+					variant.add("line " + i);
+			}
+			variants.add(variant);
+		}
+		return variants;
+	}
+
+	private static List<List<String>> readVariants(Path variantsDir, String file) throws IOException {
+		List<List<String>> variants = new ArrayList<>();
+		for (int v = 1; Files.isDirectory(variantsDir.resolve("V" + v)); v++) {
+			Path path = variantsDir.resolve("V" + v).resolve(file);
+			if (Files.exists(path))
+				variants.add(Files.readAllLines(path, StandardCharsets.UTF_8));
+		}
+		if (variants.size() < 2)
+			throw new IOException("Not enough variants of " + file + " in " + variantsDir);
+		return variants;
+	}
+
+	private static List<Artifact.Op<?>> createArtifacts(List<String> lines) {
+		List<Artifact.Op<?>> artifacts = new ArrayList<>();
+		for (String line : lines)
+			artifacts.add(new BaseArtifact<>(new LineArtifactData(line)));
+		return artifacts;
+	}
+
+}
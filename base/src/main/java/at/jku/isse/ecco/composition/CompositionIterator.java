@@ -0,0 +1,56 @@
+package at.jku.isse.ecco.composition;
+
+import at.jku.isse.ecco.tree.Node;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Iterates over the children of a node in order and releases every lazy composition child (see {@link LazyCompositionNode#release()}) as soon as the iteration moves on to the next child.
+ * <p>
+ * Consumers like writers that process every child subtree exactly once can use this to stream a composition: only the subtree of the current child is kept activated instead of every node that was ever activated.
+ */
+public class CompositionIterator implements Iterator<Node> {
+
+	private final Iterator<? extends Node> children;
+
+	private Node current = null;
+
+
+	public CompositionIterator(Node node) {
+		checkNotNull(node);
+
+		this.children = node.getChildren().iterator();
+	}
+
+
+	@Override
+	public boolean hasNext() {
+		if (this.children.hasNext())
+			return true;
+
+		this.releaseCurrent();
+		return false;
+	}
+
+	@Override
+	public Node next() {
+		this.releaseCurrent();
+
+		if (!this.children.hasNext())
+			throw new NoSuchElementException();
+
+		this.current = this.children.next();
+		return this.current;
+	}
+
+
+	private void releaseCurrent() {
+		if (this.current instanceof LazyCompositionNode)
+			((LazyCompositionNode) this.current).release();
+		this.current = null;
+	}
+
+}
@@ -6,12 +6,40 @@ import at.jku.isse.ecco.sg.SequenceGraph;
 import java.util.*;
 
 /**
- * An order selector that selects the first order of artifacts it encounters.
+ * An order selector that selects an order of artifacts by walking the sequence graph from its root. By default it follows the first edge of every sequence graph node, see {@link Policy}.
+ * <p>
+ * The children of a node are indexed by their artifacts once, so that selecting an order is linear in the number of sequence graph nodes and edges on the walked path. The walk is iterative and does not recurse per child.
  */
 public class DefaultOrderSelector implements OrderSelector {
 
+	/**
+	 * The policy for choosing the edge to follow at every sequence graph node.
+	 */
+	public enum Policy {
+		/**
+		 * Follows the first edge of every sequence graph node.
+		 */
+		FIRST,
+		/**
+		 * Follows the edge to the artifact that is contained in the most original nodes (i.e. in the most selected associations) among the edges to artifacts that have not been placed yet. Falls back to the first edge if there are none.
+		 */
+		MOST_ASSOCIATIONS
+	}
+
+	private final Policy policy;
+
 	private Collection<Artifact<?>> uncertainOrder = new ArrayList<>();
 
+
+	public DefaultOrderSelector() {
+		this(Policy.FIRST);
+	}
+
+	public DefaultOrderSelector(Policy policy) {
+		this.policy = policy;
+	}
+
+
 	/**
 	 * Returns a collection of ordered artifacts for which multiple possible orders of children existed and an arbitrary one was selected.
 	 *
@@ -47,52 +75,70 @@ public class DefaultOrderSelector implements OrderSelector {
 
 	/**
 	 * Traverses the sequence graph of the ordered node to retrieve the first valid order it can find.
+	 * <p>
+	 * At every sequence graph node one edge is followed and the first remaining child with the artifact of the edge (if any) is placed next.
+	 * The order is ambiguous if after placing a child another edge of the same sequence graph node leads to an artifact that still has remaining children.
 	 *
-	 * @param sgn               The sequence graph to traverse.
+	 * @param root              The root of the sequence graph to traverse.
 	 * @param unorderedChildren The list of children of the ordered node without specific order (i.e. not yet ordered according to the sequence graph).
 	 * @param orderedChildren   The same children, but now put in valid order.
 	 * @return True if the order was ambiguous, false otherwise.
 	 */
-	private boolean traverseSequenceGraph(SequenceGraph.Node.Op sgn, List<at.jku.isse.ecco.tree.Node.Op> unorderedChildren, List<at.jku.isse.ecco.tree.Node.Op> orderedChildren) {
+	private boolean traverseSequenceGraph(SequenceGraph.Node.Op root, List<at.jku.isse.ecco.tree.Node.Op> unorderedChildren, List<at.jku.isse.ecco.tree.Node.Op> orderedChildren) {
+		// index the remaining children by their artifacts (in the order of the children)
+		Map<Artifact<?>, Deque<at.jku.isse.ecco.tree.Node.Op>> remainingChildren = new HashMap<>();
+		for (at.jku.isse.ecco.tree.Node.Op child : unorderedChildren) {
+			if (child.getArtifact() != null)
+				remainingChildren.computeIfAbsent(child.getArtifact(), artifact -> new ArrayDeque<>()).add(child);
+		}
+
 		boolean uncertainOrder = false;
 
-		if (sgn.getChildren().isEmpty())
-			return uncertainOrder;
+		SequenceGraph.Node.Op sgn = root;
+		while (!sgn.getChildren().isEmpty()) {
+			Map.Entry<Artifact.Op<?>, SequenceGraph.Node.Op> entry = this.selectEdge(sgn, remainingChildren);
 
-		Map.Entry<Artifact.Op<?>, SequenceGraph.Node.Op> entry = sgn.getChildren().entrySet().iterator().next();
+			Deque<at.jku.isse.ecco.tree.Node.Op> matches = remainingChildren.get(entry.getKey());
+			if (matches != null && !matches.isEmpty()) {
+				orderedChildren.add(matches.removeFirst());
 
-		at.jku.isse.ecco.tree.Node.Op match = null;
-		Iterator<at.jku.isse.ecco.tree.Node.Op> iterator = unorderedChildren.iterator();
-		while (iterator.hasNext()) {
-			at.jku.isse.ecco.tree.Node.Op next = iterator.next();
-			if (next.getArtifact().equals(entry.getKey())) {
-				match = next;
-				iterator.remove();
-				break;
-			}
-		}
-		if (match != null) {
-			orderedChildren.add(match);
-
-			// check if we would have other order options
-			for (Artifact<?> key : sgn.getChildren().keySet()) {
-				for (at.jku.isse.ecco.tree.Node node : unorderedChildren) {
-					if (node.getArtifact() != null && node.getArtifact().equals(key)) {
-						if (match != node)
+				// check if we would have other order options
+				if (!uncertainOrder) {
+					for (Artifact<?> key : sgn.getChildren().keySet()) {
+						Deque<at.jku.isse.ecco.tree.Node.Op> others = remainingChildren.get(key);
+						if (others != null && !others.isEmpty()) {
 							uncertainOrder = true;
-						break;
+							break;
+						}
 					}
 				}
-				if (uncertainOrder)
-					break;
 			}
-		}
 
-		boolean childUncertainOrder = this.traverseSequenceGraph(entry.getValue(), unorderedChildren, orderedChildren);
-		uncertainOrder = uncertainOrder || childUncertainOrder;
+			sgn = entry.getValue();
+		}
 
 		return uncertainOrder;
 	}
 
+	private Map.Entry<Artifact.Op<?>, SequenceGraph.Node.Op> selectEdge(SequenceGraph.Node.Op sgn, Map<Artifact<?>, Deque<at.jku.isse.ecco.tree.Node.Op>> remainingChildren) {
+		Map.Entry<Artifact.Op<?>, SequenceGraph.Node.Op> first = sgn.getChildren().entrySet().iterator().next();
+		if (this.policy == Policy.FIRST)
+			return first;
+
+		Map.Entry<Artifact.Op<?>, SequenceGraph.Node.Op> best = null;
+		int bestCount = 0;
+		for (Map.Entry<Artifact.Op<?>, SequenceGraph.Node.Op> entry : sgn.getChildren().entrySet()) {
+			Deque<at.jku.isse.ecco.tree.Node.Op> matches = remainingChildren.get(entry.getKey());
+			if (matches == null || matches.isEmpty())
+				continue;
+			at.jku.isse.ecco.tree.Node.Op match = matches.getFirst();
+			int count = match instanceof LazyCompositionNode ? ((LazyCompositionNode) match).getOrigNodeCount() : 1;
+			if (count > bestCount) {
+				best = entry;
+				bestCount = count;
+			}
+		}
+		return best != null ? best : first;
+	}
 
 }
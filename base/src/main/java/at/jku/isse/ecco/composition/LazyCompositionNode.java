@@ -30,6 +30,8 @@ public class LazyCompositionNode implements Node, Node.Op {
 
 	private boolean activated = false;
 
+	private int[] selectedOrder = null; // positions of the children in the order selected when this node was first activated, applied again when it is activated after a release
+
 	private List<Op> origNodes;
 
 
@@ -48,6 +50,15 @@ public class LazyCompositionNode implements Node, Node.Op {
 		this.origNodes.add(origNode);
 	}
 
+	/**
+	 * Returns the number of original nodes that were composed into this node, i.e. the number of composed associations containing it.
+	 *
+	 * @return The number of original nodes.
+	 */
+	public int getOrigNodeCount() {
+		return this.origNodes.size();
+	}
+
 
 	private void activate() {
 		if (this.activated)
@@ -56,11 +67,12 @@ public class LazyCompositionNode implements Node, Node.Op {
 		// compute the children of this node, but do not activate them!
 
 		List<LazyCompositionNode> allChildren = new ArrayList<>();
+		Map<Node, LazyCompositionNode> allChildrenIndex = new HashMap<>(); // equal original children of different original nodes are merged into the first composition node created for them
 
 		for (Op origNode : this.origNodes) {
 			for (Op origChildNode : origNode.getChildren()) {
-				LazyCompositionNode newChildNode = null;
-				if (!allChildren.contains(origChildNode)) {
+				LazyCompositionNode newChildNode = allChildrenIndex.get(origChildNode);
+				if (newChildNode == null) {
 					newChildNode = new LazyCompositionNode(this.orderSelector);
 
 					newChildNode.setParent(this);
@@ -70,8 +82,8 @@ public class LazyCompositionNode implements Node, Node.Op {
 					newChildNode.addOrigNode(origChildNode);
 
 					allChildren.add(newChildNode);
+					allChildrenIndex.put(newChildNode, newChildNode);
 				} else {
-					newChildNode = allChildren.get(allChildren.indexOf(origChildNode));
 					newChildNode.addOrigNode(origChildNode);
 				}
 				if (origChildNode.isUnique()) {
@@ -85,11 +97,38 @@ public class LazyCompositionNode implements Node, Node.Op {
 		this.activated = true;
 
 		if (this.orderSelector != null && this.getArtifact() != null && this.getArtifact().isOrdered() && this.getArtifact().isSequenced() && this.getArtifact().getSequenceGraph() != null) {
-			this.orderSelector.select(this);
+			// the order is selected only once so that the order selector does not record uncertain orders again after a release
+			if (this.selectedOrder == null) {
+				Map<Op, Integer> positions = new IdentityHashMap<>();
+				for (int i = 0; i < allChildren.size(); i++)
+					positions.put(allChildren.get(i), i);
+				this.orderSelector.select(this);
+				this.selectedOrder = new int[this.children.size()];
+				for (int i = 0; i < this.children.size(); i++)
+					this.selectedOrder[i] = positions.get(this.children.get(i));
+			} else {
+				this.children.clear();
+				for (int position : this.selectedOrder)
+					this.children.add(allChildren.get(position));
+			}
 		}
 	}
 
 
+	/**
+	 * Releases the children of this node so that they (and their subtrees) can be garbage collected. They are computed again when they are accessed the next time, in the order that was selected for them before.
+	 * See {@link CompositionIterator} for releasing the children of a node while iterating over them.
+	 */
+	public void release() {
+		if (!this.activated)
+			return;
+
+		this.children.clear();
+		this.operator = new NodeOperator(this); // drops the child index
+		this.activated = false;
+	}
+
+
 	@Override
 	public List<Op> getChildren() {
 		this.activate();
@@ -174,6 +213,8 @@ public class LazyCompositionNode implements Node, Node.Op {
 
 		this.children.add(child);
 		child.setParent(this);
+
+		this.operator.childAdded(child);
 	}
 
 	@Override
@@ -186,7 +227,14 @@ public class LazyCompositionNode implements Node, Node.Op {
 	public void removeChild(Op child) {
 		checkNotNull(child);
 
-		this.children.remove(child);
+		if (NodeOperator.removeChild(this.children, child))
+			this.operator.childRemoved(child);
+	}
+
+	@Override
+	public Op getChild(Node node) {
+		this.activate();
+		return this.operator.getChild(node);
 	}
 
 
@@ -15,7 +15,13 @@ public class Checkout {
 	private Configuration configuration;
 	private Collection<Warning> warnings;
 
+	/**
+	 * The maximum number of missing modules that are kept as sample (see {@link #getMissing()}).
+	 */
+	public static final int MAX_MISSING_SAMPLE = 1000;
+
 	private Set<Module> missing;
+	private long missingCount;
 	private Set<Module> surplus;
 
 	private Collection<Artifact<?>> orderWarnings;
@@ -30,6 +36,7 @@ public class Checkout {
 	public Checkout() {
 		this.warnings = new ArrayList<>();
 		this.missing = new HashSet<>();
+		this.missingCount = 0;
 		this.surplus = new HashSet<>();
 		this.orderWarnings = new ArrayList<>();
 		this.unresolvedAssociations = new HashSet<>();
@@ -62,10 +69,26 @@ public class Checkout {
 		return this.surplus;
 	}
 
+	/**
+	 * As a configuration can have very many modules, only a sample of at most {@link #MAX_MISSING_SAMPLE} missing modules is kept. See {@link #getMissingCount()} for their number.
+	 *
+	 * @return The sample of the missing modules.
+	 */
 	public Set<Module> getMissing() {
 		return this.missing;
 	}
 
+	/**
+	 * @return The number of missing modules, which can exceed the size of the sample returned by {@link #getMissing()}.
+	 */
+	public long getMissingCount() {
+		return this.missingCount;
+	}
+
+	public void setMissingCount(long missingCount) {
+		this.missingCount = missingCount;
+	}
+
 	public Collection<Artifact<?>> getOrderWarnings() {
 		return this.orderWarnings;
 	}
@@ -1,11 +1,18 @@
 package at.jku.isse.ecco.core;
 
 import at.jku.isse.ecco.EccoException;
+import at.jku.isse.ecco.artifact.Artifact;
 import at.jku.isse.ecco.artifact.ArtifactReference;
 import at.jku.isse.ecco.tree.Node;
 
 import java.util.*;
 
+/**
+ * The dependency graph of a set of associations. An association depends on another association if one of its unique artifacts references or is a child of a unique artifact of the other association.
+ * <p>
+ * The associations containing the artifacts are looked up in an index that is built in one pass over the trees of the associations and kept across computations, so that the graph can be recomputed (see {@link #compute(Collection, ReferencesResolveMode)}) or extended (see {@link #add(Collection, ReferencesResolveMode)}) without indexing the trees of associations again that were indexed before.
+ * When the artifact trees of associations change the index must be cleared via {@link #invalidate()}.
+ */
 public class DependencyGraph {
 
 	private static final int CROSS_REFERENCE_WEIGHT = 1;
@@ -35,6 +42,11 @@ public class DependencyGraph {
 	private Map<Association, Map<Association, DependencyImpl>> dependencyMap = new HashMap<>();
 
 	private Collection<Association> associations = new ArrayList<>();
+	private Set<Association> associationSet = Collections.newSetFromMap(new IdentityHashMap<>());
+
+	private Map<Artifact<?>, Association> containingAssociations = new IdentityHashMap<>();
+	private Set<Association> indexedAssociations = Collections.newSetFromMap(new IdentityHashMap<>());
+	private long indexedTreeCount = 0;
 
 
 	public DependencyGraph() {
@@ -64,13 +76,78 @@ public class DependencyGraph {
 		this.unresolvedDependencies.clear();
 		this.dependencyMap.clear();
 		this.associations.clear();
-		this.associations.addAll(associations);
+		this.associationSet.clear();
+
+		this.add(associations, referencesResolveMode);
+	}
 
+	/**
+	 * Adds the given associations and their dependencies to the graph. Unresolved dependencies on the given associations become resolved.
+	 *
+	 * @param associations          The associations to add.
+	 * @param referencesResolveMode The mode for dealing with references to associations that are not part of the graph.
+	 */
+	public void add(Collection<? extends Association> associations, ReferencesResolveMode referencesResolveMode) {
+		List<Association> addedAssociations = new ArrayList<>();
 		for (Association association : associations) {
+			if (this.associationSet.add(association)) {
+				this.associations.add(association);
+				addedAssociations.add(association);
+				if (this.indexedAssociations.add(association)) {
+					this.indexRec(association, association.getRootNode());
+					this.indexedTreeCount++;
+				}
+			}
+		}
+
+		Iterator<DependencyImpl> it = this.unresolvedDependencies.iterator();
+		while (it.hasNext()) {
+			DependencyImpl dependency = it.next();
+			if (this.associationSet.contains(dependency.getTo())) {
+				this.dependencies.add(dependency);
+				it.remove();
+			}
+		}
+
+		for (Association association : addedAssociations) {
 			this.computeRec(association, association.getRootNode(), referencesResolveMode);
 		}
 	}
 
+	/**
+	 * Clears the index of the associations containing the artifacts. Must be called when the artifact trees of associations change.
+	 */
+	public void invalidate() {
+		this.containingAssociations.clear();
+		this.indexedAssociations.clear();
+	}
+
+	/**
+	 * @return The number of association trees this graph has indexed so far, counting trees that were indexed again after {@link #invalidate()}.
+	 */
+	public long getIndexedTreeCount() {
+		return this.indexedTreeCount;
+	}
+
+	private void indexRec(Association association, Node node) {
+		if (node.isUnique() && node.getArtifact() != null && node.getArtifact().getContainingNode() == node)
+			this.containingAssociations.put(node.getArtifact(), association);
+
+		for (Node child : node.getChildren()) {
+			this.indexRec(association, child);
+		}
+	}
+
+	private Association getContainingAssociation(Artifact<?> artifact) {
+		Association association = this.containingAssociations.get(artifact);
+		if (association == null) {
+			association = artifact.getContainingNode().getContainingAssociation();
+			if (association != null)
+				this.containingAssociations.put(artifact, association);
+		}
+		return association;
+	}
+
 	private void computeRec(Association fromA, Node node, ReferencesResolveMode referencesResolveMode) {
 		if (node.isUnique() && node.getArtifact() != null) {
 			// cross references
@@ -78,11 +155,11 @@ public class DependencyGraph {
 			while (it.hasNext()) {
 				ArtifactReference ar = it.next();
 
-				Association toA = ar.getTarget().getContainingNode().getContainingAssociation();
+				Association toA = this.getContainingAssociation(ar.getTarget());
 
 				if (toA != null) {
-					if (this.associations.contains(toA) || referencesResolveMode != ReferencesResolveMode.TRIM_UNRESOLVED_ARTIFACT_REFERENCES) {
-						if (!this.associations.contains(toA) && referencesResolveMode == ReferencesResolveMode.INCLUDE_ALL_REFERENCED_ASSOCIATIONS) {
+					if (this.associationSet.contains(toA) || referencesResolveMode != ReferencesResolveMode.TRIM_UNRESOLVED_ARTIFACT_REFERENCES) {
+						if (referencesResolveMode == ReferencesResolveMode.INCLUDE_ALL_REFERENCED_ASSOCIATIONS && this.associationSet.add(toA)) {
 							this.associations.add(toA);
 						}
 						if (fromA != toA) {
@@ -97,7 +174,7 @@ public class DependencyGraph {
 								dependency.setFrom(fromA);
 								dependency.setTo(toA);
 								fromDependencyMap.put(toA, dependency);
-								if (this.associations.contains(toA))
+								if (this.associationSet.contains(toA))
 									this.dependencies.add(dependency);
 								else
 									this.unresolvedDependencies.add(dependency);
@@ -116,7 +193,7 @@ public class DependencyGraph {
 
 			// parent
 			if (node.getParent() != null && node.getParent().getArtifact() != null) {
-				Association parentA = node.getParent().getArtifact().getContainingNode().getContainingAssociation();
+				Association parentA = this.getContainingAssociation(node.getParent().getArtifact());
 
 				if (parentA != null) {
 					if (fromA != parentA) {
@@ -131,7 +208,7 @@ public class DependencyGraph {
 							dependency.setFrom(fromA);
 							dependency.setTo(parentA);
 							fromDependencyMap.put(parentA, dependency);
-							if (this.associations.contains(parentA))
+							if (this.associationSet.contains(parentA))
 								this.dependencies.add(dependency);
 							else
 								this.unresolvedDependencies.add(dependency);
@@ -21,6 +21,7 @@ import java.util.Set;
 
 /**
  * Creates entities depending on the used data implementation.
+ * Implementations must be thread-safe, as readers create nodes and artifacts from several threads when reading files in parallel.
  *
  * @author JKU, ISSE
  * @version 1.0
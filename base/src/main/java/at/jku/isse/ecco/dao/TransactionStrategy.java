@@ -9,8 +9,24 @@ public interface TransactionStrategy {
 	public void close() throws EccoException;
 
 
+	/**
+	 * Begins a transaction that may read and write. Write transactions are exclusive, i.e. they wait for all other transactions to end.
+	 *
+	 * @throws EccoException If the transaction cannot be started, e.g. because the current thread is already within a read-only transaction.
+	 */
 	public void begin() throws EccoException;
 
+	/**
+	 * Begins a transaction that only reads. Read-only transactions of different threads can run concurrently and only wait for write transactions.
+	 * A read-only transaction within a write transaction of the same thread simply becomes part of it.
+	 * Storages that do not distinguish between readers and writers begin a normal transaction.
+	 *
+	 * @throws EccoException If the transaction cannot be started.
+	 */
+	public default void beginReadOnly() throws EccoException {
+		this.begin();
+	}
+
 	public void end() throws EccoException;
 
 	public void rollback() throws EccoException;
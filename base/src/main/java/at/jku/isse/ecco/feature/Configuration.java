@@ -2,6 +2,7 @@ package at.jku.isse.ecco.feature;
 
 import at.jku.isse.ecco.module.Module;
 
+import java.util.Iterator;
 import java.util.Set;
 
 /**
@@ -32,4 +33,20 @@ public interface Configuration {//extends Collection<FeatureInstance> {
 
 	public Set<Module> computeModules(int maxOrder);
 
+	/**
+	 * Counts the modules that {@link #computeModules(int)} computes without computing them (an upper bound if the configuration contains several instances of the same feature).
+	 *
+	 * @param maxOrder The maximum order up to which modules shall be counted.
+	 * @return The number of modules or {@link Long#MAX_VALUE} if it does not fit into a long.
+	 */
+	public long countModules(int maxOrder);
+
+	/**
+	 * Returns an iterator that computes the modules of {@link #computeModules(int)} one after the other.
+	 *
+	 * @param maxOrder The maximum order up to which modules shall be computed.
+	 * @return The iterator over the modules.
+	 */
+	public Iterator<Module> iterateModules(int maxOrder);
+
 }
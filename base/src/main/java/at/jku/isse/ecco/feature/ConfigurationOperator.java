@@ -1,19 +1,22 @@
 package at.jku.isse.ecco.feature;
 
+import at.jku.isse.ecco.EccoException;
 import at.jku.isse.ecco.dao.EntityFactory;
 import at.jku.isse.ecco.module.Module;
 import at.jku.isse.ecco.module.ModuleFeature;
 
-import java.util.Arrays;
-import java.util.Collection;
-import java.util.HashSet;
-import java.util.Set;
+import java.util.*;
 import java.util.stream.Collectors;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
 public class ConfigurationOperator {
 
+	/**
+	 * The maximum number of modules that are computed for a configuration. Computing more modules fails with an {@link EccoException} before any module is created.
+	 */
+	public static final long MAX_MODULES = 10000000L;
+
 	private EntityFactory entityFactory;
 
 	private ConfigurationOperand configuration;
@@ -64,6 +67,167 @@ public class ConfigurationOperator {
 	 * @return The set of modules.
 	 */
 	public Set<Module> computeModules(int maxOrder) {
+		checkModuleCount(this.configuration, maxOrder);
+
+		Set<Module> modules = new HashSet<>();
+		Iterator<Module> it = this.iterateModules(maxOrder);
+		while (it.hasNext())
+			modules.add(it.next());
+		return modules;
+	}
+
+	/**
+	 * Counts the modules that {@link #computeModules(int)} computes without computing them.
+	 * A module is a combination of up to maxOrder + 1 feature instances, where every feature instance can be extended by any subset of the other versions of its feature.
+	 * If the configuration contains several instances of the same feature the result is an upper bound.
+	 *
+	 * @param maxOrder The maximum order up to which modules shall be counted.
+	 * @return The number of modules or {@link Long#MAX_VALUE} if it does not fit into a long.
+	 */
+	public long countModules(int maxOrder) {
+		// count[k] is the number of modules with k module features among the feature instances seen so far
+		int maxSize = Math.max(0, Math.min(maxOrder + 1, this.configuration.getFeatureInstances().size()));
+		long[] count = new long[maxSize + 1];
+		count[0] = 1;
+		for (FeatureInstance featureInstance : this.configuration.getFeatureInstances()) {
+			long otherVersions = featureInstance.getFeature().getVersions().stream().filter(featureVersion -> !featureVersion.equals(featureInstance.getFeatureVersion())).count();
+			long versionSubsets = otherVersions >= 62 ? Long.MAX_VALUE : 1L << otherVersions;
+			for (int k = maxSize; k > 0; k--)
+				count[k] = saturatedAdd(count[k], saturatedMultiply(count[k - 1], versionSubsets));
+		}
+		long result = 0;
+		for (int k = 1; k <= maxSize; k++)
+			result = saturatedAdd(result, count[k]);
+		return result;
+	}
+
+	/**
+	 * Returns an iterator over the modules of {@link #computeModules(int)} that creates the modules one after the other instead of materializing all of them.
+	 *
+	 * @param maxOrder The maximum order up to which modules shall be computed.
+	 * @return The iterator over the modules.
+	 */
+	public Iterator<Module> iterateModules(int maxOrder) {
+		List<FeatureInstance> featureInstances = new ArrayList<>(this.configuration.getFeatureInstances());
+		Set<Feature> features = new HashSet<>();
+		for (FeatureInstance featureInstance : featureInstances) {
+			// several instances of the same feature or too many versions are left to the original power set computation
+			if (!features.add(featureInstance.getFeature()) || featureInstance.getFeature().getVersions().size() > 63) {
+				checkModuleCount(this.configuration, maxOrder);
+				return this.computeModulesEagerly(maxOrder).iterator();
+			}
+		}
+		return new ModuleIterator(featureInstances, maxOrder);
+	}
+
+	/**
+	 * Checks the projected number of modules of the given configuration before they are computed.
+	 *
+	 * @param configuration The configuration.
+	 * @param maxOrder      The maximum order up to which modules shall be computed.
+	 * @throws EccoException If the configuration results in more than {@link #MAX_MODULES} modules.
+	 */
+	public static void checkModuleCount(Configuration configuration, int maxOrder) throws EccoException {
+		long count = configuration.countModules(maxOrder);
+		if (count > MAX_MODULES)
+			throw new EccoException("The configuration " + configuration + " results in " + (count == Long.MAX_VALUE ? "more than " + Long.MAX_VALUE : count) + " modules up to order " + maxOrder + ", which exceeds the maximum of " + MAX_MODULES + " modules. Reduce the maximum order of the repository.");
+	}
+
+	private static long saturatedAdd(long a, long b) {
+		long result = a + b;
+		return result < 0 ? Long.MAX_VALUE : result;
+	}
+
+	private static long saturatedMultiply(long a, long b) {
+		if (a == 0 || b == 0)
+			return 0;
+		return a > Long.MAX_VALUE / b ? Long.MAX_VALUE : a * b;
+	}
+
+	/**
+	 * Enumerates the combinations of 1 to maxOrder + 1 feature instances and for every combination all subsets of the other versions of the features in it.
+	 */
+	private class ModuleIterator implements Iterator<Module> {
+		private final FeatureInstance[] featureInstances;
+		private final FeatureVersion[][] otherVersions;
+		private final int maxSize;
+
+		private int[] combination; // indices of the feature instances in the current combination
+		private long[] versionSubsets; // bit masks over the other versions of every feature instance in the current combination
+		private boolean hasNext;
+
+		private ModuleIterator(List<FeatureInstance> featureInstances, int maxOrder) {
+			this.featureInstances = featureInstances.toArray(new FeatureInstance[featureInstances.size()]);
+			this.otherVersions = new FeatureVersion[this.featureInstances.length][];
+			for (int i = 0; i < this.featureInstances.length; i++) {
+				FeatureInstance featureInstance = this.featureInstances[i];
+				this.otherVersions[i] = featureInstance.getFeature().getVersions().stream().filter(featureVersion -> !featureVersion.equals(featureInstance.getFeatureVersion())).toArray(FeatureVersion[]::new);
+			}
+			this.maxSize = Math.min(maxOrder + 1, this.featureInstances.length);
+			this.hasNext = this.maxSize > 0 && this.startCombination(1);
+		}
+
+		private boolean startCombination(int size) {
+			if (size > this.maxSize)
+				return false;
+			this.combination = new int[size];
+			for (int i = 0; i < size; i++)
+				this.combination[i] = i;
+			this.versionSubsets = new long[size];
+			return true;
+		}
+
+		private boolean advance() {
+			// next subset of other versions
+			for (int i = 0; i < this.combination.length; i++) {
+				long limit = 1L << this.otherVersions[this.combination[i]].length;
+				if (++this.versionSubsets[i] < limit)
+					return true;
+				this.versionSubsets[i] = 0;
+			}
+			// next combination of the same size
+			int size = this.combination.length;
+			for (int i = size - 1; i >= 0; i--) {
+				if (this.combination[i] < this.featureInstances.length - size + i) {
+					this.combination[i]++;
+					for (int j = i + 1; j < size; j++)
+						this.combination[j] = this.combination[j - 1] + 1;
+					return true;
+				}
+			}
+			// first combination of the next size
+			return this.startCombination(size + 1);
+		}
+
+		@Override
+		public boolean hasNext() {
+			return this.hasNext;
+		}
+
+		@Override
+		public Module next() {
+			if (!this.hasNext)
+				throw new NoSuchElementException();
+
+			Module module = configuration.createModule();
+			for (int i = 0; i < this.combination.length; i++) {
+				FeatureInstance featureInstance = this.featureInstances[this.combination[i]];
+				FeatureVersion[] others = this.otherVersions[this.combination[i]];
+				List<FeatureVersion> featureVersions = new ArrayList<>();
+				featureVersions.add(featureInstance.getFeatureVersion());
+				for (int j = 0; j < others.length; j++) {
+					if ((this.versionSubsets[i] & (1L << j)) != 0)
+						featureVersions.add(others[j]);
+				}
+				module.add(configuration.createModuleFeature(featureInstance.getFeature(), featureVersions, featureInstance.getSign()));
+			}
+
+			this.hasNext = this.advance();
+			return module;
+		}
+	}
+
+	private Set<Module> computeModulesEagerly(int maxOrder) {
 		// first compute the ordinary powerset modules
 		Set<Module> modules = this.powerSet(this.configuration.getFeatureInstances(), maxOrder);
 
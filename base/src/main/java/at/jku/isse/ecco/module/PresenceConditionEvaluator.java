@@ -0,0 +1,141 @@
+package at.jku.isse.ecco.module;
+
+import at.jku.isse.ecco.feature.Configuration;
+import at.jku.isse.ecco.feature.FeatureInstance;
+import at.jku.isse.ecco.feature.FeatureVersion;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Evaluates presence conditions against a configuration that is compiled once into hash sets of its positive and negative feature versions.
+ * <p>
+ * This has the same semantics as {@link PresenceCondition#holds(Configuration)}, but checking a module feature is a hash lookup per feature version instead of a loop over all feature instances of the configuration.
+ * Presence conditions and modules that implement {@link Evaluable} are evaluated by themselves, e.g. on an encoding of the configuration that they store in the evaluator with {@link #getEncoding(Object, Function)}.
+ * Two evaluators are equal if their configurations contain the same feature instances, which makes them usable as cache keys.
+ */
+public class PresenceConditionEvaluator {
+
+	private final Configuration configuration;
+
+	private final Set<FeatureVersion> positive = new HashSet<>();
+	private final Set<FeatureVersion> negative = new HashSet<>();
+
+	private final Map<Object, Object> encodings = new ConcurrentHashMap<>();
+
+	public PresenceConditionEvaluator(Configuration configuration) {
+		checkNotNull(configuration);
+
+		this.configuration = configuration;
+		for (FeatureInstance featureInstance : configuration.getFeatureInstances()) {
+			if (featureInstance.getSign())
+				this.positive.add(featureInstance.getFeatureVersion());
+			else
+				this.negative.add(featureInstance.getFeatureVersion());
+		}
+	}
+
+
+	public Configuration getConfiguration() {
+		return this.configuration;
+	}
+
+	/**
+	 * Returns the encoding of the configuration with the given key and computes it first if it was not computed yet.
+	 *
+	 * @param key     The key of the encoding, e.g. the index the configuration is encoded in.
+	 * @param encoder The function that computes the encoding from the configuration.
+	 * @param <T>     The type of the encoding.
+	 * @return The encoding of the configuration.
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> T getEncoding(Object key, Function<? super Configuration, ? extends T> encoder) {
+		return (T) this.encodings.computeIfAbsent(key, k -> encoder.apply(this.configuration));
+	}
+
+
+	/**
+	 * Checks if the given presence condition holds in the compiled configuration.
+	 *
+	 * @param presenceCondition The presence condition.
+	 * @return True if the presence condition holds, false otherwise.
+	 */
+	public boolean holds(PresenceCondition presenceCondition) {
+		if (presenceCondition instanceof Evaluable)
+			return ((Evaluable) presenceCondition).holds(this);
+
+		// a presence condition holds in a configuration when at least one of the modules in minModules or maxModules holds
+		for (Module module : presenceCondition.getMinModules()) {
+			if (this.holds(module))
+				return true;
+		}
+		if (presenceCondition.getMinModules().isEmpty()) {
+			for (Module module : presenceCondition.getMaxModules()) {
+				if (this.holds(module))
+					return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Checks if the given module holds in the compiled configuration, i.e. if at least one feature version of every module feature is contained in the configuration with the sign of the module feature.
+	 *
+	 * @param module The module.
+	 * @return True if the module holds, false otherwise.
+	 */
+	public boolean holds(Module module) {
+		if (module instanceof Evaluable)
+			return ((Evaluable) module).holds(this);
+
+		for (ModuleFeature moduleFeature : module) {
+			Set<FeatureVersion> featureVersions = moduleFeature.getSign() ? this.positive : this.negative;
+			boolean atLeastOneVersionMatched = false;
+			for (FeatureVersion featureVersion : moduleFeature) {
+				if (featureVersions.contains(featureVersion)) {
+					atLeastOneVersionMatched = true;
+					break;
+				}
+			}
+			if (!atLeastOneVersionMatched)
+				return false;
+		}
+		return true;
+	}
+
+
+	@Override
+	public int hashCode() {
+		return 31 * this.positive.hashCode() + this.negative.hashCode();
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) return true;
+		if (o == null || getClass() != o.getClass()) return false;
+
+		PresenceConditionEvaluator that = (PresenceConditionEvaluator) o;
+
+		return this.positive.equals(that.positive) && this.negative.equals(that.negative);
+	}
+
+
+	/**
+	 * Presence conditions or modules that evaluate themselves against the configuration of an evaluator.
+	 */
+	public interface Evaluable {
+		/**
+		 * Checks if this holds in the configuration of the given evaluator, with the same semantics as {@link PresenceConditionEvaluator#holds(PresenceCondition)} or {@link PresenceConditionEvaluator#holds(Module)}.
+		 *
+		 * @param evaluator The evaluator.
+		 * @return True if this holds, false otherwise.
+		 */
+		public boolean holds(PresenceConditionEvaluator evaluator);
+	}
+
+}
@@ -2,6 +2,7 @@ package at.jku.isse.ecco.module;
 
 import at.jku.isse.ecco.EccoException;
 import at.jku.isse.ecco.feature.Configuration;
+import at.jku.isse.ecco.feature.ConfigurationOperator;
 import at.jku.isse.ecco.feature.Feature;
 import at.jku.isse.ecco.feature.FeatureInstance;
 import at.jku.isse.ecco.feature.FeatureVersion;
@@ -124,7 +125,7 @@ public class PresenceConditionOperator {
 	}
 
 	public void initialize(Configuration configuration, int maxOrder) {
-		Set<Module> modules = configuration.computeModules(maxOrder);
+		ConfigurationOperator.checkModuleCount(configuration, maxOrder);
 
 		// initialize the module sets
 		this.presenceCondition.getMinModules().clear();
@@ -132,9 +133,14 @@ public class PresenceConditionOperator {
 		this.presenceCondition.getAllModules().clear();
 		this.presenceCondition.getMaxModules().clear();
 
-		this.presenceCondition.getMinModules().addAll(modules);
-		this.presenceCondition.getMaxModules().addAll(modules);
-		this.presenceCondition.getAllModules().addAll(modules);
+		// the modules are computed one after the other and added directly instead of materializing them in a temporary set first
+		Iterator<Module> it = configuration.iterateModules(maxOrder);
+		while (it.hasNext()) {
+			Module module = it.next();
+			this.presenceCondition.getMinModules().add(module);
+			this.presenceCondition.getMaxModules().add(module);
+			this.presenceCondition.getAllModules().add(module);
+		}
 	}
 
 	/**
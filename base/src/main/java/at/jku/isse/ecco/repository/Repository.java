@@ -115,6 +115,16 @@ public interface Repository {
 
 		public void setMaxOrder(int maxOrder);
 
+		/**
+		 * Returns the budget for aligning sequence graphs in this repository. 0 means the default budget, a positive value the maximum number of steps of the exact alignment before it falls back to the heuristic one, and a negative value that only the heuristic alignment is used.
+		 * See {@link at.jku.isse.ecco.sg.SequenceGraphOperator#setAlignmentBudget(int)}.
+		 *
+		 * @return The sequence graph alignment budget.
+		 */
+		public int getSequenceGraphAlignmentBudget();
+
+		public void setSequenceGraphAlignmentBudget(int budget);
+
 
 		public EntityFactory getEntityFactory();
 	}
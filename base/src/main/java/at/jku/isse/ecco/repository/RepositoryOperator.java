@@ -3,30 +3,97 @@ package at.jku.isse.ecco.repository;
 import at.jku.isse.ecco.EccoException;
 import at.jku.isse.ecco.EccoUtil;
 import at.jku.isse.ecco.artifact.Artifact;
+import at.jku.isse.ecco.composition.DefaultOrderSelector;
 import at.jku.isse.ecco.composition.LazyCompositionRootNode;
 import at.jku.isse.ecco.core.*;
 import at.jku.isse.ecco.dao.EntityFactory;
 import at.jku.isse.ecco.feature.Configuration;
+import at.jku.isse.ecco.feature.ConfigurationOperator;
 import at.jku.isse.ecco.feature.Feature;
 import at.jku.isse.ecco.feature.FeatureInstance;
 import at.jku.isse.ecco.feature.FeatureVersion;
 import at.jku.isse.ecco.module.ModuleFeature;
 import at.jku.isse.ecco.module.PresenceCondition;
+import at.jku.isse.ecco.module.PresenceConditionEvaluator;
+import at.jku.isse.ecco.sg.SequenceGraphOperator;
 import at.jku.isse.ecco.tree.Node;
 import at.jku.isse.ecco.tree.RootNode;
 import at.jku.isse.ecco.util.Associations;
 import at.jku.isse.ecco.util.Trees;
 
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
 
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 
 public class RepositoryOperator {
 
+	private static final int SELECTION_CACHE_SIZE = 64;
+
+	private static final ThreadLocal<Integer> COMMIT_THREADS = ThreadLocal.withInitial(() -> 1);
+
+	/**
+	 * Sets the number of threads used by extractions (i.e. commits) in the current thread to slice the artifact trees of the input associations with the original associations in parallel.
+	 * A value of 1 or less slices sequentially. The result is identical either way.
+	 *
+	 * @param threads The number of threads.
+	 * @return The previous number of threads.
+	 */
+	public static int setCommitThreads(int threads) {
+		int previous = COMMIT_THREADS.get();
+		COMMIT_THREADS.set(threads);
+		return previous;
+	}
+
+	public static int getCommitThreads() {
+		return COMMIT_THREADS.get();
+	}
+
+	private static final ThreadLocal<DefaultOrderSelector.Policy> ORDER_SELECTION_POLICY = ThreadLocal.withInitial(() -> DefaultOrderSelector.Policy.FIRST);
+
+	/**
+	 * Sets the policy used by compositions (i.e. checkouts) in the current thread to select the order of the children of ordered artifacts.
+	 *
+	 * @param policy The order selection policy.
+	 * @return The previous order selection policy.
+	 */
+	public static DefaultOrderSelector.Policy setOrderSelectionPolicy(DefaultOrderSelector.Policy policy) {
+		checkNotNull(policy);
+		DefaultOrderSelector.Policy previous = ORDER_SELECTION_POLICY.get();
+		ORDER_SELECTION_POLICY.set(policy);
+		return previous;
+	}
+
+	public static DefaultOrderSelector.Policy getOrderSelectionPolicy() {
+		return ORDER_SELECTION_POLICY.get();
+	}
+
 	private Repository.Op repository;
 	private EntityFactory entityFactory;
 
+	/**
+	 * Caches the associations selected by the most recently composed configurations. It is cleared whenever associations or their presence conditions change.
+	 */
+	private final Map<PresenceConditionEvaluator, Collection<Association>> selectionCache = new LinkedHashMap<PresenceConditionEvaluator, Collection<Association>>(16, 0.75f, true) {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<PresenceConditionEvaluator, Collection<Association>> eldest) {
+			return this.size() > SELECTION_CACHE_SIZE;
+		}
+	};
+	private long selectionCacheGeneration = 0; // incremented on every clear so that selections computed before a change are not cached
+
+	/**
+	 * The dependency graph of checkouts. It is reused across checkouts because its index of the associations containing the artifacts stays valid until associations change, i.e. until the selection cache generation changes.
+	 */
+	private final DependencyGraph dependencyGraph = new DependencyGraph();
+	private long dependencyGraphGeneration = 0;
+
+	/**
+	 * The pool used by extractions to slice in parallel. It is reused across extractions and only created again when the number of commit threads changes.
+	 */
+	private ForkJoinPool pool = null;
+
 	public RepositoryOperator(Repository.Op repository) {
 		this.repository = repository;
 		this.entityFactory = repository.getEntityFactory();
@@ -64,10 +131,19 @@ public class RepositoryOperator {
 		checkNotNull(deselected);
 		checkArgument(maxOrder <= this.repository.getMaxOrder());
 
+		try {
+			return this.copySubset(deselected, maxOrder, entityFactory);
+		} finally {
+			// the artifacts of this repository are marked with their copies while copying. remove the marks so that they do not affect later operations (e.g. later copies or merges) on this repository.
+			this.clearReplacingArtifacts();
+		}
+	}
 
+	private Repository.Op copySubset(Collection<FeatureVersion> deselected, int maxOrder, EntityFactory entityFactory) {
 		// create empty repository using the given entity factory
 		Repository.Op newRepository = entityFactory.createRepository();
 		newRepository.setMaxOrder(maxOrder);
+		newRepository.setSequenceGraphAlignmentBudget(this.repository.getSequenceGraphAlignmentBudget());
 
 
 		// add all features and versions in this repository to new repository, excluding the deselected feature versions.
@@ -231,6 +307,19 @@ public class RepositoryOperator {
 		return newRepository;
 	}
 
+	private void clearReplacingArtifacts() {
+		Deque<Node.Op> nodes = new ArrayDeque<>();
+		for (Association.Op association : this.repository.getAssociations())
+			nodes.push(association.getRootNode());
+		while (!nodes.isEmpty()) {
+			Node.Op node = nodes.pop();
+			if (node.getArtifact() != null)
+				node.getArtifact().removeProperty(Artifact.PROPERTY_REPLACING_ARTIFACT);
+			for (Node.Op child : node.getChildren())
+				nodes.push(child);
+		}
+	}
+
 
 	/**
 	 * Merges other repository into this repository. The other repository is destroyed in the process.
@@ -241,6 +330,8 @@ public class RepositoryOperator {
 		checkNotNull(other);
 		checkArgument(other.getClass().equals(this.repository.getClass()));
 
+		this.clearSelectionCache();
+
 		// step 1: add new features and versions in other repository to associations in this repository,
 		Map<Feature, Feature> featureReplacementMap = new HashMap<>();
 		Map<FeatureVersion, FeatureVersion> featureVersionReplacementMap = new HashMap<>();
@@ -309,6 +400,8 @@ public class RepositoryOperator {
 	 * @return The commit object containing the affected associations.
 	 */
 	public Commit split() { // TODO: the presence condition must also somehow be marked and extracted! otherwise the repo becomes inconsistent.
+		this.clearSelectionCache();
+
 		Commit commit = this.entityFactory.createCommit();
 
 		Collection<? extends Association.Op> originalAssociations = this.repository.getAssociations();
@@ -368,6 +461,8 @@ public class RepositoryOperator {
 		checkNotNull(configuration);
 		checkNotNull(nodes);
 
+		this.clearSelectionCache();
+
 		// add new features and versions from configuration to this repository
 		Collection<FeatureVersion> newFeatureVersions = new ArrayList<>();
 		Configuration newConfiguration = this.entityFactory.createConfiguration();
@@ -433,9 +528,38 @@ public class RepositoryOperator {
 	protected Commit extract(Collection<? extends Association.Op> inputAs) {
 		checkNotNull(inputAs);
 
+		this.clearSelectionCache();
+
+		int previousAlignmentBudget = SequenceGraphOperator.setAlignmentBudget(this.repository.getSequenceGraphAlignmentBudget());
+		try {
+			return this.extractAssociations(inputAs, this.getPool());
+		} finally {
+			SequenceGraphOperator.setAlignmentBudget(previousAlignmentBudget);
+		}
+	}
+
+	/**
+	 * @return The pool with the number of commit threads of the current thread, or null if slicing is sequential.
+	 */
+	private synchronized ForkJoinPool getPool() {
+		int threads = getCommitThreads();
+		if (threads <= 1)
+			return null;
+		if (this.pool == null || this.pool.getParallelism() != threads) {
+			if (this.pool != null)
+				this.pool.shutdown();
+			this.pool = new ForkJoinPool(threads);
+		}
+		return this.pool;
+	}
+
+	private Commit extractAssociations(Collection<? extends Association.Op> inputAs, ForkJoinPool pool) {
 		Commit commit = this.entityFactory.createCommit();
 
-		Collection<? extends Association.Op> originalAssociations = this.repository.getAssociations();
+		List<? extends Association.Op> originalAssociations = new ArrayList<>(this.repository.getAssociations());
+		List<RootNode.Op> originalRootNodes = new ArrayList<>();
+		for (Association.Op origA : originalAssociations)
+			originalRootNodes.add(origA.getRootNode());
 		Collection<Association.Op> newAssociations = new ArrayList<>();
 		Collection<Association.Op> removedAssociations = new ArrayList<>();
 
@@ -453,8 +577,12 @@ public class RepositoryOperator {
 			Collection<Association.Op> toAdd = new ArrayList<>();
 			Collection<Association.Op> toRemove = new ArrayList<>();
 
+			// slice the artifact tree of the new association with the trees of all original associations first. this is independent of the presence conditions and can run in parallel.
+			List<Node.Op> intersectionRootNodes = Trees.slice(originalRootNodes, inputA.getRootNode(), pool);
+
 			// slice new association with every original association
-			for (Association.Op origA : originalAssociations) {
+			for (int i = 0; i < originalAssociations.size(); i++) {
+				Association.Op origA = originalAssociations.get(i);
 
 				// ASSOCIATION
 				// slice the associations. the order matters here! the "left" association's featuers and artifacts are maintained. the "right" association's features and artifacts are replaced by the "left" association's.
@@ -470,7 +598,7 @@ public class RepositoryOperator {
 
 				// ARTIFACT TREE
 				//intA.setRootNode((origA.getRootNode().slice(inputA.getRootNode())));
-				intA.setRootNode((RootNode.Op) Trees.slice(origA.getRootNode(), inputA.getRootNode()));
+				intA.setRootNode((RootNode.Op) intersectionRootNodes.get(i));
 
 				// INTERSECTION
 				if (!intA.getRootNode().getChildren().isEmpty()) { // if the intersection association has artifacts store it
@@ -563,10 +691,26 @@ public class RepositoryOperator {
 	public Checkout compose(Configuration configuration, boolean lazy) {
 		checkNotNull(configuration);
 
+		// compile the configuration once and reuse the selection of previous checkouts of the same configuration
+		PresenceConditionEvaluator evaluator = new PresenceConditionEvaluator(configuration);
+		Collection<Association> cachedAssociations;
+		long generation;
+		synchronized (this.selectionCache) {
+			cachedAssociations = this.selectionCache.get(evaluator);
+			generation = this.selectionCacheGeneration;
+		}
 		Set<Association> selectedAssociations = new HashSet<>();
-		for (Association association : this.repository.getAssociations()) {
-			if (association.getPresenceCondition().holds(configuration)) {
-				selectedAssociations.add(association);
+		if (cachedAssociations != null) {
+			selectedAssociations.addAll(cachedAssociations);
+		} else {
+			for (Association association : this.repository.getAssociations()) {
+				if (evaluator.holds(association.getPresenceCondition())) {
+					selectedAssociations.add(association);
+				}
+			}
+			synchronized (this.selectionCache) {
+				if (generation == this.selectionCacheGeneration)
+					this.selectionCache.put(evaluator, new ArrayList<>(selectedAssociations));
 			}
 		}
 
@@ -574,27 +718,33 @@ public class RepositoryOperator {
 		checkout.setConfiguration(configuration);
 
 
-		Set<at.jku.isse.ecco.module.Module> desiredModules = configuration.computeModules(this.repository.getMaxOrder());
-		Set<at.jku.isse.ecco.module.Module> missingModules = new HashSet<>();
+		// the desired modules are streamed instead of materialized: a desired module is missing if any selected association does not contain it, and every existing module that is not desired is surplus.
+		// as most desired modules are usually missing, they are only counted and a sample of them is kept.
+		ConfigurationOperator.checkModuleCount(configuration, this.repository.getMaxOrder());
 		Set<at.jku.isse.ecco.module.Module> surplusModules = new HashSet<>();
-
 		for (Association association : selectedAssociations) {
+			surplusModules.addAll(association.getPresenceCondition().getMinModules());
+		}
+
+		long missingCount = 0;
+		Iterator<at.jku.isse.ecco.module.Module> desiredModules = configuration.iterateModules(this.repository.getMaxOrder());
+		while (desiredModules.hasNext()) {
+			at.jku.isse.ecco.module.Module desiredModule = desiredModules.next();
 			// compute missing
-			for (at.jku.isse.ecco.module.Module desiredModule : desiredModules) {
+			for (Association association : selectedAssociations) {
 				if (!association.getPresenceCondition().getMinModules().contains(desiredModule)) {
-					missingModules.add(desiredModule);
+					missingCount++;
+					if (checkout.getMissing().size() < Checkout.MAX_MISSING_SAMPLE)
+						checkout.getMissing().add(desiredModule);
+					break;
 				}
 			}
 			// compute surplus
-			for (at.jku.isse.ecco.module.Module existingModule : association.getPresenceCondition().getMinModules()) {
-				if (!desiredModules.contains(existingModule)) {
-					surplusModules.add(existingModule);
-				}
-			}
+			surplusModules.remove(desiredModule);
 		}
 
 		checkout.getSurplus().addAll(surplusModules);
-		checkout.getMissing().addAll(missingModules);
+		checkout.setMissingCount(missingCount);
 
 		return checkout;
 	}
@@ -603,7 +753,7 @@ public class RepositoryOperator {
 		Node compRootNode;
 		Collection<Artifact<?>> orderWarnings;
 		if (lazy) {
-			LazyCompositionRootNode lazyCompRootNode = new LazyCompositionRootNode();
+			LazyCompositionRootNode lazyCompRootNode = new LazyCompositionRootNode(new DefaultOrderSelector(getOrderSelectionPolicy()));
 
 			for (Association association : selectedAssociations) {
 				lazyCompRootNode.addOrigNode(association.getRootNode());
@@ -618,8 +768,19 @@ public class RepositoryOperator {
 		}
 
 		// compute unresolved dependencies
-		DependencyGraph dg = new DependencyGraph(selectedAssociations, DependencyGraph.ReferencesResolveMode.INCLUDE_ALL_REFERENCED_ASSOCIATIONS);
-		Set<Association> unresolvedAssociations = new HashSet<>(dg.getAssociations());
+		Set<Association> unresolvedAssociations;
+		synchronized (this.dependencyGraph) {
+			long generation;
+			synchronized (this.selectionCache) {
+				generation = this.selectionCacheGeneration;
+			}
+			if (generation != this.dependencyGraphGeneration) {
+				this.dependencyGraph.invalidate();
+				this.dependencyGraphGeneration = generation;
+			}
+			this.dependencyGraph.compute(selectedAssociations, DependencyGraph.ReferencesResolveMode.INCLUDE_ALL_REFERENCED_ASSOCIATIONS);
+			unresolvedAssociations = new HashSet<>(this.dependencyGraph.getAssociations());
+		}
 		unresolvedAssociations.removeAll(selectedAssociations);
 
 		// put together result
@@ -663,10 +824,30 @@ public class RepositoryOperator {
 	}
 
 
+	/**
+	 * Clears the cached association selections of previous checkouts and invalidates the index of the dependency graph of checkouts, which is cleared by the next checkout. Must be called before associations or their presence conditions are changed.
+	 */
+	public void clearSelectionCache() {
+		synchronized (this.selectionCache) {
+			this.selectionCache.clear();
+			this.selectionCacheGeneration++;
+		}
+	}
+
+	/**
+	 * @return The dependency graph that is reused by checkouts.
+	 */
+	public DependencyGraph getDependencyGraph() {
+		return this.dependencyGraph;
+	}
+
+
 	/**
 	 * Merges all associations that have the same presence condition.
 	 */
 	protected void consolidateAssociations() {
+		this.clearSelectionCache();
+
 		Collection<Association.Op> toRemove = new ArrayList<>();
 
 		Map<PresenceCondition, Association.Op> pcToAssocMap = new HashMap<>();
@@ -692,6 +873,8 @@ public class RepositoryOperator {
 	}
 
 	protected void mergeEmptyAssociations() {
+		this.clearSelectionCache();
+
 		Collection<? extends Association.Op> originalAssociations = this.repository.getAssociations();
 		Collection<Association.Op> toRemove = new ArrayList<>();
 		Association emptyAssociation = null;
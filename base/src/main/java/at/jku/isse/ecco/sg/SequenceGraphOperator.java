@@ -3,12 +3,17 @@ package at.jku.isse.ecco.sg;
 import at.jku.isse.ecco.EccoException;
 import at.jku.isse.ecco.artifact.Artifact;
 import at.jku.isse.ecco.dao.EntityFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 
 public class SequenceGraphOperator {
 
+	protected static final Logger LOGGER = LoggerFactory.getLogger(SequenceGraphOperator.class);
+
 	private EntityFactory entityFactory;
 
 	private SequenceGraph.Op sequenceGraph;
@@ -24,6 +29,81 @@ public class SequenceGraphOperator {
 
 	private int global_best_cost = Integer.MAX_VALUE;
 
+	private int alignment_steps = 0;
+
+	private int alignment_budget = Integer.MAX_VALUE;
+
+	private int alignment_cost = -1;
+
+
+	// # ALIGNMENT BUDGET #################################################################
+
+	/**
+	 * Default maximum number of search steps of the exact sequence graph alignment before falling back to the heuristic alignment.
+	 */
+	public static final int DEFAULT_ALIGNMENT_BUDGET = 1000000;
+
+	private static final ThreadLocal<Integer> ALIGNMENT_BUDGET = ThreadLocal.withInitial(() -> 0);
+
+	private static final AtomicLong EXACT_ALIGNMENTS = new AtomicLong();
+	private static final AtomicLong HEURISTIC_ALIGNMENTS = new AtomicLong();
+	private static final AtomicLong ALIGNMENT_FALLBACKS = new AtomicLong();
+
+	/**
+	 * Sets the alignment budget used by {@link #sequence(SequenceGraph.Op)} in the current thread.
+	 * A budget of 0 uses the {@link #DEFAULT_ALIGNMENT_BUDGET}, a positive budget limits the number of search steps of the exact alignment before it falls back to the heuristic one, and a negative budget always uses the heuristic alignment.
+	 *
+	 * @param budget The alignment budget.
+	 * @return The previous alignment budget of the current thread, so it can be restored afterwards.
+	 */
+	public static int setAlignmentBudget(int budget) {
+		int previous = ALIGNMENT_BUDGET.get();
+		ALIGNMENT_BUDGET.set(budget);
+		return previous;
+	}
+
+	public static int getAlignmentBudget() {
+		return ALIGNMENT_BUDGET.get();
+	}
+
+	/**
+	 * @return The number of sequence graph alignments that were completed by the exact alignment.
+	 */
+	public static long getExactAlignmentCount() {
+		return EXACT_ALIGNMENTS.get();
+	}
+
+	/**
+	 * @return The number of sequence graph alignments that were done by the heuristic alignment (including fallbacks).
+	 */
+	public static long getHeuristicAlignmentCount() {
+		return HEURISTIC_ALIGNMENTS.get();
+	}
+
+	/**
+	 * @return The number of times the exact alignment exceeded its budget and the heuristic alignment was used instead.
+	 */
+	public static long getAlignmentFallbackCount() {
+		return ALIGNMENT_FALLBACKS.get();
+	}
+
+	public static void resetAlignmentCounts() {
+		EXACT_ALIGNMENTS.set(0);
+		HEURISTIC_ALIGNMENTS.set(0);
+		ALIGNMENT_FALLBACKS.set(0);
+	}
+
+	/**
+	 * Thrown to abort the exact alignment when its budget is exceeded.
+	 */
+	private static final class AlignmentBudgetExceededException extends RuntimeException {
+		private static final long serialVersionUID = 1L;
+
+		private AlignmentBudgetExceededException() {
+			super("Alignment budget exceeded.", null, false, false);
+		}
+	}
+
 
 	// # NEW SG OPERATIONS #################################################################
 
@@ -49,15 +129,18 @@ public class SequenceGraphOperator {
 	}
 
 
-	public Map<Set<Artifact.Op<?>>, SequenceGraph.Node.Op> collectPathMap() {
-		Map<Set<Artifact.Op<?>>, SequenceGraph.Node.Op> nodes = new HashMap<>();
-		Set<Artifact.Op<?>> path = new HashSet<>();
+	public Map<Path, SequenceGraph.Node.Op> collectPathMap() {
+		return this.collectPathMap(new PathIndex());
+	}
+
+	private Map<Path, SequenceGraph.Node.Op> collectPathMap(PathIndex paths) {
+		Map<Path, SequenceGraph.Node.Op> nodes = new HashMap<>();
 		this.sequenceGraph.setPol(!this.sequenceGraph.getPol());
-		this.collectPathMapRec(this.sequenceGraph.getRoot(), path, nodes);
+		this.collectPathMapRec(this.sequenceGraph.getRoot(), paths, Path.EMPTY, nodes);
 		return nodes;
 	}
 
-	private void collectPathMapRec(SequenceGraph.Node.Op sgn, Set<Artifact.Op<?>> path, Map<Set<Artifact.Op<?>>, SequenceGraph.Node.Op> nodes) {
+	private void collectPathMapRec(SequenceGraph.Node.Op sgn, PathIndex paths, Path path, Map<Path, SequenceGraph.Node.Op> nodes) {
 		if (sgn.getPol() == this.sequenceGraph.getPol()) // already visited
 			return;
 
@@ -66,9 +149,7 @@ public class SequenceGraphOperator {
 		nodes.put(path, sgn);
 
 		for (Map.Entry<Artifact.Op<?>, SequenceGraph.Node.Op> entry : sgn.getChildren().entrySet()) {
-			Set<Artifact.Op<?>> newPath = new HashSet<>(path);
-			newPath.add(entry.getKey());
-			this.collectPathMapRec(entry.getValue(), newPath, nodes);
+			this.collectPathMapRec(entry.getValue(), paths, paths.extend(path, entry.getKey()), nodes);
 		}
 	}
 
@@ -109,18 +190,18 @@ public class SequenceGraphOperator {
 		tempLeftRoot.getChildren().putAll(this.sequenceGraph.getRoot().getChildren()); // copy all children over to temporary root node
 		this.sequenceGraph.getRoot().getChildren().clear(); // clear all children of real root node
 
-		Set<Artifact.Op<?>> path = new HashSet<>();
+		Path path = Path.EMPTY;
 
 //		this.sequenceGraph.getNodes().clear(); // clear node list of sequence graph
 //		this.sequenceGraph.getNodes().put(path, this.sequenceGraph.getRoot()); // add root node back into node list
-		Map<Set<Artifact.Op<?>>, SequenceGraph.Node.Op> rigthNodes = new HashMap<>();
+		Map<Path, SequenceGraph.Node.Op> rigthNodes = new HashMap<>();
 		rigthNodes.put(path, this.sequenceGraph.getRoot());
 
 		this.sequenceGraph.setPol(!this.sequenceGraph.getPol());
-		this.trimRec(symbols, path, rigthNodes, tempLeftRoot, this.sequenceGraph.getRoot());
+		this.trimRec(symbols, new PathIndex(), path, rigthNodes, tempLeftRoot, this.sequenceGraph.getRoot());
 	}
 
-	private void trimRec(Collection<? extends Artifact.Op<?>> symbols, Set<Artifact.Op<?>> path, Map<Set<Artifact.Op<?>>, SequenceGraph.Node.Op> rightNodes, SequenceGraph.Node.Op left, SequenceGraph.Node.Op right) {
+	private void trimRec(Collection<? extends Artifact.Op<?>> symbols, PathIndex paths, Path path, Map<Path, SequenceGraph.Node.Op> rightNodes, SequenceGraph.Node.Op left, SequenceGraph.Node.Op right) {
 		if (left.getPol() == this.sequenceGraph.getPol()) // node already visited
 			return;
 
@@ -128,8 +209,7 @@ public class SequenceGraphOperator {
 
 		for (Map.Entry<Artifact.Op<?>, SequenceGraph.Node.Op> leftEntry : left.getChildren().entrySet()) {
 			if (symbols.contains(leftEntry.getKey())) { // put it into right
-				Set<Artifact.Op<?>> newPath = new HashSet<>(path);
-				newPath.add(leftEntry.getKey());
+				Path newPath = paths.extend(path, leftEntry.getKey());
 
 				SequenceGraph.Node.Op rightChild = rightNodes.get(newPath);
 				if (rightChild == null) {
@@ -138,9 +218,9 @@ public class SequenceGraphOperator {
 				}
 				right.getChildren().put(leftEntry.getKey(), rightChild);
 
-				this.trimRec(symbols, newPath, rightNodes, leftEntry.getValue(), rightChild);
+				this.trimRec(symbols, paths, newPath, rightNodes, leftEntry.getValue(), rightChild);
 			} else {
-				this.trimRec(symbols, path, rightNodes, leftEntry.getValue(), right);
+				this.trimRec(symbols, paths, path, rightNodes, leftEntry.getValue(), right);
 			}
 		}
 	}
@@ -160,16 +240,16 @@ public class SequenceGraphOperator {
 		//other.setPol(!other.getPol());
 		other.setPol(!other.getRoot().getPol());
 
-		HashSet<Artifact.Op<?>> path = new HashSet<>();
-		Map<Set<Artifact.Op<?>>, SequenceGraph.Node.Op> leftNodes = new HashMap<>();
+		Path path = Path.EMPTY;
+		Map<Path, SequenceGraph.Node.Op> leftNodes = new HashMap<>();
 		leftNodes.put(path, this.sequenceGraph.getRoot());
 
-		this.copyRec(path, leftNodes, this.sequenceGraph.getRoot(), other.getRoot(), other.getPol());
+		this.copyRec(new PathIndex(), path, leftNodes, this.sequenceGraph.getRoot(), other.getRoot(), other.getPol());
 
 		this.sequenceGraph.setCurrentSequenceNumber(other.getCurrentSequenceNumber());
 	}
 
-	private void copyRec(Set<Artifact.Op<?>> path, Map<Set<Artifact.Op<?>>, SequenceGraph.Node.Op> leftNodes, SequenceGraph.Node.Op left, SequenceGraph.Node.Op right, boolean newPol) {
+	private void copyRec(PathIndex paths, Path path, Map<Path, SequenceGraph.Node.Op> leftNodes, SequenceGraph.Node.Op left, SequenceGraph.Node.Op right, boolean newPol) {
 //		SequenceGraphNode leftNode = this.sequenceGraph.getNodes().get(path);
 //		if (leftNode == null) {
 //			leftNode = this.sequenceGraph.createSequenceGraphNode(this.sequenceGraph.getPol());
@@ -188,8 +268,7 @@ public class SequenceGraphOperator {
 		right.setPol(this.sequenceGraph.getPol()); // mark as visited
 
 		for (Map.Entry<Artifact.Op<?>, SequenceGraph.Node.Op> rightEntry : right.getChildren().entrySet()) {
-			Set<Artifact.Op<?>> newPath = new HashSet<>(path);
-			newPath.add(rightEntry.getKey());
+			Path newPath = paths.extend(path, rightEntry.getKey());
 
 			SequenceGraph.Node.Op leftNode = leftNodes.get(newPath);
 			if (leftNode == null) {
@@ -198,7 +277,7 @@ public class SequenceGraphOperator {
 			}
 			left.getChildren().put(rightEntry.getKey(), leftNode);
 
-			this.copyRec(newPath, leftNodes, leftNode, rightEntry.getValue(), newPol);
+			this.copyRec(paths, newPath, leftNodes, leftNode, rightEntry.getValue(), newPol);
 
 //			SequenceGraphNode child = this.copyRec(newPath, leftNode, rightEntry.getValue(), newPol);
 
@@ -218,13 +297,35 @@ public class SequenceGraphOperator {
 		SequenceGraph.Op other = (SequenceGraph.Op) sg;
 
 		// set sequence number of all artifacts in right sequence graph to -1 prior to alignment to left sequence graph.
-		for (Artifact.Op symbol : other.getSymbols()) {
+		Collection<? extends Artifact.Op<?>> otherSymbols = other.getSymbols();
+		for (Artifact.Op<?> symbol : otherSymbols) {
 			symbol.setSequenceNumber(-1);
 		}
 
-		// align right to left
-		this.global_best_cost = Integer.MAX_VALUE;
-		this.alignSequenceGraphRec(this.sequenceGraph.getRoot(), other.getRoot(), 0);
+		// align right to left, exact if possible within the budget, otherwise heuristic
+		int budget = getAlignmentBudget();
+		boolean aligned = false;
+		if (budget >= 0) {
+			this.global_best_cost = Integer.MAX_VALUE;
+			this.alignment_steps = 0;
+			this.alignment_budget = budget == 0 ? DEFAULT_ALIGNMENT_BUDGET : budget;
+			try {
+				this.alignSequenceGraphRec(this.sequenceGraph.getRoot(), other.getRoot(), 0);
+				EXACT_ALIGNMENTS.incrementAndGet();
+				aligned = true;
+			} catch (AlignmentBudgetExceededException e) {
+				ALIGNMENT_FALLBACKS.incrementAndGet();
+				for (Artifact.Op<?> symbol : otherSymbols) {
+					symbol.setSequenceNumber(-1);
+				}
+			} finally {
+				this.alignment_budget = Integer.MAX_VALUE;
+			}
+		}
+		if (!aligned) {
+			this.alignSequenceGraphFast(this.sequenceGraph.getRoot(), other.getRoot());
+			HEURISTIC_ALIGNMENTS.incrementAndGet();
+		}
 
 		// assign new sequence numbers to right
 		int num_symbols = this.sequenceGraph.getCurrentSequenceNumber();
@@ -240,10 +341,10 @@ public class SequenceGraphOperator {
 			}
 		}
 		this.sequenceGraph.setPol(!this.sequenceGraph.getPol());
-		HashSet<Artifact.Op<?>> path = new HashSet<>();
-		Map<Set<Artifact.Op<?>>, SequenceGraph.Node.Op> nodes = new HashMap<>();
+		Path path = Path.EMPTY;
+		Map<Path, SequenceGraph.Node.Op> nodes = new HashMap<>();
 		nodes.put(path, this.sequenceGraph.getRoot());
-		this.updateSequenceGraphRec(this.sequenceGraph.getRoot(), other.getRoot(), new HashSet<>(), nodes, shared_symbols);
+		this.updateSequenceGraphRec(this.sequenceGraph.getRoot(), other.getRoot(), new PathIndex(), path, nodes, shared_symbols);
 
 //		// remove all graphnodes that were not visited
 //		Iterator<SequenceGraphNode> it = this.sequenceGraph.getNodes().values().iterator();
@@ -272,122 +373,198 @@ public class SequenceGraphOperator {
 		}
 	}
 
-	// TODO: implement optimized sequence graph merge
-	private int alignSequenceGraphRecFast(SequenceGraph.Node.Op left, SequenceGraph.Node.Op right, int cost) {
-		//int local_best_cost = this.global_best_cost;
-		int local_best_cost = Integer.MAX_VALUE;
-
-		// base case 1: abort and don't update alignment if we already had a better or equal solution.
-		if (cost >= this.global_best_cost) {
-			return Integer.MAX_VALUE;
-		}
+	/**
+	 * Maximum number of cells of the dynamic programming table of the heuristic alignment (i.e. at most 64MB).
+	 */
+	private static final long MAX_ALIGNMENT_CELLS = 1L << 24;
 
-		// base case 2: both sequence graphs have no more nodes
-		else if (left.getChildren().isEmpty() && right.getChildren().isEmpty()) {
-			// update current best cost (we would not have gotten here if cost > global_best_cost)
-			this.global_best_cost = cost;
-			return cost;
+	/**
+	 * Heuristic alignment of the right sequence graph to the left sequence graph that runs in polynomial time.
+	 * It computes the pair of paths through the two (acyclic) graphs with the longest common subsequence of symbols via dynamic programming over pairs of nodes in reverse topological order and assigns the sequence numbers of the matched left symbols to the matched right symbols.
+	 * All other right symbols keep sequence number -1.
+	 * <p>
+	 * The result does not necessarily have the minimal cost of {@link #alignSequenceGraphRec(SequenceGraph.Node.Op, SequenceGraph.Node.Op, int)}, but needs only O(|left| * |right|) time and space.
+	 * If the table would exceed {@link #MAX_ALIGNMENT_CELLS} the greedy alignment {@link #alignSequenceGraphGreedy(SequenceGraph.Node.Op, SequenceGraph.Node.Op)} is used instead.
+	 */
+	private void alignSequenceGraphFast(SequenceGraph.Node.Op left, SequenceGraph.Node.Op right) {
+		List<SequenceGraph.Node.Op> leftNodes = topologicalOrder(left);
+		List<SequenceGraph.Node.Op> rightNodes = topologicalOrder(right);
+		int nl = leftNodes.size();
+		int nr = rightNodes.size();
+		if ((long) nl * nr > MAX_ALIGNMENT_CELLS) {
+			LOGGER.warn("Sequence graphs too large for heuristic alignment (" + nl + " x " + nr + "), using greedy alignment.");
+			this.alignSequenceGraphGreedy(left, right);
+			return;
 		}
 
-		// recursion case 1: left has no more nodes, right does
-		else if (left.getChildren().isEmpty() && !right.getChildren().isEmpty()) {
-			for (Map.Entry<Artifact.Op<?>, SequenceGraph.Node.Op> rightChildEntry : right.getChildren().entrySet()) {
-				int temp_cost = this.alignSequenceGraphRec(left, rightChildEntry.getValue(), cost + 1);
-
-				if (temp_cost < local_best_cost)
-					local_best_cost = temp_cost;
-
-				if (temp_cost <= this.global_best_cost) { // part of currently best alignment
-					if (temp_cost == this.global_best_cost && rightChildEntry.getKey().getSequenceNumber() != -1)
-						System.out.println("WARNING1! " + rightChildEntry.getKey() + ": " + -1);
-
-					rightChildEntry.getKey().setSequenceNumber(-1); // indicate that this artifact needs a new sequence number assigned
+		// symbol classes: right symbols all have sequence number -1 and are compared by data only. a left symbol gets the class of the right symbols it is equal to.
+		Map<Artifact.Op<?>, Integer> classes = new HashMap<>();
+		int[][] rightChildren = new int[nr][];
+		int[][] rightClasses = new int[nr][];
+		Artifact.Op<?>[][] rightSymbols = new Artifact.Op<?>[nr][];
+		Map<SequenceGraph.Node.Op, Integer> rightIndex = indexOf(rightNodes);
+		for (int v = 0; v < nr; v++) {
+			Map<Artifact.Op<?>, SequenceGraph.Node.Op> children = rightNodes.get(v).getChildren();
+			rightChildren[v] = new int[children.size()];
+			rightClasses[v] = new int[children.size()];
+			rightSymbols[v] = new Artifact.Op<?>[children.size()];
+			int i = 0;
+			for (Map.Entry<Artifact.Op<?>, SequenceGraph.Node.Op> entry : children.entrySet()) {
+				Integer c = classes.get(entry.getKey());
+				if (c == null) {
+					c = classes.size();
+					classes.put(entry.getKey(), c);
 				}
+				rightChildren[v][i] = rightIndex.get(entry.getValue());
+				rightClasses[v][i] = c;
+				rightSymbols[v][i] = entry.getKey();
+				i++;
 			}
 		}
-
-		// recursion case 2: right has no more nodes, left does
-		else if (right.getChildren().isEmpty() && !left.getChildren().isEmpty()) {
-			for (Map.Entry<Artifact.Op<?>, SequenceGraph.Node.Op> leftChildEntry : left.getChildren().entrySet()) {
-				int temp_cost = this.alignSequenceGraphRec(leftChildEntry.getValue(), right, cost + 1);
-
-				if (temp_cost < local_best_cost)
-					local_best_cost = temp_cost;
+		int[][] leftChildren = new int[nl][];
+		int[][] leftClasses = new int[nl][];
+		Artifact.Op<?>[][] leftSymbols = new Artifact.Op<?>[nl][];
+		Map<SequenceGraph.Node.Op, Integer> leftIndex = indexOf(leftNodes);
+		for (int u = 0; u < nl; u++) {
+			Map<Artifact.Op<?>, SequenceGraph.Node.Op> children = leftNodes.get(u).getChildren();
+			leftChildren[u] = new int[children.size()];
+			leftClasses[u] = new int[children.size()];
+			leftSymbols[u] = new Artifact.Op<?>[children.size()];
+			int i = 0;
+			for (Map.Entry<Artifact.Op<?>, SequenceGraph.Node.Op> entry : children.entrySet()) {
+				Integer c = classes.get(entry.getKey());
+				leftChildren[u][i] = leftIndex.get(entry.getValue());
+				leftClasses[u][i] = c == null ? -1 : c;
+				leftSymbols[u][i] = entry.getKey();
+				i++;
 			}
 		}
 
-		// recursion case
-		else {
-
-			// case 1: do matches first
-			for (Map.Entry<Artifact.Op<?>, SequenceGraph.Node.Op> leftChildEntry : left.getChildren().entrySet()) {
-				for (Map.Entry<Artifact.Op<?>, SequenceGraph.Node.Op> rightChildEntry : right.getChildren().entrySet()) {
-
-					if (leftChildEntry.getKey().equals(rightChildEntry.getKey())) { // we found a match -> pursue it
-						int temp_cost = this.alignSequenceGraphRec(leftChildEntry.getValue(), rightChildEntry.getValue(), cost); // do not increment cost as it was a match
-
-						if (temp_cost < local_best_cost)
-							local_best_cost = temp_cost;
-
-						if (temp_cost <= this.global_best_cost) { // part of currently best alignment
-							if (temp_cost == this.global_best_cost && rightChildEntry.getKey().getSequenceNumber() != leftChildEntry.getKey().getSequenceNumber())
-								System.out.println("WARNING2! " + leftChildEntry.getKey() + ": " + leftChildEntry.getKey().getSequenceNumber());
-
-							rightChildEntry.getKey().setSequenceNumber(leftChildEntry.getKey().getSequenceNumber()); // set right sequence number to left sequence number
+		// lcs[u][v] is the maximum number of matches on a pair of paths starting at left node u and right node v
+		int[][] lcs = new int[nl][nr];
+		for (int u = nl - 1; u >= 0; u--) {
+			for (int v = nr - 1; v >= 0; v--) {
+				int best = 0;
+				for (int i = 0; i < leftChildren[u].length; i++) {
+					best = Math.max(best, lcs[leftChildren[u][i]][v]);
+					if (leftClasses[u][i] >= 0) {
+						for (int j = 0; j < rightChildren[v].length; j++) {
+							if (leftClasses[u][i] == rightClasses[v][j])
+								best = Math.max(best, 1 + lcs[leftChildren[u][i]][rightChildren[v][j]]);
 						}
 					}
-
 				}
+				for (int j = 0; j < rightChildren[v].length; j++) {
+					best = Math.max(best, lcs[u][rightChildren[v][j]]);
+				}
+				lcs[u][v] = best;
 			}
+		}
 
-//			// find match by skipping left
-//			SequenceGraphNode tempLeftNode = left.getChildren().values().iterator().next();
-//			boolean found_match = false;
-//			while (tempLeftNode.getChildren().size() > 0) {
-//				for (Map.Entry<Artifact.Op<?>, SequenceGraphNode> leftChildEntry : tempLeftNode.getChildren().entrySet()) {
-//					for (Map.Entry<Artifact.Op<?>, SequenceGraphNode> rightChildEntry : right.getChildren().entrySet()) {
-//						if (leftChildEntry.getKey().equals(rightChildEntry.getKey())) {
-//							found_match = true;
-//							// TODO
-//							break;
-//						}
-//					}
-//					if (found_match)
-//						break;
-//				}
-//				if (!found_match) {
-//					tempLeftNode = left.getChildren().values().iterator().next(); // just take first left child
-//				} else {
-//
-//				}
-//			}
-
-			// case 2: skip left
-			for (Map.Entry<Artifact.Op<?>, SequenceGraph.Node.Op> leftChildEntry : left.getChildren().entrySet()) {
-				int temp_cost = this.alignSequenceGraphRec(leftChildEntry.getValue(), right, cost + 1);
-
-				if (temp_cost < local_best_cost)
-					local_best_cost = temp_cost;
+		// trace back the best pair of paths and assign sequence numbers of matched symbols
+		int u = 0, v = 0;
+		while (lcs[u][v] > 0) {
+			int next_u = -1, next_v = -1;
+			for (int i = 0; i < leftChildren[u].length && next_u < 0; i++) {
+				if (leftClasses[u][i] >= 0) {
+					for (int j = 0; j < rightChildren[v].length; j++) {
+						if (leftClasses[u][i] == rightClasses[v][j] && 1 + lcs[leftChildren[u][i]][rightChildren[v][j]] == lcs[u][v]) {
+							rightSymbols[v][j].setSequenceNumber(leftSymbols[u][i].getSequenceNumber());
+							next_u = leftChildren[u][i];
+							next_v = rightChildren[v][j];
+							break;
+						}
+					}
+				}
 			}
+			for (int i = 0; i < leftChildren[u].length && next_u < 0; i++) {
+				if (lcs[leftChildren[u][i]][v] == lcs[u][v]) {
+					next_u = leftChildren[u][i];
+					next_v = v;
+				}
+			}
+			for (int j = 0; j < rightChildren[v].length && next_u < 0; j++) {
+				if (lcs[u][rightChildren[v][j]] == lcs[u][v]) {
+					next_u = u;
+					next_v = rightChildren[v][j];
+				}
+			}
+			u = next_u;
+			v = next_v;
+		}
+	}
 
-			// case 3: skip right
-			for (Map.Entry<Artifact.Op<?>, SequenceGraph.Node.Op> rightChildEntry : right.getChildren().entrySet()) {
-				int temp_cost = this.alignSequenceGraphRec(left, rightChildEntry.getValue(), cost);
-
-				if (temp_cost < local_best_cost)
-					local_best_cost = temp_cost;
+	/**
+	 * Greedy alignment of the right sequence graph to the left sequence graph that needs only linear space.
+	 * It follows the first path through the right graph and matches every symbol on it to the nearest equal symbol in the left graph that is reachable from the previously matched left symbol.
+	 * All other right symbols keep sequence number -1.
+	 */
+	private void alignSequenceGraphGreedy(SequenceGraph.Node.Op left, SequenceGraph.Node.Op right) {
+		SequenceGraph.Node.Op u = left;
+		SequenceGraph.Node.Op v = right;
+		Deque<SequenceGraph.Node.Op> queue = new ArrayDeque<>();
+		Set<SequenceGraph.Node.Op> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+		while (!v.getChildren().isEmpty()) {
+			Map.Entry<Artifact.Op<?>, SequenceGraph.Node.Op> rightEntry = v.getChildren().entrySet().iterator().next();
+			Artifact.Op<?> rightSymbol = rightEntry.getKey();
+
+			// breadth first search for the nearest equal left symbol
+			queue.clear();
+			visited.clear();
+			queue.add(u);
+			visited.add(u);
+			SequenceGraph.Node.Op match = null;
+			while (!queue.isEmpty() && match == null) {
+				for (Map.Entry<Artifact.Op<?>, SequenceGraph.Node.Op> leftEntry : queue.poll().getChildren().entrySet()) {
+					if (leftEntry.getKey().equals(rightSymbol)) {
+						rightSymbol.setSequenceNumber(leftEntry.getKey().getSequenceNumber());
+						match = leftEntry.getValue();
+						break;
+					}
+					if (visited.add(leftEntry.getValue()))
+						queue.add(leftEntry.getValue());
+				}
+			}
 
-				if (temp_cost <= this.global_best_cost) { // part of currently best alignment
-					if (temp_cost == this.global_best_cost && rightChildEntry.getKey().getSequenceNumber() != -1)
-						System.out.println("WARNING3! " + rightChildEntry.getKey() + ": " + -1);
+			if (match != null)
+				u = match;
+			v = rightEntry.getValue();
+		}
+	}
 
-					rightChildEntry.getKey().setSequenceNumber(-1); // indicate that this artifact needs a new sequence number assigned
+	/**
+	 * Returns the nodes reachable from the given node in topological order, starting with the given node.
+	 */
+	private static List<SequenceGraph.Node.Op> topologicalOrder(SequenceGraph.Node.Op root) {
+		List<SequenceGraph.Node.Op> postOrder = new ArrayList<>();
+		Set<SequenceGraph.Node.Op> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+		Deque<SequenceGraph.Node.Op> nodes = new ArrayDeque<>();
+		Deque<Iterator<SequenceGraph.Node.Op>> iterators = new ArrayDeque<>();
+		visited.add(root);
+		nodes.push(root);
+		iterators.push(root.getChildren().values().iterator());
+		while (!nodes.isEmpty()) {
+			Iterator<SequenceGraph.Node.Op> it = iterators.peek();
+			if (it.hasNext()) {
+				SequenceGraph.Node.Op child = it.next();
+				if (visited.add(child)) {
+					nodes.push(child);
+					iterators.push(child.getChildren().values().iterator());
 				}
+			} else {
+				postOrder.add(nodes.pop());
+				iterators.pop();
 			}
-
 		}
+		Collections.reverse(postOrder);
+		return postOrder;
+	}
 
-		return local_best_cost;
+	private static Map<SequenceGraph.Node.Op, Integer> indexOf(List<SequenceGraph.Node.Op> nodes) {
+		Map<SequenceGraph.Node.Op, Integer> index = new IdentityHashMap<>();
+		for (int i = 0; i < nodes.size(); i++)
+			index.put(nodes.get(i), i);
+		return index;
 	}
 
 	/**
@@ -399,6 +576,9 @@ public class SequenceGraphOperator {
 	private int alignSequenceGraphRec(SequenceGraph.Node.Op left, SequenceGraph.Node.Op right, int cost) {
 		int local_best_cost = Integer.MAX_VALUE;
 
+		if (++this.alignment_steps > this.alignment_budget)
+			throw new AlignmentBudgetExceededException();
+
 		// base case 1: abort and don't update alignment if we already had a better or equal solution.
 		if (cost >= this.global_best_cost) {
 			return Integer.MAX_VALUE;
@@ -493,7 +673,7 @@ public class SequenceGraphOperator {
 	/**
 	 * This updates the left sequence graph by merging the aligned right sequence graph into it.
 	 */
-	private SequenceGraph.Node.Op updateSequenceGraphRec(SequenceGraph.Node.Op left, SequenceGraph.Node.Op right, HashSet<Artifact.Op<?>> path, Map<Set<Artifact.Op<?>>, SequenceGraph.Node.Op> nodes, Set<Artifact.Op<?>> shared_symbols) {
+	private SequenceGraph.Node.Op updateSequenceGraphRec(SequenceGraph.Node.Op left, SequenceGraph.Node.Op right, PathIndex paths, Path path, Map<Path, SequenceGraph.Node.Op> nodes, Set<Artifact.Op<?>> shared_symbols) {
 		// get current graph node
 		SequenceGraph.Node.Op sgn = nodes.get(path);
 		if (sgn == null) {
@@ -514,9 +694,8 @@ public class SequenceGraphOperator {
 		for (Map.Entry<Artifact.Op<?>, SequenceGraph.Node.Op> leftEntry : left.getChildren().entrySet()) {
 			if (!shared_symbols.contains(leftEntry.getKey())) {
 				System.out.println("LEFT UNSHARED");
-				HashSet<Artifact.Op<?>> new_path = new HashSet<>(path);
-				new_path.add(leftEntry.getKey());
-				SequenceGraph.Node.Op child = this.updateSequenceGraphRec(leftEntry.getValue(), right, new_path, nodes, shared_symbols);
+				Path new_path = paths.extend(path, leftEntry.getKey());
+				SequenceGraph.Node.Op child = this.updateSequenceGraphRec(leftEntry.getValue(), right, paths, new_path, nodes, shared_symbols);
 				new_children.put(leftEntry.getKey(), child);
 			}
 		}
@@ -525,9 +704,8 @@ public class SequenceGraphOperator {
 		for (Map.Entry<Artifact.Op<?>, SequenceGraph.Node.Op> rightEntry : right.getChildren().entrySet()) {
 			if (!shared_symbols.contains(rightEntry.getKey())) {
 				System.out.println("RIGHT UNSHARED");
-				HashSet<Artifact.Op<?>> new_path = new HashSet<>(path);
-				new_path.add(rightEntry.getKey());
-				SequenceGraph.Node.Op child = this.updateSequenceGraphRec(left, rightEntry.getValue(), new_path, nodes, shared_symbols); // this should be a new node
+				Path new_path = paths.extend(path, rightEntry.getKey());
+				SequenceGraph.Node.Op child = this.updateSequenceGraphRec(left, rightEntry.getValue(), paths, new_path, nodes, shared_symbols); // this should be a new node
 				new_children.put(rightEntry.getKey(), child);
 			}
 		}
@@ -547,9 +725,8 @@ public class SequenceGraphOperator {
 				}
 				if (rightEntry != null) { // matching shared symbols -> take them
 					System.out.println("MATCH SHARED");
-					HashSet<Artifact.Op<?>> new_path = new HashSet<>(path);
-					new_path.add(leftEntry.getKey());
-					SequenceGraph.Node.Op child = this.updateSequenceGraphRec(leftEntry.getValue(), rightEntry.getValue(), new_path, nodes, shared_symbols);
+					Path new_path = paths.extend(path, leftEntry.getKey());
+					SequenceGraph.Node.Op child = this.updateSequenceGraphRec(leftEntry.getValue(), rightEntry.getValue(), paths, new_path, nodes, shared_symbols);
 					new_children.put(leftEntry.getKey(), child);
 				} else { // no match for shared symbol -> cut graph
 					System.out.println("MATCH CUT");
@@ -634,7 +811,8 @@ public class SequenceGraphOperator {
 		}
 
 
-		update_rec(new HashSet<Artifact.Op<?>>(), this.collectPathMap(), shared_symbols, this.sequenceGraph.getRoot(), 0, artifacts, !this.sequenceGraph.getPol());
+		PathIndex paths = new PathIndex();
+		update_rec(paths, Path.EMPTY, this.collectPathMap(paths), shared_symbols, this.sequenceGraph.getRoot(), 0, artifacts, !this.sequenceGraph.getPol());
 		this.sequenceGraph.setPol(!this.sequenceGraph.getPol());
 
 //		// remove all graphnodes that were not visited
@@ -649,12 +827,49 @@ public class SequenceGraphOperator {
 	}
 
 
+	/**
+	 * Aligns the given sequence of artifacts to the sequence graph and assigns sequence numbers to the artifacts accordingly.
+	 * Artifacts that are aligned to a symbol in the sequence graph get the sequence number of that symbol, all others get a new sequence number.
+	 *
+	 * @param artifacts The sequence of artifacts.
+	 * @return The sequence numbers assigned to the artifacts.
+	 * @throws EccoException
+	 */
 	public int[] align(List<? extends Artifact.Op<?>> artifacts) throws EccoException {
+		int[] alignment_array = new int[artifacts.size()];
+
+		this.alignment_cost = this.alignDynamic(artifacts, alignment_array);
+
+		return this.finalizeAlignment(artifacts, alignment_array);
+	}
+
+	/**
+	 * Same as {@link #align(List)} but uses the original branch and bound search instead of dynamic programming.
+	 * The cost of the resulting alignment is the same, it is kept for comparison.
+	 * The sequence numbers can only differ for the trailing artifacts after the last artifact matched by {@link #align(List)}:
+	 * the branch and bound search does not reset the entries of abandoned branches, so such artifacts may keep a sequence number of the sequence graph while {@link #align(List)} assigns them new sequence numbers.
+	 *
+	 * @param artifacts The sequence of artifacts.
+	 * @return The sequence numbers assigned to the artifacts.
+	 * @throws EccoException
+	 */
+	public int[] alignBranchAndBound(List<? extends Artifact.Op<?>> artifacts) throws EccoException {
 		int[] alignment_array = new int[artifacts.size()]; // +1? maybe remove node_right_index and use instead alignment[0]?
 
 		this.global_best_cost = Integer.MAX_VALUE;
-		align_rec_fast(this.sequenceGraph.getRoot(), artifacts, 0, alignment_array, 0);
+		this.alignment_cost = align_rec_fast(this.sequenceGraph.getRoot(), artifacts, 0, alignment_array, 0);
+
+		return this.finalizeAlignment(artifacts, alignment_array);
+	}
+
+	/**
+	 * @return The cost (i.e. the number of skipped artifacts and sequence graph symbols) of the last alignment computed by {@link #align(List)} or {@link #alignBranchAndBound(List)}, or -1 if there was none.
+	 */
+	public int getAlignmentCost() {
+		return this.alignment_cost;
+	}
 
+	private int[] finalizeAlignment(List<? extends Artifact.Op<?>> artifacts, int[] alignment_array) {
 		// finalize alignment
 		for (int i = 0; i < alignment_array.length; i++) {
 			if (alignment_array[i] == -1 || alignment_array[i] == 0) {
@@ -673,6 +888,229 @@ public class SequenceGraphOperator {
 	}
 
 
+	/**
+	 * Computes the same minimal cost alignment as {@link #align_rec_fast(SequenceGraph.Node.Op, List, int, int[], int)} with the same moves and tie breaking, but memoizes the cost for every pair of sequence graph node and input index so every pair is only evaluated once.
+	 * <p>
+	 * The moves from a node and an input index are: if a child of the node matches the artifact at the index, take one of the matching children (cost 0).
+	 * Otherwise, if a child matches a later artifact, skip the artifacts up to the first such artifact and take one of its matching children (cost 1 per skipped artifact), or skip a child (cost 1).
+	 * Otherwise skip a child (cost 1). At a node without children the remaining artifacts are skipped (cost 1 each).
+	 * <p>
+	 * The states are evaluated with an explicit stack and the costs stored in a primitive hash table, so neither deep recursion nor boxing is involved.
+	 *
+	 * @param artifacts The sequence of artifacts.
+	 * @param alignment The alignment array that is filled in.
+	 * @return The cost of the alignment.
+	 */
+	private int alignDynamic(List<? extends Artifact.Op<?>> artifacts, int[] alignment) {
+		final int n = artifacts.size();
+
+		// positions of artifacts in the input, grouped by hash code (which does not depend on the sequence number)
+		Map<Integer, List<Integer>> positionsByHash = new HashMap<>();
+		for (int i = 0; i < n; i++)
+			positionsByHash.computeIfAbsent(artifacts.get(i).hashCode(), k -> new ArrayList<>()).add(i);
+
+		// sequence graph nodes in topological order with their children, the sequence numbers of their symbols and the (ascending) input positions their symbols match
+		List<SequenceGraph.Node.Op> nodes = topologicalOrder(this.sequenceGraph.getRoot());
+		Map<SequenceGraph.Node.Op, Integer> nodeIndex = indexOf(nodes);
+		int[][] children = new int[nodes.size()][];
+		int[][] symbols = new int[nodes.size()][];
+		int[][][] positions = new int[nodes.size()][][];
+		Map<Artifact.Op<?>, int[]> symbolPositions = new IdentityHashMap<>();
+		for (int u = 0; u < nodes.size(); u++) {
+			Map<Artifact.Op<?>, SequenceGraph.Node.Op> nodeChildren = nodes.get(u).getChildren();
+			children[u] = new int[nodeChildren.size()];
+			symbols[u] = new int[nodeChildren.size()];
+			positions[u] = new int[nodeChildren.size()][];
+			int c = 0;
+			for (Map.Entry<Artifact.Op<?>, SequenceGraph.Node.Op> entry : nodeChildren.entrySet()) {
+				Artifact.Op<?> symbol = entry.getKey();
+				int[] matches = symbolPositions.get(symbol);
+				if (matches == null) {
+					List<Integer> candidates = positionsByHash.getOrDefault(symbol.hashCode(), Collections.emptyList());
+					matches = candidates.stream().filter(i -> symbol.equals(artifacts.get(i))).mapToInt(Integer::intValue).toArray();
+					symbolPositions.put(symbol, matches);
+				}
+				children[u][c] = nodeIndex.get(entry.getValue());
+				symbols[u][c] = symbol.getSequenceNumber();
+				positions[u][c] = matches;
+				c++;
+			}
+		}
+
+		// evaluate states (node, index) bottom up
+		AlignmentCosts costs = new AlignmentCosts(n);
+		long[] stack = new long[64];
+		int top = 0;
+		stack[top++] = costs.state(0, 0);
+		int[] next = new int[0];
+		while (top > 0) {
+			long state = stack[top - 1];
+			if (costs.get(state) >= 0) {
+				top--;
+				continue;
+			}
+			int u = costs.node(state), index = costs.index(state);
+			if (children[u].length == 0) {
+				costs.put(state, n - index);
+				top--;
+				continue;
+			}
+			if (next.length < children[u].length)
+				next = new int[children[u].length];
+			int first = nextPositions(positions[u], index, next);
+
+			// determine cost of all successor states, pushing the ones not yet evaluated
+			int best = Integer.MAX_VALUE;
+			boolean complete = true;
+			for (int c = 0; c < children[u].length; c++) {
+				if (first < n && next[c] == first) { // take matching child (after skipping artifacts if first > index)
+					long successor = costs.state(children[u][c], first + 1);
+					int cost = costs.get(successor);
+					if (cost < 0) {
+						if (top == stack.length) stack = Arrays.copyOf(stack, stack.length * 2);
+						stack[top++] = successor;
+						complete = false;
+					} else {
+						best = Math.min(best, cost + first - index);
+					}
+				}
+				if (first != index) { // skip child
+					long successor = costs.state(children[u][c], index);
+					int cost = costs.get(successor);
+					if (cost < 0) {
+						if (top == stack.length) stack = Arrays.copyOf(stack, stack.length * 2);
+						stack[top++] = successor;
+						complete = false;
+					} else {
+						best = Math.min(best, cost + 1);
+					}
+				}
+			}
+			if (complete) {
+				costs.put(state, best);
+				top--;
+			}
+		}
+
+		// trace back the alignment, preferring moves in the order in which align_rec_fast explores them
+		int u = 0, index = 0;
+		while (children[u].length > 0) {
+			int cost = costs.get(costs.state(u, index));
+			int first = nextPositions(positions[u], index, next);
+			int next_u = -1;
+			if (first < n) {
+				for (int c = 0; c < children[u].length; c++) {
+					if (next[c] == first && costs.get(costs.state(children[u][c], first + 1)) + first - index == cost) {
+						for (int j = index; j < first; j++)
+							alignment[j] = -1;
+						alignment[first] = symbols[u][c];
+						next_u = children[u][c];
+						index = first + 1;
+						break;
+					}
+				}
+			}
+			if (next_u < 0) {
+				for (int c = 0; c < children[u].length; c++) {
+					if (costs.get(costs.state(children[u][c], index)) + 1 == cost) {
+						next_u = children[u][c];
+						break;
+					}
+				}
+			}
+			u = next_u;
+		}
+
+		return costs.get(costs.state(0, 0));
+	}
+
+	/**
+	 * Determines for every child the first input position at or after the given index that matches its symbol (or Integer.MAX_VALUE), and returns the smallest of them.
+	 */
+	private static int nextPositions(int[][] positions, int index, int[] next) {
+		int first = Integer.MAX_VALUE;
+		for (int c = 0; c < positions.length; c++) {
+			int p = Arrays.binarySearch(positions[c], index);
+			if (p < 0)
+				p = -p - 1;
+			next[c] = p < positions[c].length ? positions[c][p] : Integer.MAX_VALUE;
+			first = Math.min(first, next[c]);
+		}
+		return first;
+	}
+
+	/**
+	 * Open addressing hash table from alignment states (pairs of node and input index encoded as long) to costs.
+	 */
+	private static final class AlignmentCosts {
+		private final long width;
+		private long[] keys = new long[1024];
+		private int[] values = new int[1024];
+		private int size = 0;
+
+		private AlignmentCosts(int n) {
+			this.width = n + 1L;
+			Arrays.fill(this.keys, -1L);
+		}
+
+		private long state(int node, int index) {
+			return node * this.width + index;
+		}
+
+		private int node(long state) {
+			return (int) (state / this.width);
+		}
+
+		private int index(long state) {
+			return (int) (state % this.width);
+		}
+
+		/**
+		 * @return The cost of the given state or -1 if it has not been evaluated yet.
+		 */
+		private int get(long state) {
+			int mask = this.keys.length - 1;
+			for (int i = slot(state, mask); ; i = (i + 1) & mask) {
+				if (this.keys[i] == state)
+					return this.values[i];
+				if (this.keys[i] == -1L)
+					return -1;
+			}
+		}
+
+		private void put(long state, int cost) {
+			if (2 * (this.size + 1) > this.keys.length)
+				this.resize();
+			int mask = this.keys.length - 1;
+			int i = slot(state, mask);
+			while (this.keys[i] != -1L && this.keys[i] != state)
+				i = (i + 1) & mask;
+			if (this.keys[i] == -1L)
+				this.size++;
+			this.keys[i] = state;
+			this.values[i] = cost;
+		}
+
+		private void resize() {
+			long[] oldKeys = this.keys;
+			int[] oldValues = this.values;
+			this.keys = new long[oldKeys.length * 2];
+			this.values = new int[oldValues.length * 2];
+			Arrays.fill(this.keys, -1L);
+			this.size = 0;
+			for (int i = 0; i < oldKeys.length; i++) {
+				if (oldKeys[i] != -1L)
+					this.put(oldKeys[i], oldValues[i]);
+			}
+		}
+
+		private static int slot(long state, int mask) {
+			long h = state * 0x9E3779B97F4A7C15L;
+			return (int) (h ^ (h >>> 32)) & mask;
+		}
+	}
+
+
 	private int align_rec_fast(SequenceGraph.Node.Op left, List<? extends Artifact.Op<?>> artifacts, int node_right_index, int[] alignment, int cost) {
 
 		//int cur_min_cost = Integer.MAX_VALUE;
@@ -763,7 +1201,7 @@ public class SequenceGraphOperator {
 		return cur_min_cost; // NOTE: this must never be Integer.MAX_VALUE
 	}
 
-	private SequenceGraph.Node.Op update_rec(HashSet<Artifact.Op<?>> path, Map<Set<Artifact.Op<?>>, SequenceGraph.Node.Op> nodes, Set<? extends Artifact.Op<?>> shared_symbols, SequenceGraph.Node.Op node, int alignment_index, List<? extends Artifact.Op<?>> aligned_nodes, boolean new_pol) {
+	private SequenceGraph.Node.Op update_rec(PathIndex paths, Path path, Map<Path, SequenceGraph.Node.Op> nodes, Set<? extends Artifact.Op<?>> shared_symbols, SequenceGraph.Node.Op node, int alignment_index, List<? extends Artifact.Op<?>> aligned_nodes, boolean new_pol) {
 
 		// get current graph node
 		boolean new_node = false;
@@ -791,11 +1229,9 @@ public class SequenceGraphOperator {
 		// if right unshared we can take the path (this is the adding part)
 		if (right != null && !shared_symbols.contains(right)) {
 			// compute new path
-			@SuppressWarnings("unchecked")
-			HashSet<Artifact.Op<?>> new_path = (HashSet<Artifact.Op<?>>) path.clone();
-			new_path.add(right);
+			Path new_path = paths.extend(path, right);
 			// take it
-			SequenceGraph.Node.Op new_gn = update_rec(new_path, nodes, shared_symbols, node, alignment_index + 1, aligned_nodes, new_pol);
+			SequenceGraph.Node.Op new_gn = update_rec(paths, new_path, nodes, shared_symbols, node, alignment_index + 1, aligned_nodes, new_pol);
 			new_children.put(right, new_gn);
 		}
 
@@ -808,11 +1244,9 @@ public class SequenceGraphOperator {
 			// if left child unshared we can take it
 			if (!shared_symbols.contains(entry.getKey())) {
 				// compute new path
-				@SuppressWarnings("unchecked")
-				HashSet<Artifact.Op<?>> new_path = (HashSet<Artifact.Op<?>>) path.clone();
-				new_path.add(entry.getKey());
+				Path new_path = paths.extend(path, entry.getKey());
 				// take it
-				SequenceGraph.Node.Op new_gn = update_rec(new_path, nodes, shared_symbols, entry.getValue(), alignment_index, aligned_nodes, new_pol);
+				SequenceGraph.Node.Op new_gn = update_rec(paths, new_path, nodes, shared_symbols, entry.getValue(), alignment_index, aligned_nodes, new_pol);
 				// X not a new child. do nothing with new_children.
 				//if (new_node)
 				new_children.put(entry.getKey(), new_gn);
@@ -820,11 +1254,9 @@ public class SequenceGraphOperator {
 				// if left child and right are equal we can take it
 				if (right != null && right.equals(entry.getKey())) {
 					// compute new path
-					@SuppressWarnings("unchecked")
-					HashSet<Artifact.Op<?>> new_path = (HashSet<Artifact.Op<?>>) path.clone();
-					new_path.add(entry.getKey());
+					Path new_path = paths.extend(path, entry.getKey());
 					// take it
-					SequenceGraph.Node.Op new_gn = update_rec(new_path, nodes, shared_symbols, entry.getValue(), alignment_index + 1, aligned_nodes, new_pol);
+					SequenceGraph.Node.Op new_gn = update_rec(paths, new_path, nodes, shared_symbols, entry.getValue(), alignment_index + 1, aligned_nodes, new_pol);
 					// X not a new child. do nothing with new_children.
 					//if (new_node)
 					new_children.put(entry.getKey(), new_gn);
@@ -840,4 +1272,88 @@ public class SequenceGraphOperator {
 		return gn;
 	}
 
+
+	// # PATHS #################################################################
+
+	/**
+	 * Identifies a sequence graph node by the set of symbols on the paths leading to it from the root.
+	 * <p>
+	 * Instead of the set itself a path stores the number of its symbols and two independent 64 bit Zobrist hashes of them, i.e. the XOR of a random key per symbol.
+	 * Extending a path by a symbol is therefore constant in time and space.
+	 * Two paths are equal if size and both hashes are equal; for different symbol sets this is the case with probability about 2^-128.
+	 * Since sequence graphs are acyclic a symbol is never added twice to the same path.
+	 */
+	public static final class Path {
+		public static final Path EMPTY = new Path(0, 0L, 0L);
+
+		private final int size;
+		private final long hash1;
+		private final long hash2;
+
+		private Path(int size, long hash1, long hash2) {
+			this.size = size;
+			this.hash1 = hash1;
+			this.hash2 = hash2;
+		}
+
+		/**
+		 * Returns the path extended by the symbol with the given index.
+		 *
+		 * @param symbol The dense index of the symbol.
+		 * @return The extended path.
+		 */
+		public Path extend(int symbol) {
+			return new Path(this.size + 1, this.hash1 ^ mix(2L * symbol), this.hash2 ^ mix(2L * symbol + 1L));
+		}
+
+		public int size() {
+			return this.size;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) return true;
+			if (o == null || getClass() != o.getClass()) return false;
+			Path that = (Path) o;
+			return this.size == that.size && this.hash1 == that.hash1 && this.hash2 == that.hash2;
+		}
+
+		@Override
+		public int hashCode() {
+			return (int) (this.hash1 ^ (this.hash1 >>> 32));
+		}
+
+		@Override
+		public String toString() {
+			return String.format("Path(%d, %016x%016x)", this.size, this.hash1, this.hash2);
+		}
+
+		/**
+		 * SplitMix64 finalizer used to derive the Zobrist key of a symbol from its index.
+		 */
+		private static long mix(long z) {
+			z = (z + 0x9E3779B97F4A7C15L) * 0xBF58476D1CE4E5B9L;
+			z = (z ^ (z >>> 30)) * 0x94D049BB133111EBL;
+			z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+			return z ^ (z >>> 31);
+		}
+	}
+
+	/**
+	 * Assigns dense indices to the symbols encountered during a single sequence graph operation.
+	 * Symbols are compared using equals, exactly as when they were stored in a set, so it must not outlive the operation (sequence numbers may change in between).
+	 */
+	private static final class PathIndex {
+		private final Map<Artifact.Op<?>, Integer> symbols = new HashMap<>();
+
+		public Path extend(Path path, Artifact.Op<?> symbol) {
+			Integer index = this.symbols.get(symbol);
+			if (index == null) {
+				index = this.symbols.size();
+				this.symbols.put(symbol, index);
+			}
+			return path.extend(index);
+		}
+	}
+
 }
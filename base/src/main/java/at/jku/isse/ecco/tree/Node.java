@@ -183,6 +183,16 @@ public interface Node {
 		 */
 		public void removeChild(Op child);
 
+		/**
+		 * Returns the child of this node that is equal to the given node, or null if there is no such child.
+		 * It returns the same child as <code>getChildren().get(getChildren().indexOf(node))</code>, but uses a lazily built hash index over the children instead of a linear scan.
+		 * The index is kept in sync by {@link #addChild(Op)} and {@link #removeChild(Op)} and is rebuilt if the list returned by {@link #getChildren()} is modified directly.
+		 *
+		 * @param node The node to look for.
+		 * @return The equal child or null.
+		 */
+		public Op getChild(Node node);
+
 		/**
 		 * See {@link at.jku.isse.ecco.util.Trees#slice(Op, Op)}
 		 */
@@ -1,7 +1,11 @@
 package at.jku.isse.ecco.tree;
 
 import at.jku.isse.ecco.util.Trees;
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.ListMultimap;
 
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 
@@ -124,6 +128,113 @@ public class NodeOperator {
 	}
 
 
+	// # CHILD INDEX ###################################################################################################
+
+	/**
+	 * Nodes with fewer children than this are not indexed, a linear scan over the children is cheaper for them.
+	 */
+	public static final int CHILD_INDEX_THRESHOLD = 16;
+
+	/**
+	 * Lazily built index of the node's children by the hash code of their artifacts. It is transient and kept in sync by {@link #childAdded(Node.Op)} and {@link #childRemoved(Node.Op)}.
+	 */
+	private transient ListMultimap<Integer, Node.Op> childIndex = null;
+
+	/**
+	 * The number of children the index was built for. Used to detect modifications of the children list that bypassed {@link Node.Op#addChild(Node.Op)} and {@link Node.Op#removeChild(Node.Op)}.
+	 */
+	private transient int childIndexSize = 0;
+
+	/**
+	 * Returns the child of the node that is equal to the given node, i.e. the same child as <code>getChildren().get(getChildren().indexOf(node))</code> but in (amortized) constant time.
+	 *
+	 * @param node The node to find an equal child for.
+	 * @return The equal child or null if there is none.
+	 */
+	public Node.Op getChild(Node node) {
+		List<Node.Op> children = this.node.getChildren();
+
+		if (children.size() < CHILD_INDEX_THRESHOLD) {
+			this.childIndex = null;
+			int index = children.indexOf(node);
+			return index == -1 ? null : children.get(index);
+		}
+
+		if (this.childIndex == null || this.childIndexSize != children.size()) {
+			this.childIndex = ArrayListMultimap.create();
+			for (Node.Op child : children)
+				this.childIndex.put(child.hashCode(), child);
+			this.childIndexSize = children.size();
+		}
+
+		Node.Op match = null;
+		for (Node.Op candidate : this.childIndex.get(node.hashCode())) {
+			if (candidate.equals(node)) {
+				if (match != null) { // multiple equal children (only possible in ordered nodes): fall back to list order
+					int index = children.indexOf(node);
+					return index == -1 ? null : children.get(index);
+				}
+				match = candidate;
+			}
+		}
+		return match;
+	}
+
+	/**
+	 * Must be called by the node after the given child was added to its children.
+	 *
+	 * @param child The added child.
+	 */
+	public void childAdded(Node.Op child) {
+		if (this.childIndex == null)
+			return;
+		if (this.childIndexSize + 1 == this.node.getChildren().size()) {
+			this.childIndex.put(child.hashCode(), child);
+			this.childIndexSize++;
+		} else {
+			this.childIndex = null;
+		}
+	}
+
+	/**
+	 * Must be called by the node after the given child was removed from its children.
+	 *
+	 * @param child The removed child.
+	 */
+	public void childRemoved(Node.Op child) {
+		if (this.childIndex == null)
+			return;
+		if (this.childIndexSize - 1 == this.node.getChildren().size()) {
+			Iterator<Node.Op> iterator = this.childIndex.get(child.hashCode()).iterator();
+			while (iterator.hasNext()) {
+				if (iterator.next() == child) {
+					iterator.remove();
+					this.childIndexSize--;
+					return;
+				}
+			}
+		}
+		this.childIndex = null;
+	}
+
+	/**
+	 * Removes the given child instance from the given list of children. Unlike {@link List#remove(Object)} this removes the identical instance and not the first equal one. If the instance is not contained the first equal child is removed.
+	 *
+	 * @param children The list of children.
+	 * @param child    The child to remove.
+	 * @return True if a child was removed, false otherwise.
+	 */
+	public static boolean removeChild(List<? extends Node> children, Node child) {
+		for (int i = 0; i < children.size(); i++) {
+			if (children.get(i) == child) {
+				children.remove(i);
+				return true;
+			}
+		}
+		return children.remove(child);
+	}
+
+
 	// # PROPERTIES ####################################################################################################
 
 	public <T> Optional<T> getProperty(final String name) {
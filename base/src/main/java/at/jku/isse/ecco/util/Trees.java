@@ -3,10 +3,16 @@ package at.jku.isse.ecco.util;
 import at.jku.isse.ecco.EccoException;
 import at.jku.isse.ecco.artifact.Artifact;
 import at.jku.isse.ecco.artifact.ArtifactReference;
+import at.jku.isse.ecco.sg.SequenceGraph;
+import at.jku.isse.ecco.sg.SequenceGraphOperator;
 import at.jku.isse.ecco.tree.Node;
 import at.jku.isse.ecco.tree.RootNode;
 
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 import java.util.stream.Collectors;
 
 /**
@@ -14,6 +20,9 @@ import java.util.stream.Collectors;
  */
 public class Trees {
 
+	private static final Object REFERENCE_LOCK = new Object();
+
+
 	private Trees() {
 	}
 
@@ -42,6 +51,206 @@ public class Trees {
 	 */
 	//public static <T extends Node.Op> T slice(T left, T right) throws EccoException {
 	public static Node.Op slice(Node.Op left, Node.Op right) throws EccoException {
+		Node.Op intersection = sliceNode(left, right);
+		if (intersection == left) // atomic
+			return left;
+
+		for (Node.Op leftChild : new ArrayList<>(left.getChildren())) {
+			Node.Op rightChild = right.getChild(leftChild);
+			if (rightChild == null)
+				continue;
+
+			Node.Op intersectionChild = slice(leftChild, rightChild);
+
+			addSlicedChild(left, right, intersection, leftChild, rightChild, intersectionChild, isSlicedAway(rightChild, intersectionChild));
+		}
+
+		return intersection;
+	}
+
+	/**
+	 * Slices each of the given left nodes with the right node. The result and the resulting state of all trees is identical to calling {@link #slice(Node.Op, Node.Op)} for every left node in the given order.
+	 * <p>
+	 * The right tree is partitioned at the first node (following single child chains of unordered, non-atomic nodes from the right node) that has more than one child.
+	 * The subtrees of these children do not depend on each other, so every child is sliced against the matching children of all left nodes (in order) by a separate task in the given pool.
+	 * Everything above the partition as well as the bookkeeping of which children were sliced away when is applied sequentially afterwards.
+	 * The merging of artifact references is the only shared state and is synchronized.
+	 * The partitioned subtrees are loaded completely in the calling thread before the tasks run, so that storages which load entities lazily (e.g. Perst) are only accessed by the thread of the transaction.
+	 *
+	 * @param lefts The left (original) nodes.
+	 * @param right The right (new) node.
+	 * @param pool  The pool to run the tasks in or null to slice sequentially.
+	 * @return The created intersection nodes in the order of the left nodes.
+	 * @throws EccoException
+	 */
+	public static List<Node.Op> slice(List<? extends Node.Op> lefts, Node.Op right, ForkJoinPool pool) throws EccoException {
+		// find the partition node
+		List<Node.Op> chain = new ArrayList<>();
+		Node.Op partition = right;
+		chain.add(partition);
+		while (partition.getChildren().size() == 1 && isPartitionable(partition.getChildren().get(0))) {
+			partition = partition.getChildren().get(0);
+			chain.add(partition);
+		}
+
+		// find the left nodes matching the chain
+		Node.Op[] leftPartitions = new Node.Op[lefts.size()];
+		boolean partitionable = pool != null && isPartitionable(right) && partition.getChildren().size() > 1;
+		for (int i = 0; i < lefts.size() && partitionable; i++) {
+			Node.Op leftPartition = lefts.get(i);
+			if (!leftPartition.equals(right))
+				throw new EccoException("Intersection of non-equal nodes is not allowed!");
+			for (int k = 1; k < chain.size() && leftPartition != null; k++)
+				leftPartition = leftPartition.getChild(chain.get(k));
+			for (Node.Op leftNode = leftPartition; leftNode != null && leftNode != lefts.get(i); leftNode = leftNode.getParent())
+				partitionable &= isPartitionable(leftNode);
+			leftPartitions[i] = leftPartition;
+		}
+
+		List<Node.Op> intersections = new ArrayList<>();
+		if (!partitionable) {
+			for (Node.Op left : lefts)
+				intersections.add(slice(left, right));
+			return intersections;
+		}
+
+		// match the children of the partition nodes. this must happen before the tasks run, because the child lookup builds indices lazily.
+		List<Node.Op> rightChildren = new ArrayList<>(partition.getChildren());
+		Node.Op[][] leftChildren = new Node.Op[rightChildren.size()][lefts.size()];
+		for (int i = 0; i < lefts.size(); i++) {
+			if (leftPartitions[i] == null)
+				continue;
+			for (int j = 0; j < rightChildren.size(); j++)
+				leftChildren[j][i] = leftPartitions[i].getChild(rightChildren.get(j));
+		}
+
+		// load the subtrees in this thread, i.e. the thread of the transaction
+		for (int j = 0; j < rightChildren.size(); j++) {
+			load(rightChildren.get(j));
+			for (int i = 0; i < lefts.size(); i++) {
+				if (leftChildren[j][i] != null)
+					load(leftChildren[j][i]);
+			}
+		}
+
+		// slice every child of the right partition node in a separate task
+		Node.Op[][] intersectionChildren = new Node.Op[rightChildren.size()][lefts.size()];
+		int[] slicedAway = new int[rightChildren.size()];
+		Arrays.fill(slicedAway, -1);
+		int alignmentBudget = SequenceGraphOperator.getAlignmentBudget();
+		List<Callable<Void>> tasks = new ArrayList<>();
+		for (int j = 0; j < rightChildren.size(); j++) {
+			final int jj = j;
+			tasks.add(() -> {
+				int previousAlignmentBudget = SequenceGraphOperator.setAlignmentBudget(alignmentBudget);
+				try {
+					Node.Op rightChild = rightChildren.get(jj);
+					for (int i = 0; i < lefts.size(); i++) {
+						if (leftChildren[jj][i] == null)
+							continue;
+						intersectionChildren[jj][i] = slice(leftChildren[jj][i], rightChild);
+						if (isSlicedAway(rightChild, intersectionChildren[jj][i])) {
+							slicedAway[jj] = i;
+							break;
+						}
+					}
+				} finally {
+					SequenceGraphOperator.setAlignmentBudget(previousAlignmentBudget);
+				}
+				return null;
+			});
+		}
+		try {
+			for (Future<Void> future : pool.invokeAll(tasks))
+				future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new EccoException("Interrupted while slicing.", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException)
+				throw (RuntimeException) e.getCause();
+			if (e.getCause() instanceof Error)
+				throw (Error) e.getCause();
+			throw new EccoException("Error while slicing.", e);
+		}
+
+		// apply the results in order
+		Map<Node.Op, Integer> rightChildIndices = new IdentityHashMap<>();
+		for (int j = 0; j < rightChildren.size(); j++)
+			rightChildIndices.put(rightChildren.get(j), j);
+		for (int i = 0; i < lefts.size(); i++)
+			intersections.add(applySlice(lefts.get(i), right, i, chain.size() - 1, rightChildIndices, intersectionChildren, slicedAway));
+		return intersections;
+	}
+
+	/**
+	 * Accesses all nodes, artifacts, artifact references and sequence graphs of the given tree so that they are loaded.
+	 */
+	private static void load(Node.Op node) {
+		Deque<Node.Op> stack = new ArrayDeque<>();
+		stack.push(node);
+		while (!stack.isEmpty()) {
+			Node.Op current = stack.pop();
+			Artifact.Op<?> artifact = current.getArtifact();
+			if (artifact != null) {
+				artifact.getData();
+				for (ArtifactReference.Op reference : artifact.getUses())
+					reference.getTarget();
+				for (ArtifactReference.Op reference : artifact.getUsedBy())
+					reference.getSource();
+				SequenceGraph.Op sequenceGraph = artifact.getSequenceGraph();
+				if (sequenceGraph != null) {
+					Deque<SequenceGraph.Node.Op> sgNodes = new ArrayDeque<>();
+					Set<SequenceGraph.Node.Op> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+					sgNodes.push(sequenceGraph.getRoot());
+					while (!sgNodes.isEmpty()) {
+						SequenceGraph.Node.Op sgNode = sgNodes.pop();
+						if (!visited.add(sgNode))
+							continue;
+						for (Map.Entry<Artifact.Op<?>, SequenceGraph.Node.Op> entry : sgNode.getChildren().entrySet()) {
+							entry.getKey().getData();
+							sgNodes.push(entry.getValue());
+						}
+					}
+				}
+			}
+			for (Node.Op child : current.getChildren())
+				stack.push(child);
+		}
+	}
+
+	private static Node.Op applySlice(Node.Op left, Node.Op right, int i, int depth, Map<Node.Op, Integer> rightChildIndices, Node.Op[][] intersectionChildren, int[] slicedAway) {
+		Node.Op intersection = sliceNode(left, right);
+
+		for (Node.Op leftChild : new ArrayList<>(left.getChildren())) {
+			Node.Op rightChild = right.getChild(leftChild);
+			if (rightChild == null)
+				continue;
+
+			if (depth > 0) {
+				Node.Op intersectionChild = applySlice(leftChild, rightChild, i, depth - 1, rightChildIndices, intersectionChildren, slicedAway);
+				addSlicedChild(left, right, intersection, leftChild, rightChild, intersectionChild, isSlicedAway(rightChild, intersectionChild));
+			} else {
+				int j = rightChildIndices.get(rightChild);
+				addSlicedChild(left, right, intersection, leftChild, rightChild, intersectionChildren[j][i], slicedAway[j] == i);
+			}
+		}
+
+		return intersection;
+	}
+
+	private static boolean isPartitionable(Node.Op node) {
+		return node.getArtifact() == null || !node.getArtifact().isOrdered() && !node.getArtifact().isAtomic();
+	}
+
+	private static boolean isSlicedAway(Node.Op rightChild, Node.Op intersectionChild) {
+		return intersectionChild != null && intersectionChild.isAtomic() || !rightChild.isUnique() && rightChild.getChildren().isEmpty();
+	}
+
+	/**
+	 * Slices the given nodes without their children. Returns the left node if it is atomic (in which case its whole subtree is the intersection) and the new intersection node otherwise.
+	 */
+	private static Node.Op sliceNode(Node.Op left, Node.Op right) throws EccoException {
 		if (!left.equals(right))
 			throw new EccoException("Intersection of non-equal nodes is not allowed!");
 
@@ -73,19 +282,7 @@ public class Trees {
 			} else if (left.getArtifact() != right.getArtifact()) {
 				right.getArtifact().putProperty(Artifact.PROPERTY_REPLACING_ARTIFACT, left.getArtifact());
 
-				// merge artifact references
-				for (ArtifactReference.Op ar : right.getArtifact().getUses()) {
-					if (!left.getArtifact().getUses().contains(ar)) {
-						left.getArtifact().addUses(ar);
-						ar.setSource(left.getArtifact());
-					}
-				}
-				for (ArtifactReference.Op ar : right.getArtifact().getUsedBy()) {
-					if (!left.getArtifact().getUsedBy().contains(ar)) {
-						left.getArtifact().addUsedBy(ar);
-						ar.setTarget(left.getArtifact());
-					}
-				}
+				mergeArtifactReferences(left, right);
 
 				right.setArtifact(left.getArtifact());
 			}
@@ -105,68 +302,55 @@ public class Trees {
 			intersection.setUnique(false);
 		}
 
-//		if (intersection.getArtifact() != null && intersection.getArtifact().isAtomic()) {
-//			return intersection;
-//		}
-
-
-		Iterator<Node.Op> leftChildrenIterator = left.getChildren().iterator();
-		while (leftChildrenIterator.hasNext()) {
-			Node.Op leftChild = leftChildrenIterator.next();
-
-			int ri = right.getChildren().indexOf(leftChild);
-			if (ri == -1)
-				continue;
+		return intersection;
+	}
 
-			Node.Op rightChild = right.getChildren().get(ri);
+	private static void addSlicedChild(Node.Op left, Node.Op right, Node.Op intersection, Node.Op leftChild, Node.Op rightChild, Node.Op intersectionChild, boolean rightChildSlicedAway) {
+		if (intersectionChild != null && (intersectionChild.isUnique() || (!intersectionChild.getChildren().isEmpty() && !intersectionChild.isAtomic()))) {
+			intersection.addChild(intersectionChild);
+		}
 
-			Node.Op intersectionChild = slice(leftChild, rightChild);
+		if (intersectionChild != null && intersectionChild.isAtomic()) { // left child becomes the intersection child
+			left.removeChild(leftChild);
+			right.removeChild(rightChild);
 
-			if (intersectionChild != null && (intersectionChild.isUnique() || (!intersectionChild.getChildren().isEmpty() && !intersectionChild.isAtomic()))) {
-				intersection.addChild(intersectionChild);
+			intersectionChild.setParent(intersection);
+		} else {
+			if (!leftChild.isUnique() && leftChild.getChildren().isEmpty()) {
+				left.removeChild(leftChild);
 			}
 
-			if (intersectionChild != null && intersectionChild.isAtomic()) { // left child becomes the intersection child
-				intersectionChild.setParent(intersection);
-
-				rightChild.setParent(null);
+			if (rightChildSlicedAway) {
+				right.removeChild(rightChild);
+			}
+		}
+	}
 
-				leftChildrenIterator.remove();
-				right.getChildren().remove(rightChild);
-			} else {
-				if (!leftChild.isUnique() && leftChild.getChildren().isEmpty()) {
-					leftChild.setParent(null);
-					leftChildrenIterator.remove();
+	/**
+	 * Merges the artifact references of the right artifact into the left artifact. References connect artifacts across subtrees, so this is synchronized for parallel slicing.
+	 */
+	private static void mergeArtifactReferences(Node.Op left, Node.Op right) {
+		synchronized (REFERENCE_LOCK) {
+			for (ArtifactReference.Op ar : right.getArtifact().getUses()) {
+				if (!left.getArtifact().getUses().contains(ar)) {
+					left.getArtifact().addUses(ar);
+					ar.setSource(left.getArtifact());
 				}
-
-				if (!rightChild.isUnique() && rightChild.getChildren().isEmpty()) {
-					rightChild.setParent(null);
-					right.getChildren().remove(rightChild);
+			}
+			for (ArtifactReference.Op ar : right.getArtifact().getUsedBy()) {
+				if (!left.getArtifact().getUsedBy().contains(ar)) {
+					left.getArtifact().addUsedBy(ar);
+					ar.setTarget(left.getArtifact());
 				}
 			}
 		}
-
-
-		return intersection;
 	}
 
 	private static void matchAtomicArtifacts(Node.Op left, Node.Op right) {
 		//right.getArtifact().putProperty(Artifact.PROPERTY_REPLACING_ARTIFACT, left.getArtifact());
 		right.getArtifact().setReplacingArtifact(left.getArtifact());
 
-		// merge artifact references
-		for (ArtifactReference.Op ar : right.getArtifact().getUses()) {
-			if (!left.getArtifact().getUses().contains(ar)) {
-				left.getArtifact().addUses(ar);
-				ar.setSource(left.getArtifact());
-			}
-		}
-		for (ArtifactReference.Op ar : right.getArtifact().getUsedBy()) {
-			if (!left.getArtifact().getUsedBy().contains(ar)) {
-				left.getArtifact().addUsedBy(ar);
-				ar.setTarget(left.getArtifact());
-			}
-		}
+		mergeArtifactReferences(left, right);
 
 		right.setArtifact(left.getArtifact());
 
@@ -175,14 +359,12 @@ public class Trees {
 		}
 
 		for (Node.Op leftChild : left.getChildren()) {
-			int ri = right.getChildren().indexOf(leftChild);
-			if (ri == -1) {
+			Node.Op rightChild = right.getChild(leftChild);
+			if (rightChild == null) {
 				throw new EccoException("Equal atomic nodes must have identical children!");
 				//continue;
 			}
 
-			Node.Op rightChild = right.getChildren().get(ri);
-
 			Trees.matchAtomicArtifacts(leftChild, rightChild);
 		}
 	}
@@ -207,18 +389,13 @@ public class Trees {
 		}
 
 		// deal with children
-		Iterator<Node.Op> iterator = right.getChildren().iterator();
-		while (iterator.hasNext()) {
-			Node.Op rightChild = iterator.next();
-			int li = left.getChildren().indexOf(rightChild);
-			if (li != -1) {
-				Node.Op leftChild = left.getChildren().get(li);
-
+		for (Node.Op rightChild : new ArrayList<>(right.getChildren())) {
+			Node.Op leftChild = left.getChild(rightChild);
+			if (leftChild != null) {
 				merge(leftChild, rightChild);
 
 				// detatch right child from right node. this should not be necessary, but to be safe we clean up here.
-				iterator.remove();
-				rightChild.setParent(null);
+				right.removeChild(rightChild);
 			} else {
 				left.addChild(rightChild);
 			}
@@ -323,16 +500,14 @@ public class Trees {
 		right.setArtifact(left.getArtifact());
 
 		// process children
-		Iterator<Node.Op> iterator = left.getChildren().iterator();
-		while (iterator.hasNext()) {
-			Node.Op leftChild = iterator.next();
+		for (Node.Op leftChild : new ArrayList<>(left.getChildren())) {
 			Node.Op rightChild = extractMarkedRec(leftChild);
 			if (rightChild != null) { // add to right tree
 				right.addChild(rightChild);
 			}
 
 			if (!leftChild.isUnique() && leftChild.getChildren().isEmpty()) { // potentially trim left tree
-				iterator.remove();
+				left.removeChild(leftChild);
 			}
 		}
 
@@ -374,17 +549,13 @@ public class Trees {
 			left.setUnique(false);
 
 		// deal with children
-		Iterator<Node.Op> iterator = left.getChildren().iterator();
-		while (iterator.hasNext()) {
-			Node.Op leftChild = iterator.next();
-			int ri = right.getChildren().indexOf(leftChild);
-			if (ri != -1) {
-				Node.Op rightChild = right.getChildren().get(ri);
-
+		for (Node.Op leftChild : new ArrayList<>(left.getChildren())) {
+			Node.Op rightChild = right.getChild(leftChild);
+			if (rightChild != null) {
 				subtract(leftChild, rightChild);
 
 				if (!leftChild.isUnique() && leftChild.getChildren().isEmpty())
-					iterator.remove();
+					left.removeChild(leftChild);
 			}
 		}
 	}
@@ -392,6 +563,22 @@ public class Trees {
 
 	// # READ ONLY OPERATIONS ##################################################################################
 
+	/**
+	 * Returns the child of the given parent that is equal to the given node. Uses the child index of {@link Node.Op#getChild(Node)} if available.
+	 *
+	 * @param parent The parent node.
+	 * @param node   The node to look for among the children of the parent.
+	 * @return The equal child or null if there is none.
+	 */
+	private static Node getChild(Node parent, Node node) {
+		if (parent instanceof Node.Op)
+			return ((Node.Op) parent).getChild(node);
+
+		int index = parent.getChildren().indexOf(node);
+		return index == -1 ? null : parent.getChildren().get(index);
+	}
+
+
 
 	/**
 	 * Checks if two trees are equal.
@@ -405,12 +592,10 @@ public class Trees {
 		while (leftChildrenIterator.hasNext()) {
 			Node leftChild = leftChildrenIterator.next();
 
-			int ri = right.getChildren().indexOf(leftChild);
-			if (ri == -1)
+			Node rightChild = getChild(right, leftChild);
+			if (rightChild == null)
 				return false;
 
-			Node rightChild = right.getChildren().get(ri);
-
 			if (!equals(leftChild, rightChild))
 				return false;
 		}
@@ -460,12 +645,10 @@ public class Trees {
 		while (leftChildrenIterator.hasNext()) {
 			Node.Op leftChild = leftChildrenIterator.next();
 
-			int ri = right.getChildren().indexOf(leftChild);
-			if (ri == -1)
+			Node.Op rightChild = right.getChild(leftChild);
+			if (rightChild == null)
 				continue;
 
-			Node.Op rightChild = right.getChildren().get(ri);
-
 			map(leftChild, rightChild);
 		}
 
@@ -487,13 +670,11 @@ public class Trees {
 		}
 
 		for (Node leftChild : left.getChildren()) {
-			int ri = right.getChildren().indexOf(leftChild);
-			if (ri == -1) {
+			Node rightChild = getChild(right, leftChild);
+			if (rightChild == null) {
 				throw new EccoException("Equal atomic nodes must have identical children!");
 			}
 
-			Node rightChild = right.getChildren().get(ri);
-
 			Trees.mapAtomicArtifacts(leftChild, rightChild);
 		}
 	}
@@ -0,0 +1,108 @@
+package at.jku.isse.ecco.test;
+
+import at.jku.isse.ecco.EccoException;
+import at.jku.isse.ecco.adapter.file.FileArtifactData;
+import at.jku.isse.ecco.adapter.file.FileReader;
+import at.jku.isse.ecco.adapter.file.FileWriter;
+import at.jku.isse.ecco.blob.BlobStore;
+import at.jku.isse.ecco.storage.mem.dao.MemEntityFactory;
+import at.jku.isse.ecco.tree.Node;
+import junit.framework.Assert;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Random;
+import java.util.stream.Stream;
+
+public class BlobStoreTest {
+
+	@Test(groups = {"unit", "service", "blob"})
+	public void BlobStore_Full() throws IOException {
+		Path dir = Files.createTempDirectory("blobs");
+		BlobStore blobStore = new BlobStore(dir.resolve(".ecco"));
+
+		byte[] content = new byte[200000];
+		new Random(42).nextBytes(content);
+		Path file1 = Files.write(dir.resolve("file1"), content);
+		Path file2 = Files.write(dir.resolve("file2"), content);
+
+		// identical contents are stored once
+		BlobStore.Blob blob1 = blobStore.put(file1);
+		BlobStore.Blob blob2 = blobStore.put(file2);
+		Assert.assertEquals(blob1.getDigest(), blob2.getDigest());
+		Assert.assertEquals(blob1.getSize(), content.length);
+		Assert.assertTrue(blobStore.contains(blob1.getDigest()));
+		try (Stream<Path> files = Files.walk(dir.resolve(".ecco"))) {
+			Assert.assertEquals(files.filter(Files::isRegularFile).count(), 1);
+		}
+
+		// the content is written back unchanged
+		Path output = dir.resolve("output");
+		blobStore.copyTo(blob1.getDigest(), output);
+		Assert.assertTrue(Arrays.equals(Files.readAllBytes(output), content));
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		blobStore.copyTo(blob1.getDigest(), bytes);
+		Assert.assertTrue(Arrays.equals(bytes.toByteArray(), content));
+
+		// streamed contents are read up to their size, also if they are already stored
+		BlobStore otherBlobStore = new BlobStore(dir.resolve("other"));
+		for (BlobStore store : new BlobStore[]{otherBlobStore, otherBlobStore}) {
+			InputStream in = new ByteArrayInputStream(Arrays.copyOf(content, content.length + 1));
+			store.put(blob1.getDigest(), in, content.length);
+			Assert.assertEquals(in.available(), 1);
+		}
+		Assert.assertTrue(Arrays.equals(Files.readAllBytes(otherBlobStore.getPath(blob1.getDigest())), content));
+
+		// contents that do not match their digest are rejected
+		try {
+			new BlobStore(dir.resolve("invalid")).put(blob1.getDigest(), new ByteArrayInputStream(new byte[10]), 10);
+			Assert.fail();
+		} catch (EccoException e) {
+			// expected
+		}
+		Assert.assertFalse(new BlobStore(dir.resolve("invalid")).contains(blob1.getDigest()));
+
+		// digests that are not SHA1 digests as hex string are rejected
+		for (String digest : new String[]{"", "ab", blob1.getDigest().substring(1), blob1.getDigest() + "0", "../../../../../../../../../../../../etc/x", blob1.getDigest().substring(1) + "/"}) {
+			try {
+				blobStore.getPath(digest);
+				Assert.fail(digest);
+			} catch (EccoException e) {
+				// expected
+			}
+		}
+		Assert.assertTrue(blobStore.getPath(blob1.getDigest()).startsWith(dir.resolve(".ecco")));
+	}
+
+	@Test(groups = {"unit", "service", "blob"})
+	public void BlobStore_MissingBlob() throws IOException {
+		Path dir = Files.createTempDirectory("blobs");
+		Files.write(dir.resolve("file"), new byte[]{1, 2, 3});
+		Node.Op pluginNode = new FileReader(new MemEntityFactory(), new BlobStore(dir.resolve(".ecco"))).read(dir, new Path[]{Paths.get("file")}).iterator().next();
+		String digest = ((FileArtifactData) pluginNode.getChildren().get(0).getArtifact().getData()).getBlobDigest();
+
+		// a checkout from a repository that misses the blob fails and names it
+		Path output = Files.createTempDirectory("output");
+		try {
+			new FileWriter(new BlobStore(dir.resolve("empty"))).write(output, Collections.<Node>singleton(pluginNode));
+			Assert.fail();
+		} catch (EccoException e) {
+			Assert.assertTrue(e.getMessage(), e.getMessage().contains(digest));
+		}
+		try {
+			new BlobStore(dir.resolve("empty")).copyTo(digest, new ByteArrayOutputStream());
+			Assert.fail();
+		} catch (EccoException e) {
+			Assert.assertTrue(e.getMessage(), e.getMessage().contains(digest));
+		}
+	}
+
+}
@@ -0,0 +1,187 @@
+package at.jku.isse.ecco.test;
+
+import at.jku.isse.ecco.adapter.ArtifactReader;
+import at.jku.isse.ecco.adapter.dispatch.DispatchReader;
+import at.jku.isse.ecco.adapter.text.TextReader;
+import at.jku.isse.ecco.dao.EntityFactory;
+import at.jku.isse.ecco.storage.mem.dao.MemEntityFactory;
+import at.jku.isse.ecco.tree.Node;
+import at.jku.isse.ecco.tree.RootNode;
+import junit.framework.Assert;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+public class DispatchReaderTest {
+
+	private static final Path[] INPUT = new Path[]{Paths.get("")};
+
+	@Test(groups = {"unit", "service", "dispatch"})
+	public void DispatchReader_IncrementalRead() throws IOException {
+		Path dir = Files.createTempDirectory("incremental");
+		Files.createDirectories(dir.resolve("sub"));
+		Files.write(dir.resolve("a.txt"), Arrays.asList("a1", "a2"));
+		Files.write(dir.resolve("sub/b.txt"), Arrays.asList("b1", "b2", "b3"));
+		Files.write(dir.resolve("sub/c.txt"), Arrays.asList("c1"));
+		// a.txt and b.txt are old enough for their modification times to be recorded, c.txt is not
+		FileTime old = FileTime.fromMillis(System.currentTimeMillis() - TimeUnit.HOURS.toMillis(1));
+		Files.setLastModifiedTime(dir.resolve("a.txt"), old);
+		Files.setLastModifiedTime(dir.resolve("sub/b.txt"), old);
+		Files.setLastModifiedTime(dir.resolve("sub/c.txt"), FileTime.fromMillis(System.currentTimeMillis() + TimeUnit.MINUTES.toMillis(1)));
+
+		EntityFactory entityFactory = new MemEntityFactory();
+		RecordingTextReader textReader = new RecordingTextReader(entityFactory, true);
+		DispatchReader reader = new DispatchReader(entityFactory, Collections.<ArtifactReader<Path, Set<Node.Op>>>singleton(textReader));
+
+		// initial full read that is stored in the hashes file
+		Properties hashes = new Properties();
+		Set<Node.Op> nodes = reader.read(dir, INPUT, null, hashes);
+		reader.writeHashes(dir, hashes);
+		Assert.assertEquals(textReader.takeReadFiles(), new HashSet<>(Arrays.asList("a.txt", "sub/b.txt", "sub/c.txt")));
+		RootNode.Op previous = this.toRoot(entityFactory, nodes);
+
+		// unmodified files are all taken
+		Set<Node.Op> incrementalNodes = reader.read(dir, INPUT, previous, new Properties());
+		Assert.assertEquals(textReader.takeReadFiles(), Collections.emptySet());
+		Assert.assertEquals(this.toString(incrementalNodes), this.toString(reader.read(dir, INPUT)));
+		textReader.takeReadFiles();
+
+		// a modified file is read, as is a file that was modified within the resolution of the clock without changing its size or modification time
+		FileTime racy = Files.getLastModifiedTime(dir.resolve("sub/c.txt"));
+		Files.write(dir.resolve("a.txt"), Arrays.asList("a1", "a2", "a3"));
+		Files.write(dir.resolve("sub/c.txt"), Arrays.asList("c2"));
+		Files.setLastModifiedTime(dir.resolve("sub/c.txt"), racy);
+		incrementalNodes = reader.read(dir, INPUT, previous, new Properties());
+		Assert.assertEquals(textReader.takeReadFiles(), new HashSet<>(Arrays.asList("a.txt", "sub/c.txt")));
+		Assert.assertEquals(this.toString(incrementalNodes), this.toString(reader.read(dir, INPUT)));
+		textReader.takeReadFiles();
+
+		// an unmodified file is read if its tree in the repository is not the one it was read into
+		Path otherDir = Files.createTempDirectory("incremental");
+		Files.createDirectories(otherDir.resolve("sub"));
+		Files.write(otherDir.resolve("sub/b.txt"), Arrays.asList("b1", "b3"));
+		RootNode.Op changedPrevious = this.toRoot(entityFactory, reader.read(otherDir, INPUT));
+		textReader.takeReadFiles();
+		incrementalNodes = reader.read(dir, INPUT, changedPrevious, new Properties());
+		Assert.assertEquals(textReader.takeReadFiles(), new HashSet<>(Arrays.asList("a.txt", "sub/b.txt", "sub/c.txt")));
+		Assert.assertEquals(this.toString(incrementalNodes), this.toString(reader.read(dir, INPUT)));
+	}
+
+	@Test(groups = {"unit", "service", "dispatch"})
+	public void DispatchReader_IncrementalReadDependent() throws IOException {
+		Path dir = Files.createTempDirectory("incremental");
+		Files.write(dir.resolve("a.txt"), Arrays.asList("a1", "a2"));
+		Files.write(dir.resolve("b.txt"), Arrays.asList("b1"));
+		FileTime old = FileTime.fromMillis(System.currentTimeMillis() - TimeUnit.HOURS.toMillis(1));
+		Files.setLastModifiedTime(dir.resolve("a.txt"), old);
+		Files.setLastModifiedTime(dir.resolve("b.txt"), old);
+
+		EntityFactory entityFactory = new MemEntityFactory();
+		RecordingTextReader textReader = new RecordingTextReader(entityFactory, false);
+		DispatchReader reader = new DispatchReader(entityFactory, Collections.<ArtifactReader<Path, Set<Node.Op>>>singleton(textReader));
+
+		Properties hashes = new Properties();
+		RootNode.Op previous = this.toRoot(entityFactory, reader.read(dir, INPUT, null, hashes));
+		reader.writeHashes(dir, hashes);
+		textReader.takeReadFiles();
+
+		// the files of a reader that relates the files it reads are read together, even if they are unmodified
+		Files.write(dir.resolve("a.txt"), Arrays.asList("a1", "a2", "a3"));
+		Set<Node.Op> incrementalNodes = reader.read(dir, INPUT, previous, new Properties());
+		Assert.assertEquals(textReader.takeReadFiles(), new HashSet<>(Arrays.asList("a.txt", "b.txt")));
+		Assert.assertEquals(this.toString(incrementalNodes), this.toString(reader.read(dir, INPUT)));
+	}
+
+	@Test(groups = {"unit", "service", "dispatch"})
+	public void DispatchReader_ParallelRead() throws IOException {
+		Path dir = Files.createTempDirectory("parallel");
+		Random random = new Random(20);
+		for (int i = 0; i < 40; i++) {
+			Path subDir = Files.createDirectories(dir.resolve("dir" + i).resolve("sub" + random.nextInt(3)));
+			for (int j = 0; j < 10; j++) {
+				List<String> lines = new ArrayList<>();
+				for (int k = random.nextInt(20); k > 0; k--)
+					lines.add("line " + random.nextInt(10));
+				Files.write((j % 2 == 0 ? subDir : subDir.getParent()).resolve("file" + j + ".txt"), lines);
+			}
+			Files.write(subDir.resolve("ignored.bin"), new byte[]{1, 2, 3});
+		}
+
+		EntityFactory entityFactory = new MemEntityFactory();
+		DispatchReader reader = new DispatchReader(entityFactory, Collections.<ArtifactReader<Path, Set<Node.Op>>>singleton(new TextReader(entityFactory)));
+
+		int previousReadThreads = DispatchReader.setReadThreads(1);
+		try {
+			String sequential = this.toString(reader.read(dir, INPUT));
+			for (int threads : new int[]{4, 4, 2}) {
+				DispatchReader.setReadThreads(threads);
+				Assert.assertEquals(sequential, this.toString(reader.read(dir, INPUT)));
+			}
+		} finally {
+			DispatchReader.setReadThreads(previousReadThreads);
+		}
+	}
+
+	private RootNode.Op toRoot(EntityFactory entityFactory, Set<Node.Op> nodes) {
+		RootNode.Op root = entityFactory.createRootNode();
+		for (Node.Op node : nodes)
+			root.addChild(node);
+		return root;
+	}
+
+	/**
+	 * @return A representation of the given trees that contains the artifact data and flags of all nodes in the order of the children.
+	 */
+	private String toString(Collection<? extends Node> nodes) {
+		List<String> children = new ArrayList<>();
+		for (Node node : nodes)
+			children.add(this.toString(node));
+		return children.toString();
+	}
+
+	private String toString(Node node) {
+		StringBuilder sb = new StringBuilder();
+		if (node.getArtifact() != null)
+			sb.append(node.getArtifact().getData()).append(node.getArtifact().isOrdered() ? "<o>" : "").append(node.getArtifact().isAtomic() ? "<a>" : "");
+		sb.append(this.toString(node.getChildren()));
+		return sb.toString();
+	}
+
+	/**
+	 * A text reader that records the files it reads and claims to read them independently or not.
+	 */
+	private static class RecordingTextReader extends TextReader {
+		private final Set<String> readFiles = Collections.synchronizedSet(new HashSet<>());
+		private final boolean independent;
+
+		private RecordingTextReader(EntityFactory entityFactory, boolean independent) {
+			super(entityFactory);
+			this.independent = independent;
+		}
+
+		@Override
+		public boolean canReadIndependently() {
+			return this.independent;
+		}
+
+		@Override
+		public Set<Node.Op> read(Path base, Path[] input) {
+			for (Path path : input)
+				this.readFiles.add(path.toString().replace('\\', '/'));
+			return super.read(base, input);
+		}
+
+		private Set<String> takeReadFiles() {
+			Set<String> files = new HashSet<>(this.readFiles);
+			this.readFiles.clear();
+			return files;
+		}
+	}
+
+}
@@ -0,0 +1,192 @@
+package at.jku.isse.ecco.test;
+
+import at.jku.isse.ecco.EccoService;
+import at.jku.isse.ecco.feature.Feature;
+import at.jku.isse.ecco.listener.EccoListener;
+import junit.framework.Assert;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.*;
+
+public class EccoServerTest {
+
+	private static final String STORAGE = "at.jku.isse.ecco.storage.mem";
+
+	@Test(groups = {"unit", "service", "server"})
+	public void EccoServer_ConcurrentClients() throws Exception {
+		Path dir = Files.createTempDirectory("server");
+		EccoService server = this.createServer(dir);
+		int port = getFreePort();
+		Thread serverThread = this.startServer(server, port);
+
+		// two clients pull and push at the same time
+		ExecutorService clients = Executors.newFixedThreadPool(2);
+		CyclicBarrier barrier = new CyclicBarrier(2);
+		List<Future<Integer>> results = new ArrayList<>();
+		for (String feature : Arrays.asList("c", "d")) {
+			results.add(clients.submit(() -> {
+				EccoService client = this.createService(dir.resolve("client_" + feature + "/.ecco"));
+				client.addRemote("origin", "localhost:" + port);
+				barrier.await();
+				client.pull("origin");
+				int numAssociations = client.getRepository().getAssociations().size();
+				client.setBaseDir(this.createVariant(dir.resolve("variant_" + feature), feature));
+				client.commit("base.1, " + feature + ".1");
+				barrier.await();
+				client.push("origin");
+				client.close();
+				return numAssociations;
+			}));
+		}
+		int numAssociations = server.getRepository().getAssociations().size();
+		for (Future<Integer> result : results)
+			Assert.assertEquals(numAssociations, (int) result.get(60, TimeUnit.SECONDS));
+		clients.shutdown();
+
+		this.stopServer(server, serverThread);
+
+		// both pushes were merged
+		Set<String> features = this.getFeatureNames(server);
+		Assert.assertTrue(features.toString(), features.containsAll(Arrays.asList("base", "a", "c", "d")));
+		server.close();
+	}
+
+	@Test(groups = {"unit", "service", "server"})
+	public void EccoServer_StalledClientTimesOut() throws Exception {
+		Path dir = Files.createTempDirectory("server");
+		EccoService server = this.createServer(dir);
+		server.setServerThreads(1);
+		server.setServerRequestTimeout(500);
+		int port = getFreePort();
+		Thread serverThread = this.startServer(server, port);
+
+		// a client that connects but never sends its request occupies the only worker until it times out
+		try (Socket stalled = new Socket()) {
+			stalled.connect(new InetSocketAddress("localhost", port));
+			stalled.setSoTimeout(30000);
+
+			EccoService client = this.createService(dir.resolve("client/.ecco"));
+			client.addRemote("origin", "localhost:" + port);
+			client.fetch("origin");
+			Assert.assertEquals(server.getRepository().getFeatures().size(), client.getRemote("origin").getFeatures().size());
+			client.close();
+
+			// the connection of the stalled client was closed by the server
+			InputStream in = stalled.getInputStream();
+			Assert.assertEquals(-1, in.read());
+		}
+
+		this.stopServer(server, serverThread);
+		server.close();
+	}
+
+	@Test(groups = {"unit", "service", "server"})
+	public void EccoServer_StopDuringPush() throws Exception {
+		Path dir = Files.createTempDirectory("server");
+		EccoService server = this.createServer(dir);
+
+		// stop the server as soon as the push is received, the push must still be completed
+		server.addListener(new EccoListener() {
+			@Override
+			public void serverEvent(EccoService service, String message) {
+				if (message.contains("'PUSH'"))
+					service.stopServer();
+			}
+		});
+		int port = getFreePort();
+		Thread serverThread = this.startServer(server, port);
+
+		EccoService client = this.createService(dir.resolve("client/.ecco"));
+		client.addRemote("origin", "localhost:" + port);
+		client.pull("origin");
+		client.setBaseDir(this.createVariant(dir.resolve("variant_c"), "c"));
+		client.commit("base.1, c.1");
+		client.push("origin");
+		client.close();
+
+		serverThread.join(60000);
+		Assert.assertFalse(serverThread.isAlive());
+		Assert.assertFalse(server.serverRunning());
+		Assert.assertTrue(this.getFeatureNames(server).contains("c"));
+		server.close();
+	}
+
+
+	private EccoService createServer(Path dir) throws IOException {
+		EccoService server = this.createService(dir.resolve("server/.ecco"));
+		server.setBaseDir(this.createVariant(dir.resolve("variant_base"), null));
+		server.commit("base.1");
+		server.setBaseDir(this.createVariant(dir.resolve("variant_a"), "a"));
+		server.commit("base.1, a.1");
+		return server;
+	}
+
+	private EccoService createService(Path repositoryDir) throws IOException {
+		Files.createDirectories(repositoryDir.getParent());
+		EccoService service = new EccoService();
+		service.getProperties().setProperty("plugin.data", STORAGE);
+		service.setRepositoryDir(repositoryDir);
+		service.init();
+		return service;
+	}
+
+	private Path createVariant(Path dir, String feature) throws IOException {
+		Files.createDirectories(dir);
+		List<String> lines = new ArrayList<>();
+		lines.add("base");
+		if (feature != null)
+			lines.add(feature);
+		lines.add("base again");
+		Files.write(dir.resolve("file.txt"), lines);
+		if (feature != null)
+			Files.write(dir.resolve(feature + ".txt"), Collections.singletonList(feature));
+		return dir;
+	}
+
+	private Set<String> getFeatureNames(EccoService service) {
+		Set<String> names = new HashSet<>();
+		for (Feature feature : service.getRepository().getFeatures())
+			names.add(feature.getName());
+		return names;
+	}
+
+	private static int getFreePort() throws IOException {
+		try (ServerSocket socket = new ServerSocket(0)) {
+			return socket.getLocalPort();
+		}
+	}
+
+	/**
+	 * Starts the given server in a new thread and waits until it accepts connections.
+	 *
+	 * @return The thread of the server, which ends when the server is stopped.
+	 */
+	private Thread startServer(EccoService server, int port) throws InterruptedException {
+		CountDownLatch started = new CountDownLatch(1);
+		server.addListener(new EccoListener() {
+			@Override
+			public void serverStartEvent(EccoService service, int startedPort) {
+				started.countDown();
+			}
+		});
+		Thread serverThread = new Thread(() -> server.startServer(port));
+		serverThread.start();
+		Assert.assertTrue(started.await(60, TimeUnit.SECONDS));
+		return serverThread;
+	}
+
+	private void stopServer(EccoService server, Thread serverThread) throws InterruptedException {
+		server.stopServer();
+		serverThread.join(60000);
+		Assert.assertFalse(serverThread.isAlive());
+	}
+
+}
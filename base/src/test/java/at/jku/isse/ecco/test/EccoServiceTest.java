@@ -0,0 +1,101 @@
+package at.jku.isse.ecco.test;
+
+import at.jku.isse.ecco.EccoService;
+import at.jku.isse.ecco.core.Association;
+import at.jku.isse.ecco.module.Module;
+import at.jku.isse.ecco.module.PresenceCondition;
+import at.jku.isse.ecco.util.Trees;
+import junit.framework.Assert;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+public class EccoServiceTest {
+
+	private static final String STORAGE = "at.jku.isse.ecco.storage.mem";
+
+	@Test(groups = {"unit", "service", "commit"})
+	public void EccoService_CommitVariants() throws IOException {
+		Path dir = Files.createTempDirectory("variants");
+		String[] configurations = {"base.1", "base.1, a.1", "base.1, b.1", "base.1, a.1, b.1", "base.1, b.2"};
+		Map<Path, String> variants = new LinkedHashMap<>();
+		for (int i = 0; i < configurations.length; i++) {
+			Path variant = Files.createDirectories(dir.resolve("V" + i));
+			List<String> lines = new ArrayList<>();
+			lines.add("base");
+			if (configurations[i].contains("a.1"))
+				lines.add("a");
+			lines.add("base again");
+			if (configurations[i].contains("b.1"))
+				lines.add("b");
+			if (configurations[i].contains("b.2"))
+				lines.add("b2");
+			Files.write(variant.resolve("file.txt"), lines);
+			Files.write(variant.resolve("fixed.txt"), Collections.singletonList("fixed"));
+			if (configurations[i].contains("a.1"))
+				Files.write(variant.resolve("a.txt"), Collections.singletonList("a"));
+			variants.put(variant, configurations[i]);
+		}
+
+		// commit the variants in a batch
+		EccoService batchService = this.createService(dir.resolve("batch/.ecco"));
+		batchService.setCommitThreads(3);
+		Assert.assertEquals(configurations.length, batchService.commitVariants(variants).size());
+
+		// commit the variants one after another
+		EccoService sequentialService = this.createService(dir.resolve("sequential/.ecco"));
+		for (Map.Entry<Path, String> variant : variants.entrySet()) {
+			sequentialService.setBaseDir(variant.getKey());
+			sequentialService.commit(variant.getValue());
+		}
+
+		Collection<? extends Association> batchAssociations = batchService.getRepository().getAssociations();
+		Collection<? extends Association> sequentialAssociations = sequentialService.getRepository().getAssociations();
+		Assert.assertEquals(sequentialAssociations.size(), batchAssociations.size());
+		for (Association sequentialAssociation : sequentialAssociations) {
+			boolean found = false;
+			for (Association batchAssociation : batchAssociations) {
+				if (this.toString(batchAssociation.getPresenceCondition()).equals(this.toString(sequentialAssociation.getPresenceCondition())) && Trees.equals(batchAssociation.getRootNode(), sequentialAssociation.getRootNode())) {
+					Assert.assertEquals(sequentialAssociation.getRootNode().countArtifacts(), batchAssociation.getRootNode().countArtifacts());
+					found = true;
+				}
+			}
+			Assert.assertTrue(this.toString(sequentialAssociation.getPresenceCondition()), found);
+		}
+
+		batchService.close();
+		sequentialService.close();
+	}
+
+	private EccoService createService(Path repositoryDir) throws IOException {
+		Files.createDirectories(repositoryDir.getParent());
+		EccoService service = new EccoService();
+		service.getProperties().setProperty("plugin.data", STORAGE);
+		service.setRepositoryDir(repositoryDir);
+		service.init();
+		return service;
+	}
+
+	/**
+	 * @return A representation of the given presence condition that does not depend on the iteration order of its modules.
+	 */
+	private String toString(PresenceCondition presenceCondition) {
+		StringBuilder sb = new StringBuilder();
+		for (Set<Module> modules : Arrays.asList(presenceCondition.getMinModules(), presenceCondition.getMaxModules(), presenceCondition.getNotModules(), presenceCondition.getAllModules())) {
+			List<String> strings = new ArrayList<>();
+			for (Module module : modules) {
+				List<String> moduleFeatures = new ArrayList<>();
+				module.forEach(moduleFeature -> moduleFeatures.add(moduleFeature.toString()));
+				Collections.sort(moduleFeatures);
+				strings.add(moduleFeatures.toString());
+			}
+			Collections.sort(strings);
+			sb.append(strings).append(" | ");
+		}
+		return sb.toString();
+	}
+
+}
@@ -0,0 +1,43 @@
+package at.jku.isse.ecco.test;
+
+import at.jku.isse.ecco.adapter.dispatch.IgnorePatterns;
+import junit.framework.Assert;
+import org.testng.annotations.Test;
+
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class IgnorePatternsTest {
+
+	@Test(groups = {"unit", "service", "dispatch"})
+	public void IgnorePatterns_SameAsPathMatchers() {
+		List<String> patterns = Arrays.asList("glob:.ecco", "glob:.config", "glob:src/main.java", "glob:src/", "glob:*.txt", "glob:**.txt", "glob:**/*.png",
+				"glob:src/?ain.*", "glob:{a,b}/**", "glob:x}y", "glob:a,b", "glob:[ab]c", "glob:d\\*e", "glob:(p).$",
+				"regex:.*\\.class", "regex:(?i)BUILD", "regex:(a)\\1", "regex:[^/]+/tmp(/.*)?");
+		List<Path> paths = Arrays.asList(Paths.get(".ecco"), Paths.get(".ecco/x"), Paths.get("a/.ecco"), Paths.get(".config"), Paths.get("src"), Paths.get("src/main.java"), Paths.get("src/pain.c"),
+				Paths.get("readme.txt"), Paths.get("doc/readme.txt"), Paths.get("img/a.png"), Paths.get("a.png"), Paths.get("a/b/c"), Paths.get("b"), Paths.get("c/a"), Paths.get("x}y"),
+				Paths.get("a,b"), Paths.get("bc"), Paths.get("d*e"), Paths.get("dxe"), Paths.get("(p).$"), Paths.get("A.class"), Paths.get("build"), Paths.get("aa"), Paths.get("x/tmp/y"), Paths.get("x/y/tmp"));
+
+		for (String pattern : patterns) {
+			IgnorePatterns ignorePatterns = IgnorePatterns.compile(Collections.singleton(pattern));
+			PathMatcher matcher = FileSystems.getDefault().getPathMatcher(pattern);
+			for (Path path : paths)
+				Assert.assertEquals(pattern + " " + path, matcher.matches(path), ignorePatterns.matches(path));
+		}
+
+		IgnorePatterns ignorePatterns = IgnorePatterns.compile(patterns);
+		for (Path path : paths) {
+			boolean matches = false;
+			for (String pattern : patterns)
+				matches |= FileSystems.getDefault().getPathMatcher(pattern).matches(path);
+			Assert.assertEquals(path.toString(), matches, ignorePatterns.matches(path));
+		}
+		Assert.assertFalse(ignorePatterns.matches(Paths.get("src/other.java")));
+	}
+
+}
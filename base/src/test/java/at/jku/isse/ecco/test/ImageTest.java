@@ -0,0 +1,68 @@
+package at.jku.isse.ecco.test;
+
+import at.jku.isse.ecco.adapter.image.ImageArtifactData;
+import at.jku.isse.ecco.adapter.image.ImageFileWriter;
+import at.jku.isse.ecco.adapter.image.ImageReader;
+import at.jku.isse.ecco.storage.mem.dao.MemEntityFactory;
+import at.jku.isse.ecco.tree.Node;
+import junit.framework.Assert;
+import org.testng.annotations.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+
+public class ImageTest {
+
+	@Test(groups = {"unit", "adapter", "image"})
+	public void Image_RoundTrip() throws IOException {
+		Path dir = Files.createTempDirectory("image");
+		Random random = new Random(7);
+		BufferedImage image = new BufferedImage(70, 45, BufferedImage.TYPE_INT_ARGB);
+		for (int y = 0; y < image.getHeight(); y++) {
+			for (int x = 0; x < image.getWidth(); x++)
+				image.setRGB(x, y, 0xff000000 | random.nextInt(0x1000000));
+		}
+		ImageIO.write(image, "png", dir.resolve("image.png").toFile());
+		int[] pixels = image.getRGB(0, 0, image.getWidth(), image.getHeight(), null, 0, image.getWidth());
+
+		for (ImageReader.Granularity granularity : ImageReader.Granularity.values()) {
+			ImageReader reader = new ImageReader(new MemEntityFactory());
+			reader.setGranularity(granularity);
+			reader.setTileSize(32);
+			Set<Node.Op> nodes = reader.read(dir, new Path[]{Paths.get("image.png")});
+
+			Path output = Files.createDirectories(dir.resolve(granularity.name()));
+			new ImageFileWriter().write(output, new HashSet<Node>(nodes));
+			BufferedImage outputImage = ImageIO.read(output.resolve("image.png").toFile());
+			Assert.assertEquals(image.getWidth(), outputImage.getWidth());
+			Assert.assertEquals(image.getHeight(), outputImage.getHeight());
+			Assert.assertTrue(granularity.name(), Arrays.equals(pixels, outputImage.getRGB(0, 0, image.getWidth(), image.getHeight(), null, 0, image.getWidth())));
+		}
+	}
+
+	@Test(groups = {"unit", "adapter", "image"})
+	public void Image_HashNotSerialized() throws IOException, ClassNotFoundException {
+		int[] values = new int[1000];
+		Arrays.fill(values, 5);
+		ImageArtifactData data = new ImageArtifactData(values, ImageReader.TYPE_PIXELS);
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+			out.writeObject(data);
+		}
+		ImageArtifactData readData;
+		try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+			readData = (ImageArtifactData) in.readObject();
+		}
+
+		Assert.assertEquals(Arrays.hashCode(values), readData.hashCode());
+		Assert.assertEquals(data, readData);
+		Assert.assertEquals(readData, data);
+	}
+
+}
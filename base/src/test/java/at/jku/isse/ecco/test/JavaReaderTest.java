@@ -0,0 +1,85 @@
+package at.jku.isse.ecco.test;
+
+import at.jku.isse.ecco.adapter.java.JavaReader;
+import at.jku.isse.ecco.artifact.Artifact;
+import at.jku.isse.ecco.artifact.ArtifactReference;
+import at.jku.isse.ecco.storage.mem.dao.MemEntityFactory;
+import at.jku.isse.ecco.tree.Node;
+import junit.framework.Assert;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+
+public class JavaReaderTest {
+
+	private static final Path[] INPUT = new Path[]{Paths.get("p/A.java"), Paths.get("p/B.java"), Paths.get("p/C.java")};
+
+	@Test(groups = {"unit", "adapter", "java"})
+	public void JavaReader_IncrementalSameAsFull() throws IOException {
+		Path dir = Files.createTempDirectory("java");
+		Files.createDirectories(dir.resolve("p"));
+		Files.write(dir.resolve("p/A.java"), Arrays.asList("package p;", "public class A {", "	private B b = new B();", "	public int run() { return b.twice() + b.get(); }", "}"));
+		Files.write(dir.resolve("p/B.java"), Arrays.asList("package p;", "public class B extends C {", "	public int twice() { return get() * 2; }", "}"));
+		Files.write(dir.resolve("p/C.java"), Arrays.asList("package p;", "public class C {", "	protected int value;", "	public int get() { return value; }", "}"));
+
+		JavaReader incrementalReader = new JavaReader(new MemEntityFactory());
+		incrementalReader.setIncremental(true);
+
+		// nothing is cached yet
+		Assert.assertEquals(this.read(dir, false), this.toString(incrementalReader.read(dir, INPUT)));
+
+		// everything is cached
+		Assert.assertEquals(this.read(dir, false), this.toString(incrementalReader.read(dir, INPUT)));
+
+		// the referenced file changed, the referencing one is cached
+		Files.write(dir.resolve("p/B.java"), Arrays.asList("package p;", "public class B extends C {", "	public int thrice() { return get() * 3; }", "	public int twice() { return get() * 2; }", "}"));
+		Assert.assertEquals(this.read(dir, false), this.toString(incrementalReader.read(dir, INPUT)));
+
+		// the referencing file changed, the referenced ones are cached
+		Files.write(dir.resolve("p/A.java"), Arrays.asList("package p;", "public class A {", "	private B b = new B();", "	public int run() { return b.thrice() + b.value; }", "}"));
+		Assert.assertEquals(this.read(dir, false), this.toString(incrementalReader.read(dir, INPUT)));
+	}
+
+	private String read(Path dir, boolean incremental) {
+		JavaReader reader = new JavaReader(new MemEntityFactory());
+		reader.setIncremental(incremental);
+		return this.toString(reader.read(dir, INPUT));
+	}
+
+	/**
+	 * @return A representation of the given trees that contains the artifact data and flags of all nodes and the references of their artifacts by the paths of the referenced artifacts in the trees, with the children of unordered nodes sorted.
+	 */
+	private String toString(Set<Node.Op> nodes) {
+		Map<Artifact<?>, String> paths = new IdentityHashMap<>();
+		for (Node node : nodes)
+			this.collectPaths(node, "", paths);
+		return this.toString(nodes, paths, false);
+	}
+
+	private void collectPaths(Node node, String parentPath, Map<Artifact<?>, String> paths) {
+		String path = parentPath + "/" + node.getArtifact().getData();
+		paths.put(node.getArtifact(), path);
+		for (Node child : node.getChildren())
+			this.collectPaths(child, path, paths);
+	}
+
+	private String toString(Collection<? extends Node> nodes, Map<Artifact<?>, String> paths, boolean ordered) {
+		List<String> strings = new ArrayList<>();
+		for (Node node : nodes) {
+			Artifact<?> artifact = node.getArtifact();
+			List<String> uses = new ArrayList<>();
+			for (ArtifactReference reference : artifact.getUses())
+				uses.add(paths.getOrDefault(reference.getTarget(), "?") + ":" + reference.getType());
+			Collections.sort(uses);
+			strings.add(artifact.getData() + (artifact.isOrdered() ? "<o>" : "") + (artifact.isAtomic() ? "<a>" : "") + uses + this.toString(node.getChildren(), paths, artifact.isOrdered()));
+		}
+		if (!ordered)
+			Collections.sort(strings);
+		return strings.toString();
+	}
+
+}
@@ -0,0 +1,243 @@
+package at.jku.isse.ecco.test;
+
+import at.jku.isse.ecco.EccoException;
+import at.jku.isse.ecco.core.Association;
+import at.jku.isse.ecco.core.Commit;
+import at.jku.isse.ecco.dao.EntityFactory;
+import at.jku.isse.ecco.feature.Configuration;
+import at.jku.isse.ecco.feature.Feature;
+import at.jku.isse.ecco.feature.FeatureInstance;
+import at.jku.isse.ecco.repository.Repository;
+import at.jku.isse.ecco.storage.mem.dao.MemCommitDao;
+import at.jku.isse.ecco.storage.mem.dao.MemEntityFactory;
+import at.jku.isse.ecco.storage.mem.dao.MemRepositoryDao;
+import at.jku.isse.ecco.storage.mem.dao.MemSettingsDao;
+import at.jku.isse.ecco.storage.mem.dao.PersistentMemTransactionStrategy;
+import at.jku.isse.ecco.tree.Node;
+import at.jku.isse.ecco.tree.RootNode;
+import at.jku.isse.ecco.util.Trees;
+import junit.framework.Assert;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.*;
+
+public class PersistentMemTest {
+
+	@Test(groups = {"unit", "storage"})
+	public void PersistentMem_Recovery() throws IOException {
+		Path repositoryDir = Files.createTempDirectory("ecco-mem");
+
+		PersistentMemTransactionStrategy transactionStrategy = new PersistentMemTransactionStrategy(repositoryDir);
+		MemRepositoryDao repositoryDao = new MemRepositoryDao(transactionStrategy, new MemEntityFactory());
+		MemSettingsDao settingsDao = new MemSettingsDao(transactionStrategy, new MemEntityFactory());
+
+		transactionStrategy.open();
+		transactionStrategy.begin();
+		Repository.Op repository = repositoryDao.load();
+		Feature feature = repository.addFeature("mem.a", "A", "");
+		feature.addVersion("1");
+		repository.setMaxOrder(3);
+		repositoryDao.store(repository);
+		settingsDao.addIgnorePattern("*.tmp");
+		transactionStrategy.end();
+
+		// changes of a rolled back transaction are discarded
+		transactionStrategy.begin();
+		settingsDao.addIgnorePattern("*.bak");
+		transactionStrategy.rollback();
+		Assert.assertEquals(settingsDao.loadIgnorePatterns().size(), 1);
+		transactionStrategy.close();
+
+		// a torn record at the end of the log is discarded
+		Files.write(repositoryDir.resolve("mem.log"), new byte[]{0, 0, 1, 0, 42}, StandardOpenOption.APPEND);
+
+		transactionStrategy.open();
+		repository = repositoryDao.load();
+		Assert.assertEquals(repository.getMaxOrder(), 3);
+		Assert.assertNotNull(repository.getFeature("mem.a"));
+		Assert.assertNotNull(repository.getFeature("mem.a").getVersion("1"));
+		Assert.assertTrue(settingsDao.loadIgnorePatterns().contains("*.tmp"));
+
+		settingsDao.addIgnorePattern("*.log");
+		transactionStrategy.close();
+
+		transactionStrategy.open();
+		Assert.assertEquals(settingsDao.loadIgnorePatterns().size(), 2);
+		transactionStrategy.close();
+	}
+
+	@Test(groups = {"unit", "storage"})
+	public void PersistentMem_ReadOnlyTransactions() throws Exception {
+		PersistentMemTransactionStrategy transactionStrategy = new PersistentMemTransactionStrategy(Files.createTempDirectory("ecco-mem"));
+		MemSettingsDao settingsDao = new MemSettingsDao(transactionStrategy, new MemEntityFactory());
+		transactionStrategy.open();
+
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			transactionStrategy.beginReadOnly();
+
+			// readers do not wait for each other
+			executor.submit(() -> {
+				transactionStrategy.beginReadOnly();
+				settingsDao.loadIgnorePatterns();
+				transactionStrategy.end();
+			}).get(10, TimeUnit.SECONDS);
+
+			// writers wait for readers
+			Future<?> writer = executor.submit(() -> {
+				transactionStrategy.begin();
+				settingsDao.addIgnorePattern("*.tmp");
+				transactionStrategy.end();
+			});
+			try {
+				writer.get(200, TimeUnit.MILLISECONDS);
+				Assert.fail("Expected the write transaction to wait for the read-only transaction.");
+			} catch (TimeoutException e) {
+				// expected
+			}
+
+			// a read-only transaction cannot be upgraded
+			try {
+				transactionStrategy.begin();
+				Assert.fail("Expected a write transaction within a read-only transaction to fail.");
+			} catch (EccoException e) {
+				// expected
+			}
+
+			transactionStrategy.end();
+			writer.get(10, TimeUnit.SECONDS);
+		} finally {
+			executor.shutdownNow();
+		}
+
+		// read-only transactions within write transactions are part of them
+		transactionStrategy.begin();
+		transactionStrategy.beginReadOnly();
+		settingsDao.addIgnorePattern("*.bak");
+		transactionStrategy.end();
+		transactionStrategy.end();
+		transactionStrategy.close();
+
+		transactionStrategy.open();
+		Assert.assertEquals(settingsDao.loadIgnorePatterns().size(), 2);
+		transactionStrategy.close();
+	}
+
+	@Test(groups = {"unit", "storage"})
+	public void PersistentMem_LargeTrees() throws IOException {
+		Path repositoryDir = Files.createTempDirectory("ecco-mem");
+
+		PersistentMemTransactionStrategy transactionStrategy = new PersistentMemTransactionStrategy(repositoryDir);
+		MemRepositoryDao repositoryDao = new MemRepositoryDao(transactionStrategy, new MemEntityFactory());
+		MemCommitDao commitDao = new MemCommitDao(transactionStrategy, new MemEntityFactory());
+
+		// a long sequenced file that is larger than the minimum size of a snapshot, so that the log is compacted
+		transactionStrategy.open();
+		transactionStrategy.begin();
+		Repository.Op repository = repositoryDao.load();
+		EntityFactory ef = repository.getEntityFactory();
+		Feature feature = repository.addFeature("mem.a", "A", "");
+		Configuration configuration = ef.createConfiguration();
+		configuration.addFeatureInstance(feature.addVersion("1").getPositiveInstance());
+		RootNode.Op root = ef.createRootNode();
+		Node.Op file = ef.createOrderedNode(new TestArtifactData("file"));
+		root.addChild(file);
+		String padding = new String(new char[600]).replace('\0', 'x');
+		for (int i = 0; i < 2000; i++)
+			file.addChild(ef.createNode(new TestArtifactData("line" + i + padding)));
+		Trees.sequence(root);
+		Association.Op association = ef.createAssociation();
+		association.setId("mem.association");
+		association.setPresenceCondition(ef.createPresenceCondition(configuration, repository.getMaxOrder()));
+		association.setRootNode(root);
+		repository.addAssociation(association);
+		repositoryDao.store(repository);
+		transactionStrategy.end();
+
+		// a commit in the log that refers to the features of the snapshot
+		transactionStrategy.begin();
+		Commit commit = ef.createCommit();
+		commit.setConfiguration(configuration);
+		commitDao.save(commit);
+		transactionStrategy.end();
+		transactionStrategy.close();
+
+		Assert.assertTrue(Files.exists(repositoryDir.resolve("mem.snapshot")));
+
+		transactionStrategy.open();
+		repository = repositoryDao.load();
+		Assert.assertEquals(repository.getAssociations().size(), 1);
+		Node.Op readFile = repository.getAssociations().iterator().next().getRootNode().getChildren().get(0);
+		Assert.assertNotNull(readFile.getArtifact().getSequenceGraph());
+		List<? extends Node.Op> lines = readFile.getChildren();
+		Assert.assertEquals(lines.size(), 2000);
+		for (int i = 0; i < lines.size(); i++)
+			Assert.assertEquals(lines.get(i).getArtifact().getData(), new TestArtifactData("line" + i + padding));
+
+		// the configurations of commits share the feature versions of the repository
+		List<Commit> commits = commitDao.loadAllCommits();
+		Assert.assertEquals(commits.size(), 1);
+		FeatureInstance featureInstance = commits.get(0).getConfiguration().getFeatureInstances().iterator().next();
+		Assert.assertSame(featureInstance.getFeatureVersion(), repository.getFeature("mem.a").getVersion("1"));
+		transactionStrategy.close();
+	}
+
+	@Test(groups = {"unit", "storage"})
+	public void PersistentMem_FailedWrite() throws Exception {
+		PersistentMemTransactionStrategy transactionStrategy = new PersistentMemTransactionStrategy(Files.createTempDirectory("ecco-mem"));
+		MemRepositoryDao repositoryDao = new MemRepositoryDao(transactionStrategy, new MemEntityFactory());
+		MemSettingsDao settingsDao = new MemSettingsDao(transactionStrategy, new MemEntityFactory());
+		transactionStrategy.open();
+
+		transactionStrategy.begin();
+		Repository.Op repository = repositoryDao.load();
+		EntityFactory ef = repository.getEntityFactory();
+		RootNode.Op root = ef.createRootNode();
+		root.addChild(ef.createNode(new UnwritableArtifactData()));
+		Association.Op association = ef.createAssociation();
+		association.setPresenceCondition(ef.createPresenceCondition());
+		association.setRootNode(root);
+		repository.addAssociation(association);
+		repositoryDao.store(repository);
+		try {
+			transactionStrategy.end();
+			Assert.fail("Expected the transaction to fail.");
+		} catch (IllegalStateException e) {
+			// expected
+		}
+
+		// the changes are discarded and the lock is released even if the transaction is not rolled back
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			executor.submit(() -> {
+				transactionStrategy.begin();
+				settingsDao.addIgnorePattern("*.tmp");
+				transactionStrategy.end();
+			}).get(10, TimeUnit.SECONDS);
+		} finally {
+			executor.shutdownNow();
+		}
+		Assert.assertTrue(repositoryDao.load().getAssociations().isEmpty());
+
+		// rolling back the transaction that already ended does nothing
+		transactionStrategy.rollback();
+		transactionStrategy.close();
+	}
+
+	private static class UnwritableArtifactData extends TestArtifactData {
+		private UnwritableArtifactData() {
+			super("unwritable");
+		}
+
+		private void writeObject(ObjectOutputStream out) {
+			throw new IllegalStateException("Cannot be written.");
+		}
+	}
+
+}
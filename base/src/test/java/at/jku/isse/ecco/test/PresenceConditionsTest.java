@@ -0,0 +1,170 @@
+package at.jku.isse.ecco.test;
+
+import at.jku.isse.ecco.EccoException;
+import at.jku.isse.ecco.dao.EntityFactory;
+import at.jku.isse.ecco.feature.Configuration;
+import at.jku.isse.ecco.feature.Feature;
+import at.jku.isse.ecco.feature.FeatureInstance;
+import at.jku.isse.ecco.feature.FeatureVersion;
+import at.jku.isse.ecco.module.Module;
+import at.jku.isse.ecco.module.ModuleFeature;
+import at.jku.isse.ecco.module.PresenceCondition;
+import at.jku.isse.ecco.module.PresenceConditionEvaluator;
+import at.jku.isse.ecco.storage.mem.dao.MemEntityFactory;
+import junit.framework.Assert;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+
+public class PresenceConditionsTest {
+
+	@Test(groups = {"unit", "base", "module"})
+	public void PresenceConditions_Modules() {
+		EntityFactory ef = new MemEntityFactory();
+
+		Feature a = ef.createFeature("pc.a", "A", "");
+		Feature b = ef.createFeature("pc.b", "B", "");
+		FeatureVersion a1 = a.addVersion("1");
+		FeatureVersion a2 = a.addVersion("2");
+		FeatureVersion b1 = b.addVersion("1");
+
+		Module module = ef.createModule();
+		module.add(ef.createModuleFeature(a, Arrays.asList(a1, a2), true));
+		module.add(ef.createModuleFeature(b, Arrays.asList(b1), false));
+
+		Assert.assertEquals(module.size(), 2);
+		Assert.assertTrue(module.contains(ef.createModuleFeature(a, Arrays.asList(a1, a2), true)));
+		Assert.assertFalse(module.contains(ef.createModuleFeature(a, Arrays.asList(a1), true)));
+		Assert.assertFalse(module.contains(ef.createModuleFeature(b, Arrays.asList(b1), true)));
+
+		Module copy = ef.createModule();
+		for (ModuleFeature moduleFeature : module)
+			copy.add(moduleFeature);
+		Assert.assertEquals(copy, module);
+		Assert.assertEquals(copy.hashCode(), module.hashCode());
+
+		Assert.assertTrue(module.holds(this.createConfiguration(ef, a2.getPositiveInstance(), b1.getNegativeInstance())));
+		Assert.assertFalse(module.holds(this.createConfiguration(ef, a2.getPositiveInstance(), b1.getPositiveInstance())));
+		Assert.assertFalse(module.holds(this.createConfiguration(ef, b1.getNegativeInstance())));
+
+		Assert.assertTrue(module.remove(ef.createModuleFeature(b, Arrays.asList(b1), false)));
+		Assert.assertEquals(module.size(), 1);
+
+		// modules of factories with different feature version indices are equal if they contain the same feature versions
+		EntityFactory ef2 = new MemEntityFactory();
+		ef2.createModuleFeature(b, Arrays.asList(b1), true);
+		Module other = ef2.createModule();
+		other.add(ef2.createModuleFeature(a, Arrays.asList(a2, a1), true));
+		Assert.assertEquals(other, module);
+		Assert.assertEquals(other.hashCode(), module.hashCode());
+		Assert.assertTrue(other.holds(this.createConfiguration(ef, a1.getPositiveInstance())));
+
+		// a module contains at most one module feature per feature and sign, a different one of the same feature is rejected instead of being merged into the contained one
+		Assert.assertFalse(other.add(ef2.createModuleFeature(a, Arrays.asList(a1, a2), true)));
+		try {
+			other.add(ef2.createModuleFeature(a, Arrays.asList(a1), true));
+			Assert.fail();
+		} catch (EccoException e) {
+			// expected
+		}
+		Module single = ef.createModule();
+		single.add(ef.createModuleFeature(a, Arrays.asList(a1), true));
+		try {
+			single.add(ef.createModuleFeature(a, Arrays.asList(a2), true));
+			Assert.fail();
+		} catch (EccoException e) {
+			// expected
+		}
+		try {
+			single.addAll(other);
+			Assert.fail();
+		} catch (EccoException e) {
+			// expected
+		}
+		Assert.assertEquals(single.size(), 1);
+		Assert.assertTrue(single.contains(ef.createModuleFeature(a, Arrays.asList(a1), true)));
+		Assert.assertFalse(single.holds(this.createConfiguration(ef, a2.getPositiveInstance())));
+		Assert.assertTrue(single.add(ef.createModuleFeature(a, Arrays.asList(a2), false)));
+		Assert.assertEquals(single.size(), 2);
+	}
+
+	@Test(groups = {"unit", "base", "module"})
+	public void PresenceConditions_Slice() {
+		EntityFactory ef = new MemEntityFactory();
+
+		Feature a = ef.createFeature("pc.c", "C", "");
+		Feature b = ef.createFeature("pc.d", "D", "");
+		FeatureVersion a1 = a.addVersion("1");
+		FeatureVersion b1 = b.addVersion("1");
+
+		Configuration configuration1 = this.createConfiguration(ef, a1.getPositiveInstance(), b1.getPositiveInstance());
+		Configuration configuration2 = this.createConfiguration(ef, a1.getPositiveInstance());
+
+		PresenceCondition pc1 = ef.createPresenceCondition(configuration1, 2);
+		PresenceCondition pc2 = ef.createPresenceCondition(configuration2, 2);
+		Assert.assertEquals(pc1.getMinModules().size(), 3);
+		Assert.assertEquals(pc2.getMinModules().size(), 1);
+
+		PresenceCondition intersection = pc1.slice(pc2);
+		Assert.assertEquals(intersection.getMinModules(), pc2.getAllModules());
+		Assert.assertEquals(pc1.getMinModules().size(), 2);
+		Assert.assertTrue(pc2.getMinModules().isEmpty());
+
+		Assert.assertTrue(intersection.holds(configuration2));
+		Assert.assertTrue(pc1.holds(configuration1));
+		Assert.assertFalse(pc1.holds(configuration2));
+
+		FeatureVersion b2 = b.addVersion("2");
+		pc1.addFeatureVersion(b2);
+		Assert.assertEquals(pc1.getMinModules().size(), 4);
+		Assert.assertTrue(pc1.holds(this.createConfiguration(ef, a1.getPositiveInstance(), b2.getPositiveInstance())));
+
+		pc2.addFeatureInstance(b1.getNegativeInstance(), 2);
+		Assert.assertTrue(pc2.getMaxModules().isEmpty());
+		Assert.assertEquals(pc2.getAllModules().size(), 2);
+		Assert.assertEquals(pc2.getNotModules().size(), 4);
+
+		for (Configuration configuration : Arrays.asList(configuration1, configuration2, this.createConfiguration(ef, b2.getPositiveInstance()))) {
+			PresenceConditionEvaluator evaluator = new PresenceConditionEvaluator(configuration);
+			for (PresenceCondition pc : Arrays.asList(pc1, pc2, intersection)) {
+				Assert.assertEquals(evaluator.holds(pc), pc.holds(configuration));
+				for (Module module : pc.getAllModules())
+					Assert.assertEquals(evaluator.holds(module), module.holds(configuration));
+			}
+		}
+		Assert.assertEquals(new PresenceConditionEvaluator(configuration2), new PresenceConditionEvaluator(this.createConfiguration(ef, a1.getPositiveInstance())));
+	}
+
+
+	@Test(groups = {"unit", "base", "module"})
+	public void PresenceConditions_ModuleCount() {
+		EntityFactory ef = new MemEntityFactory();
+
+		Configuration configuration = ef.createConfiguration();
+		for (int i = 0; i < 60; i++) {
+			Feature feature = ef.createFeature("pc.count" + i, "COUNT" + i, "");
+			feature.addVersion("1");
+			if (i < 2)
+				feature.addVersion("2");
+			configuration.addFeatureInstance(feature.getVersion("1").getPositiveInstance());
+		}
+
+		Assert.assertEquals(configuration.countModules(1), configuration.computeModules(1).size());
+
+		try {
+			ef.createPresenceCondition(configuration, 5);
+			Assert.fail("Expected the module count guard to fail.");
+		} catch (EccoException e) {
+			// expected
+		}
+	}
+
+
+	private Configuration createConfiguration(EntityFactory ef, FeatureInstance... featureInstances) {
+		Configuration configuration = ef.createConfiguration();
+		for (FeatureInstance featureInstance : featureInstances)
+			configuration.addFeatureInstance(featureInstance);
+		return configuration;
+	}
+
+}
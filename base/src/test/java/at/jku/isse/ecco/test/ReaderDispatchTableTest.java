@@ -0,0 +1,176 @@
+package at.jku.isse.ecco.test;
+
+import at.jku.isse.ecco.EccoException;
+import at.jku.isse.ecco.adapter.ArtifactReader;
+import at.jku.isse.ecco.adapter.dispatch.DispatchReader;
+import at.jku.isse.ecco.adapter.dispatch.PluginArtifactData;
+import at.jku.isse.ecco.dao.EntityFactory;
+import at.jku.isse.ecco.listener.ReadListener;
+import at.jku.isse.ecco.storage.mem.dao.MemEntityFactory;
+import at.jku.isse.ecco.tree.Node;
+import junit.framework.Assert;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+public class ReaderDispatchTableTest {
+
+	@Test(groups = {"unit", "service", "dispatch"})
+	public void ReaderDispatchTable_SameAsCanRead() throws IOException {
+		Path dir = Files.createTempDirectory("dispatch");
+		Files.createDirectories(dir.resolve("dir"));
+		Files.write(dir.resolve("a.txt"), "text".getBytes());
+		Files.write(dir.resolve("dir/b.JAVA"), "class B {}".getBytes());
+		Files.write(dir.resolve("c.xml"), "<a/>".getBytes());
+		Files.write(dir.resolve("dir/d.xml"), "<b/>".getBytes());
+		Files.write(dir.resolve("e.xml"), "<c/>".getBytes());
+		Files.write(dir.resolve("f.md"), "# f".getBytes());
+		Files.write(dir.resolve("g.bin"), new byte[]{1, 2});
+		Files.write(dir.resolve("noext"), new byte[]{3});
+
+		EntityFactory entityFactory = new MemEntityFactory();
+		StubReader fileReader = new StubReader(entityFactory, "file", new String[]{}, null, Files::isRegularFile);
+		StubReader textReader = new StubReader(entityFactory, "text", new String[]{"text"}, new String[]{"txt"}, path -> hasExtension(path, ".txt"));
+		StubReader javaReader = new StubReader(entityFactory, "java", new String[]{"text", "java"}, new String[]{"java"}, path -> hasExtension(path, ".java"));
+		StubReader xmlAReader = new StubReader(entityFactory, "xmlA", new String[]{"text", "xml"}, new String[]{"xml"}, path -> hasExtension(path, ".xml") && startsWith(path, "<a"));
+		StubReader xmlBReader = new StubReader(entityFactory, "xmlB", new String[]{"text", "xml"}, new String[]{"xml"}, path -> hasExtension(path, ".xml") && startsWith(path, "<b"));
+		StubReader markdownReader = new StubReader(entityFactory, "markdown", new String[]{"text", "markdown"}, null, path -> hasExtension(path, ".md"));
+		List<StubReader> readers = Arrays.asList(fileReader, textReader, javaReader, xmlAReader, xmlBReader, markdownReader);
+
+		DispatchReader reader = new DispatchReader(entityFactory, new LinkedHashSet<ArtifactReader<Path, Set<Node.Op>>>(readers));
+		Map<Path, ArtifactReader> dispatched = new HashMap<>();
+		reader.addListener(new ReadListener() {
+			@Override
+			public void fileReadEvent(Path file, ArtifactReader artifactReader) {
+				if (artifactReader != reader)
+					dispatched.put(file, artifactReader);
+			}
+		});
+		reader.read(dir, new Path[]{Paths.get("")});
+
+		Map<Path, ArtifactReader> expected = new HashMap<>();
+		expected.put(Paths.get("a.txt"), textReader); // extension dispatch
+		expected.put(Paths.get("dir/b.JAVA"), javaReader); // extension dispatch ignoring case
+		expected.put(Paths.get("c.xml"), xmlAReader); // tie between equally specific readers
+		expected.put(Paths.get("dir/d.xml"), xmlBReader);
+		expected.put(Paths.get("e.xml"), fileReader); // fallback to generic readers if no registered reader can read the file
+		expected.put(Paths.get("f.md"), markdownReader); // most specific generic reader
+		expected.put(Paths.get("g.bin"), fileReader);
+		expected.put(Paths.get("noext"), fileReader);
+		Assert.assertEquals(expected, dispatched);
+
+		// the chosen readers are the ones the readers themselves decide on
+		for (Path file : expected.keySet())
+			Assert.assertSame(file.toString(), getReaderForFile(readers, dir, file), dispatched.get(file));
+
+		// readers that are the only ones registered for an extension are not asked, equally specific ones are
+		Assert.assertEquals(0, textReader.canReadCalls.get());
+		Assert.assertEquals(0, javaReader.canReadCalls.get());
+		Assert.assertTrue(xmlAReader.canReadCalls.get() > 0);
+		Assert.assertTrue(xmlBReader.canReadCalls.get() > 0);
+	}
+
+	/**
+	 * Looks up the reader of a file by asking every reader, which is how the dispatch reader used to do it.
+	 */
+	private static ArtifactReader<Path, Set<Node.Op>> getReaderForFile(Collection<? extends ArtifactReader<Path, Set<Node.Op>>> readers, Path base, Path file) {
+		ArtifactReader<Path, Set<Node.Op>> currentReader = null;
+		for (ArtifactReader<Path, Set<Node.Op>> reader : readers) {
+			if (reader.canRead(base.resolve(file)) && (currentReader == null || currentReader.getTypeHierarchy().length < reader.getTypeHierarchy().length))
+				currentReader = reader;
+		}
+		return currentReader;
+	}
+
+	private static boolean hasExtension(Path path, String extension) {
+		return Files.isRegularFile(path) && path.getFileName().toString().toLowerCase().endsWith(extension);
+	}
+
+	private static boolean startsWith(Path path, String prefix) {
+		try {
+			return new String(Files.readAllBytes(path)).startsWith(prefix);
+		} catch (IOException e) {
+			throw new EccoException("Could not read " + path, e);
+		}
+	}
+
+	/**
+	 * A reader that reads files into plugin nodes without children and counts how often it is asked whether it can read a file during dispatch.
+	 */
+	private static class StubReader implements ArtifactReader<Path, Set<Node.Op>> {
+		private final EntityFactory entityFactory;
+		private final String pluginId;
+		private final String[] typeHierarchy;
+		private final String[] fileExtensions;
+		private final Predicate<Path> canRead;
+		private final AtomicInteger canReadCalls = new AtomicInteger();
+
+		private StubReader(EntityFactory entityFactory, String pluginId, String[] typeHierarchy, String[] fileExtensions, Predicate<Path> canRead) {
+			this.entityFactory = entityFactory;
+			this.pluginId = pluginId;
+			this.typeHierarchy = typeHierarchy;
+			this.fileExtensions = fileExtensions;
+			this.canRead = canRead;
+		}
+
+		@Override
+		public String getPluginId() {
+			return this.pluginId;
+		}
+
+		@Override
+		public String[] getTypeHierarchy() {
+			return this.typeHierarchy;
+		}
+
+		@Override
+		public String[] getFileExtensions() {
+			return this.fileExtensions;
+		}
+
+		@Override
+		public boolean canRead(Path input) {
+			return this.canRead.test(input);
+		}
+
+		@Override
+		public boolean canRead(Path input, BasicFileAttributes attributes) {
+			this.canReadCalls.incrementAndGet();
+			return this.canRead(input);
+		}
+
+		@Override
+		public Set<Node.Op> read(Path base, Path[] input) {
+			Set<Node.Op> nodes = new HashSet<>();
+			for (Path path : input)
+				nodes.add(this.entityFactory.createNode(new PluginArtifactData(this.pluginId, path)));
+			return nodes;
+		}
+
+		@Override
+		public Set<Node.Op> read(Path[] input) {
+			return this.read(Paths.get("."), input);
+		}
+
+		@Override
+		public void addListener(ReadListener listener) {
+		}
+
+		@Override
+		public void removeListener(ReadListener listener) {
+		}
+
+		@Override
+		public String toString() {
+			return this.pluginId;
+		}
+	}
+
+}
@@ -1,5 +1,107 @@
 package at.jku.isse.ecco.test;
 
+import at.jku.isse.ecco.EccoException;
+import at.jku.isse.ecco.core.Association;
+import at.jku.isse.ecco.core.Checkout;
+import at.jku.isse.ecco.dao.EntityFactory;
+import at.jku.isse.ecco.feature.Configuration;
+import at.jku.isse.ecco.feature.FeatureVersion;
+import at.jku.isse.ecco.module.Module;
+import at.jku.isse.ecco.repository.Repository;
+import at.jku.isse.ecco.repository.RepositoryOperator;
+import at.jku.isse.ecco.storage.mem.dao.MemEntityFactory;
+import at.jku.isse.ecco.tree.Node;
+import junit.framework.Assert;
+import org.testng.annotations.Test;
+
+import java.util.*;
+
 public class RepositoryTest {
 
+	@Test(groups = {"unit", "base", "repository"})
+	public void Repository_ComposeMissingModules() {
+		EntityFactory ef = new MemEntityFactory();
+		Repository.Op repository = ef.createRepository();
+		repository.setMaxOrder(3);
+
+		List<FeatureVersion> featureVersions = new ArrayList<>();
+		for (int i = 0; i < 20; i++)
+			featureVersions.add(repository.addFeature("repository.f" + i, "F" + i, "").addVersion("1"));
+		repository.extract(this.createConfiguration(ef, featureVersions.subList(0, 10)), this.createNodes(ef, "a"));
+		repository.extract(this.createConfiguration(ef, featureVersions.subList(5, 10)), this.createNodes(ef, "b"));
+
+		// the missing modules are counted, but only a sample of them is kept
+		Configuration configuration = this.createConfiguration(ef, featureVersions);
+		Checkout checkout = repository.compose(configuration);
+		long missingCount = 0;
+		Set<Module> missing = new HashSet<>();
+		for (Module module : configuration.computeModules(repository.getMaxOrder())) {
+			for (Association association : checkout.getSelectedAssociations()) {
+				if (!association.getPresenceCondition().getMinModules().contains(module)) {
+					missingCount++;
+					missing.add(module);
+					break;
+				}
+			}
+		}
+		Assert.assertTrue(missingCount > Checkout.MAX_MISSING_SAMPLE);
+		Assert.assertEquals(missingCount, checkout.getMissingCount());
+		Assert.assertEquals(Checkout.MAX_MISSING_SAMPLE, checkout.getMissing().size());
+		Assert.assertTrue(missing.containsAll(checkout.getMissing()));
+
+		// configurations with too many modules are rejected before their modules are enumerated
+		List<FeatureVersion> manyFeatureVersions = new ArrayList<>(featureVersions);
+		for (int i = 20; i < 500; i++)
+			manyFeatureVersions.add(repository.addFeature("repository.f" + i, "F" + i, "").addVersion("1"));
+		try {
+			repository.compose(this.createConfiguration(ef, manyFeatureVersions));
+			Assert.fail();
+		} catch (EccoException e) {
+			// expected
+		}
+	}
+
+	@Test(groups = {"unit", "base", "repository"})
+	public void Repository_DependencyGraphIndexReused() {
+		EntityFactory ef = new MemEntityFactory();
+		Repository.Op repository = ef.createRepository();
+		RepositoryOperator operator = new RepositoryOperator(repository);
+
+		List<FeatureVersion> featureVersions = new ArrayList<>();
+		for (int i = 0; i < 3; i++)
+			featureVersions.add(repository.addFeature("repository.g" + i, "G" + i, "").addVersion("1"));
+		operator.extract(this.createConfiguration(ef, featureVersions.subList(0, 2)), this.createNodes(ef, "a"));
+		operator.extract(this.createConfiguration(ef, featureVersions.subList(1, 2)), this.createNodes(ef, "b"));
+		Configuration configuration = this.createConfiguration(ef, featureVersions.subList(0, 2));
+
+		// the first checkout indexes the selected associations
+		Checkout checkout = operator.compose(configuration);
+		long indexedTreeCount = operator.getDependencyGraph().getIndexedTreeCount();
+		Assert.assertEquals(checkout.getSelectedAssociations().size(), indexedTreeCount);
+
+		// a second checkout reuses the index
+		operator.compose(configuration);
+		Assert.assertEquals(indexedTreeCount, operator.getDependencyGraph().getIndexedTreeCount());
+
+		// changing the associations invalidates the index
+		operator.extract(this.createConfiguration(ef, featureVersions), this.createNodes(ef, "c"));
+		checkout = operator.compose(this.createConfiguration(ef, featureVersions));
+		Assert.assertEquals(indexedTreeCount + checkout.getSelectedAssociations().size(), operator.getDependencyGraph().getIndexedTreeCount());
+	}
+
+	private Configuration createConfiguration(EntityFactory ef, Collection<FeatureVersion> featureVersions) {
+		Configuration configuration = ef.createConfiguration();
+		for (FeatureVersion featureVersion : featureVersions)
+			configuration.addFeatureInstance(featureVersion.getPositiveInstance());
+		return configuration;
+	}
+
+	private Set<Node.Op> createNodes(EntityFactory ef, String identifier) {
+		Node.Op root = ef.createNode(new TestArtifactData("root"));
+		root.addChild(ef.createNode(new TestArtifactData(identifier)));
+		Set<Node.Op> nodes = new HashSet<>();
+		nodes.add(root);
+		return nodes;
+	}
+
 }
@@ -5,13 +5,17 @@ import at.jku.isse.ecco.storage.mem.artifact.BaseArtifact;
 import at.jku.isse.ecco.gui.view.graph.SequenceGraphView;
 import at.jku.isse.ecco.storage.mem.sg.BaseSequenceGraph;
 import at.jku.isse.ecco.sg.SequenceGraph;
+import at.jku.isse.ecco.sg.SequenceGraphOperator;
 import javafx.scene.Scene;
+import junit.framework.Assert;
 import org.testng.annotations.AfterTest;
 import org.testng.annotations.BeforeTest;
 import org.testng.annotations.Test;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Random;
 
 public class SequenceGraphsTest {
 
@@ -48,6 +52,131 @@ public class SequenceGraphsTest {
 	}
 
 
+	@Test(groups = {"unit", "base", "sg"})
+	public void SequenceGraphs_Heuristic() {
+		List<Artifact.Op<?>> artifacts1 = Arrays.asList(A("1"), A("8"), A("2"), A("7"));
+		List<Artifact.Op<?>> artifacts2 = Arrays.asList(A("1"), A("10"), A("2"), A("7"));
+
+		SequenceGraph.Op sg1 = new BaseSequenceGraph();
+		SequenceGraph.Op sg2 = new BaseSequenceGraph();
+
+		sg1.sequenceArtifacts(artifacts1);
+		sg2.sequenceArtifacts(artifacts2);
+
+		long heuristicAlignments = SequenceGraphOperator.getHeuristicAlignmentCount();
+		int previousBudget = SequenceGraphOperator.setAlignmentBudget(-1);
+		try {
+			sg1.sequence(sg2);
+		} finally {
+			SequenceGraphOperator.setAlignmentBudget(previousBudget);
+		}
+
+		Assert.assertEquals(SequenceGraphOperator.getHeuristicAlignmentCount(), heuristicAlignments + 1);
+		Assert.assertEquals(artifacts2.get(0).getSequenceNumber(), artifacts1.get(0).getSequenceNumber());
+		Assert.assertEquals(artifacts2.get(2).getSequenceNumber(), artifacts1.get(2).getSequenceNumber());
+		Assert.assertEquals(artifacts2.get(3).getSequenceNumber(), artifacts1.get(3).getSequenceNumber());
+		Assert.assertEquals(sg1.getSymbols().size(), 5);
+	}
+
+
+	@Test(groups = {"unit", "base", "sg"})
+	public void SequenceGraphs_Greedy() throws Throwable {
+		// the sequence graph operations recurse along the sequence
+		Throwable[] failure = new Throwable[1];
+		Thread thread = new Thread(null, () -> {
+			try {
+				this.sequenceGreedy();
+			} catch (Throwable e) {
+				failure[0] = e;
+			}
+		}, "greedy", 1L << 28);
+		thread.start();
+		thread.join();
+		if (failure[0] != null)
+			throw failure[0];
+	}
+
+	private void sequenceGreedy() {
+		// too large for the dynamic programming table of the heuristic alignment
+		int size = 4200;
+		List<Artifact.Op<?>> artifacts1 = new ArrayList<>();
+		List<Artifact.Op<?>> artifacts2 = new ArrayList<>();
+		for (int i = 0; i < size; i++) {
+			artifacts1.add(A(String.valueOf(i)));
+			artifacts2.add(A(i == size / 2 ? "x" : String.valueOf(i)));
+		}
+
+		SequenceGraph.Op sg1 = new BaseSequenceGraph();
+		SequenceGraph.Op sg2 = new BaseSequenceGraph();
+
+		sg1.sequenceArtifacts(artifacts1);
+		sg2.sequenceArtifacts(artifacts2);
+
+		int previousBudget = SequenceGraphOperator.setAlignmentBudget(-1);
+		try {
+			sg1.sequence(sg2);
+		} finally {
+			SequenceGraphOperator.setAlignmentBudget(previousBudget);
+		}
+
+		for (int i = 0; i < size; i++) {
+			if (i != size / 2)
+				Assert.assertEquals(artifacts2.get(i).getSequenceNumber(), artifacts1.get(i).getSequenceNumber());
+		}
+		Assert.assertEquals(sg1.getSymbols().size(), size + 1);
+	}
+
+
+	@Test(groups = {"unit", "base", "sg"})
+	public void SequenceGraphs_DynamicEqualsBranchAndBound() {
+		Random random = new Random(475);
+		for (int i = 0; i < 500; i++) {
+			int alphabet = 3 + random.nextInt(10);
+			SequenceGraph.Op sg = new BaseSequenceGraph();
+			int sequences = 1 + random.nextInt(5);
+			for (int j = 0; j < sequences; j++)
+				sg.sequenceArtifacts(randomArtifacts(random, random.nextInt(12), alphabet));
+
+			List<Artifact.Op<?>> artifacts = randomArtifacts(random, random.nextInt(12), alphabet);
+			int currentSequenceNumber = sg.getCurrentSequenceNumber();
+			SequenceGraphOperator sgo = new SequenceGraphOperator(sg);
+
+			int[] dynamic = sgo.align(copyArtifacts(artifacts)).clone();
+			int dynamicCost = sgo.getAlignmentCost();
+			sg.setCurrentSequenceNumber(currentSequenceNumber);
+
+			int[] branchAndBound = sgo.alignBranchAndBound(copyArtifacts(artifacts)).clone();
+			int branchAndBoundCost = sgo.getAlignmentCost();
+			sg.setCurrentSequenceNumber(currentSequenceNumber);
+
+			Assert.assertEquals(dynamicCost, branchAndBoundCost);
+
+			// sequence numbers may only differ for trailing artifacts that are not matched by the dynamic alignment
+			int lastMatch = -1;
+			for (int k = 0; k < dynamic.length; k++) {
+				if (dynamic[k] < currentSequenceNumber)
+					lastMatch = k;
+			}
+			for (int k = 0; k <= lastMatch; k++)
+				Assert.assertEquals(dynamic[k], branchAndBound[k]);
+		}
+	}
+
+	private List<Artifact.Op<?>> randomArtifacts(Random random, int length, int alphabet) {
+		List<Artifact.Op<?>> artifacts = new ArrayList<>();
+		for (int i = 0; i < length; i++)
+			artifacts.add(A(String.valueOf(random.nextInt(alphabet))));
+		return artifacts;
+	}
+
+	private List<Artifact.Op<?>> copyArtifacts(List<Artifact.Op<?>> artifacts) {
+		List<Artifact.Op<?>> copies = new ArrayList<>();
+		for (Artifact.Op<?> artifact : artifacts)
+			copies.add(new BaseArtifact<>(artifact.getData()));
+		return copies;
+	}
+
+
 	private void displaySG(SequenceGraph sg) {
 		Utility.launchApp((app, stage) -> {
 			SequenceGraphView sequenceGraphView = new SequenceGraphView();
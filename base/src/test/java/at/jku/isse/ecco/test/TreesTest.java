@@ -1,8 +1,15 @@
 package at.jku.isse.ecco.test;
 
 import at.jku.isse.ecco.EccoUtil;
+import at.jku.isse.ecco.artifact.Artifact;
+import at.jku.isse.ecco.composition.CompositionIterator;
+import at.jku.isse.ecco.composition.DefaultOrderSelector;
+import at.jku.isse.ecco.composition.LazyCompositionNode;
+import at.jku.isse.ecco.composition.LazyCompositionRootNode;
 import at.jku.isse.ecco.dao.EntityFactory;
+import at.jku.isse.ecco.sg.SequenceGraph;
 import at.jku.isse.ecco.storage.mem.dao.MemEntityFactory;
+import at.jku.isse.ecco.storage.mem.sg.BaseSequenceGraph;
 import at.jku.isse.ecco.tree.Node;
 import at.jku.isse.ecco.tree.RootNode;
 import at.jku.isse.ecco.util.Trees;
@@ -11,6 +18,13 @@ import org.testng.annotations.AfterTest;
 import org.testng.annotations.BeforeTest;
 import org.testng.annotations.Test;
 
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
 public class TreesTest {
 
 	@Test(groups = {"unit", "base", "tree"})
@@ -56,6 +70,281 @@ public class TreesTest {
 	}
 
 
+	@Test(groups = {"unit", "base", "tree"})
+	public void Trees_WideSlice() {
+		EntityFactory ef = new MemEntityFactory();
+
+		RootNode.Op root1 = ef.createRootNode();
+		RootNode.Op root2 = ef.createRootNode();
+		for (int i = 0; i < 1000; i++) {
+			root1.addChild(ef.createNode(new TestArtifactData("c" + i)));
+			root2.addChild(ef.createNode(new TestArtifactData("c" + (i + 500))));
+		}
+
+		Assert.assertNotNull(root1.getChild(ef.createNode(new TestArtifactData("c999"))));
+		Assert.assertNull(root1.getChild(ef.createNode(new TestArtifactData("c1000"))));
+
+		Node.Op root3 = Trees.slice(root1, root2);
+
+		Assert.assertEquals(Trees.countArtifacts(root1), 500);
+		Assert.assertEquals(Trees.countArtifacts(root2), 500);
+		Assert.assertEquals(Trees.countArtifacts(root3), 500);
+		Assert.assertNull(root1.getChild(ef.createNode(new TestArtifactData("c999"))));
+		Assert.assertNotNull(root3.getChild(ef.createNode(new TestArtifactData("c999"))));
+	}
+
+
+	@Test(groups = {"unit", "base", "tree"})
+	public void Trees_ParallelSlice() {
+		List<Node.Op> sequentialLefts = new ArrayList<>();
+		List<Node.Op> parallelLefts = new ArrayList<>();
+		for (int i = 0; i < 4; i++) {
+			sequentialLefts.add(this.createWideTree(i, 3));
+			parallelLefts.add(this.createWideTree(i, 3));
+		}
+		Node.Op sequentialRight = this.createWideTree(1, 2);
+		Node.Op parallelRight = this.createWideTree(1, 2);
+
+		List<Node.Op> sequentialIntersections = new ArrayList<>();
+		for (Node.Op left : sequentialLefts)
+			sequentialIntersections.add(Trees.slice(left, sequentialRight));
+
+		ForkJoinPool pool = new ForkJoinPool(4);
+		List<Node.Op> parallelIntersections = Trees.slice(parallelLefts, parallelRight, pool);
+		pool.shutdown();
+
+		for (int i = 0; i < 4; i++) {
+			Assert.assertEquals(this.describe(parallelLefts.get(i)), this.describe(sequentialLefts.get(i)));
+			Assert.assertEquals(this.describe(parallelIntersections.get(i)), this.describe(sequentialIntersections.get(i)));
+		}
+		Assert.assertEquals(this.describe(parallelRight), this.describe(sequentialRight));
+	}
+
+	@Test(groups = {"unit", "base", "tree"})
+	public void Trees_LazyComposition() {
+		LazyCompositionRootNode composition = new LazyCompositionRootNode();
+		composition.addOrigNode(this.createWideTree(0, 3));
+		composition.addOrigNode(this.createWideTree(1, 2));
+
+		Node.Op dir = composition.getChildren().get(0);
+		Assert.assertEquals(composition.getChildren().size(), 1);
+		Assert.assertEquals(dir.getChildren().size(), 40);
+
+		String description = this.describe(composition);
+		int files = 0;
+		for (Iterator<Node> it = new CompositionIterator(dir); it.hasNext(); files++)
+			it.next().getChildren();
+		Assert.assertEquals(files, 40);
+		Assert.assertEquals(this.describe(composition), description);
+	}
+
+	@Test(groups = {"unit", "base", "tree"})
+	public void Trees_LazyCompositionRelease() {
+		Node.Op left = this.createWideTree(0, 3, true);
+		Node.Op right = this.createWideTree(1, 2, true);
+		Node.Op intersection = Trees.slice(left, right);
+
+		DefaultOrderSelector orderSelector = new DefaultOrderSelector();
+		LazyCompositionRootNode composition = new LazyCompositionRootNode(orderSelector);
+		composition.addOrigNode(left);
+		composition.addOrigNode(intersection);
+		composition.addOrigNode(right);
+
+		String description = this.describe(composition);
+		int uncertainOrders = orderSelector.getUncertainOrders().size();
+		Assert.assertTrue(uncertainOrders > 0);
+
+		// activating the files again after a release must restore the same order without selecting it again
+		for (Node.Op file : composition.getChildren().get(0).getChildren())
+			((LazyCompositionNode) file).release();
+		Assert.assertEquals(this.describe(composition), description);
+		Assert.assertEquals(orderSelector.getUncertainOrders().size(), uncertainOrders);
+	}
+
+	@Test(groups = {"unit", "base", "tree"})
+	public void Trees_OrderSelectorEquivalence() {
+		EntityFactory ef = new MemEntityFactory();
+		Random random = new Random(12);
+
+		for (int i = 0; i < 500; i++) {
+			List<Artifact.Op<?>> symbols = new ArrayList<>();
+			for (int j = 0; j < 1 + random.nextInt(8); j++)
+				symbols.add(ef.createArtifact(new TestArtifactData("a" + j)));
+
+			// random sequence graph whose paths may contain the same artifact multiple times
+			SequenceGraph.Op sg = new BaseSequenceGraph();
+			List<SequenceGraph.Node.Op> sgns = new ArrayList<>();
+			sgns.add(sg.getRoot());
+			for (int j = 0; j < random.nextInt(30); j++) {
+				SequenceGraph.Node.Op parent = sgns.get(random.nextInt(sgns.size()));
+				SequenceGraph.Node.Op child = sg.createSequenceGraphNode(sg.getPol());
+				parent.getChildren().put(symbols.get(random.nextInt(symbols.size())), child);
+				sgns.add(child);
+			}
+
+			Artifact.Op<?> fileArtifact = ef.createArtifact(new TestArtifactData("file"));
+			fileArtifact.setSequenceGraph(sg);
+			Node.Op file = ef.createOrderedNode(fileArtifact);
+			for (int j = 0; j < random.nextInt(12); j++)
+				file.addChild(ef.createNode(symbols.get(random.nextInt(symbols.size()))));
+
+			List<Node.Op> unorderedChildren = new ArrayList<>(file.getChildren());
+			List<Node.Op> expectedChildren = new ArrayList<>();
+			boolean expectedUncertain = this.traverseSequenceGraphRecursively(sg.getRoot(), unorderedChildren, expectedChildren);
+
+			DefaultOrderSelector orderSelector = new DefaultOrderSelector();
+			orderSelector.select(file);
+
+			Assert.assertEquals(file.getChildren().size(), expectedChildren.size());
+			for (int j = 0; j < expectedChildren.size(); j++)
+				Assert.assertSame(file.getChildren().get(j), expectedChildren.get(j));
+			Assert.assertEquals(orderSelector.getUncertainOrders().contains(fileArtifact), expectedUncertain);
+		}
+	}
+
+	@Test(groups = {"unit", "base", "tree"})
+	public void Trees_OrderSelectorDeepFile() {
+		EntityFactory ef = new MemEntityFactory();
+
+		// a sequence graph with a single long path, built directly because sequencing such a long sequence recurses along it
+		SequenceGraph.Op sg = new BaseSequenceGraph();
+		List<Artifact.Op<?>> lines = new ArrayList<>();
+		SequenceGraph.Node.Op sgn = sg.getRoot();
+		for (int i = 0; i < 100000; i++) {
+			Artifact.Op<?> line = ef.createArtifact(new TestArtifactData("line" + i));
+			SequenceGraph.Node.Op next = sg.createSequenceGraphNode(sg.getPol());
+			sgn.getChildren().put(line, next);
+			sgn = next;
+			lines.add(line);
+		}
+
+		RootNode.Op root = ef.createRootNode();
+		Artifact.Op<?> fileArtifact = ef.createArtifact(new TestArtifactData("file"));
+		fileArtifact.setSequenceGraph(sg);
+		Node.Op file = ef.createOrderedNode(fileArtifact);
+		root.addChild(file);
+		for (int i = lines.size() - 1; i >= 0; i--)
+			file.addChild(ef.createNode(lines.get(i)));
+
+		DefaultOrderSelector orderSelector = new DefaultOrderSelector();
+		LazyCompositionRootNode composition = new LazyCompositionRootNode(orderSelector);
+		composition.addOrigNode(root);
+
+		List<? extends Node.Op> children = composition.getChildren().get(0).getChildren();
+		Assert.assertEquals(children.size(), lines.size());
+		for (int i = 0; i < lines.size(); i++)
+			Assert.assertEquals(children.get(i).getArtifact(), lines.get(i));
+		Assert.assertTrue(orderSelector.getUncertainOrders().isEmpty());
+	}
+
+	@Test(groups = {"unit", "base", "tree"})
+	public void Trees_OrderSelectorMostAssociations() {
+		EntityFactory ef = new MemEntityFactory();
+
+		// either artifact may come first
+		Artifact.Op<?> a = ef.createArtifact(new TestArtifactData("a"));
+		Artifact.Op<?> b = ef.createArtifact(new TestArtifactData("b"));
+		SequenceGraph.Op sg = new BaseSequenceGraph();
+		SequenceGraph.Node.Op afterA = sg.createSequenceGraphNode(sg.getPol());
+		SequenceGraph.Node.Op afterB = sg.createSequenceGraphNode(sg.getPol());
+		sg.getRoot().getChildren().put(a, afterA);
+		sg.getRoot().getChildren().put(b, afterB);
+		afterA.getChildren().put(b, sg.createSequenceGraphNode(sg.getPol()));
+		afterB.getChildren().put(a, sg.createSequenceGraphNode(sg.getPol()));
+		Artifact.Op<?> fileArtifact = ef.createArtifact(new TestArtifactData("file"));
+		fileArtifact.setSequenceGraph(sg);
+
+		// b is contained in two associations, a only in one
+		LazyCompositionRootNode composition = new LazyCompositionRootNode(new DefaultOrderSelector(DefaultOrderSelector.Policy.MOST_ASSOCIATIONS));
+		for (int i = 0; i < 2; i++) {
+			RootNode.Op root = ef.createRootNode();
+			Node.Op file = ef.createOrderedNode(fileArtifact);
+			root.addChild(file);
+			file.addChild(ef.createNode(b));
+			if (i == 0)
+				file.addChild(ef.createNode(a));
+			composition.addOrigNode(root);
+		}
+
+		List<? extends Node.Op> children = composition.getChildren().get(0).getChildren();
+		Assert.assertEquals(children.size(), 2);
+		Assert.assertEquals(children.get(0).getArtifact(), b);
+		Assert.assertEquals(children.get(1).getArtifact(), a);
+	}
+
+	/**
+	 * The recursive traversal that the default order selector used before it was made iterative, following the first edge of every sequence graph node.
+	 */
+	private boolean traverseSequenceGraphRecursively(SequenceGraph.Node.Op sgn, List<Node.Op> unorderedChildren, List<Node.Op> orderedChildren) {
+		if (sgn.getChildren().isEmpty())
+			return false;
+
+		boolean uncertainOrder = false;
+		Map.Entry<Artifact.Op<?>, SequenceGraph.Node.Op> entry = sgn.getChildren().entrySet().iterator().next();
+
+		Node.Op match = null;
+		Iterator<Node.Op> iterator = unorderedChildren.iterator();
+		while (iterator.hasNext()) {
+			Node.Op next = iterator.next();
+			if (next.getArtifact().equals(entry.getKey())) {
+				match = next;
+				iterator.remove();
+				break;
+			}
+		}
+		if (match != null) {
+			orderedChildren.add(match);
+			for (Artifact<?> key : sgn.getChildren().keySet()) {
+				for (Node node : unorderedChildren) {
+					if (node.getArtifact().equals(key)) {
+						uncertainOrder = true;
+						break;
+					}
+				}
+			}
+		}
+
+		return this.traverseSequenceGraphRecursively(entry.getValue(), unorderedChildren, orderedChildren) || uncertainOrder;
+	}
+
+	private Node.Op createWideTree(int seed, int modulo) {
+		return this.createWideTree(seed, modulo, false);
+	}
+
+	/**
+	 * Creates a tree with a single directory node below the root and a number of files with lines below it. Which files and lines exist depends on the seed and modulo.
+	 * If the files are ordered the tree is sequenced.
+	 */
+	private Node.Op createWideTree(int seed, int modulo, boolean ordered) {
+		EntityFactory ef = new MemEntityFactory();
+
+		RootNode.Op root = ef.createRootNode();
+		Node.Op dir = ef.createNode(new TestArtifactData("dir"));
+		root.addChild(dir);
+		for (int f = 0; f < 40; f++) {
+			if ((f + seed) % 7 == 0)
+				continue;
+			Node.Op file = ordered ? ef.createOrderedNode(new TestArtifactData("file" + f)) : ef.createNode(new TestArtifactData("file" + f));
+			dir.addChild(file);
+			for (int l = 0; l < 20; l++) {
+				if ((f * l + seed) % modulo != 0)
+					file.addChild(ef.createNode(new TestArtifactData("file" + f + "line" + l)));
+			}
+		}
+		if (ordered)
+			Trees.sequence(root);
+		return root;
+	}
+
+	private String describe(Node node) {
+		StringBuilder sb = new StringBuilder();
+		sb.append(node.getArtifact()).append(node.isUnique() ? "!" : "").append("(");
+		for (Node child : node.getChildren())
+			sb.append(this.describe(child));
+		return sb.append(")").toString();
+	}
+
+
 	/**
 	 * root
 	 * -00
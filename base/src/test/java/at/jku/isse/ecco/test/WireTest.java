@@ -0,0 +1,178 @@
+package at.jku.isse.ecco.test;
+
+import at.jku.isse.ecco.artifact.Artifact;
+import at.jku.isse.ecco.core.Association;
+import at.jku.isse.ecco.dao.EntityFactory;
+import at.jku.isse.ecco.feature.Configuration;
+import at.jku.isse.ecco.feature.Feature;
+import at.jku.isse.ecco.feature.FeatureVersion;
+import at.jku.isse.ecco.repository.Repository;
+import at.jku.isse.ecco.storage.mem.dao.MemEntityFactory;
+import at.jku.isse.ecco.tree.Node;
+import at.jku.isse.ecco.util.Trees;
+import at.jku.isse.ecco.wire.RepositoryDelta;
+import at.jku.isse.ecco.wire.RepositoryReader;
+import at.jku.isse.ecco.wire.RepositoryWriter;
+import at.jku.isse.ecco.wire.WireProtocol;
+import junit.framework.Assert;
+import org.testng.annotations.Test;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.util.*;
+
+public class WireTest {
+
+	@Test(groups = {"unit", "service", "wire"})
+	public void Wire_VarInt() throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		int[] values = {0, 1, 127, 128, 300, Integer.MAX_VALUE, -1, Integer.MIN_VALUE};
+		for (int value : values) {
+			WireProtocol.writeVarInt(out, value);
+			WireProtocol.writeSignedVarInt(out, value);
+		}
+		WireProtocol.writeString(out, "\u00e4\u00f6\u00fc");
+
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+		for (int value : values) {
+			Assert.assertEquals(WireProtocol.readVarInt(in), value);
+			Assert.assertEquals(WireProtocol.readSignedVarInt(in), value);
+		}
+		Assert.assertEquals(WireProtocol.readString(in), "\u00e4\u00f6\u00fc");
+	}
+
+	@Test(groups = {"unit", "service", "wire"})
+	public void Wire_Repository() throws IOException {
+		EntityFactory ef = new MemEntityFactory();
+		Repository.Op repository = this.createRepository(ef);
+
+		for (boolean compressed : new boolean[]{false, true}) {
+			// the data after a payload can still be read
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			new RepositoryWriter(bytes, compressed).writeRepository(repository);
+			new RepositoryWriter(bytes, compressed).writeFeatures(repository.getFeatures());
+			bytes.write(42);
+
+			InputStream in = new ByteArrayInputStream(bytes.toByteArray());
+			Repository.Op readRepository = new RepositoryReader(in, ef).readRepository();
+			Collection<Feature> readFeatures = new RepositoryReader(in, ef).readFeatures();
+			Assert.assertEquals(in.read(), 42);
+
+			Assert.assertEquals(readRepository.getMaxOrder(), repository.getMaxOrder());
+			Assert.assertEquals(readRepository.getFeatures().size(), repository.getFeatures().size());
+			Assert.assertEquals(new HashSet<>(readFeatures), new HashSet<>(repository.getFeatures()));
+			for (Feature feature : repository.getFeatures())
+				Assert.assertEquals(readRepository.getFeature(feature.getId()).getVersions(), feature.getVersions());
+
+			Assert.assertEquals(readRepository.getAssociations().size(), repository.getAssociations().size());
+			Map<String, Association.Op> readAssociations = new HashMap<>();
+			for (Association.Op association : readRepository.getAssociations())
+				readAssociations.put(association.getId(), association);
+			for (Association.Op association : repository.getAssociations()) {
+				Association.Op readAssociation = readAssociations.get(association.getId());
+				Assert.assertEquals(readAssociation.getPresenceCondition().getMinModules(), association.getPresenceCondition().getMinModules());
+				Assert.assertEquals(readAssociation.getPresenceCondition().getMaxModules(), association.getPresenceCondition().getMaxModules());
+				Assert.assertEquals(readAssociation.getPresenceCondition().getNotModules(), association.getPresenceCondition().getNotModules());
+				Assert.assertEquals(readAssociation.getPresenceCondition().getAllModules(), association.getPresenceCondition().getAllModules());
+				Assert.assertTrue(Trees.equals(readAssociation.getRootNode(), association.getRootNode()));
+				Assert.assertEquals(readAssociation.getRootNode().countArtifacts(), association.getRootNode().countArtifacts());
+			}
+
+			// writing the read repository again results in the same data
+			ByteArrayOutputStream rewrittenBytes = new ByteArrayOutputStream();
+			new RepositoryWriter(rewrittenBytes, false).writeRepository(readRepository);
+			ByteArrayOutputStream originalBytes = new ByteArrayOutputStream();
+			new RepositoryWriter(originalBytes, false).writeRepository(repository);
+			Assert.assertTrue(Arrays.equals(rewrittenBytes.toByteArray(), originalBytes.toByteArray()));
+		}
+	}
+
+	@Test(groups = {"unit", "service", "wire"})
+	public void Wire_Delta() {
+		EntityFactory ef = new MemEntityFactory();
+		Repository.Op repository = this.createRepository(ef);
+		Set<ByteBuffer> digests = RepositoryDelta.digests(repository.getAssociations());
+		Assert.assertEquals(digests.size(), repository.getAssociations().size());
+
+		// the digests do not depend on the ids of the associations
+		Repository.Op copy = repository.copy(ef);
+		Assert.assertEquals(RepositoryDelta.digests(copy.getAssociations()), digests);
+
+		// only the unknown association and the associations it depends on remain
+		Association.Op unknown = copy.getAssociations().iterator().next();
+		Set<ByteBuffer> known = new HashSet<>(digests);
+		known.removeAll(RepositoryDelta.digests(Collections.singleton(unknown)));
+		int numAssociations = copy.getAssociations().size();
+		int removed = RepositoryDelta.removeKnownAssociations(copy, known);
+		Assert.assertTrue(removed > 0);
+		Assert.assertEquals(copy.getAssociations().size(), numAssociations - removed);
+		Assert.assertTrue(copy.getAssociations().contains(unknown));
+
+		// merging the remaining associations yields the same variants as merging all of them
+		Repository.Op full = this.createRepository(ef);
+		full.merge(full.copy(ef));
+		repository.merge(copy);
+		for (Configuration configuration : this.createConfigurations(ef, repository)) {
+			Node fullNode = full.compose(configuration).getNode();
+			Node deltaNode = repository.compose(configuration).getNode();
+			Assert.assertTrue(Trees.equals(deltaNode, fullNode));
+			Assert.assertEquals(deltaNode.countArtifacts(), fullNode.countArtifacts());
+		}
+
+		Assert.assertEquals(RepositoryDelta.removeKnownAssociations(repository, Collections.emptySet()), 0);
+	}
+
+
+	private Repository.Op createRepository(EntityFactory ef) {
+		Repository.Op repository = ef.createRepository();
+		repository.setMaxOrder(2);
+
+		Feature a = repository.addFeature("wire.a", "A", "");
+		Feature b = repository.addFeature("wire.b", "B", "");
+		FeatureVersion a1 = a.addVersion("1");
+		FeatureVersion b1 = b.addVersion("1");
+		FeatureVersion b2 = b.addVersion("2");
+
+		repository.extract(this.createConfiguration(ef, a1), this.createNodes(ef, "a", "x"));
+		repository.extract(this.createConfiguration(ef, a1, b1), this.createNodes(ef, "a", "b", "x"));
+		repository.extract(this.createConfiguration(ef, b2), this.createNodes(ef, "b", "y"));
+
+		return repository;
+	}
+
+	private Collection<Configuration> createConfigurations(EntityFactory ef, Repository.Op repository) {
+		FeatureVersion a1 = repository.getFeature("wire.a").getVersion("1");
+		FeatureVersion b1 = repository.getFeature("wire.b").getVersion("1");
+		FeatureVersion b2 = repository.getFeature("wire.b").getVersion("2");
+		return Arrays.asList(this.createConfiguration(ef, a1), this.createConfiguration(ef, a1, b1), this.createConfiguration(ef, b2), this.createConfiguration(ef, b1), this.createConfiguration(ef, a1, b2));
+	}
+
+	private Configuration createConfiguration(EntityFactory ef, FeatureVersion... featureVersions) {
+		Configuration configuration = ef.createConfiguration();
+		for (FeatureVersion featureVersion : featureVersions)
+			configuration.addFeatureInstance(featureVersion.getPositiveInstance());
+		return configuration;
+	}
+
+	/**
+	 * Creates an unordered root with a child per identifier and an ordered node with a child per identifier. The artifact of the ordered node uses the artifact of the first child.
+	 */
+	private Set<Node.Op> createNodes(EntityFactory ef, String... identifiers) {
+		Node.Op root = ef.createNode(new TestArtifactData("root"));
+		Node.Op ordered = ef.createOrderedNode(new TestArtifactData("ordered"));
+		root.addChild(ordered);
+		for (String identifier : identifiers) {
+			Node.Op child = ef.createNode(new TestArtifactData(identifier));
+			root.addChild(child);
+			ordered.addChild(ef.createNode(new TestArtifactData("o" + identifier)));
+		}
+		Artifact.Op<?> target = root.getChildren().get(1).getArtifact();
+		ordered.getArtifact().addUses(target, "test");
+
+		Set<Node.Op> nodes = new HashSet<>();
+		nodes.add(root);
+		return nodes;
+	}
+
+}
@@ -15,6 +15,8 @@ import at.jku.isse.ecco.util.Trees;
 import java.nio.file.InvalidPathException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * This class implements all the CLI commands.
@@ -230,6 +232,19 @@ public class EccoCli implements EccoListener {
 		this.eccoService.close();
 	}
 
+	public void commitVariants(List<String> baseDirStrings, Integer threads) {
+		this.initRepo();
+
+		List<Path> baseDirs = new ArrayList<>();
+		for (String baseDirString : baseDirStrings)
+			baseDirs.add(Paths.get(baseDirString).toAbsolutePath());
+		if (threads != null)
+			this.eccoService.setCommitThreads(threads);
+		this.eccoService.commitVariants(baseDirs);
+
+		this.eccoService.close();
+	}
+
 	public void fork(String remoteUriString) {
 		Path path;
 		try {
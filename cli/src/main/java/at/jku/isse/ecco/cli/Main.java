@@ -13,6 +13,8 @@ public class Main {
 
 	public static final String COMMAND = "command";
 	public static final String CONFIGURATION_STRING = "configurationString";
+	public static final String VARIANT_DIRS = "variantDirs";
+	public static final String THREADS = "threads";
 	public static final String EXCLUDED_FEATURE_VERSIONS_STRING = "excludedFeatureVersionsString";
 	public static final String REMOTES_COMMAND = "remotesCommand";
 	public static final String REMOTE_NAME = "remoteName";
@@ -61,6 +63,11 @@ public class Main {
 		Subparser parserCommit = subparsers.addParser("commit").help("commit a configuration").description("Commit a given configuration to the repository at the current location from its current base directory (property baseDir).");
 		parserCommit.addArgument(CONFIGURATION_STRING).nargs("?");
 
+		// commit several variants (each with its configuration in its .config file) in one go
+		Subparser parserCommitVariants = subparsers.addParser("commitvariants").help("commit several variants").description("Commit the given variant directories, each as the configuration given in its .config file, to the repository at the current location in a single transaction.");
+		parserCommitVariants.addArgument("-t", "--threads").type(Integer.class).dest(THREADS).help("number of threads used for reading and slicing");
+		parserCommitVariants.addArgument(VARIANT_DIRS).nargs("+");
+
 		// clone/fork (cloning remote locally)
 		Subparser parserFork = subparsers.addParser("fork").help("fork from another repository");
 		parserFork.addArgument(REMOTE_URI);
@@ -150,6 +157,9 @@ public class Main {
 					else
 						cli.commit();
 					break;
+				case "commitvariants":
+					cli.commitVariants(res.getList(VARIANT_DIRS), res.getInt(THREADS));
+					break;
 				case "fork":
 					if (res.getString(EXCLUDED_FEATURE_VERSIONS_STRING) != null)
 						cli.fork(res.getString(REMOTE_URI), res.getString(EXCLUDED_FEATURE_VERSIONS_STRING));
@@ -6,6 +6,8 @@ import at.jku.isse.ecco.adapter.ArtifactWriter;
 import at.jku.isse.ecco.adapter.dispatch.DispatchReader;
 import at.jku.isse.ecco.adapter.dispatch.DispatchWriter;
 import at.jku.isse.ecco.artifact.Artifact;
+import at.jku.isse.ecco.blob.BlobStore;
+import at.jku.isse.ecco.composition.DefaultOrderSelector;
 import at.jku.isse.ecco.core.Association;
 import at.jku.isse.ecco.core.Checkout;
 import at.jku.isse.ecco.core.Commit;
@@ -21,9 +23,14 @@ import at.jku.isse.ecco.listener.WriteListener;
 import at.jku.isse.ecco.adapter.dispatch.DispatchModule;
 import at.jku.isse.ecco.storage.StoragePlugin;
 import at.jku.isse.ecco.repository.Repository;
+import at.jku.isse.ecco.repository.RepositoryOperator;
 import at.jku.isse.ecco.storage.mem.dao.MemEntityFactory;
 import at.jku.isse.ecco.tree.Node;
 import at.jku.isse.ecco.tree.RootNode;
+import at.jku.isse.ecco.wire.RepositoryDelta;
+import at.jku.isse.ecco.wire.RepositoryReader;
+import at.jku.isse.ecco.wire.RepositoryWriter;
+import at.jku.isse.ecco.wire.WireProtocol;
 import com.google.inject.AbstractModule;
 import com.google.inject.Guice;
 import com.google.inject.Injector;
@@ -36,16 +43,19 @@ import javax.inject.Inject;
 import java.io.*;
 import java.net.InetSocketAddress;
 import java.net.SocketException;
+import java.nio.ByteBuffer;
 import java.nio.channels.AsynchronousCloseException;
 import java.nio.channels.ClosedChannelException;
 import java.nio.channels.ServerSocketChannel;
 import java.nio.channels.SocketChannel;
 import java.nio.file.*;
 import java.util.*;
+import java.util.concurrent.*;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.stream.Collectors;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 
 /**
@@ -64,6 +74,7 @@ public class EccoService implements ProgressInputStream.ProgressListener, Progre
 	public static final String ECCO_PROPERTIES_FILE = "ecco.properties";
 	public static final String ECCO_PROPERTIES_DATA = "plugin.data";
 	public static final String ECCO_PROPERTIES_ARTIFACT = "plugin.artifact";
+	public static final String ECCO_PROPERTIES_ORDER_SELECTION_POLICY = "checkout.orderSelectionPolicy";
 
 	public static final Path REPOSITORY_DIR_NAME = Paths.get(".ecco");
 	public static final Path DEFAULT_BASE_DIR = Paths.get("");
@@ -79,6 +90,8 @@ public class EccoService implements ProgressInputStream.ProgressListener, Progre
 	private Path baseDir;
 	private Path repositoryDir;
 
+	private int commitThreads = 1;
+
 	public Properties getProperties() {
 		return this.properties;
 	}
@@ -112,6 +125,54 @@ public class EccoService implements ProgressInputStream.ProgressListener, Progre
 		}
 	}
 
+	public int getCommitThreads() {
+		return this.commitThreads;
+	}
+
+	/**
+	 * Sets the number of threads used to read the files of the base directory (see {@link DispatchReader#setReadThreads(int)}) and to slice the committed artifact tree with the existing associations (see {@link RepositoryOperator#setCommitThreads(int)}).
+	 *
+	 * @param commitThreads The number of threads (1 for sequential reading and slicing).
+	 */
+	public void setCommitThreads(int commitThreads) {
+		checkArgument(commitThreads > 0);
+
+		this.commitThreads = commitThreads;
+	}
+
+	private DefaultOrderSelector.Policy orderSelectionPolicy = DefaultOrderSelector.Policy.FIRST;
+
+	public DefaultOrderSelector.Policy getOrderSelectionPolicy() {
+		return this.orderSelectionPolicy;
+	}
+
+	/**
+	 * Sets the policy used by checkouts to select the order of the children of ordered artifacts (see {@link RepositoryOperator#setOrderSelectionPolicy(DefaultOrderSelector.Policy)}).
+	 *
+	 * @param orderSelectionPolicy The order selection policy.
+	 */
+	public void setOrderSelectionPolicy(DefaultOrderSelector.Policy orderSelectionPolicy) {
+		checkNotNull(orderSelectionPolicy);
+
+		this.orderSelectionPolicy = orderSelectionPolicy;
+	}
+
+	private boolean incrementalCommit = false;
+
+	public boolean getIncrementalCommit() {
+		return this.incrementalCommit;
+	}
+
+	/**
+	 * Sets whether a commit takes the files that were not modified since they were last checked out or committed from the repository instead of reading them again. See {@link DispatchReader#read(Path, Path[], Node.Op, Properties)}.
+	 * Only the files of readers that read files independently are taken, the files of readers that relate files (e.g. by references between their artifacts) are always read. Disabled by default.
+	 *
+	 * @param incrementalCommit True if unmodified files are not read again.
+	 */
+	public void setIncrementalCommit(boolean incrementalCommit) {
+		this.incrementalCommit = incrementalCommit;
+	}
+
 
 	// TODO: set current operation. update progress during operations (instead of just relaying the progress from input and output streams) and notify listeners.
 	private Operation currentOperation;
@@ -203,6 +264,9 @@ public class EccoService implements ProgressInputStream.ProgressListener, Progre
 	@Inject
 	private EntityFactory entityFactory;
 
+	@Inject
+	private BlobStore blobStore;
+
 	@Inject
 	private TransactionStrategy transactionStrategy;
 
@@ -476,6 +540,14 @@ public class EccoService implements ProgressInputStream.ProgressListener, Progre
 			artifactPluginsList = Arrays.asList(this.properties.getProperty(ECCO_PROPERTIES_ARTIFACT).split(","));
 			LOGGER.debug("Found optional property: " + ECCO_PROPERTIES_ARTIFACT);
 		}
+		if (this.properties.getProperty(ECCO_PROPERTIES_ORDER_SELECTION_POLICY) != null) {
+			try {
+				this.orderSelectionPolicy = DefaultOrderSelector.Policy.valueOf(this.properties.getProperty(ECCO_PROPERTIES_ORDER_SELECTION_POLICY).trim());
+			} catch (IllegalArgumentException e) {
+				throw new EccoException("Invalid order selection policy: " + this.properties.getProperty(ECCO_PROPERTIES_ORDER_SELECTION_POLICY), e);
+			}
+			LOGGER.debug("Found optional property: " + ECCO_PROPERTIES_ORDER_SELECTION_POLICY);
+		}
 
 		// artifact modules
 		List<Module> artifactModules = new ArrayList<>();
@@ -532,6 +604,8 @@ public class EccoService implements ProgressInputStream.ProgressListener, Progre
 			@Override
 			protected void configure() {
 				bind(Path.class).annotatedWith(Names.named("repositoryDir")).toInstance(EccoService.this.repositoryDir);
+				// make the properties available to plugins (e.g. as optional settings of readers)
+				Names.bindProperties(binder(), EccoService.this.properties);
 			}
 		};
 		modules.add(settingsModule);
@@ -661,11 +735,11 @@ public class EccoService implements ProgressInputStream.ProgressListener, Progre
 		}
 	}
 
-	public synchronized Remote getRemote(String name) {
+	public Remote getRemote(String name) {
 		this.checkInitialized();
 
 		try {
-			this.transactionStrategy.begin();
+			this.transactionStrategy.beginReadOnly();
 
 			Remote remote = this.settingsDao.loadRemote(name);
 
@@ -681,11 +755,11 @@ public class EccoService implements ProgressInputStream.ProgressListener, Progre
 		}
 	}
 
-	public synchronized Collection<Remote> getRemotes() {
+	public Collection<Remote> getRemotes() {
 		this.checkInitialized();
 
 		try {
-			this.transactionStrategy.begin();
+			this.transactionStrategy.beginReadOnly();
 
 			Collection<Remote> remotes = this.settingsDao.loadAllRemotes();
 
@@ -702,13 +776,16 @@ public class EccoService implements ProgressInputStream.ProgressListener, Progre
 	}
 
 
-	public synchronized Repository getRepository() {
+	public Repository getRepository() {
 		this.checkInitialized();
 
 		try {
 			this.repositoryDao.init();
-			this.transactionStrategy.begin();
+			this.transactionStrategy.beginReadOnly();
 			Repository repository = this.repositoryDao.load();
+			// load the features and associations while the transaction is open in case the storage loads them on demand
+			repository.getFeatures();
+			repository.getAssociations();
 			this.transactionStrategy.end();
 			return repository;
 		} catch (EccoException e) {
@@ -717,17 +794,38 @@ public class EccoService implements ProgressInputStream.ProgressListener, Progre
 		}
 	}
 
+	/**
+	 * Sets the budget for aligning sequence graphs in the repository. See {@link Repository.Op#getSequenceGraphAlignmentBudget()}.
+	 *
+	 * @param budget The sequence graph alignment budget.
+	 */
+	public synchronized void setSequenceGraphAlignmentBudget(int budget) {
+		this.checkInitialized();
+
+		try {
+			this.repositoryDao.init();
+			this.transactionStrategy.begin();
+			Repository.Op repository = this.repositoryDao.load();
+			repository.setSequenceGraphAlignmentBudget(budget);
+			this.repositoryDao.store(repository);
+			this.transactionStrategy.end();
+		} catch (EccoException e) {
+			this.transactionStrategy.rollback();
+			throw new EccoException("Error when setting sequence graph alignment budget.", e);
+		}
+	}
+
 	/**
 	 * Get all commit objects.
 	 *
 	 * @return Collection containing all commit objects.
 	 */
-	public synchronized Collection<Commit> getCommits() {
+	public Collection<Commit> getCommits() {
 		this.checkInitialized();
 
 		try {
 			this.commitDao.init();
-			this.transactionStrategy.begin();
+			this.transactionStrategy.beginReadOnly();
 			List<Commit> commits = this.commitDao.loadAllCommits();
 			this.transactionStrategy.end();
 			return commits;
@@ -991,7 +1089,7 @@ public class EccoService implements ProgressInputStream.ProgressListener, Progre
 			throw new EccoException("Invalid feature versions string provided.");
 
 		try {
-			this.transactionStrategy.begin();
+			this.transactionStrategy.beginReadOnly();
 
 			Collection<FeatureVersion> featureVersions = new ArrayList<>();
 
@@ -1050,15 +1148,91 @@ public class EccoService implements ProgressInputStream.ProgressListener, Progre
 	// DISTRIBUTED OPERATIONS //////////////////////////////////////////////////////////////////////////////////////////
 
 	private ServerSocketChannel ssChannel = null;
-	private boolean serverShutdown = false;
-	private boolean serverRunning = false;
+	private volatile boolean serverShutdown = false;
+	private volatile boolean serverRunning = false;
 	private Lock serverLock = new ReentrantLock();
 
+	private int serverThreads = 8;
+	private int serverMaxConnections = 64;
+	private int serverRequestTimeout = 5 * 60 * 1000;
+
+	// the copy operations (e.g. subset) mark the artifacts of the copied repository and can therefore not run concurrently on the same repository
+	private final Object serverCopyLock = new Object();
+
+	private boolean transferCompression = true;
+
+	public boolean getTransferCompression() {
+		return this.transferCompression;
+	}
+
+	/**
+	 * Sets whether the features and repositories sent to a remote (or by the server to its clients) are compressed. The receiver reads both compressed and uncompressed data.
+	 *
+	 * @param transferCompression True if the transferred data is compressed.
+	 */
+	public void setTransferCompression(boolean transferCompression) {
+		this.transferCompression = transferCompression;
+	}
+
 	public boolean serverRunning() {
 		return this.serverRunning;
 	}
 
-	public synchronized void startServer(int port) {
+	public int getServerThreads() {
+		return this.serverThreads;
+	}
+
+	/**
+	 * Sets the number of worker threads of the server, i.e. the number of requests that are handled concurrently. Takes effect the next time the server is started.
+	 *
+	 * @param serverThreads The number of worker threads.
+	 */
+	public void setServerThreads(int serverThreads) {
+		checkArgument(serverThreads > 0);
+
+		this.serverThreads = serverThreads;
+	}
+
+	public int getServerMaxConnections() {
+		return this.serverMaxConnections;
+	}
+
+	/**
+	 * Sets the maximum number of connections the server accepts at a time. Further connections wait in the backlog of the server socket until a connection is closed. Takes effect the next time the server is started.
+	 *
+	 * @param serverMaxConnections The maximum number of open connections.
+	 */
+	public void setServerMaxConnections(int serverMaxConnections) {
+		checkArgument(serverMaxConnections > 0);
+
+		this.serverMaxConnections = serverMaxConnections;
+	}
+
+	public int getServerRequestTimeout() {
+		return this.serverRequestTimeout;
+	}
+
+	/**
+	 * Sets the time after which the connection of a request is closed, whether the request is complete or not.
+	 *
+	 * @param serverRequestTimeout The timeout in milliseconds (0 for no timeout).
+	 */
+	public void setServerRequestTimeout(int serverRequestTimeout) {
+		checkArgument(serverRequestTimeout >= 0);
+
+		this.serverRequestTimeout = serverRequestTimeout;
+	}
+
+	/**
+	 * Starts a server on the given port and blocks until the server is stopped via {@link #stopServer()}.
+	 * <p>
+	 * Connections are accepted on the calling thread and handled by a pool of worker threads (see {@link #setServerThreads(int)} and {@link #setServerMaxConnections(int)}).
+	 * Fetches and pulls only read the repository in read-only transactions and are therefore handled concurrently, except for computing the subset of a pull, which is done by one request at a time. Pushes are received concurrently but merged into the repository one after another by a single writer thread.
+	 * When the server is stopped it does not accept new connections anymore, but the requests in progress are completed before this method returns.
+	 *
+	 * @param port The port.
+	 */
+	public void startServer(int port) {
 		this.checkInitialized();
 
 		if (!this.serverLock.tryLock())
@@ -1066,6 +1240,11 @@ public class EccoService implements ProgressInputStream.ProgressListener, Progre
 //		if (this.serverRunning)
 //			throw new EccoException("Server is already running.");
 
+		ExecutorService workers = Executors.newFixedThreadPool(this.serverThreads);
+		ExecutorService writer = Executors.newSingleThreadExecutor();
+		ScheduledExecutorService timeouts = Executors.newSingleThreadScheduledExecutor();
+		Semaphore connections = new Semaphore(this.serverMaxConnections);
+
 		try (ServerSocketChannel ssChannel = ServerSocketChannel.open()) {
 			this.ssChannel = ssChannel;
 			this.serverRunning = true;
@@ -1079,116 +1258,208 @@ public class EccoService implements ProgressInputStream.ProgressListener, Progre
 			this.fireServerStartedEvent(port);
 
 			while (!serverShutdown) {
-				try (SocketChannel sChannel = ssChannel.accept()) {
-					ObjectOutputStream oos = new ObjectOutputStream(sChannel.socket().getOutputStream());
-					ObjectInputStream ois = new ObjectInputStream(sChannel.socket().getInputStream());
+				connections.acquire();
+				SocketChannel sChannel;
+				try {
+					sChannel = ssChannel.accept();
+				} catch (ClosedChannelException e) {
+					// server shut down
+					connections.release();
+					break;
+				} catch (IOException e) {
+					connections.release();
+					LOGGER.warn("Error accepting connection.");
+					this.fireServerEvent("Error accepting connection: " + e.getMessage());
+					continue;
+				}
+
+				workers.execute(() -> {
+					try {
+						this.handleRequest(sChannel, writer, timeouts);
+					} finally {
+						connections.release();
+					}
+				});
+			}
+		} catch (Exception e) {
+			throw new EccoException("Error starting server.", e);
+		} finally {
+			// drain the requests in progress
+			try {
+				workers.shutdown();
+				workers.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+				writer.shutdown();
+				writer.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+			} catch (InterruptedException e) {
+				workers.shutdownNow();
+				writer.shutdownNow();
+				Thread.currentThread().interrupt();
+			}
+			timeouts.shutdownNow();
 
+			this.serverRunning = false;
+			this.serverLock.unlock();
+		}
 
-					// determine if it is a push (receive data) or a pull (send data)
-					String command = (String) ois.readObject();
-					LOGGER.debug("COMMAND: " + command);
-					this.fireServerEvent("New connection from " + sChannel.getRemoteAddress() + " with command '" + command + "'.");
+		LOGGER.debug("Server stopped.");
+		this.fireServerEvent("Server stopped.");
+		this.fireServerStoppedEvent();
+	}
 
-					switch (command) {
-						case "FETCH": { // if fetch, send data
-							// copy features using mem entity factory
-							this.transactionStrategy.begin();
-							Repository.Op repository = this.repositoryDao.load();
-							Collection<Feature> copiedFeatures = EccoUtil.deepCopyFeatures(repository.getFeatures(), this.memEntityFactory);
-							this.transactionStrategy.end();
+	/**
+	 * Handles a single request of a client and closes its connection afterwards.
+	 *
+	 * @param sChannel The connection to the client.
+	 * @param writer   The executor that merges pushes into the repository one after another.
+	 * @param timeouts The executor that closes connections of requests that take too long.
+	 */
+	private void handleRequest(SocketChannel sChannel, ExecutorService writer, ScheduledExecutorService timeouts) {
+		ScheduledFuture<?> timeout = null;
+		if (this.serverRequestTimeout > 0) {
+			timeout = timeouts.schedule(() -> {
+				try {
+					sChannel.close();
+				} catch (IOException e) {
+					LOGGER.warn("Error closing connection.");
+				}
+			}, this.serverRequestTimeout, TimeUnit.MILLISECONDS);
+		}
 
+		boolean responded = false;
+		try (SocketChannel channel = sChannel) {
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(channel.socket().getOutputStream()));
+			DataInputStream in = new DataInputStream(new BufferedInputStream(channel.socket().getInputStream()));
 
-							// send features
-							// with size:
-							ByteArrayOutputStream byteOutputStream = new ByteArrayOutputStream();
-							ObjectOutputStream temp_oos = new ObjectOutputStream(byteOutputStream);
-							// write object to temp_oos
-							temp_oos.writeObject(copiedFeatures);
-							// get size of data
-							int size = byteOutputStream.size();
-							// send size
-							oos.writeObject(size);
-							// send data
-							byteOutputStream.writeTo(sChannel.socket().getOutputStream());
-							byteOutputStream.close();
-							// without size:
-							//oos.writeObject(copiedFeatures);
-
-							break;
+			try {
+				// determine if it is a push (receive data) or a pull (send data)
+				String command = WireProtocol.readRequest(in);
+				LOGGER.debug("COMMAND: " + command);
+				this.fireServerEvent("New connection from " + channel.getRemoteAddress() + " with command '" + command + "'.");
+
+				switch (command) {
+					case WireProtocol.FETCH: { // if fetch, send data
+						// send features directly from the repository
+						this.transactionStrategy.beginReadOnly();
+						try {
+							Repository.Op repository = this.repositoryDao.load();
+							WireProtocol.writeOk(out);
+							responded = true;
+							new RepositoryWriter(out, this.transferCompression).writeFeatures(repository.getFeatures());
+							this.transactionStrategy.end();
+						} catch (Exception e) {
+							this.transactionStrategy.rollback();
+							throw new EccoException("Error sending features.", e);
 						}
-						case "PULL": { // if pull, send data
-							// retrieve deselection
-							//Collection<FeatureVersion> deselected = (Collection<FeatureVersion>) ois.readObject();
-							String deselectedFeatureVersionsString = (String) ois.readObject();
-							Collection<FeatureVersion> deselected = this.parseFeatureVersionsString(deselectedFeatureVersionsString);
+						break;
+					}
+					case WireProtocol.PULL: { // if pull, send data
+						// retrieve deselection
+						String deselectedFeatureVersionsString = WireProtocol.readString(in);
+						Collection<FeatureVersion> deselected = this.parseFeatureVersionsString(deselectedFeatureVersionsString);
+						// retrieve digests of the associations the client already has
+						Set<ByteBuffer> knownDigests = WireProtocol.readDigests(in);
 
-							// compute subset repository using mem entity factory
-							this.transactionStrategy.begin();
+						// compute subset repository using mem entity factory
+						Repository.Op subsetRepository;
+						this.transactionStrategy.beginReadOnly();
+						try {
 							Repository.Op repository = this.repositoryDao.load();
-							Repository.Op subsetRepository = repository.subset(deselected, repository.getMaxOrder(), this.memEntityFactory);
+							synchronized (this.serverCopyLock) {
+								subsetRepository = repository.subset(deselected, repository.getMaxOrder(), this.memEntityFactory);
+							}
 							this.transactionStrategy.end();
-
-
-							// send subset repository
-							// with size:
-							ByteArrayOutputStream byteOutputStream = new ByteArrayOutputStream();
-							ObjectOutputStream temp_oos = new ObjectOutputStream(byteOutputStream);
-							// write object to temp_oos
-							temp_oos.writeObject(subsetRepository);
-							// get size of data
-							int size = byteOutputStream.size();
-							// send size
-							oos.writeObject(size);
-							// send data
-							byteOutputStream.writeTo(sChannel.socket().getOutputStream());
-							byteOutputStream.close();
-							// without size:
-							//oos.writeObject(subsetRepository);
-
-							break;
+						} catch (Exception e) {
+							this.transactionStrategy.rollback();
+							throw new EccoException("Error computing subset repository.", e);
 						}
-						case "PUSH": { // if push, receive data
-							// retrieve repository
-							Repository.Op subsetRepository = (Repository.Op) ois.readObject();
 
-							// copy it using this entity factory
-							Repository.Op copiedRepository = subsetRepository.copy(this.entityFactory);
-
-							// merge into this repository
-							this.transactionStrategy.begin();
+						// send only the associations the client does not have, the subset is a copy so that the transaction does not stay open while sending
+						int numAssociations = subsetRepository.getAssociations().size();
+						int numKnownAssociations = RepositoryDelta.removeKnownAssociations(subsetRepository, knownDigests);
+						LOGGER.debug("PULL: sending " + (numAssociations - numKnownAssociations) + " of " + numAssociations + " associations.");
+						WireProtocol.writeOk(out);
+						responded = true;
+						new RepositoryWriter(out, this.transferCompression, this.blobStore).writeRepository(subsetRepository);
+						break;
+					}
+					case WireProtocol.PUSH: { // if push, receive data
+						// send digests of the associations of this repository so that the client only sends the associations that are missing
+						Set<ByteBuffer> digests;
+						this.transactionStrategy.beginReadOnly();
+						try {
 							Repository.Op repository = this.repositoryDao.load();
-							repository.merge(copiedRepository);
-							this.repositoryDao.store(repository);
+							digests = RepositoryDelta.digests(repository.getAssociations());
 							this.transactionStrategy.end();
-							break;
+						} catch (Exception e) {
+							this.transactionStrategy.rollback();
+							throw new EccoException("Error computing digests of associations.", e);
 						}
+						WireProtocol.writeOk(out);
+						WireProtocol.writeDigests(out, digests);
+						out.flush();
+
+						// retrieve repository
+						Repository.Op subsetRepository = new RepositoryReader(in, this.memEntityFactory, this.blobStore).readRepository();
+						LOGGER.debug("PUSH: received " + subsetRepository.getAssociations().size() + " associations.");
+
+						// copy it using this entity factory
+						Repository.Op copiedRepository = subsetRepository.copy(this.entityFactory);
+
+						// merge into this repository (pushes are merged one after another by the writer)
+						writer.submit(() -> {
+							this.transactionStrategy.begin();
+							try {
+								Repository.Op repository = this.repositoryDao.load();
+								repository.merge(copiedRepository);
+								this.repositoryDao.store(repository);
+								this.transactionStrategy.end();
+							} catch (Exception e) {
+								this.transactionStrategy.rollback();
+								throw new EccoException("Error merging pushed repository.", e);
+							}
+						}).get();
+
+						// acknowledge the push with a second status (errors while receiving or merging are reported instead)
+						responded = true;
+						WireProtocol.writeOk(out);
+						out.flush();
+						break;
 					}
-				} catch (AsynchronousCloseException e) {
-					// server shut down
-					//e.printStackTrace();
-				} catch (SocketException | ClosedChannelException e) {
-					LOGGER.warn("Error receiving request.");
-					this.fireServerEvent("Error receiving request: " + e.getMessage());
-					e.printStackTrace();
-				} catch (Exception e) {
-					//throw new EccoException("Error receiving request.", e);
-					LOGGER.warn("Error receiving request.");
-					this.fireServerEvent("Error receiving request: " + e.getMessage());
-					e.printStackTrace();
+					default:
+						throw new EccoException("Unknown command '" + command + "'.");
+				}
+			} catch (EccoException | ExecutionException e) {
+				// report the error to the client if the response has not been started yet
+				if (!responded) {
+					Throwable cause = e instanceof ExecutionException && e.getCause() != null ? e.getCause() : e;
+					String message = cause.getMessage();
+					if (cause.getCause() != null)
+						message += " " + cause.getCause().getMessage();
+					WireProtocol.writeError(out, message);
+					out.flush();
 				}
+				throw e;
 			}
+		} catch (AsynchronousCloseException e) {
+			// request timed out
+			LOGGER.warn("Request timed out.");
+			this.fireServerEvent("Request timed out after " + this.serverRequestTimeout + " ms.");
+		} catch (SocketException | ClosedChannelException e) {
+			LOGGER.warn("Error receiving request.", e);
+			this.fireServerEvent("Error receiving request: " + e.getMessage());
 		} catch (Exception e) {
-			throw new EccoException("Error starting server.", e);
+			//throw new EccoException("Error receiving request.", e);
+			LOGGER.warn("Error receiving request.", e);
+			this.fireServerEvent("Error receiving request: " + e.getMessage());
 		} finally {
-			this.serverRunning = false;
-			this.serverLock.unlock();
+			if (timeout != null)
+				timeout.cancel(false);
 		}
-
-		LOGGER.debug("Server stopped.");
-		this.fireServerEvent("Server stopped.");
-		this.fireServerStoppedEvent();
 	}
 
+	/**
+	 * Stops the server. It does not accept new connections anymore, the requests in progress are still completed before {@link #startServer(int)} returns.
+	 */
 	public void stopServer() {
 //		if (this.serverLock.tryLock()) {
 //			this.serverLock.unlock();
@@ -1229,19 +1500,20 @@ public class EccoService implements ProgressInputStream.ProgressListener, Progre
 					if (sChannel.connect(new InetSocketAddress(pair[0], Integer.valueOf(pair[1])))) {
 						ProgressInputStream progressInputStream = new ProgressInputStream(sChannel.socket().getInputStream());
 
-						ObjectOutputStream oos = new ObjectOutputStream(sChannel.socket().getOutputStream());
-						ObjectInputStream ois = new ObjectInputStream(progressInputStream);
+						DataOutputStream out = new DataOutputStream(new BufferedOutputStream(sChannel.socket().getOutputStream()));
+						DataInputStream in = new DataInputStream(new BufferedInputStream(progressInputStream));
 
-						oos.writeObject("FETCH");
+						WireProtocol.writeRequest(out, WireProtocol.FETCH);
+						out.flush();
 
-
-						int size = (Integer) ois.readObject();
-						progressInputStream.setMaxBytes(size);
+						WireProtocol.readStatus(in);
+						// the size of the data is not known in advance as it is streamed
+						progressInputStream.setMaxBytes(-1);
 						progressInputStream.resetProgress();
 						progressInputStream.addListener(this);
 
 						// retrieve features
-						Collection<Feature> features = (Collection<Feature>) ois.readObject();
+						Collection<Feature> features = new RepositoryReader(in, this.memEntityFactory).readFeatures();
 
 						progressInputStream.removeListener(this);
 
@@ -1303,20 +1575,22 @@ public class EccoService implements ProgressInputStream.ProgressListener, Progre
 			if (sChannel.connect(new InetSocketAddress(hostname, port))) {
 				ProgressInputStream progressInputStream = new ProgressInputStream(sChannel.socket().getInputStream());
 
-				ObjectOutputStream oos = new ObjectOutputStream(sChannel.socket().getOutputStream());
-				ObjectInputStream ois = new ObjectInputStream(progressInputStream);
-
-				oos.writeObject("PULL");
-				oos.writeObject(deselectedFeatureVersionsString);
+				DataOutputStream out = new DataOutputStream(new BufferedOutputStream(sChannel.socket().getOutputStream()));
+				DataInputStream in = new DataInputStream(new BufferedInputStream(progressInputStream));
 
+				WireProtocol.writeRequest(out, WireProtocol.PULL);
+				WireProtocol.writeString(out, deselectedFeatureVersionsString);
+				WireProtocol.writeDigests(out, Collections.emptySet()); // there is no repository yet
+				out.flush();
 
-				int size = (Integer) ois.readObject();
-				progressInputStream.setMaxBytes(size);
+				WireProtocol.readStatus(in);
+				// the size of the data is not known in advance as it is streamed
+				progressInputStream.setMaxBytes(-1);
 				progressInputStream.resetProgress();
 				progressInputStream.addListener(this);
 
 				// retrieve remote repository
-				Repository.Op subsetRepository = (Repository.Op) ois.readObject();
+				Repository.Op subsetRepository = new RepositoryReader(in, this.memEntityFactory, this.blobStore).readRepository();
 
 				progressInputStream.removeListener(this);
 
@@ -1386,6 +1660,9 @@ public class EccoService implements ProgressInputStream.ProgressListener, Progre
 			Repository.Op originRepository = originService.repositoryDao.load();
 			subsetOriginRepository = originRepository.subset(originService.parseFeatureVersionsString(deselectedFeatureVersionsString), originRepository.getMaxOrder(), this.entityFactory);
 
+			// copy the contents of the artifacts of the subset
+			this.blobStore.copyFrom(originService.blobStore, subsetOriginRepository.getAssociations());
+
 			originService.transactionStrategy.end();
 		} catch (Exception e) {
 			originService.transactionStrategy.rollback();
@@ -1442,20 +1719,23 @@ public class EccoService implements ProgressInputStream.ProgressListener, Progre
 					if (sChannel.connect(new InetSocketAddress(pair[0], Integer.valueOf(pair[1])))) {
 						ProgressInputStream progressInputStream = new ProgressInputStream(sChannel.socket().getInputStream());
 
-						ObjectOutputStream oos = new ObjectOutputStream(sChannel.socket().getOutputStream());
-						ObjectInputStream ois = new ObjectInputStream(progressInputStream);
+						DataOutputStream out = new DataOutputStream(new BufferedOutputStream(sChannel.socket().getOutputStream()));
+						DataInputStream in = new DataInputStream(new BufferedInputStream(progressInputStream));
 
-						oos.writeObject("PULL");
-						oos.writeObject(deselectedFeatureVersionsString);
+						WireProtocol.writeRequest(out, WireProtocol.PULL);
+						WireProtocol.writeString(out, deselectedFeatureVersionsString);
+						// send digests of the associations of this repository so that the remote only sends the associations that are missing
+						WireProtocol.writeDigests(out, RepositoryDelta.digests(this.repositoryDao.load().getAssociations()));
+						out.flush();
 
-
-						int size = (Integer) ois.readObject();
-						progressInputStream.setMaxBytes(size);
+						WireProtocol.readStatus(in);
+						// the size of the data is not known in advance as it is streamed
+						progressInputStream.setMaxBytes(-1);
 						progressInputStream.resetProgress();
 						progressInputStream.addListener(this);
 
 						// retrieve remote repository
-						Repository.Op subsetRepository = (Repository.Op) ois.readObject();
+						Repository.Op subsetRepository = new RepositoryReader(in, this.memEntityFactory, this.blobStore).readRepository();
 
 						progressInputStream.removeListener(this);
 
@@ -1514,7 +1794,7 @@ public class EccoService implements ProgressInputStream.ProgressListener, Progre
 
 
 	public synchronized void push(String remoteName) {
-		this.push("", remoteName);
+		this.push(remoteName, "");
 	}
 
 	/**
@@ -1536,35 +1816,37 @@ public class EccoService implements ProgressInputStream.ProgressListener, Progre
 					sChannel.configureBlocking(true);
 					String[] pair = remote.getAddress().split(":");
 					if (sChannel.connect(new InetSocketAddress(pair[0], Integer.valueOf(pair[1])))) {
-						ObjectOutputStream oos = new ObjectOutputStream(sChannel.socket().getOutputStream());
-						ObjectInputStream ois = new ObjectInputStream(sChannel.socket().getInputStream());
+						ProgressOutputStream progressOutputStream = new ProgressOutputStream(sChannel.socket().getOutputStream());
 
-						oos.writeObject("PUSH");
+						DataOutputStream out = new DataOutputStream(new BufferedOutputStream(progressOutputStream));
+						DataInputStream in = new DataInputStream(new BufferedInputStream(sChannel.socket().getInputStream()));
 
-						// compute subset repository using mem entity factory
+						WireProtocol.writeRequest(out, WireProtocol.PUSH);
+						out.flush();
+
+						// retrieve digests of the associations the remote already has
+						WireProtocol.readStatus(in);
+						Set<ByteBuffer> knownDigests = WireProtocol.readDigests(in);
+
+						// compute subset repository using mem entity factory and remove the associations the remote already has
 						this.transactionStrategy.begin();
 						Repository.Op repository = this.repositoryDao.load();
 						Repository.Op subsetRepository = repository.subset(this.parseFeatureVersionsString(deselectedFeatureVersionsString), repository.getMaxOrder(), this.memEntityFactory);
 						this.transactionStrategy.end();
+						int numAssociations = subsetRepository.getAssociations().size();
+						int numKnownAssociations = RepositoryDelta.removeKnownAssociations(subsetRepository, knownDigests);
+						LOGGER.debug("PUSH: sending " + (numAssociations - numKnownAssociations) + " of " + numAssociations + " associations.");
 
 
-						// send subset repository
-						// without size:
-						//oos.writeObject(subsetRepository);
-						// with size:
-						ByteArrayOutputStream byteOutputStream = new ByteArrayOutputStream();
-						ObjectOutputStream temp_oos = new ObjectOutputStream(byteOutputStream);
-						temp_oos.writeObject(subsetRepository);
-						// get size of data
-						int size = byteOutputStream.size();
-						byteOutputStream.close();
-						// send data
-						ProgressOutputStream pos = new ProgressOutputStream(sChannel.socket().getOutputStream());
-						pos.setMaxBytes(size);
-						pos.resetProgress();
-						pos.addListener(this);
-						byteOutputStream.writeTo(pos);
-						pos.removeListener(this);
+						// send subset repository (the size of the data is not known in advance as it is streamed)
+						progressOutputStream.setMaxBytes(-1);
+						progressOutputStream.resetProgress();
+						progressOutputStream.addListener(this);
+						new RepositoryWriter(out, this.transferCompression, this.blobStore).writeRepository(subsetRepository);
+						progressOutputStream.removeListener(this);
+
+						// wait until the server has merged the pushed repository
+						WireProtocol.readStatus(in);
 
 					} else {
 						throw new EccoException("Error connecting to remote: " + pair[0] + ":" + pair[1]);
@@ -1699,13 +1981,41 @@ public class EccoService implements ProgressInputStream.ProgressListener, Progre
 		try {
 			this.transactionStrategy.begin();
 
-			Set<Node.Op> nodes = readFiles();
 			Repository.Op repository = this.repositoryDao.load();
-			Commit commit = repository.extract(configuration, nodes);
+			Set<Node.Op> nodes;
+			Properties hashes = null;
+			int previousReadThreads = DispatchReader.setReadThreads(this.commitThreads);
+			try {
+				if (this.incrementalCommit && Files.exists(this.baseDir.resolve(HASHES_FILE_NAME))) {
+					// unmodified files are taken from the composition of the committed configuration if it still contains them as they were checked out or committed. without a hashes file there are no unmodified files, so nothing is composed.
+					hashes = new Properties();
+					nodes = this.reader.read(this.baseDir, new Path[]{Paths.get("")}, (Node.Op) repository.compose(configuration).getNode(), hashes);
+				} else {
+					nodes = readFiles();
+				}
+			} finally {
+				DispatchReader.setReadThreads(previousReadThreads);
+			}
+			Commit commit;
+			int previousCommitThreads = RepositoryOperator.setCommitThreads(this.commitThreads);
+			try {
+				commit = repository.extract(configuration, nodes);
+			} finally {
+				RepositoryOperator.setCommitThreads(previousCommitThreads);
+			}
 			this.repositoryDao.store(repository);
 
 			this.transactionStrategy.end();
 
+			// the hashes are only updated in base directories that were checked out, i.e. that already contain a hashes file. the commit succeeded even if they cannot be updated, the next commit then reads more files again.
+			if (hashes != null) {
+				try {
+					this.reader.writeHashes(this.baseDir, hashes);
+				} catch (EccoException e) {
+					LOGGER.warn("Could not update hashes file after commit.", e);
+				}
+			}
+
 			return commit;
 		} catch (Exception e) {
 			this.transactionStrategy.rollback();
@@ -1714,10 +2024,101 @@ public class EccoService implements ProgressInputStream.ProgressListener, Progre
 		}
 	}
 
+	/**
+	 * Commits several variants at once. The variants are read in parallel (using the number of commit threads, see {@link #setCommitThreads(int)}) and then committed one after another in the iteration order of the given map within a single transaction, loading and storing the repository only once.
+	 * The result is the same as committing every variant separately in that order.
+	 * The configuration strings are parsed right before the respective variant is committed, because parsing adds new features and versions to the repository.
+	 *
+	 * @param variants The base directories of the variants mapped to the configuration strings of the configurations they implement.
+	 * @return The resulting commit objects in the order of the variants.
+	 */
+	public synchronized List<Commit> commitVariants(Map<Path, String> variants) {
+		this.checkInitialized();
+
+		checkNotNull(variants);
+
+		// the variants are read before the transaction begins, so that reading them does not block other transactions
+		List<Set<Node.Op>> variantNodes;
+		try {
+			variantNodes = this.readFiles(new ArrayList<>(variants.keySet()));
+		} catch (Exception e) {
+			throw new EccoException("Error during commit.", e);
+		}
+
+		try {
+			this.transactionStrategy.begin();
+
+			Repository.Op repository = this.repositoryDao.load();
+			List<Commit> commits = new ArrayList<>();
+			int previousCommitThreads = RepositoryOperator.setCommitThreads(this.commitThreads);
+			try {
+				Iterator<Set<Node.Op>> nodesIterator = variantNodes.iterator();
+				for (String configurationString : variants.values())
+					commits.add(repository.extract(this.parseConfigurationString(configurationString), nodesIterator.next()));
+			} finally {
+				RepositoryOperator.setCommitThreads(previousCommitThreads);
+			}
+			this.repositoryDao.store(repository);
+
+			this.transactionStrategy.end();
+
+			return commits;
+		} catch (Exception e) {
+			this.transactionStrategy.rollback();
+
+			throw new EccoException("Error during commit.", e);
+		}
+	}
+
+	/**
+	 * Commits several variants at once using the configuration string given in file {@link #CONFIG_FILE_NAME} of every base directory. See {@link #commitVariants(Map)}.
+	 *
+	 * @param baseDirs The base directories of the variants.
+	 * @return The resulting commit objects in the order of the variants.
+	 */
+	public synchronized List<Commit> commitVariants(List<Path> baseDirs) {
+		checkNotNull(baseDirs);
+
+		Map<Path, String> variants = new LinkedHashMap<>();
+		for (Path baseDir : baseDirs) {
+			Path configFile = baseDir.resolve(CONFIG_FILE_NAME);
+			try {
+				String configurationString = "";
+				if (Files.exists(configFile))
+					configurationString = new String(Files.readAllBytes(configFile)).trim();
+				variants.put(baseDir, configurationString);
+			} catch (IOException e) {
+				throw new EccoException("Error during commit: '.config' file of " + baseDir + " existed but could not be read.", e);
+			}
+		}
+		return this.commitVariants(variants);
+	}
+
 	public synchronized Set<Node.Op> readFiles(){
 		return  reader.read(this.baseDir, new Path[]{Paths.get("")});
 	}
 
+	/**
+	 * Reads the files of the given base directories in parallel, using the number of commit threads.
+	 *
+	 * @param baseDirs The base directories.
+	 * @return The nodes of every base directory in the order of the base directories.
+	 */
+	private List<Set<Node.Op>> readFiles(List<Path> baseDirs) throws InterruptedException, ExecutionException {
+		ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(this.commitThreads, baseDirs.size())));
+		try {
+			List<Future<Set<Node.Op>>> futures = new ArrayList<>();
+			for (Path baseDir : baseDirs)
+				futures.add(executor.submit(() -> this.reader.read(baseDir, new Path[]{Paths.get("")})));
+			List<Set<Node.Op>> variantNodes = new ArrayList<>();
+			for (Future<Set<Node.Op>> future : futures)
+				variantNodes.add(future.get());
+			return variantNodes;
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
 
 	// CHECKOUT ////////////////////////////////////////////////////////////////////////////////////////////////////////
 
@@ -1726,12 +2127,14 @@ public class EccoService implements ProgressInputStream.ProgressListener, Progre
 	 *
 	 * @param configurationString The configuration string representing the configuration that shall be checked out.
 	 */
-	public synchronized Checkout checkout(String configurationString) {
+	public Checkout checkout(String configurationString) {
 		return this.checkout(this.parseConfigurationString(configurationString));
 	}
 
 	/**
 	 * Checks out the implementation of the given configuration into the base directory.
+	 * The repository is only read in a read-only transaction, i.e. the checkout only waits for operations that change the repository and does not block other reads of it (e.g. fetches and pulls served by the server).
+	 * The transaction stays open until the checkout has been written into the base directory, because the composition is lazy and reads the associations while it is written.
 	 *
 	 * @param configuration The configuration to be checked out.
 	 */
@@ -1741,42 +2144,47 @@ public class EccoService implements ProgressInputStream.ProgressListener, Progre
 		checkNotNull(configuration);
 
 
-		Repository.Op repository = this.repositoryDao.load();
-		Checkout checkout = repository.compose(configuration);
-
+		Checkout checkout;
+		try {
+			this.repositoryDao.init();
+			this.transactionStrategy.beginReadOnly();
+			Repository.Op repository = this.repositoryDao.load();
+			DefaultOrderSelector.Policy previousOrderSelectionPolicy = RepositoryOperator.setOrderSelectionPolicy(this.orderSelectionPolicy);
+			try {
+				checkout = repository.compose(configuration);
+			} finally {
+				RepositoryOperator.setOrderSelectionPolicy(previousOrderSelectionPolicy);
+			}
 
-		for (Association selectedAssociation : checkout.getSelectedAssociations()) {
-			this.fireAssociationSelectedEvent(selectedAssociation);
-		}
+			for (Association selectedAssociation : checkout.getSelectedAssociations()) {
+				this.fireAssociationSelectedEvent(selectedAssociation);
+			}
 
-		// write artifacts to files
-		Set<Node> nodes = new HashSet<>(checkout.getNode().getChildren());
-		this.writer.write(this.baseDir, nodes);
+			// write artifacts to files
+			Set<Node> nodes = new HashSet<>(checkout.getNode().getChildren());
+			this.writer.write(this.baseDir, nodes);
 
-		// write config file into base directory
-		Path configFile = this.baseDir.resolve(CONFIG_FILE_NAME);
-		if (Files.exists(configFile)) {
-			throw new EccoException("Configuration file already exists in base directory.");
-		} else {
+			// write config file into base directory
+			Path configFile = this.baseDir.resolve(CONFIG_FILE_NAME);
 			try {
-				Files.write(configFile, configuration.toString().getBytes(), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+				Files.write(configFile, configuration.toString().getBytes(), StandardOpenOption.CREATE_NEW);
+			} catch (FileAlreadyExistsException e) {
+				throw new EccoException("Configuration file already exists in base directory.", e);
 			} catch (IOException e) {
 				throw new EccoException("Could not create configuration file.", e);
 			}
 			this.fireWriteEvent(configFile, this.writer);
-		}
 
-		// write warnings file into base directory
-		Path warningsFile = this.baseDir.resolve(WARNINGS_FILE_NAME);
-		if (Files.exists(warningsFile)) {
-			throw new EccoException("Warnings file already exists in base directory.");
-		} else {
+			// write warnings file into base directory
+			Path warningsFile = this.baseDir.resolve(WARNINGS_FILE_NAME);
 			try {
 				StringBuilder sb = new StringBuilder();
 
 				for (at.jku.isse.ecco.module.Module m : checkout.getMissing()) {
 					sb.append("MISSING: " + m + System.lineSeparator());
 				}
+				if (checkout.getMissingCount() > checkout.getMissing().size())
+					sb.append("MISSING: " + (checkout.getMissingCount() - checkout.getMissing().size()) + " more modules" + System.lineSeparator());
 				for (at.jku.isse.ecco.module.Module m : checkout.getSurplus()) {
 					sb.append("SURPLUS: " + m + System.lineSeparator());
 				}
@@ -1795,11 +2203,18 @@ public class EccoService implements ProgressInputStream.ProgressListener, Progre
 					sb.append("UNRESOLVED: " + association + System.lineSeparator());
 				}
 
-				Files.write(warningsFile, sb.toString().getBytes(), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+				Files.write(warningsFile, sb.toString().getBytes(), StandardOpenOption.CREATE_NEW);
+			} catch (FileAlreadyExistsException e) {
+				throw new EccoException("Warnings file already exists in base directory.", e);
 			} catch (IOException e) {
 				throw new EccoException("Could not create warnings file.", e);
 			}
 			this.fireWriteEvent(warningsFile, this.writer);
+
+			this.transactionStrategy.end();
+		} catch (Exception e) {
+			this.transactionStrategy.rollback();
+			throw new EccoException("Error during checkout.", e);
 		}
 
 		return checkout;
@@ -77,20 +77,22 @@ public class ProgressOutputStream extends FilterOutputStream {
 
 	@Override
 	public void write(byte[] b) throws IOException {
-		this.bytesWritten += b.length;
-		super.write(b);
+		this.write(b, 0, b.length);
 	}
 
 	@Override
 	public void write(byte[] b, int off, int len) throws IOException {
+		// write the bytes at once instead of one by one via write(int) as FilterOutputStream does
+		this.out.write(b, off, len);
 		this.bytesWritten += len;
-		super.write(b, off, len);
+		this.fireProgressEvent();
 	}
 
 	@Override
 	public void write(int b) throws IOException {
+		this.out.write(b);
 		this.bytesWritten++;
-		super.write(b);
+		this.fireProgressEvent();
 	}
 
 }
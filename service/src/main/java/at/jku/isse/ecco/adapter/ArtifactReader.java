@@ -2,6 +2,8 @@ package at.jku.isse.ecco.adapter;
 
 import at.jku.isse.ecco.listener.ReadListener;
 
+import java.nio.file.attribute.BasicFileAttributes;
+
 /**
  * An ArtifactReader is responsible for transforming a particular type of artifact into an Ecco tree.
  *
@@ -16,10 +18,42 @@ public interface ArtifactReader<I, O> {
 
 	public boolean canRead(I input);
 
+	/**
+	 * Like {@link #canRead(Object)}, but with the attributes of the input already read by the caller, so that they need not be read again.
+	 *
+	 * @param input      The input.
+	 * @param attributes The attributes of the input.
+	 * @return True if the reader can read the input.
+	 */
+	public default boolean canRead(I input, BasicFileAttributes attributes) {
+		return this.canRead(input);
+	}
+
+	/**
+	 * Returns the extensions (in lower case and without dot) of the files this reader reads. The reader is then expected to be able to read every regular file with one of these extensions.
+	 * The dispatch reader looks up the readers of a file by its extension and only asks them whether they can read it (see {@link #canRead(Object, BasicFileAttributes)}) if several equally specific readers registered the extension.
+	 * Readers that do not register extensions are asked for every file.
+	 *
+	 * @return The extensions, or null if the reader does not register extensions.
+	 */
+	public default String[] getFileExtensions() {
+		return null;
+	}
+
 	public O read(I base, I[] input);
 
 	public O read(I[] input);
 
+	/**
+	 * Returns whether the files of an input can be read independently of each other, i.e. whether reading every file on its own (e.g. in parallel) yields the same result as reading them together.
+	 * Readers that relate the files of an input (e.g. by references between their artifacts) must read them together.
+	 *
+	 * @return True if the files can be read independently.
+	 */
+	public default boolean canReadIndependently() {
+		return false;
+	}
+
 	public void addListener(ReadListener listener);
 
 	public void removeListener(ReadListener listener);
@@ -1,25 +1,51 @@
 package at.jku.isse.ecco.adapter.dispatch;
 
 import at.jku.isse.ecco.EccoException;
-import at.jku.isse.ecco.EccoService;
 import at.jku.isse.ecco.adapter.ArtifactPlugin;
 import at.jku.isse.ecco.adapter.ArtifactReader;
 import at.jku.isse.ecco.artifact.Artifact;
+import at.jku.isse.ecco.artifact.ArtifactReference;
 import at.jku.isse.ecco.dao.EntityFactory;
 import at.jku.isse.ecco.listener.ReadListener;
 import at.jku.isse.ecco.tree.Node;
 import com.google.inject.Inject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
-import java.io.Reader;
 import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
 public class DispatchReader implements ArtifactReader<Path, Set<Node.Op>> {
 
+	protected static final Logger LOGGER = LoggerFactory.getLogger(DispatchReader.class);
+
+	private static final ThreadLocal<Integer> READ_THREADS = ThreadLocal.withInitial(() -> 1);
+
+	/**
+	 * Sets the number of threads used by reads in the current thread to walk the directories and to read the files in parallel.
+	 * The files of readers that can read them independently (see {@link ArtifactReader#canReadIndependently()}) are read by a task per file, the files of other readers by a task per reader.
+	 * A value of 1 or less reads sequentially. The resulting nodes are identical either way.
+	 *
+	 * @param threads The number of threads.
+	 * @return The previous number of threads.
+	 */
+	public static int setReadThreads(int threads) {
+		int previous = READ_THREADS.get();
+		READ_THREADS.set(threads);
+		return previous;
+	}
+
+	public static int getReadThreads() {
+		return READ_THREADS.get();
+	}
+
 	private final EntityFactory entityFactory;
 
 	@Override
@@ -39,6 +65,13 @@ public class DispatchReader implements ArtifactReader<Path, Set<Node.Op>> {
 	 */
 	private Collection<ArtifactReader<Path, Set<Node.Op>>> readers;
 
+	private final ReaderDispatchTable readerDispatchTable;
+
+	/**
+	 * The pool used by reads to walk the directories and read the files in parallel. It is reused across reads and only created again when the number of read threads changes.
+	 */
+	private ForkJoinPool pool = null;
+
 	/**
 	 * @param readers The collection of readers to which should be dispatched.
 	 */
@@ -48,6 +81,7 @@ public class DispatchReader implements ArtifactReader<Path, Set<Node.Op>> {
 
 		this.entityFactory = entityFactory;
 		this.readers = readers;
+		this.readerDispatchTable = new ReaderDispatchTable(readers);
 	}
 
 	private Collection<ReadListener> listeners = new ArrayList<ReadListener>();
@@ -77,19 +111,6 @@ public class DispatchReader implements ArtifactReader<Path, Set<Node.Op>> {
 		return false;
 	}
 
-	/**
-	 * @param file The file to be read.
-	 * @return The reader best suited for reading the file.
-	 */
-	private ArtifactReader<Path, Set<Node.Op>> getReaderForFile(Path base, Path file) {
-		ArtifactReader<Path, Set<Node.Op>> currentReader = null;
-		for (ArtifactReader<Path, Set<Node.Op>> reader : this.readers) {
-			if (reader.canRead(base.resolve(file)) && (currentReader == null || currentReader.getTypeHierarchy().length < reader.getTypeHierarchy().length))
-				currentReader = reader;
-		}
-		return currentReader;
-	}
-
 	@Override
 	public Set<Node.Op> read(Path[] input) {
 		return this.read(Paths.get("."), input);
@@ -97,6 +118,21 @@ public class DispatchReader implements ArtifactReader<Path, Set<Node.Op>> {
 
 	@Override
 	public Set<Node.Op> read(Path base, Path[] input) {
+		return this.read(base, input, null, null);
+	}
+
+	/**
+	 * Reads the given input like {@link #read(Path, Path[])}, but takes the files that were not modified since they were last checked out or committed (according to the hashes file in the base directory) from the given previous tree instead of reading them again.
+	 * An unmodified file is only taken from the previous tree if its artifact tree there is still the one the file was written from or read into, otherwise it is read as well.
+	 * Only the files of readers that read files independently (see {@link ArtifactReader#canReadIndependently()}) are taken. The files of other readers may reference each other and are always read, so that the references between them are resolved by their reader.
+	 *
+	 * @param base     The base directory.
+	 * @param input    The files and directories to be read.
+	 * @param previous The tree the unmodified files are taken from (e.g. the composition of the committed configuration), or null if all files are read.
+	 * @param hashes   Receives the states of the read and taken files for the hashes file (see {@link #writeHashes(Path, Properties)}), or null.
+	 * @return The read nodes.
+	 */
+	public Set<Node.Op> read(Path base, Path[] input, Node.Op previous, Properties hashes) {
 		if (!Files.exists(base)) {
 			throw new EccoException("Base directory does not exist.");
 		} else if (!Files.isDirectory(base)) {
@@ -108,79 +144,217 @@ public class DispatchReader implements ArtifactReader<Path, Set<Node.Op>> {
 
 		base = base.normalize();
 
+		Map<Path, Node.Op> previousPluginNodes = null;
+		Map<Artifact<?>, Artifact.Op<?>> copiedArtifacts = new IdentityHashMap<>();
+
+		IgnorePatterns ignorePatterns = this.getCompiledIgnorePatterns();
+
+		ForkJoinPool pool = this.getPool();
 		for (Path path : input) {
 
 			// read file hashes if they exist
-			Properties hashes = new Properties();
-			Path hashesFile = base.resolve(EccoService.HASHES_FILE_NAME);
-			if (Files.exists(hashesFile)) {
-				try (Reader reader = Files.newBufferedReader(hashesFile)) {
-					hashes.load(reader);
-				} catch (IOException e) {
-					throw new EccoException("Error reading hashes file.", e);
-				}
-			}
+			Properties previousHashes = FileState.load(base);
 
 			Map<ArtifactReader<Path, Set<Node.Op>>, ArrayList<Path>> readerToFilesMap = new HashMap<>();
 			Map<ArtifactReader<Path, Set<Node.Op>>, ArrayList<Path>> readerToUnmodifiedFilesMap = new HashMap<>();
 
 			// this reader itself is responsible for the directory tree structure (unless there is an adapter that deals with a directory)
 			Map<Path, Node.Op> directoryNodes = new HashMap<>();
-			Node.Op baseDirectoryNode = this.readDirectories(base, base.resolve(path), hashes, readerToFilesMap, readerToUnmodifiedFilesMap, directoryNodes);
+			Node.Op baseDirectoryNode = this.readDirectories(base, base.resolve(path), ignorePatterns, previous != null ? previousHashes : null, readerToFilesMap, readerToUnmodifiedFilesMap, directoryNodes, pool);
 			nodes.add(baseDirectoryNode);
 
+			// take unmodified files from the previous tree if their artifact trees did not change since, and read them otherwise
+			List<Node.Op> pluginNodes = new ArrayList<>();
+			for (Map.Entry<ArtifactReader<Path, Set<Node.Op>>, ArrayList<Path>> entry : readerToUnmodifiedFilesMap.entrySet()) {
+				if (!entry.getKey().canReadIndependently()) {
+					readerToFilesMap.computeIfAbsent(entry.getKey(), reader -> new ArrayList<>()).addAll(entry.getValue());
+					continue;
+				}
+				if (previousPluginNodes == null)
+					previousPluginNodes = this.collectPluginNodes(previous);
+
+				for (Path unmodifiedFilePath : entry.getValue()) {
+					Node.Op previousNode = previousPluginNodes.get(unmodifiedFilePath);
+					FileState fileState = FileState.parse(previousHashes.getProperty(unmodifiedFilePath.toString()));
+					if (previousNode != null && entry.getKey().getPluginId().equals(((PluginArtifactData) previousNode.getArtifact().getData()).getPluginId()) && FileState.digest(previousNode).equals(fileState.getTreeDigest())) {
+						pluginNodes.add(this.copyTree(previousNode, copiedArtifacts));
+						if (hashes != null)
+							hashes.put(unmodifiedFilePath.toString(), fileState.withAttributesOf(base.resolve(unmodifiedFilePath)).toString());
+					} else {
+						readerToFilesMap.computeIfAbsent(entry.getKey(), reader -> new ArrayList<>()).add(unmodifiedFilePath);
+					}
+				}
+			}
+			this.copyReferences(copiedArtifacts);
+			if (previous != null)
+				LOGGER.debug("READ: taking " + pluginNodes.size() + " unmodified files from the repository.");
+
 			// let readers read the assigned, modified files
+			List<Callable<Set<Node.Op>>> tasks = new ArrayList<>();
 			for (ArtifactReader<Path, Set<Node.Op>> reader : this.readers) {
 				ArrayList<Path> filesList = readerToFilesMap.get(reader);
 
 				if (filesList != null) {
-					Path[] pluginInput = filesList.toArray(new Path[filesList.size()]);
-
-					Set<Node.Op> pluginNodes = reader.read(base, pluginInput);
-					for (Node.Op pluginNode : pluginNodes) {
-						if (!(pluginNode.getArtifact().getData() instanceof PluginArtifactData))
-							throw new EccoException("Plugin must return valid plugin nodes as root nodes in order for it to be compatible with dispatchers.");
-
-						PluginArtifactData pluginArtifactData = (PluginArtifactData) pluginNode.getArtifact().getData();
-						Path parent = pluginArtifactData.getPath().getParent();
-						if (parent == null)
-							parent = Paths.get(".").normalize();
-						Node.Op parentNode = directoryNodes.get(parent);
-						if (parentNode != null)
-							parentNode.addChild(pluginNode);
-						else
-							throw new EccoException("Plugin '" + pluginArtifactData.getPluginId() + "' returned an invalid plugin node: " + pluginNode);
+					Path readerBase = base;
+					if (pool != null && reader.canReadIndependently()) {
+						for (Path file : filesList)
+							tasks.add(() -> this.readFiles(reader, readerBase, new Path[]{file}, hashes));
+					} else {
+						Path[] pluginInput = filesList.toArray(new Path[filesList.size()]);
+						tasks.add(() -> this.readFiles(reader, readerBase, pluginInput, hashes));
 					}
 				}
 			}
+			for (Set<Node.Op> readNodes : invokeAll(pool, tasks))
+				pluginNodes.addAll(readNodes);
+
+			// add the plugin nodes of read and unmodified files to their directories ordered by their paths, so that the result does not depend on the order in which the files were read
+			pluginNodes.sort(Comparator.comparing(pluginNode -> ((PluginArtifactData) pluginNode.getArtifact().getData()).getPath()));
+			for (Node.Op pluginNode : pluginNodes) {
+				PluginArtifactData pluginArtifactData = (PluginArtifactData) pluginNode.getArtifact().getData();
+				Path parent = pluginArtifactData.getPath().getParent();
+				if (parent == null)
+					parent = Paths.get(".").normalize();
+				Node.Op parentNode = directoryNodes.get(parent);
+				if (parentNode != null)
+					parentNode.addChild(pluginNode);
+				else
+					throw new EccoException("Plugin '" + pluginArtifactData.getPluginId() + "' returned an invalid plugin node: " + pluginNode);
+			}
 
-			// deal with unmodified files
-			for (ArtifactReader<Path, Set<Node.Op>> reader : this.readers) {
-				ArrayList<Path> unmodifiedFilesList = readerToUnmodifiedFilesMap.get(reader);
+		}
 
-				if (unmodifiedFilesList != null) {
-					for (Path unmodifiedFilePath : unmodifiedFilesList) {
-						Artifact.Op<PluginArtifactData> pluginArtifact = this.entityFactory.createArtifact(new PluginArtifactData(this.getPluginId(), unmodifiedFilePath));
-						Node.Op pluginNode = this.entityFactory.createNode(pluginArtifact);
-						pluginArtifact.putProperty(Artifact.PROPERTY_UNMODIFIED, true);
+		// return produced nodes
+		return nodes;
+	}
 
-						PluginArtifactData pluginArtifactData = (PluginArtifactData) pluginNode.getArtifact().getData();
-						Path parent = pluginArtifactData.getPath().getParent();
-						if (parent == null)
-							parent = Paths.get(".").normalize();
-						Node.Op parentNode = directoryNodes.get(parent);
-						if (parentNode != null)
-							parentNode.addChild(pluginNode);
-						else
-							throw new EccoException("Plugin '" + this.getPluginId() + "' returned an invalid plugin node: " + pluginNode);
-					}
-				}
+	/**
+	 * @return The pool with the number of read threads of the current thread, or null if reading is sequential.
+	 */
+	private synchronized ForkJoinPool getPool() {
+		int threads = getReadThreads();
+		if (threads <= 1)
+			return null;
+		if (this.pool == null || this.pool.getParallelism() != threads) {
+			if (this.pool != null)
+				this.pool.shutdown();
+			this.pool = new ForkJoinPool(threads);
+		}
+		return this.pool;
+	}
+
+	/**
+	 * Reads the given files with the given reader and checks the returned plugin nodes.
+	 *
+	 * @param hashes Receives the states of the read files, or null.
+	 * @return The plugin nodes of the files.
+	 */
+	private Set<Node.Op> readFiles(ArtifactReader<Path, Set<Node.Op>> reader, Path base, Path[] files, Properties hashes) {
+		Set<Node.Op> pluginNodes = reader.read(base, files);
+		for (Node.Op pluginNode : pluginNodes) {
+			if (!(pluginNode.getArtifact().getData() instanceof PluginArtifactData))
+				throw new EccoException("Plugin must return valid plugin nodes as root nodes in order for it to be compatible with dispatchers.");
+
+			if (hashes != null) {
+				Path path = ((PluginArtifactData) pluginNode.getArtifact().getData()).getPath();
+				hashes.put(path.toString(), FileState.of(base.resolve(path), pluginNode).toString());
+			}
+		}
+		return pluginNodes;
+	}
+
+	/**
+	 * Runs the given tasks in the given pool, or sequentially if the pool is null.
+	 *
+	 * @return The results of the tasks in the order of the tasks.
+	 */
+	private static <T> List<T> invokeAll(ForkJoinPool pool, List<Callable<T>> tasks) {
+		List<T> results = new ArrayList<>(tasks.size());
+		try {
+			if (pool == null) {
+				for (Callable<T> task : tasks)
+					results.add(task.call());
+			} else {
+				for (Future<T> future : pool.invokeAll(tasks))
+					results.add(future.get());
 			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new EccoException("Interrupted while reading.", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException)
+				throw (RuntimeException) e.getCause();
+			if (e.getCause() instanceof Error)
+				throw (Error) e.getCause();
+			throw new EccoException("Error while reading.", e);
+		} catch (RuntimeException e) {
+			throw e;
+		} catch (Exception e) {
+			throw new EccoException("Error while reading.", e);
+		}
+		return results;
+	}
+
+	/**
+	 * Stores the given states of files in the hashes file in the given base directory.
+	 *
+	 * @param base   The base directory.
+	 * @param hashes The states of the files as determined by {@link #read(Path, Path[], Node.Op, Properties)}.
+	 */
+	public void writeHashes(Path base, Properties hashes) {
+		FileState.store(base.normalize(), hashes);
+	}
 
+	/**
+	 * @param root The root of a tree as it is read by this reader.
+	 * @return The plugin nodes in the directories of the given tree by the paths of their files.
+	 */
+	private Map<Path, Node.Op> collectPluginNodes(Node.Op root) {
+		Map<Path, Node.Op> pluginNodes = new HashMap<>();
+		Deque<Node.Op> directoryNodes = new ArrayDeque<>();
+		directoryNodes.push(root);
+		while (!directoryNodes.isEmpty()) {
+			for (Node.Op node : directoryNodes.pop().getChildren()) {
+				if (node.getArtifact() == null)
+					continue;
+				if (node.getArtifact().getData() instanceof DirectoryArtifactData)
+					directoryNodes.push(node);
+				else if (node.getArtifact().getData() instanceof PluginArtifactData)
+					pluginNodes.put(((PluginArtifactData) node.getArtifact().getData()).getPath(), node);
+			}
 		}
+		return pluginNodes;
+	}
 
-		// return produced nodes
-		return nodes;
+	/**
+	 * Copies the given tree with new artifacts as if it was read. The references of the new artifacts are added by {@link #copyReferences(Map)} once all trees are copied.
+	 */
+	private Node.Op copyTree(Node.Op node, Map<Artifact<?>, Artifact.Op<?>> copiedArtifacts) {
+		Artifact.Op<?> artifact = node.getArtifact();
+		Artifact.Op<?> copiedArtifact = this.entityFactory.createArtifact(artifact.getData());
+		copiedArtifact.setAtomic(artifact.isAtomic());
+		copiedArtifact.setOrdered(artifact.isOrdered());
+		copiedArtifact.setUseReferencesInEquals(artifact.useReferencesInEquals());
+		copiedArtifacts.put(artifact, copiedArtifact);
+
+		Node.Op copiedNode = this.entityFactory.createNode(copiedArtifact);
+		for (Node.Op child : node.getChildren())
+			copiedNode.addChild(this.copyTree(child, copiedArtifacts));
+		return copiedNode;
+	}
+
+	/**
+	 * Adds the references between the given copied artifacts to the copies and clears the given map.
+	 */
+	private void copyReferences(Map<Artifact<?>, Artifact.Op<?>> copiedArtifacts) {
+		for (Map.Entry<Artifact<?>, Artifact.Op<?>> entry : copiedArtifacts.entrySet()) {
+			for (ArtifactReference reference : entry.getKey().getUses()) {
+				Artifact.Op<?> copiedTarget = copiedArtifacts.get(reference.getTarget());
+				if (copiedTarget != null)
+					entry.getValue().addUses(copiedTarget, reference.getType());
+			}
+		}
+		copiedArtifacts.clear();
 	}
 
 
@@ -196,80 +370,107 @@ public class DispatchReader implements ArtifactReader<Path, Set<Node.Op>> {
 
 	private Set<String> ignorePatterns = new HashSet<>();
 
+	private IgnorePatterns compiledIgnorePatterns = IgnorePatterns.compile(Collections.emptySet());
+
 	public Set<String> getIgnorePatterns() {
 		return this.ignorePatterns;
 	}
 
-	private boolean isIgnored(Path path) {
-//		return this.ignoredFiles.contains(path);
-		for (String ignorePattern : this.ignorePatterns) {
-			PathMatcher pm = FileSystems.getDefault().getPathMatcher(ignorePattern);
-			if (pm.matches(path))
-				return true;
-		}
-		return false;
+	/**
+	 * @return The ignore patterns compiled for matching, which are only compiled again if the ignore patterns changed since.
+	 */
+	private synchronized IgnorePatterns getCompiledIgnorePatterns() {
+		if (!this.compiledIgnorePatterns.getPatterns().equals(this.ignorePatterns))
+			this.compiledIgnorePatterns = IgnorePatterns.compile(this.ignorePatterns);
+		return this.compiledIgnorePatterns;
 	}
 
 
-	private Node.Op readDirectories(Path base, Path current, Properties hashes, Map<ArtifactReader<Path, Set<Node.Op>>, ArrayList<Path>> readerToFilesMap, Map<ArtifactReader<Path, Set<Node.Op>>, ArrayList<Path>> readerToUnmodifiedFilesMap, Map<Path, Node.Op> directoryNodes) {
-		Path relativeCurrent = base.relativize(current);
-
-		try {
-			if (Files.isDirectory(current) && this.getReaderForFile(base, relativeCurrent) == null) { // deal with directories that cannot be dispatched
-				if (!this.isIgnored(relativeCurrent)) { // if directory is not ignored add it to directories
-					Artifact.Op<?> directoryArtifact = entityFactory.createArtifact(new DirectoryArtifactData(relativeCurrent));
+	/**
+	 * Walks the directory tree starting at the given path level by level. The entries of all directories of a level are examined in parallel (if there is a pool), the nodes are created in the order of the entries.
+	 * Ignored directories are not descended into.
+	 *
+	 * @param hashes The states of the files when they were last checked out or committed, or null if all files are to be read.
+	 * @return The node of the given directory, or null if it is not a directory that is read by this reader.
+	 */
+	private Node.Op readDirectories(Path base, Path current, IgnorePatterns ignorePatterns, Properties hashes, Map<ArtifactReader<Path, Set<Node.Op>>, ArrayList<Path>> readerToFilesMap, Map<ArtifactReader<Path, Set<Node.Op>>, ArrayList<Path>> readerToUnmodifiedFilesMap, Map<Path, Node.Op> directoryNodes, ForkJoinPool pool) {
+		Node.Op currentNode = null;
+
+		List<Path> level = Collections.singletonList(current);
+		while (!level.isEmpty()) {
+			List<Callable<DirectoryEntry>> tasks = new ArrayList<>(level.size());
+			for (Path path : level)
+				tasks.add(() -> this.examine(base, path, ignorePatterns, hashes));
+
+			List<Path> nextLevel = new ArrayList<>();
+			for (DirectoryEntry entry : invokeAll(pool, tasks)) {
+				if (entry == null)
+					continue;
+
+				if (entry.entries != null) { // deal with directories that cannot be dispatched
+					Artifact.Op<?> directoryArtifact = entityFactory.createArtifact(new DirectoryArtifactData(entry.path));
 					Node.Op directoryNode = entityFactory.createNode(directoryArtifact);
-					directoryNodes.put(relativeCurrent, directoryNode);
+					directoryNodes.put(entry.path, directoryNode);
+
+					if (currentNode == null) {
+						currentNode = directoryNode;
+					} else {
+						Path parent = entry.path.getParent();
+						if (parent == null)
+							parent = Paths.get(".").normalize();
+						directoryNodes.get(parent).addChild(directoryNode);
+					}
 
-					this.fireReadEvent(base.relativize(current), this);
+					this.fireReadEvent(entry.path, this);
 
 					// go into sub directories
-					try (Stream<Path> filesStream = Files.list(current)) {
-						filesStream.forEach(d -> {
-							Node.Op child = this.readDirectories(base, d, hashes, readerToFilesMap, readerToUnmodifiedFilesMap, directoryNodes);
-							if (child != null)
-								directoryNode.addChild(child);
-						});
-					}
+					nextLevel.addAll(entry.entries);
+				} else { // deal with files and directories that can be dispatched
+					Map<ArtifactReader<Path, Set<Node.Op>>, ArrayList<Path>> filesMap = entry.unmodified ? readerToUnmodifiedFilesMap : readerToFilesMap;
 
-					return directoryNode;
+					// assign file to reader
+					filesMap.computeIfAbsent(entry.reader, reader -> new ArrayList<>()).add(entry.path);
+					this.fireReadEvent(entry.path, entry.reader);
 				}
-			} else { // deal with files and directories that can be dispatched
-				if (!this.isIgnored(relativeCurrent)) { // if file is not ignored add it to readerToFilesMap
-					Map<ArtifactReader<Path, Set<Node.Op>>, ArrayList<Path>> filesMap;
-
-					// get reader for file
-					ArtifactReader<Path, Set<Node.Op>> reader = this.getReaderForFile(base, relativeCurrent);
-
-//					// check if file was modified
-//					String hash = hashes.getProperty(relativeCurrent.toString());
-//					if (hash != null && hash.equals(EccoUtil.getSHA(base.resolve(relativeCurrent)))) { // hashes match
-//						filesMap = readerToUnmodifiedFilesMap;
-//					} else {
-//						filesMap = readerToFilesMap;
-//					}
-					// TODO: for now, always read all the files.
-					filesMap = readerToFilesMap;
+			}
+			level = nextLevel;
+		}
 
-					// assign file to reader
-					if (reader != null) {
-						ArrayList<Path> fileList = filesMap.get(reader);
-						if (fileList == null)
-							fileList = new ArrayList<>();
-						fileList.add(relativeCurrent);
-						filesMap.put(reader, fileList);
-						this.fireReadEvent(relativeCurrent, reader);
-
-//						// add artifact plugin node
-//						Artifact<PluginArtifactData> pluginArtifact = this.entityFactory.createArtifact(new PluginArtifactData(reader.getPluginId(), relativeCurrent));
-//						Node pluginNode = this.entityFactory.createOrderedNode(pluginArtifact);
-//						directoryNodes.put(relativeCurrent, pluginNode);
-//
-//						return pluginNode;
-					}
+		return currentNode;
+	}
 
-					return null;
+	/**
+	 * Examines the given path, which is either a directory read by this reader, a file (or directory) that is dispatched to a reader, or ignored.
+	 *
+	 * @return The entry of the path, or null if it is ignored or cannot be read.
+	 */
+	private DirectoryEntry examine(Path base, Path current, IgnorePatterns ignorePatterns, Properties hashes) {
+		Path relativeCurrent = base.relativize(current);
+
+		if (ignorePatterns.matches(relativeCurrent))
+			return null;
+
+		// read the attributes only once and share them with all readers
+		BasicFileAttributes attributes;
+		try {
+			attributes = Files.readAttributes(current, BasicFileAttributes.class);
+		} catch (IOException e) {
+			return null; // e.g. broken links
+		}
+
+		try {
+			// get reader for file
+			ArtifactReader<Path, Set<Node.Op>> reader = this.readerDispatchTable.getReader(current, attributes);
+
+			if (attributes.isDirectory() && reader == null) {
+				try (Stream<Path> filesStream = Files.list(current)) {
+					return new DirectoryEntry(relativeCurrent, filesStream.sorted().collect(Collectors.toList()), null, false);
 				}
+			} else if (reader != null) {
+				// check if file was modified (only if there is a previous tree to take unmodified files from)
+				FileState fileState = hashes == null ? null : FileState.parse(hashes.getProperty(relativeCurrent.toString()));
+				boolean unmodified = fileState != null && fileState.getTreeDigest() != null && attributes.isRegularFile() && fileState.isUnmodified(current, attributes);
+				return new DirectoryEntry(relativeCurrent, null, reader, unmodified);
 			}
 		} catch (IOException e) {
 			e.printStackTrace();
@@ -278,4 +479,24 @@ public class DispatchReader implements ArtifactReader<Path, Set<Node.Op>> {
 		return null;
 	}
 
+	private static class DirectoryEntry {
+		private final Path path;
+		private final List<Path> entries;
+		private final ArtifactReader<Path, Set<Node.Op>> reader;
+		private final boolean unmodified;
+
+		/**
+		 * @param path       The path relative to the base directory.
+		 * @param entries    The entries of the directory (in order), or null if the path is dispatched to a reader.
+		 * @param reader     The reader the path is dispatched to, or null if it is a directory.
+		 * @param unmodified Whether the file was not modified since it was last checked out or committed.
+		 */
+		private DirectoryEntry(Path path, List<Path> entries, ArtifactReader<Path, Set<Node.Op>> reader, boolean unmodified) {
+			this.path = path;
+			this.entries = entries;
+			this.reader = reader;
+			this.unmodified = unmodified;
+		}
+	}
+
 }
@@ -2,10 +2,10 @@ package at.jku.isse.ecco.adapter.dispatch;
 
 import at.jku.isse.ecco.EccoException;
 import at.jku.isse.ecco.EccoService;
-import at.jku.isse.ecco.EccoUtil;
 import at.jku.isse.ecco.adapter.ArtifactPlugin;
 import at.jku.isse.ecco.adapter.ArtifactWriter;
 import at.jku.isse.ecco.artifact.Artifact;
+import at.jku.isse.ecco.composition.CompositionIterator;
 import at.jku.isse.ecco.listener.WriteListener;
 import at.jku.isse.ecco.tree.Node;
 import com.google.inject.Inject;
@@ -128,8 +128,10 @@ public class DispatchWriter implements ArtifactWriter<Set<? extends Node>, Path>
 					Files.createDirectory(path);
 				output.add(path);
 				this.fireWriteEvent(path, this);
-				for (Node child : node.getChildren()) {
-					this.writeRec(base, child, output, hashes);
+				// release every written child so that the composition does not keep the whole variant in memory
+				Iterator<Node> it = new CompositionIterator(node);
+				while (it.hasNext()) {
+					this.writeRec(base, it.next(), output, hashes);
 				}
 			} catch (IOException e) {
 				e.printStackTrace();
@@ -143,8 +145,11 @@ public class DispatchWriter implements ArtifactWriter<Set<? extends Node>, Path>
 			pluginInput.add(node);
 
 			Path[] outputPaths = writer.write(base, pluginInput);
+			// the files are stored relative to the base directory as they are read. the file of the plugin node is stored with the digest of its artifact tree, so that it can be taken from the repository again when it is committed unmodified.
 			for (Path outputPath : outputPaths) {
-				hashes.put(outputPath.toString(), EccoUtil.getSHA(base.resolve(outputPath)));
+				Path file = base.resolve(outputPath).normalize();
+				Path relativeFile = base.normalize().relativize(file);
+				hashes.put(relativeFile.toString(), FileState.of(file, relativeFile.equals(pluginArtifactData.getPath()) ? node : null).toString());
 			}
 
 			output.addAll(Arrays.asList(outputPaths));
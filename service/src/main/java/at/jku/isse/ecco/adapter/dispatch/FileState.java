@@ -0,0 +1,223 @@
+package at.jku.isse.ecco.adapter.dispatch;
+
+import at.jku.isse.ecco.EccoException;
+import at.jku.isse.ecco.EccoService;
+import at.jku.isse.ecco.EccoUtil;
+import at.jku.isse.ecco.artifact.Artifact;
+import at.jku.isse.ecco.tree.Node;
+
+import javax.xml.bind.annotation.adapters.HexBinaryAdapter;
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * The state of a file when it was last checked out or committed, as it is stored in the hashes file ({@link EccoService#HASHES_FILE_NAME}) of a base directory.
+ * It consists of the hash of the content of the file, its size and modification time, and the digest of the artifact tree the file was written from or read into.
+ */
+final class FileState {
+
+	private static final String SEPARATOR = " ";
+	private static final long UNKNOWN = -1;
+	private static final String NO_TREE_DIGEST = "-";
+
+	/**
+	 * Modification times that are not older than this are not recorded, as the file could still be changed within the resolution of the file system clock without changing its modification time.
+	 */
+	private static final long MODIFICATION_TIME_RESOLUTION = 2000;
+
+
+	private final String hash;
+	private final long size;
+	private final long lastModified;
+	private final String treeDigest;
+
+	private FileState(String hash, long size, long lastModified, String treeDigest) {
+		this.hash = hash;
+		this.size = size;
+		this.lastModified = lastModified;
+		this.treeDigest = treeDigest;
+	}
+
+
+	/**
+	 * Computes the state of the given file.
+	 *
+	 * @param file The file.
+	 * @param node The plugin node the file was written from or read into, or null if the file has no artifact tree of its own.
+	 * @return The state of the file.
+	 */
+	static FileState of(Path file, Node node) {
+		return new FileState(EccoUtil.getSHA(file), UNKNOWN, UNKNOWN, node == null ? null : digest(node)).withAttributesOf(file);
+	}
+
+	/**
+	 * @param value The value stored in the hashes file, which is either a complete state or only the hash of the file.
+	 * @return The state, or null if the value is null.
+	 */
+	static FileState parse(String value) {
+		if (value == null)
+			return null;
+		String[] values = value.split(SEPARATOR);
+		try {
+			if (values.length == 4)
+				return new FileState(values[0], Long.parseLong(values[1]), Long.parseLong(values[2]), values[3].equals(NO_TREE_DIGEST) ? null : values[3]);
+		} catch (NumberFormatException e) {
+			throw new EccoException("Invalid entry in hashes file: " + value, e);
+		}
+		return new FileState(values[0], UNKNOWN, UNKNOWN, null);
+	}
+
+	@Override
+	public String toString() {
+		return this.hash + SEPARATOR + this.size + SEPARATOR + this.lastModified + SEPARATOR + (this.treeDigest == null ? NO_TREE_DIGEST : this.treeDigest);
+	}
+
+
+	String getTreeDigest() {
+		return this.treeDigest;
+	}
+
+	/**
+	 * Checks whether the content of the given file still corresponds to this state. The hash of the file is only computed if neither its size nor its modification time decide it.
+	 *
+	 * @param file       The file.
+	 * @param attributes The attributes of the file.
+	 * @return True if the file was not modified.
+	 */
+	boolean isUnmodified(Path file, BasicFileAttributes attributes) {
+		if (this.size != UNKNOWN && attributes.size() != this.size)
+			return false;
+		if (this.lastModified != UNKNOWN && attributes.lastModifiedTime().toMillis() == this.lastModified)
+			return true;
+		return this.hash.equals(EccoUtil.getSHA(file));
+	}
+
+	/**
+	 * @param file The unmodified file.
+	 * @return This state with the current size and modification time of the given file.
+	 */
+	FileState withAttributesOf(Path file) {
+		try {
+			BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+			long lastModified = attributes.lastModifiedTime().toMillis();
+			if (System.currentTimeMillis() - lastModified < MODIFICATION_TIME_RESOLUTION)
+				lastModified = UNKNOWN;
+			return new FileState(this.hash, attributes.size(), lastModified, this.treeDigest);
+		} catch (IOException e) {
+			throw new EccoException("Could not read attributes of " + file, e);
+		}
+	}
+
+
+	// # HASHES FILE ####################################################
+
+	static Properties load(Path base) {
+		Properties hashes = new Properties();
+		Path hashesFile = base.resolve(EccoService.HASHES_FILE_NAME);
+		if (Files.exists(hashesFile)) {
+			try (Reader reader = Files.newBufferedReader(hashesFile)) {
+				hashes.load(reader);
+			} catch (IOException e) {
+				throw new EccoException("Error reading hashes file.", e);
+			}
+		}
+		return hashes;
+	}
+
+	static void store(Path base, Properties hashes) {
+		try (Writer writer = Files.newBufferedWriter(base.resolve(EccoService.HASHES_FILE_NAME), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			hashes.store(writer, null);
+		} catch (IOException e) {
+			throw new EccoException("Could not write hashes file.", e);
+		}
+	}
+
+
+	// # TREE DIGEST ####################################################
+
+	/**
+	 * Computes the digest of the artifact tree of the given node from the artifact data and the children of its nodes.
+	 * The children of ordered artifacts are digested in their order, the children of unordered artifacts independent of their order.
+	 * Other properties of the tree (e.g. whether nodes are unique or the references of artifacts) are not part of the digest, as they do not affect the content of the file.
+	 *
+	 * @param node The root of the tree.
+	 * @return The digest as hex string.
+	 */
+	static String digest(Node node) {
+		checkNotNull(node);
+
+		return new HexBinaryAdapter().marshal(new Digester().digest(node));
+	}
+
+	private static class Digester {
+
+		private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		private final ObjectOutputStream oos;
+
+		private Digester() {
+			try {
+				this.oos = new ObjectOutputStream(this.buffer);
+			} catch (IOException e) {
+				throw new EccoException("Error computing digest of artifact tree.", e);
+			}
+		}
+
+		private byte[] digest(Node node) {
+			MessageDigest md = newMessageDigest();
+			Artifact<?> artifact = node.getArtifact();
+			boolean ordered = false;
+			if (artifact != null) {
+				ordered = artifact.isOrdered();
+				md.update((byte) ((artifact.isAtomic() ? 1 : 0) | (ordered ? 2 : 0)));
+				md.update(this.serialize(artifact));
+			}
+
+			List<byte[]> childDigests = new ArrayList<>(node.getChildren().size());
+			for (Node child : node.getChildren())
+				childDigests.add(this.digest(child));
+			if (!ordered)
+				childDigests.sort((left, right) -> ByteBuffer.wrap(left).compareTo(ByteBuffer.wrap(right)));
+
+			md.update(ByteBuffer.allocate(4).putInt(childDigests.size()).array());
+			for (byte[] childDigest : childDigests)
+				md.update(childDigest);
+			return md.digest();
+		}
+
+		/**
+		 * Serializes the data of the given artifact on its own, i.e. independent of previously serialized objects.
+		 */
+		private byte[] serialize(Artifact<?> artifact) {
+			try {
+				this.buffer.reset();
+				this.oos.reset();
+				this.oos.writeObject(artifact.getData());
+				this.oos.flush();
+				return this.buffer.toByteArray();
+			} catch (IOException e) {
+				throw new EccoException("Error computing digest of artifact tree.", e);
+			}
+		}
+
+		private static MessageDigest newMessageDigest() {
+			try {
+				return MessageDigest.getInstance("SHA1");
+			} catch (NoSuchAlgorithmException e) {
+				throw new EccoException("Error computing digest of artifact tree.", e);
+			}
+		}
+
+	}
+
+}
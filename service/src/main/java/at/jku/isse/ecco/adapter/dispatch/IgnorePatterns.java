@@ -0,0 +1,199 @@
+package at.jku.isse.ecco.adapter.dispatch;
+
+import at.jku.isse.ecco.EccoException;
+
+import java.nio.file.*;
+import java.util.*;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * A set of ignore patterns (in the syntax of {@link FileSystem#getPathMatcher(String)}) compiled once for matching many paths.
+ * Glob patterns without wildcards are matched by a lookup of the path, all other glob patterns and regex patterns are combined into a single regular expression.
+ * Patterns that cannot be combined (e.g. globs with bracket expressions or regexes with back references) are matched by a path matcher of their own that is also created only once.
+ */
+public final class IgnorePatterns {
+
+	private static final String GLOB_SYNTAX = "glob:";
+	private static final String REGEX_SYNTAX = "regex:";
+
+	private static final String GLOB_META_CHARS = "\\*?[]{},";
+	private static final String REGEX_META_CHARS = ".^$+{[]|()\\";
+
+	/**
+	 * Back references and named groups depend on the group numbering or names of a single pattern.
+	 */
+	private static final Pattern UNCOMBINABLE_REGEX = Pattern.compile("\\\\[1-9]|\\\\k<|\\(\\?<[a-zA-Z]");
+
+
+	private final Set<String> patterns;
+	private final Set<Path> literals;
+	private final Pattern combined;
+	private final List<PathMatcher> matchers;
+
+	private IgnorePatterns(Set<String> patterns, Set<Path> literals, Pattern combined, List<PathMatcher> matchers) {
+		this.patterns = patterns;
+		this.literals = literals;
+		this.combined = combined;
+		this.matchers = matchers;
+	}
+
+
+	/**
+	 * Compiles the given ignore patterns.
+	 *
+	 * @param patterns The patterns, each of the form "syntax:pattern".
+	 * @return The compiled patterns.
+	 */
+	public static IgnorePatterns compile(Collection<String> patterns) {
+		checkNotNull(patterns);
+
+		FileSystem fileSystem = FileSystems.getDefault();
+		boolean unixSeparator = fileSystem.getSeparator().equals("/");
+
+		Set<Path> literals = new HashSet<>();
+		List<String> regexes = new ArrayList<>();
+		List<PathMatcher> matchers = new ArrayList<>();
+		for (String pattern : patterns) {
+			String regex = null;
+			if (pattern.startsWith(GLOB_SYNTAX)) {
+				String glob = pattern.substring(GLOB_SYNTAX.length());
+				if (isLiteral(glob)) {
+					try {
+						Path literal = fileSystem.getPath(glob);
+						if (literal.toString().equals(glob)) {
+							literals.add(literal);
+							continue;
+						}
+					} catch (InvalidPathException e) {
+						// fall through to a path matcher
+					}
+				}
+				if (unixSeparator)
+					regex = globToRegex(glob);
+			} else if (pattern.startsWith(REGEX_SYNTAX)) {
+				regex = pattern.substring(REGEX_SYNTAX.length());
+				if (UNCOMBINABLE_REGEX.matcher(regex).find())
+					regex = null;
+			}
+
+			try {
+				if (regex != null) {
+					Pattern.compile(regex);
+					regexes.add(regex);
+				} else {
+					matchers.add(fileSystem.getPathMatcher(pattern));
+				}
+			} catch (IllegalArgumentException e) {
+				throw new EccoException("Invalid ignore pattern: " + pattern, e);
+			}
+		}
+
+		Pattern combined = null;
+		if (!regexes.isEmpty()) {
+			StringJoiner joiner = new StringJoiner(")|(?:", "(?:", ")");
+			for (String regex : regexes)
+				joiner.add(regex);
+			combined = Pattern.compile(joiner.toString());
+		}
+
+		return new IgnorePatterns(Collections.unmodifiableSet(new HashSet<>(patterns)), literals, combined, matchers);
+	}
+
+	/**
+	 * @return The patterns these were compiled from.
+	 */
+	public Set<String> getPatterns() {
+		return this.patterns;
+	}
+
+	/**
+	 * @param path The path relative to the base directory.
+	 * @return True if any of the patterns matches the given path.
+	 */
+	public boolean matches(Path path) {
+		if (this.literals.contains(path))
+			return true;
+		if (this.combined != null && this.combined.matcher(path.toString()).matches())
+			return true;
+		for (PathMatcher matcher : this.matchers) {
+			if (matcher.matches(path))
+				return true;
+		}
+		return false;
+	}
+
+
+	private static boolean isLiteral(String glob) {
+		for (int i = 0; i < glob.length(); i++) {
+			if (GLOB_META_CHARS.indexOf(glob.charAt(i)) >= 0)
+				return false;
+		}
+		return !glob.isEmpty();
+	}
+
+	/**
+	 * Translates the given glob to a regular expression with the semantics of the glob path matcher of file systems with "/" as separator.
+	 * Only wildcards and non-nested groups are translated.
+	 * Note that the path matcher of such file systems matches the string representation of paths, which is what the regular expression is matched against.
+	 *
+	 * @param glob The glob.
+	 * @return The regular expression, or null if the glob contains other constructs (e.g. bracket expressions or escapes).
+	 */
+	static String globToRegex(String glob) {
+		StringBuilder regex = new StringBuilder();
+		boolean inGroup = false;
+		for (int i = 0; i < glob.length(); i++) {
+			char c = glob.charAt(i);
+			switch (c) {
+				case '*':
+					if (i + 1 < glob.length() && glob.charAt(i + 1) == '*') {
+						regex.append(".*");
+						i++;
+					} else {
+						regex.append("[^/]*");
+					}
+					break;
+				case '?':
+					regex.append("[^/]");
+					break;
+				case '{':
+					if (inGroup)
+						return null;
+					regex.append("(?:(?:");
+					inGroup = true;
+					break;
+				case ',':
+					regex.append(inGroup ? ")|(?:" : ",");
+					break;
+				case '}':
+					if (inGroup) {
+						regex.append("))");
+						inGroup = false;
+					} else {
+						regex.append("\\}");
+					}
+					break;
+				case '[':
+				case '\\':
+					return null;
+				default:
+					if (REGEX_META_CHARS.indexOf(c) >= 0)
+						regex.append('\\');
+					regex.append(c);
+			}
+		}
+		if (inGroup)
+			return null;
+
+		try {
+			Pattern.compile(regex.toString());
+		} catch (PatternSyntaxException e) {
+			return null;
+		}
+		return regex.toString();
+	}
+
+}
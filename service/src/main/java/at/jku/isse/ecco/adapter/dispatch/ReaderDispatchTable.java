@@ -0,0 +1,98 @@
+package at.jku.isse.ecco.adapter.dispatch;
+
+import at.jku.isse.ecco.adapter.ArtifactReader;
+import at.jku.isse.ecco.tree.Node;
+
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+
+/**
+ * Looks up the reader best suited for reading a file, i.e. the reader with the longest type hierarchy that can read it, by the extension of the file.
+ * Readers that registered the extension of a file (see {@link ArtifactReader#getFileExtensions()}) read every regular file with that extension, unless an equally specific reader registered it as well, in which case they are asked whether they can read the file.
+ * Readers that did not register extensions are asked for every file.
+ */
+final class ReaderDispatchTable {
+
+	private final Map<String, List<Candidate>> candidatesByExtension = new HashMap<>();
+	private final List<Candidate> genericCandidates;
+
+	/**
+	 * @param readers The readers to dispatch to.
+	 */
+	ReaderDispatchTable(Collection<ArtifactReader<Path, Set<Node.Op>>> readers) {
+		List<ArtifactReader<Path, Set<Node.Op>>> genericReaders = new ArrayList<>();
+		Map<String, List<ArtifactReader<Path, Set<Node.Op>>>> readersByExtension = new HashMap<>();
+		for (ArtifactReader<Path, Set<Node.Op>> reader : readers) {
+			String[] fileExtensions = reader.getFileExtensions();
+			if (fileExtensions == null) {
+				genericReaders.add(reader);
+			} else {
+				for (String fileExtension : fileExtensions)
+					readersByExtension.computeIfAbsent(fileExtension.toLowerCase(), extension -> new ArrayList<>()).add(reader);
+			}
+		}
+
+		this.genericCandidates = createCandidates(Collections.emptyList(), genericReaders);
+		for (Map.Entry<String, List<ArtifactReader<Path, Set<Node.Op>>>> entry : readersByExtension.entrySet())
+			this.candidatesByExtension.put(entry.getKey(), createCandidates(entry.getValue(), genericReaders));
+	}
+
+	/**
+	 * @param file       The file.
+	 * @param attributes The attributes of the file.
+	 * @return The reader best suited for reading the file, or null if no reader can read it.
+	 */
+	ArtifactReader<Path, Set<Node.Op>> getReader(Path file, BasicFileAttributes attributes) {
+		List<Candidate> candidates = this.candidatesByExtension.getOrDefault(getExtension(file), this.genericCandidates);
+		for (Candidate candidate : candidates) {
+			if (candidate.ask ? candidate.reader.canRead(file, attributes) : attributes.isRegularFile())
+				return candidate.reader;
+		}
+		return null;
+	}
+
+
+	/**
+	 * Creates the candidates for an extension ordered from the most to the least specific reader.
+	 */
+	private static List<Candidate> createCandidates(List<ArtifactReader<Path, Set<Node.Op>>> registeredReaders, List<ArtifactReader<Path, Set<Node.Op>>> genericReaders) {
+		List<Candidate> candidates = new ArrayList<>();
+		for (ArtifactReader<Path, Set<Node.Op>> reader : registeredReaders) {
+			boolean ambiguous = false;
+			for (ArtifactReader<Path, Set<Node.Op>> other : registeredReaders) {
+				if (other != reader && other.getTypeHierarchy().length == reader.getTypeHierarchy().length)
+					ambiguous = true;
+			}
+			candidates.add(new Candidate(reader, ambiguous));
+		}
+		for (ArtifactReader<Path, Set<Node.Op>> reader : genericReaders)
+			candidates.add(new Candidate(reader, true));
+		candidates.sort(Comparator.comparingInt((Candidate candidate) -> candidate.reader.getTypeHierarchy().length).reversed());
+		return candidates;
+	}
+
+	private static String getExtension(Path file) {
+		Path fileName = file.getFileName();
+		if (fileName == null)
+			return "";
+		String name = fileName.toString();
+		int index = name.lastIndexOf('.');
+		return index < 0 ? "" : name.substring(index + 1).toLowerCase();
+	}
+
+	private static class Candidate {
+		private final ArtifactReader<Path, Set<Node.Op>> reader;
+		private final boolean ask;
+
+		/**
+		 * @param reader The reader.
+		 * @param ask    Whether the reader must be asked if it can read a file, or whether it reads every regular file with the extension.
+		 */
+		private Candidate(ArtifactReader<Path, Set<Node.Op>> reader, boolean ask) {
+			this.reader = reader;
+			this.ask = ask;
+		}
+	}
+
+}
@@ -0,0 +1,21 @@
+package at.jku.isse.ecco.blob;
+
+import at.jku.isse.ecco.artifact.ArtifactData;
+
+/**
+ * Artifact data whose content is kept in the {@link BlobStore} of the repository instead of the artifact data object itself.
+ * The content is transferred along with the artifact data when repositories are pulled, pushed or forked.
+ */
+public interface BlobArtifactData extends ArtifactData {
+
+	/**
+	 * @return The digest of the content in the blob store.
+	 */
+	public String getBlobDigest();
+
+	/**
+	 * @return The size of the content in bytes.
+	 */
+	public long getBlobSize();
+
+}
@@ -0,0 +1,292 @@
+package at.jku.isse.ecco.blob;
+
+import at.jku.isse.ecco.EccoException;
+import at.jku.isse.ecco.artifact.ArtifactData;
+import at.jku.isse.ecco.core.Association;
+import at.jku.isse.ecco.tree.Node;
+import com.google.inject.Inject;
+import com.google.inject.name.Named;
+
+import javax.xml.bind.annotation.adapters.HexBinaryAdapter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Content-addressed store for the contents of artifacts (see {@link BlobArtifactData}) in the {@link #BLOBS_DIR_NAME} directory of a repository.
+ * Every blob is stored once in a file named after the SHA1 digest of its content, no matter how many artifacts (of how many variants) refer to it.
+ * Blobs are written to a temporary file first and then moved to their location, so that concurrent writers and aborted writes never leave incomplete blobs behind.
+ */
+public class BlobStore {
+
+	public static final Path BLOBS_DIR_NAME = Paths.get("blobs");
+
+	private static final String TEMP_FILE_PREFIX = "blob";
+	private static final int BUFFER_SIZE = 1 << 16;
+	private static final int DIGEST_LENGTH = 40;
+
+
+	private final Path directory;
+
+	/**
+	 * @param repositoryDir The repository directory in which the blobs are stored.
+	 */
+	@Inject
+	public BlobStore(@Named("repositoryDir") Path repositoryDir) {
+		checkNotNull(repositoryDir);
+
+		this.directory = repositoryDir.resolve(BLOBS_DIR_NAME);
+	}
+
+
+	/**
+	 * @param digest The digest of the blob.
+	 * @return The file of the blob, which exists only if the blob is stored.
+	 * @throws EccoException If the digest is not a SHA1 digest as hex string.
+	 */
+	public Path getPath(String digest) {
+		checkNotNull(digest);
+
+		if (digest.length() != DIGEST_LENGTH)
+			throw new EccoException("Invalid blob digest: " + digest);
+		for (int i = 0; i < digest.length(); i++) {
+			if (Character.digit(digest.charAt(i), 16) < 0)
+				throw new EccoException("Invalid blob digest: " + digest);
+		}
+
+		return this.directory.resolve(digest.substring(0, 2)).resolve(digest.substring(2));
+	}
+
+	public boolean contains(String digest) {
+		return Files.exists(this.getPath(digest));
+	}
+
+	/**
+	 * Stores the content of the given file. The file is read only once to compute the digest and to copy the content.
+	 *
+	 * @param file The file.
+	 * @return The stored blob.
+	 */
+	public Blob put(Path file) {
+		checkNotNull(file);
+
+		try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+			return this.put(in, -1);
+		} catch (IOException e) {
+			throw new EccoException("Could not store blob of " + file, e);
+		}
+	}
+
+	/**
+	 * Stores the given number of bytes of the given stream as blob with the given digest, or skips them if the blob is already stored.
+	 *
+	 * @param digest The digest of the blob.
+	 * @param in     The stream the content is read from.
+	 * @param size   The size of the content.
+	 * @throws EccoException If the content does not match the digest.
+	 */
+	public void put(String digest, InputStream in, long size) throws IOException {
+		checkNotNull(digest);
+		checkNotNull(in);
+
+		if (this.contains(digest)) {
+			long remaining = size;
+			while (remaining > 0) {
+				long skipped = in.skip(remaining);
+				if (skipped <= 0) {
+					if (in.read() == -1)
+						throw new EccoException("Unexpected end of blob " + digest + ".");
+					skipped = 1;
+				}
+				remaining -= skipped;
+			}
+		} else {
+			Blob blob = this.put(Channels.newChannel(in), size);
+			if (!blob.getDigest().equals(digest))
+				throw new EccoException("Content of blob " + digest + " does not match its digest.");
+		}
+	}
+
+	/**
+	 * Hashes and copies the content of the given channel in a single pass into a temporary file that is then moved to the location of the blob.
+	 *
+	 * @param size The number of bytes to read, or -1 to read until the end of the channel.
+	 */
+	private Blob put(ReadableByteChannel in, long size) throws IOException {
+		Files.createDirectories(this.directory);
+		MessageDigest md = newMessageDigest();
+		Path tempFile = Files.createTempFile(this.directory, TEMP_FILE_PREFIX, null);
+		try {
+			long written = 0;
+			try (FileChannel out = FileChannel.open(tempFile, StandardOpenOption.WRITE)) {
+				ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+				while (size < 0 || written < size) {
+					if (size >= 0)
+						buffer.limit((int) Math.min(buffer.capacity(), size - written));
+					int read = in.read(buffer);
+					if (read == -1) {
+						if (size >= 0)
+							throw new EccoException("Unexpected end of blob.");
+						break;
+					}
+					buffer.flip();
+					md.update(buffer);
+					buffer.rewind();
+					while (buffer.hasRemaining())
+						out.write(buffer);
+					buffer.clear();
+					written += read;
+				}
+				// the content must be on disk before the blob becomes visible under its digest
+				out.force(true);
+			}
+
+			Blob blob = new Blob(new HexBinaryAdapter().marshal(md.digest()), written);
+			Path blobFile = this.getPath(blob.getDigest());
+			if (!Files.exists(blobFile)) {
+				Files.createDirectories(blobFile.getParent());
+				try {
+					Files.move(tempFile, blobFile, StandardCopyOption.ATOMIC_MOVE);
+				} catch (FileAlreadyExistsException e) {
+					// stored concurrently with the same content
+				}
+			}
+			return blob;
+		} finally {
+			Files.deleteIfExists(tempFile);
+		}
+	}
+
+	/**
+	 * Writes the content of the given blob to the given file, which is created or overwritten.
+	 *
+	 * @param digest The digest of the blob.
+	 * @param file   The file.
+	 * @throws EccoException If the blob is not stored.
+	 */
+	public void copyTo(String digest, Path file) throws IOException {
+		try (FileChannel in = this.open(digest);
+			 FileChannel out = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			long size = in.size();
+			long position = 0;
+			while (position < size)
+				position += in.transferTo(position, size - position, out);
+		}
+	}
+
+	/**
+	 * Writes the content of the given blob to the given stream.
+	 *
+	 * @param digest The digest of the blob.
+	 * @param out    The stream, which is not closed.
+	 * @throws EccoException If the blob is not stored.
+	 */
+	public void copyTo(String digest, OutputStream out) throws IOException {
+		try (InputStream in = Channels.newInputStream(this.open(digest))) {
+			byte[] buffer = new byte[BUFFER_SIZE];
+			int read;
+			while ((read = in.read(buffer)) != -1)
+				out.write(buffer, 0, read);
+		}
+	}
+
+	/**
+	 * @param digest The digest of the blob.
+	 * @return A channel for reading the content of the blob.
+	 * @throws EccoException If the blob is not stored.
+	 */
+	private FileChannel open(String digest) throws IOException {
+		try {
+			return FileChannel.open(this.getPath(digest), StandardOpenOption.READ);
+		} catch (NoSuchFileException e) {
+			throw new EccoException("Blob " + digest + " is missing from the blob store.", e);
+		}
+	}
+
+	/**
+	 * Copies the blobs of the artifacts of the given associations that are not stored yet from the given store.
+	 *
+	 * @param source       The store to copy from.
+	 * @param associations The associations.
+	 * @return The number of copied blobs.
+	 */
+	public int copyFrom(BlobStore source, Collection<? extends Association> associations) throws IOException {
+		checkNotNull(source);
+		checkNotNull(associations);
+
+		int copied = 0;
+		Deque<Node> stack = new ArrayDeque<>();
+		for (Association association : associations) {
+			stack.push(association.getRootNode());
+			while (!stack.isEmpty()) {
+				Node node = stack.pop();
+				for (Node child : node.getChildren())
+					stack.push(child);
+
+				ArtifactData data = node.getArtifact() == null ? null : node.getArtifact().getData();
+				if (data instanceof BlobArtifactData) {
+					String digest = ((BlobArtifactData) data).getBlobDigest();
+					if (!this.contains(digest)) {
+						try (FileChannel in = source.open(digest)) {
+							this.put(in, -1);
+						}
+						copied++;
+					}
+				}
+			}
+		}
+		return copied;
+	}
+
+
+	private static MessageDigest newMessageDigest() {
+		try {
+			return MessageDigest.getInstance("SHA1");
+		} catch (NoSuchAlgorithmException e) {
+			throw new EccoException("Error computing digest of blob.", e);
+		}
+	}
+
+
+	/**
+	 * A stored blob.
+	 */
+	public static final class Blob {
+
+		private final String digest;
+		private final long size;
+
+		private Blob(String digest, long size) {
+			this.digest = digest;
+			this.size = size;
+		}
+
+		/**
+		 * @return The SHA1 digest of the content as hex string.
+		 */
+		public String getDigest() {
+			return this.digest;
+		}
+
+		/**
+		 * @return The size of the content in bytes.
+		 */
+		public long getSize() {
+			return this.size;
+		}
+
+	}
+
+}
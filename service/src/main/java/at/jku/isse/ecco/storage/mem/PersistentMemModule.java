@@ -0,0 +1,20 @@
+package at.jku.isse.ecco.storage.mem;
+
+import at.jku.isse.ecco.dao.*;
+import at.jku.isse.ecco.storage.mem.dao.*;
+import com.google.inject.AbstractModule;
+
+public class PersistentMemModule extends AbstractModule {
+
+	@Override
+	protected void configure() {
+		bind(RepositoryDao.class).to(MemRepositoryDao.class);
+		bind(CommitDao.class).to(MemCommitDao.class);
+		bind(SettingsDao.class).to(MemSettingsDao.class);
+		bind(EntityFactory.class).to(MemEntityFactory.class);
+
+		bind(MemTransactionStrategy.class).to(PersistentMemTransactionStrategy.class);
+		bind(TransactionStrategy.class).to(PersistentMemTransactionStrategy.class);
+	}
+
+}
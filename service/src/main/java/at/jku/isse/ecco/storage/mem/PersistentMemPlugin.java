@@ -0,0 +1,33 @@
+package at.jku.isse.ecco.storage.mem;
+
+import at.jku.isse.ecco.storage.StoragePlugin;
+import com.google.inject.Module;
+
+/**
+ * Memory storage that keeps the repository in memory but writes every transaction to a log in the repository directory, see {@link at.jku.isse.ecco.storage.mem.dao.PersistentMemTransactionStrategy}.
+ */
+public class PersistentMemPlugin extends StoragePlugin {
+
+	private PersistentMemModule module = new PersistentMemModule();
+
+	@Override
+	public String getPluginId() {
+		return "at.jku.isse.ecco.storage.mem.persistent";
+	}
+
+	@Override
+	public Module getModule() {
+		return this.module;
+	}
+
+	@Override
+	public String getName() {
+		return "PersistentMemPlugin";
+	}
+
+	@Override
+	public String getDescription() {
+		return "Persistent Memory Plugin";
+	}
+
+}
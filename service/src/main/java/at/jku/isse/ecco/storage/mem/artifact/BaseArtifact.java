@@ -8,6 +8,10 @@ import at.jku.isse.ecco.storage.mem.sg.BaseSequenceGraph;
 import at.jku.isse.ecco.sg.SequenceGraph;
 import at.jku.isse.ecco.tree.Node;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
 import java.util.*;
 
 import static com.google.common.base.Preconditions.checkNotNull;
@@ -18,14 +22,16 @@ import static com.google.common.base.Preconditions.checkNotNull;
  * @author JKU, ISSE
  * @version 1.0
  */
-public class BaseArtifact<DataType extends ArtifactData> implements Artifact<DataType>, Artifact.Op<DataType> {
+public class BaseArtifact<DataType extends ArtifactData> implements Artifact<DataType>, Artifact.Op<DataType>, Serializable {
+
+	private static final long serialVersionUID = 1L;
 
 	private transient ArtifactOperator operator = new ArtifactOperator(this);
 
 
 	// fields
 
-	private DataType data;
+	private transient DataType data; // serialized first, see writeObject
 
 	private boolean atomic;
 
@@ -261,7 +267,7 @@ public class BaseArtifact<DataType extends ArtifactData> implements Artifact<Dat
 		if (this.uses(target))
 			return;
 
-		ArtifactReference.Op artifactReference = new BaseArtifactReference();
+		ArtifactReference.Op artifactReference = new BaseArtifactReference(type);
 		artifactReference.setSource(this);
 		artifactReference.setTarget(target);
 		this.addUses(artifactReference);
@@ -293,4 +299,24 @@ public class BaseArtifact<DataType extends ArtifactData> implements Artifact<Dat
 		this.operator.removeProperty(name);
 	}
 
+
+
+	// SERIALIZATION
+
+	/**
+	 * Writes the data before all other fields. The hash code of an artifact is the hash code of its data, and artifacts can be reached (and put into hash maps of sequence graphs) while the fields of the artifact are still being read.
+	 */
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		out.writeObject(this.data);
+		out.defaultWriteObject();
+	}
+
+	@SuppressWarnings("unchecked")
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		this.operator = new ArtifactOperator(this);
+		this.properties = new HashMap<>();
+		this.data = (DataType) in.readObject();
+		in.defaultReadObject();
+	}
+
 }
@@ -3,6 +3,8 @@ package at.jku.isse.ecco.storage.mem.artifact;
 import at.jku.isse.ecco.artifact.Artifact;
 import at.jku.isse.ecco.artifact.ArtifactReference;
 
+import java.io.Serializable;
+
 import static com.google.common.base.Preconditions.checkNotNull;
 
 /**
@@ -11,7 +13,9 @@ import static com.google.common.base.Preconditions.checkNotNull;
  * @author JKU, ISSE
  * @version 1.0
  */
-public class BaseArtifactReference implements ArtifactReference, ArtifactReference.Op {
+public class BaseArtifactReference implements ArtifactReference, ArtifactReference.Op, Serializable {
+
+	private static final long serialVersionUID = 1L;
 
 	private final String type;
 
@@ -18,6 +18,8 @@ import static com.google.common.base.Preconditions.checkNotNull;
  */
 public class BaseAssociation implements Association, Association.Op {
 
+	private static final long serialVersionUID = 1L;
+
 	private String id;
 	private String name = "";
 	private RootNode.Op artifactTreeRoot;
@@ -15,6 +15,8 @@ import java.util.List;
  */
 public class BaseCommit implements Commit {
 
+	private static final long serialVersionUID = 1L;
+
 	private int id;
 	private String committer;
 	private Configuration configuration;
@@ -3,10 +3,13 @@ package at.jku.isse.ecco.storage.mem.core;
 import at.jku.isse.ecco.core.Remote;
 import at.jku.isse.ecco.feature.Feature;
 
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collection;
 
-public class BaseRemote implements Remote {
+public class BaseRemote implements Remote, Serializable {
+
+	private static final long serialVersionUID = 1L;
 
 	private String name;
 	private String address;
@@ -3,13 +3,17 @@ package at.jku.isse.ecco.storage.mem.core;
 import at.jku.isse.ecco.core.Variant;
 import at.jku.isse.ecco.feature.Configuration;
 
+import java.io.Serializable;
+
 /**
  * Memory implementation of {@link Variant}.
  *
  * @author JKU, ISSE
  * @version 1.0
  */
-public class BaseVariant implements Variant {
+public class BaseVariant implements Variant, Serializable {
+
+	private static final long serialVersionUID = 1L;
 
 	private String name;
 	private String description;
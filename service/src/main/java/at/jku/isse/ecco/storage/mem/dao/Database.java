@@ -1,36 +1,65 @@
 package at.jku.isse.ecco.storage.mem.dao;
 
+import at.jku.isse.ecco.feature.Configuration;
+import at.jku.isse.ecco.feature.Feature;
+import at.jku.isse.ecco.feature.FeatureInstance;
+import at.jku.isse.ecco.feature.FeatureVersion;
 import at.jku.isse.ecco.storage.mem.core.BaseCommit;
 import at.jku.isse.ecco.storage.mem.core.BaseRemote;
 import at.jku.isse.ecco.storage.mem.core.BaseVariant;
 import at.jku.isse.ecco.storage.mem.repository.MemRepository;
 import at.jku.isse.ecco.repository.Repository;
+import at.jku.isse.ecco.wire.RepositoryReader;
+import at.jku.isse.ecco.wire.RepositoryWriter;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.*;
+
+/**
+ * The in-memory database of the memory backend.
+ * <p>
+ * It is serialized part by part (see {@link Part}). The repository is written with the {@link RepositoryWriter}, which encodes artifact trees and sequence graphs iteratively (Java serialization would recurse along them), but without the contents of blobs, which are kept in the blob store of the repository.
+ * Since the parts are written separately, the configurations of commits and variants do not share their features with the repository after they were read, see {@link #relinkConfigurations()}.
+ */
+public class Database implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * The parts of the database that are written to the log of the {@link PersistentMemTransactionStrategy} when they change. A part is always written as a whole.
+	 */
+	public enum Part {
+		REPOSITORY, COMMITS, SETTINGS
+	}
 
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Map;
-import java.util.Set;
-
-public class Database {
 
-	private final Repository.Op repository;
+	private transient Repository.Op repository;
 
-	private final Map<Integer, BaseCommit> commitIndex;
-	private final Map<String, BaseVariant> variantIndex;
-	private final Map<String, BaseRemote> remoteIndex;
+	private transient Map<Integer, BaseCommit> commitIndex;
+	private transient Map<String, BaseVariant> variantIndex;
+	private transient Map<String, BaseRemote> remoteIndex;
 
-	private final Set<String> ignorePatterns = new HashSet<>();
-	private final Map<String, String> pluginMap = new HashMap<>();
+	private transient Set<String> ignorePatterns;
+	private transient Map<String, String> pluginMap;
 
-	private int currentCommitId = 0;
+	private transient int currentCommitId = 0;
 
 
 	public Database() {
 		this.repository = new MemRepository();
 
+		this.init();
+	}
+
+	private void init() {
 		this.commitIndex = new HashMap<>();
 		this.variantIndex = new HashMap<>();
 		this.remoteIndex = new HashMap<>();
+		this.ignorePatterns = new HashSet<>();
+		this.pluginMap = new HashMap<>();
 	}
 
 
@@ -66,4 +95,98 @@ public class Database {
 		return this.pluginMap;
 	}
 
+
+	/**
+	 * Writes the current state of the given part.
+	 */
+	void writePart(ObjectOutputStream out, Part part) throws IOException {
+		switch (part) {
+			case REPOSITORY:
+				new RepositoryWriter(out, false).writeRepository(this.repository);
+				break;
+			case COMMITS:
+				out.writeInt(this.currentCommitId);
+				out.writeObject(this.commitIndex);
+				break;
+			case SETTINGS:
+				out.writeObject(this.variantIndex);
+				out.writeObject(this.remoteIndex);
+				out.writeObject(this.ignorePatterns);
+				out.writeObject(this.pluginMap);
+				break;
+		}
+	}
+
+	/**
+	 * Replaces the given part with the state written by {@link #writePart(ObjectOutputStream, Part)}.
+	 */
+	@SuppressWarnings("unchecked")
+	void readPart(ObjectInputStream in, Part part) throws IOException, ClassNotFoundException {
+		switch (part) {
+			case REPOSITORY:
+				MemRepository repository = new MemRepository();
+				new RepositoryReader(in, repository.getEntityFactory()).readRepository(repository);
+				this.repository = repository;
+				break;
+			case COMMITS:
+				this.currentCommitId = in.readInt();
+				replace(this.commitIndex, (Map<Integer, BaseCommit>) in.readObject());
+				break;
+			case SETTINGS:
+				replace(this.variantIndex, (Map<String, BaseVariant>) in.readObject());
+				replace(this.remoteIndex, (Map<String, BaseRemote>) in.readObject());
+				this.ignorePatterns.clear();
+				this.ignorePatterns.addAll((Set<String>) in.readObject());
+				replace(this.pluginMap, (Map<String, String>) in.readObject());
+				break;
+		}
+	}
+
+	/**
+	 * Replaces the feature versions in the configurations of the commits and variants with the equal feature versions of the repository, so that they are the same objects again after the parts were read.
+	 * Feature versions that are not contained in the repository are kept.
+	 */
+	void relinkConfigurations() {
+		for (BaseCommit commit : this.commitIndex.values())
+			this.relink(commit.getConfiguration());
+		for (BaseVariant variant : this.variantIndex.values())
+			this.relink(variant.getConfiguration());
+	}
+
+	private void relink(Configuration configuration) {
+		if (configuration == null)
+			return;
+		for (FeatureInstance featureInstance : new ArrayList<>(configuration.getFeatureInstances())) {
+			Feature feature = this.repository.getFeature(featureInstance.getFeature().getId());
+			FeatureVersion featureVersion = feature == null ? null : feature.getVersion(featureInstance.getFeatureVersion().getId());
+			if (featureVersion != null && featureVersion != featureInstance.getFeatureVersion()) {
+				configuration.removeFeatureInstance(featureInstance);
+				configuration.addFeatureInstance(featureVersion.getInstance(featureInstance.getSign()));
+			}
+		}
+	}
+
+
+	// # SERIALIZATION ####################################################
+
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		out.defaultWriteObject();
+		for (Part part : Part.values())
+			this.writePart(out, part);
+	}
+
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		this.init();
+		for (Part part : Part.values())
+			this.readPart(in, part);
+		this.relinkConfigurations();
+	}
+
+
+	private static <K, V> void replace(Map<K, V> target, Map<K, V> source) {
+		target.clear();
+		target.putAll(source);
+	}
+
 }
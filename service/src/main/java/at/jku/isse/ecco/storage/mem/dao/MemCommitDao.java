@@ -45,6 +45,7 @@ public class MemCommitDao extends MemAbstractGenericDao implements CommitDao {
 		final Database root = this.transactionStrategy.getDatabase();
 
 		root.getCommitIndex().remove(id);
+		this.transactionStrategy.markChanged(Database.Part.COMMITS);
 	}
 
 	@Override
@@ -52,6 +53,7 @@ public class MemCommitDao extends MemAbstractGenericDao implements CommitDao {
 		final Database root = this.transactionStrategy.getDatabase();
 
 		root.getCommitIndex().remove(entity.getId());
+		this.transactionStrategy.markChanged(Database.Part.COMMITS);
 	}
 
 	@Override
@@ -65,6 +67,7 @@ public class MemCommitDao extends MemAbstractGenericDao implements CommitDao {
 		}
 
 		root.getCommitIndex().put(baseEntity.getId(), baseEntity);
+		this.transactionStrategy.markChanged(Database.Part.COMMITS);
 
 		return baseEntity;
 	}
@@ -19,6 +19,7 @@ import at.jku.isse.ecco.storage.mem.core.BaseAssociation;
 import at.jku.isse.ecco.storage.mem.core.BaseVariant;
 import at.jku.isse.ecco.storage.mem.module.BaseModule;
 import at.jku.isse.ecco.storage.mem.module.BaseModuleFeature;
+import at.jku.isse.ecco.storage.mem.module.FeatureVersionIndex;
 import at.jku.isse.ecco.storage.mem.tree.BaseNode;
 import at.jku.isse.ecco.storage.mem.tree.BaseRootNode;
 import at.jku.isse.ecco.tree.Node;
@@ -31,8 +32,26 @@ import java.util.Set;
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 
+/**
+ * Memory implementation of {@link EntityFactory}.
+ * <p>
+ * Configurations, presence conditions, modules and module features are created in the {@link FeatureVersionIndex} of the factory.
+ * A factory created by a {@link MemRepository} shares the index of the repository, every other factory has its own index.
+ */
 public class MemEntityFactory implements EntityFactory {
 
+	private final FeatureVersionIndex index;
+
+
+	public MemEntityFactory() {
+		this(new FeatureVersionIndex());
+	}
+
+	public MemEntityFactory(FeatureVersionIndex index) {
+		this.index = index;
+	}
+
+
 	@Override
 	public Remote createRemote(String name, String address, Remote.Type type) {
 		return new BaseRemote(name, address, type);
@@ -40,7 +59,7 @@ public class MemEntityFactory implements EntityFactory {
 
 	@Override
 	public Configuration createConfiguration() {
-		return new BaseConfiguration();
+		return new BaseConfiguration(this.index);
 	}
 
 	@Override
@@ -55,17 +74,17 @@ public class MemEntityFactory implements EntityFactory {
 
 	@Override
 	public PresenceCondition createPresenceCondition() {
-		return new BasePresenceCondition();
+		return new BasePresenceCondition(this.index);
 	}
 
 	@Override
 	public PresenceCondition createPresenceCondition(Configuration configuration, int maxOrder) {
-		return new BasePresenceCondition(configuration, maxOrder);
+		return new BasePresenceCondition(this.index, configuration, maxOrder);
 	}
 
 	@Override
 	public PresenceCondition createPresenceCondition(PresenceCondition pc) {
-		BasePresenceCondition clone = new BasePresenceCondition();
+		BasePresenceCondition clone = new BasePresenceCondition(this.index);
 		clone.getMinModules().addAll(pc.getMinModules());
 		clone.getMaxModules().addAll(pc.getMaxModules());
 		clone.getAllModules().addAll(pc.getAllModules());
@@ -134,7 +153,7 @@ public class MemEntityFactory implements EntityFactory {
 
 	@Override
 	public Module createModule() {
-		return new BaseModule();
+		return new BaseModule(this.index);
 	}
 
 //	@Override
@@ -149,7 +168,7 @@ public class MemEntityFactory implements EntityFactory {
 
 	@Override
 	public ModuleFeature createModuleFeature(Feature feature, Collection<FeatureVersion> featureVersions, boolean sign) {
-		return new BaseModuleFeature(feature, featureVersions, sign);
+		return new BaseModuleFeature(this.index, feature, featureVersions, sign);
 	}
 
 
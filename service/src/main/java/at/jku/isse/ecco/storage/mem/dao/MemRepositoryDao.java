@@ -28,7 +28,8 @@ public class MemRepositoryDao extends MemAbstractGenericDao implements Repositor
 
 	@Override
 	public void store(Repository.Op repository) {
-		// nothing to do for memory implementation
+		// the repository is kept in memory, only a persistent transaction strategy has to write it
+		this.transactionStrategy.markChanged(Database.Part.REPOSITORY);
 	}
 
 }
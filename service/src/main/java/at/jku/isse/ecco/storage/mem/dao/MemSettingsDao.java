@@ -56,6 +56,7 @@ public class MemSettingsDao extends MemAbstractGenericDao implements SettingsDao
 		final BaseRemote memEntity = (BaseRemote) remote;
 
 		remoteIndex.put(memEntity.getName(), memEntity);
+		this.transactionStrategy.markChanged(Database.Part.SETTINGS);
 
 		return memEntity;
 	}
@@ -68,6 +69,7 @@ public class MemSettingsDao extends MemAbstractGenericDao implements SettingsDao
 		final Map<String, BaseRemote> remoteIndex = root.getRemoteIndex();
 
 		remoteIndex.remove(name);
+		this.transactionStrategy.markChanged(Database.Part.SETTINGS);
 	}
 
 
@@ -86,6 +88,7 @@ public class MemSettingsDao extends MemAbstractGenericDao implements SettingsDao
 		final Database root = this.transactionStrategy.getDatabase();
 
 		root.getPluginMap().put(pattern, pluginId);
+		this.transactionStrategy.markChanged(Database.Part.SETTINGS);
 	}
 
 	@Override
@@ -93,6 +96,7 @@ public class MemSettingsDao extends MemAbstractGenericDao implements SettingsDao
 		final Database root = this.transactionStrategy.getDatabase();
 
 		root.getPluginMap().remove(pattern);
+		this.transactionStrategy.markChanged(Database.Part.SETTINGS);
 	}
 
 	@Override
@@ -110,6 +114,7 @@ public class MemSettingsDao extends MemAbstractGenericDao implements SettingsDao
 		final Database root = this.transactionStrategy.getDatabase();
 
 		root.getIgnorePatterns().add(ignorePattern);
+		this.transactionStrategy.markChanged(Database.Part.SETTINGS);
 	}
 
 	@Override
@@ -117,6 +122,7 @@ public class MemSettingsDao extends MemAbstractGenericDao implements SettingsDao
 		final Database root = this.transactionStrategy.getDatabase();
 
 		root.getIgnorePatterns().remove(ignorePattern);
+		this.transactionStrategy.markChanged(Database.Part.SETTINGS);
 	}
 
 }
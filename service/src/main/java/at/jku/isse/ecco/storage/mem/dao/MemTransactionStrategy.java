@@ -5,11 +5,25 @@ import at.jku.isse.ecco.dao.TransactionStrategy;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
 
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Transaction strategy of the memory backend.
+ * <p>
+ * Transactions do not isolate changes, they only lock the database: write transactions hold the write lock and read-only transactions the read lock of a reader/writer lock.
+ * Every thread keeps the locks of its (nested) transactions on a stack so that the matching lock is released when a transaction ends.
+ */
 @Singleton
 public class MemTransactionStrategy implements TransactionStrategy {
 
 	protected Database database;
 
+	private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+	private final ThreadLocal<Deque<Lock>> transactions = ThreadLocal.withInitial(ArrayDeque::new);
+
 	@Inject
 	public MemTransactionStrategy() {
 
@@ -31,16 +45,65 @@ public class MemTransactionStrategy implements TransactionStrategy {
 
 	@Override
 	public void begin() throws EccoException {
+		// a read lock cannot be upgraded to a write lock
+		if (this.lock.getReadHoldCount() > 0 && !this.lock.isWriteLockedByCurrentThread())
+			throw new EccoException("Cannot begin a write transaction within a read-only transaction.");
 
+		this.lock.writeLock().lock();
+		this.transactions.get().push(this.lock.writeLock());
+	}
+
+	@Override
+	public void beginReadOnly() throws EccoException {
+		this.lock.readLock().lock();
+		this.transactions.get().push(this.lock.readLock());
 	}
 
 	@Override
 	public void end() throws EccoException {
+		this.endTransaction();
+	}
+
+	/**
+	 * Checks if the innermost transaction of the current thread is a read-only transaction.
+	 *
+	 * @return True if the current transaction is read-only, false otherwise.
+	 */
+	protected boolean isReadOnly() {
+		return this.transactions.get().peek() == this.lock.readLock();
+	}
+
+	/**
+	 * Checks if the current thread is in a transaction.
+	 *
+	 * @return True if the current thread holds the lock of a transaction, false otherwise.
+	 */
+	protected boolean isInTransaction() {
+		return !this.transactions.get().isEmpty();
+	}
+
+	/**
+	 * Releases the lock of the innermost transaction of the current thread.
+	 */
+	protected void endTransaction() throws EccoException {
+		Deque<Lock> locks = this.transactions.get();
+		if (locks.isEmpty())
+			throw new EccoException("No transaction in progress.");
+		locks.pop().unlock();
+	}
+
+	/**
+	 * Called by the DAOs whenever they change a part of the database. Nothing has to be done for the purely in-memory backend.
+	 *
+	 * @param part The changed part of the database.
+	 */
+	protected void markChanged(Database.Part part) {
 
 	}
 
 	@Override
 	public void rollback() {
+		this.endTransaction();
 		System.err.println("Rollback not supported by backend.");
 		//throw new EccoException("Rollback not supported by backend.");
 	}
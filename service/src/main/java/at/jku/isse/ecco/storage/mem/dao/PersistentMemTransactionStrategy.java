@@ -0,0 +1,340 @@
+package at.jku.isse.ecco.storage.mem.dao;
+
+import at.jku.isse.ecco.EccoException;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.google.inject.name.Named;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.EnumSet;
+import java.util.zip.CRC32;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Transaction strategy of the persistent memory backend.
+ * <p>
+ * The database is kept in memory like with the {@link MemTransactionStrategy}. At the end of every transaction the parts of the database that were changed in it (see {@link Database.Part}) are written as one record to the end of a log file.
+ * This is not a log of individual changes: since the memory entities do not track their own changes, a record always contains the whole state of its parts, e.g. the whole repository after a commit. Every transaction that changes the repository therefore writes a snapshot of the repository, and its cost grows with the size of the repository rather than with the size of the change.
+ * When the log grows larger than the last snapshot it is compacted, i.e. the whole database is written to a new snapshot and the log is cleared.
+ * Opening the repository loads the snapshot and replays the log. A torn or corrupt record at the end of the log (e.g. after a crash while it was written) is discarded.
+ * A rollback discards the changes of the current transaction by loading the database again. The same happens if the changes cannot be written at the end of a transaction, so that the transaction always ends and releases its lock.
+ * Read-only transactions neither write nor reload anything.
+ */
+@Singleton
+public class PersistentMemTransactionStrategy extends MemTransactionStrategy {
+
+	private static final String SNAPSHOT_FILE_NAME = "mem.snapshot";
+	private static final String LOG_FILE_NAME = "mem.log";
+
+	private static final int MAGIC = 0x4543434D; // "ECCM"
+
+	private static final int LOG_HEADER_SIZE = 12; // magic and generation of the snapshot the log belongs to
+	private static final int RECORD_HEADER_SIZE = 8; // length and checksum of the record
+
+	private static final long MIN_COMPACTION_SIZE = 1 << 20;
+
+
+	protected final Path repositoryDir;
+
+	private FileChannel log = null;
+	private long generation = 0;
+	private long snapshotSize = 0;
+	private long logSize = 0; // size of the valid part of the log found by the last load, 0 if the log does not belong to the snapshot
+
+	protected int numBegin = 0; // nesting depth of write transactions, which are exclusive
+	private final EnumSet<Database.Part> changed = EnumSet.noneOf(Database.Part.class);
+
+	@Inject
+	public PersistentMemTransactionStrategy(@Named("repositoryDir") final Path repositoryDir) {
+		checkNotNull(repositoryDir);
+
+		this.repositoryDir = repositoryDir;
+	}
+
+
+	@Override
+	public void open() throws EccoException {
+		if (this.log != null)
+			return;
+
+		try {
+			Path logFile = this.repositoryDir.resolve(LOG_FILE_NAME);
+			this.database = this.load();
+
+			this.log = FileChannel.open(logFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+			if (this.logSize < this.log.size())
+				this.log.truncate(this.logSize);
+			if (this.logSize == 0)
+				this.resetLog();
+			else
+				this.log.position(this.logSize);
+		} catch (IOException | ClassNotFoundException e) {
+			throw new EccoException("Error opening the repository.", e);
+		}
+
+		this.numBegin = 0;
+		this.changed.clear();
+	}
+
+	@Override
+	public void close() throws EccoException {
+		if (this.log == null)
+			return;
+
+		try {
+			this.log.close();
+		} catch (IOException e) {
+			throw new EccoException("Error closing the log.", e);
+		} finally {
+			this.log = null;
+			this.database = null;
+		}
+	}
+
+	protected void checkInitialized() throws EccoException {
+		if (this.log == null)
+			throw new EccoException("Transaction Strategy has not been initialized.");
+	}
+
+
+	@Override
+	public void begin() throws EccoException {
+		this.checkInitialized();
+
+		super.begin();
+		this.numBegin++;
+	}
+
+	@Override
+	public void beginReadOnly() throws EccoException {
+		this.checkInitialized();
+
+		super.beginReadOnly();
+	}
+
+	@Override
+	public void end() throws EccoException {
+		this.checkInitialized();
+
+		if (!this.isReadOnly() && this.numBegin == 0)
+			throw new EccoException("No transaction in progress.");
+
+		try {
+			if (!this.isReadOnly()) {
+				try {
+					if (this.numBegin == 1)
+						this.writeChanges();
+				} catch (RuntimeException | Error e) {
+					this.discardChanges(e);
+					throw e;
+				} finally {
+					this.numBegin--;
+				}
+			}
+		} finally {
+			this.endTransaction();
+		}
+	}
+
+	@Override
+	protected void markChanged(Database.Part part) {
+		this.changed.add(part);
+
+		// changes outside of a transaction are written immediately
+		if (this.numBegin == 0)
+			this.writeChanges();
+	}
+
+	@Override
+	public void rollback() throws EccoException {
+		this.checkInitialized();
+
+		if (this.isReadOnly()) {
+			this.endTransaction();
+			return;
+		}
+
+		// the transaction already ended if its changes could not be written
+		if (this.numBegin == 0 && !this.isInTransaction())
+			return;
+
+		if (this.numBegin == 0)
+			throw new EccoException("No transaction in progress.");
+
+		this.numBegin--;
+
+		try {
+			if (this.numBegin == 0 && !this.changed.isEmpty()) {
+				this.changed.clear();
+				this.database = this.load();
+			}
+		} catch (IOException | ClassNotFoundException e) {
+			throw new EccoException("Error loading the repository.", e);
+		} finally {
+			this.endTransaction();
+		}
+	}
+
+
+	/**
+	 * Discards the changes of the current transaction by loading the database again.
+	 *
+	 * @param cause The reason the changes are discarded, errors while loading the database are added to it.
+	 */
+	private void discardChanges(Throwable cause) {
+		this.changed.clear();
+		try {
+			this.database = this.load();
+		} catch (IOException | ClassNotFoundException | RuntimeException e) {
+			cause.addSuppressed(e);
+		}
+	}
+
+
+	// # LOG ####################################################
+
+	/**
+	 * Loads the snapshot and replays the valid records of the log on it.
+	 */
+	private Database load() throws IOException, ClassNotFoundException {
+		Database database;
+		Path snapshotFile = this.repositoryDir.resolve(SNAPSHOT_FILE_NAME);
+		if (Files.exists(snapshotFile)) {
+			try (ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(Files.newInputStream(snapshotFile)))) {
+				if (in.readInt() != MAGIC)
+					throw new EccoException("Invalid snapshot file: " + snapshotFile);
+				this.generation = in.readLong();
+				database = (Database) in.readObject();
+			}
+			this.snapshotSize = Files.size(snapshotFile);
+		} else {
+			database = new Database();
+			this.generation = 0;
+			this.snapshotSize = 0;
+		}
+
+		this.logSize = 0;
+		Path logFile = this.repositoryDir.resolve(LOG_FILE_NAME);
+		if (!Files.exists(logFile))
+			return database;
+
+		long size = Files.size(logFile);
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(logFile)))) {
+			// a log of another generation was written before the last compaction and is already contained in the snapshot
+			if (size < LOG_HEADER_SIZE || in.readInt() != MAGIC || in.readLong() != this.generation)
+				return database;
+
+			long position = LOG_HEADER_SIZE;
+			while (position + RECORD_HEADER_SIZE <= size) {
+				int length = in.readInt();
+				int checksum = in.readInt();
+				if (length <= 0 || position + RECORD_HEADER_SIZE + length > size)
+					break;
+				byte[] payload = new byte[length];
+				in.readFully(payload);
+				if (checksum(payload) != checksum)
+					break;
+
+				this.replay(database, payload);
+				position += RECORD_HEADER_SIZE + length;
+			}
+			this.logSize = position;
+		}
+
+		database.relinkConfigurations();
+
+		return database;
+	}
+
+	@SuppressWarnings("unchecked")
+	private void replay(Database database, byte[] payload) throws IOException, ClassNotFoundException {
+		try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(payload))) {
+			for (Database.Part part : (EnumSet<Database.Part>) in.readObject())
+				database.readPart(in, part);
+		}
+	}
+
+	/**
+	 * Appends the current state of the changed parts of the database as one record to the log and compacts the log if it got larger than the snapshot.
+	 */
+	private void writeChanges() throws EccoException {
+		if (this.changed.isEmpty())
+			return;
+
+		try {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+				out.writeObject(EnumSet.copyOf(this.changed));
+				for (Database.Part part : this.changed)
+					this.database.writePart(out, part);
+			}
+			byte[] payload = bytes.toByteArray();
+
+			ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER_SIZE + payload.length);
+			record.putInt(payload.length);
+			record.putInt(checksum(payload));
+			record.put(payload);
+			record.flip();
+			while (record.hasRemaining())
+				this.log.write(record);
+			this.log.force(false);
+
+			this.changed.clear();
+
+			if (this.log.size() > Math.max(MIN_COMPACTION_SIZE, this.snapshotSize))
+				this.compact();
+		} catch (IOException e) {
+			throw new EccoException("Error writing the log.", e);
+		}
+	}
+
+	/**
+	 * Writes the whole database to a new snapshot and clears the log.
+	 */
+	private void compact() throws IOException {
+		Path snapshotFile = this.repositoryDir.resolve(SNAPSHOT_FILE_NAME);
+		Path tempFile = this.repositoryDir.resolve(SNAPSHOT_FILE_NAME + ".tmp");
+
+		long generation = this.generation + 1;
+		try (FileOutputStream fos = new FileOutputStream(tempFile.toFile());
+			 ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(fos))) {
+			out.writeInt(MAGIC);
+			out.writeLong(generation);
+			out.writeObject(this.database);
+			out.flush();
+			fos.getFD().sync();
+		}
+		Files.move(tempFile, snapshotFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+
+		this.generation = generation;
+		this.snapshotSize = Files.size(snapshotFile);
+		this.resetLog();
+	}
+
+	private void resetLog() throws IOException {
+		ByteBuffer header = ByteBuffer.allocate(LOG_HEADER_SIZE);
+		header.putInt(MAGIC);
+		header.putLong(this.generation);
+		header.flip();
+
+		this.log.truncate(0);
+		this.log.position(0);
+		while (header.hasRemaining())
+			this.log.write(header);
+		this.log.force(false);
+	}
+
+	private static int checksum(byte[] payload) {
+		CRC32 crc = new CRC32();
+		crc.update(payload, 0, payload.length);
+		return (int) crc.getValue();
+	}
+
+}
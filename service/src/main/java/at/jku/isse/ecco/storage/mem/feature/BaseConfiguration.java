@@ -3,12 +3,17 @@ package at.jku.isse.ecco.storage.mem.feature;
 import at.jku.isse.ecco.feature.*;
 import at.jku.isse.ecco.storage.mem.module.BaseModule;
 import at.jku.isse.ecco.storage.mem.module.BaseModuleFeature;
+import at.jku.isse.ecco.storage.mem.module.FeatureVersionIndex;
 import at.jku.isse.ecco.module.Module;
 import at.jku.isse.ecco.module.ModuleFeature;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.Set;
 
 /**
@@ -17,13 +22,30 @@ import java.util.Set;
  * @author JKU, ISSE
  * @version 1.0
  */
-public class BaseConfiguration implements Configuration, ConfigurationOperator.ConfigurationOperand {
+public class BaseConfiguration implements Configuration, ConfigurationOperator.ConfigurationOperand, Serializable {
+
+	private static final long serialVersionUID = 1L;
 
 	private transient ConfigurationOperator operator = new ConfigurationOperator(this);
 
 
+	private final FeatureVersionIndex index;
+
 	private final Set<FeatureInstance> featureInstances = new HashSet<>();
 
+
+	public BaseConfiguration() {
+		this(new FeatureVersionIndex());
+	}
+
+	/**
+	 * @param index The index in which the modules of the configuration are created.
+	 */
+	public BaseConfiguration(FeatureVersionIndex index) {
+		this.index = index;
+	}
+
+
 	@Override
 	public Set<FeatureInstance> getFeatureInstances() {
 		return this.featureInstances;
@@ -65,7 +87,7 @@ public class BaseConfiguration implements Configuration, ConfigurationOperator.C
 	// operations
 
 	public Module createModule() {
-		return new BaseModule();
+		return new BaseModule(this.index);
 	}
 
 	public ModuleFeature createModuleFeature(ModuleFeature moduleFeature) {
@@ -77,7 +99,7 @@ public class BaseConfiguration implements Configuration, ConfigurationOperator.C
 	}
 
 	public ModuleFeature createModuleFeature(Feature feature, Collection<FeatureVersion> featureVersions, boolean sign) {
-		return new BaseModuleFeature(feature, featureVersions, sign);
+		return new BaseModuleFeature(this.index, feature, featureVersions, sign);
 	}
 
 	@Override
@@ -85,4 +107,22 @@ public class BaseConfiguration implements Configuration, ConfigurationOperator.C
 		return this.operator.computeModules(maxOrder);
 	}
 
+	@Override
+	public long countModules(int maxOrder) {
+		return this.operator.countModules(maxOrder);
+	}
+
+	@Override
+	public Iterator<Module> iterateModules(int maxOrder) {
+		return this.operator.iterateModules(maxOrder);
+	}
+
+
+	// SERIALIZATION
+
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		this.operator = new ConfigurationOperator(this);
+		in.defaultReadObject();
+	}
+
 }
@@ -19,6 +19,8 @@ import static com.google.common.base.Preconditions.checkNotNull;
  */
 public class BaseFeature implements Feature {
 
+	private static final long serialVersionUID = 1L;
+
 	private String id = "";
 	private String name = "";
 	private String description = "";
@@ -14,6 +14,8 @@ import static com.google.common.base.Preconditions.checkNotNull;
  */
 public class BaseFeatureInstance implements FeatureInstance {
 
+	private static final long serialVersionUID = 1L;
+
 	private Feature feature;
 	private FeatureVersion featureVersion;
 	private boolean sign;
@@ -14,6 +14,8 @@ import static com.google.common.base.Preconditions.checkNotNull;
  */
 public class BaseFeatureVersion implements FeatureVersion {
 
+	private static final long serialVersionUID = 1L;
+
 	private Feature feature;
 	private String id;
 	private String description;
@@ -1,67 +1,241 @@
 package at.jku.isse.ecco.storage.mem.module;
 
+import at.jku.isse.ecco.EccoException;
 import at.jku.isse.ecco.feature.Configuration;
 import at.jku.isse.ecco.feature.Feature;
 import at.jku.isse.ecco.feature.FeatureInstance;
 import at.jku.isse.ecco.feature.FeatureVersion;
 import at.jku.isse.ecco.module.Module;
 import at.jku.isse.ecco.module.ModuleFeature;
+import at.jku.isse.ecco.module.PresenceConditionEvaluator;
 
-import java.util.Collection;
-import java.util.HashSet;
-import java.util.Iterator;
-import java.util.Set;
+import java.util.*;
 import java.util.stream.Collectors;
 
 /**
- * Memory implementation of {@link Feature}.
+ * Memory implementation of {@link Module}.
+ * <p>
+ * A module is stored as two bitsets over the ids of a {@link FeatureVersionIndex}, one for the positive and one for the negative module features.
+ * The versions of one feature with the same sign form one module feature, i.e. a module contains at most one positive and one negative module feature per feature.
+ * Adding a module feature of a feature that is already contained with the same sign but with other versions is therefore rejected (see {@link #add(ModuleFeature)}).
+ * The module features returned when iterating a module are copies, changing them does not change the module.
+ * Modules of different indices are equal if they contain the same feature versions, their hash codes are computed from the feature versions and not from the ids.
+ * Modules are serialized together with their index.
  *
  * @author JKU, ISSE
  * @version 1.0
  */
-public class BaseModule implements Module {
+public class BaseModule implements Module, PresenceConditionEvaluator.Evaluable {
 
-	protected Set<ModuleFeature> moduleFeatures;
+	private static final long serialVersionUID = 1L;
+
+	protected final FeatureVersionIndex index;
+
+	protected BitSet positive;
+	protected BitSet negative;
+
+	private transient int hash = 0; // cached hash code, 0 if not computed or invalidated by a modification
 
 	public BaseModule() {
-		this.moduleFeatures = new HashSet<ModuleFeature>();
+		this(new FeatureVersionIndex());
+	}
+
+	public BaseModule(FeatureVersionIndex index) {
+		this.index = index;
+		this.positive = new BitSet();
+		this.negative = new BitSet();
 	}
 
 	public BaseModule(BaseModule module) {
-		this.moduleFeatures = new HashSet<ModuleFeature>(module.moduleFeatures);
+		this.index = module.index;
+		this.positive = (BitSet) module.positive.clone();
+		this.negative = (BitSet) module.negative.clone();
+	}
+
+	public BaseModule(FeatureVersionIndex index, Module module) {
+		this(index);
+		this.addAll(module);
+	}
+
+	FeatureVersionIndex getIndex() {
+		return this.index;
 	}
 
 	@Override
 	public boolean holds(Configuration configuration) {
+		BitSet positiveInstances = new BitSet();
+		BitSet negativeInstances = new BitSet();
+		encode(this.index, configuration, positiveInstances, negativeInstances);
+		return this.holds(positiveInstances, negativeInstances);
+	}
+
+	@Override
+	public boolean holds(PresenceConditionEvaluator evaluator) {
+		BitSet[] instances = encode(this.index, evaluator);
+		return this.holds(instances[0], instances[1]);
+	}
+
+	/**
+	 * Checks if the module holds in a configuration given as the ids of its positive and negative feature instances in the index of the module (see {@link #encode(FeatureVersionIndex, Configuration, BitSet, BitSet)}).
+	 */
+	boolean holds(BitSet positiveInstances, BitSet negativeInstances) {
 		/**
 		 * A module holds in a configuration when all the module's features are contained in the configuration.
 		 */
+		return this.holdsAll(this.positive, positiveInstances) && this.holdsAll(this.negative, negativeInstances);
+	}
 
-		Set<FeatureInstance> featureInstances = configuration.getFeatureInstances();
-		for (ModuleFeature mf : this) {
-
-			boolean atLeastOneVersionMatched = false;
-			for (FeatureVersion fv : mf) {
-				for (FeatureInstance fi : featureInstances) {
-					if (fi.getFeatureVersion().equals(fv) && fi.getSign() == mf.getSign()) {
-						atLeastOneVersionMatched = true;
-						break;
-					}
-				}
-				if (atLeastOneVersionMatched)
-					break;
+	private boolean holdsAll(BitSet moduleFeatures, BitSet featureInstances) {
+		int missing = -1;
+		for (int id = moduleFeatures.nextSetBit(0); id >= 0; id = moduleFeatures.nextSetBit(id + 1)) {
+			if (!featureInstances.get(id)) {
+				missing = id;
+				break;
 			}
-
-			if (!atLeastOneVersionMatched)
+		}
+		if (missing < 0)
+			return true;
+
+		// a module feature with several versions holds if at least one of its versions is contained in the configuration
+		BitSet matched = (BitSet) moduleFeatures.clone();
+		matched.and(featureInstances);
+		for (int id = missing; id >= 0; id = moduleFeatures.nextSetBit(id + 1)) {
+			if (!featureInstances.get(id) && !matched.intersects(this.index.getFeatureMask(id)))
 				return false;
 		}
-
 		return true;
 	}
 
+	/**
+	 * Returns the ids in the given index of the feature versions of the positive and negative feature instances in the configuration of the given evaluator.
+	 * The encoding is computed once per evaluator and index. It assigns ids to feature versions of the configuration that have none yet, so that it stays valid when the index grows.
+	 */
+	static BitSet[] encode(FeatureVersionIndex index, PresenceConditionEvaluator evaluator) {
+		return evaluator.getEncoding(index, configuration -> {
+			BitSet positiveInstances = new BitSet();
+			BitSet negativeInstances = new BitSet();
+			for (FeatureInstance featureInstance : configuration.getFeatureInstances()) {
+				int id = index.getId(featureInstance.getFeatureVersion());
+				if (featureInstance.getSign())
+					positiveInstances.set(id);
+				else
+					negativeInstances.set(id);
+			}
+			return new BitSet[]{positiveInstances, negativeInstances};
+		});
+	}
+
+	/**
+	 * Sets the ids in the given index of the feature versions of the positive and negative feature instances in the given configuration.
+	 */
+	static void encode(FeatureVersionIndex index, Configuration configuration, BitSet positiveInstances, BitSet negativeInstances) {
+		for (FeatureInstance featureInstance : configuration.getFeatureInstances()) {
+			int id = index.indexOf(featureInstance.getFeatureVersion());
+			if (id >= 0) {
+				if (featureInstance.getSign())
+					positiveInstances.set(id);
+				else
+					negativeInstances.set(id);
+			}
+		}
+	}
+
+	/**
+	 * Checks if the module contains any version of the feature with the given version ids, positive or negative.
+	 */
+	boolean containsFeature(BitSet featureMask) {
+		return this.positive.intersects(featureMask) || this.negative.intersects(featureMask);
+	}
+
+	/**
+	 * Adds the feature version with the given id as a module feature with the given sign.
+	 */
+	void add(int id, boolean sign) {
+		this.getModuleFeatures(sign).set(id);
+		this.hash = 0;
+	}
+
+	/**
+	 * Checks that the module features with the given ids do not differ from the module features of the same features in the given module features of this module.
+	 */
+	private void checkCompatible(BitSet moduleFeatures, BitSet ids) {
+		for (int id = ids.nextSetBit(0); id >= 0; id = ids.nextSetBit(id + 1)) {
+			BitSet featureMask = this.index.getFeatureMask(id);
+			if (moduleFeatures.intersects(featureMask)) {
+				BitSet contained = (BitSet) moduleFeatures.clone();
+				contained.and(featureMask);
+				BitSet added = (BitSet) ids.clone();
+				added.and(featureMask);
+				if (!contained.equals(added))
+					throw new EccoException("Module " + this + " already contains a different module feature of feature " + this.index.getFeatureVersion(id).getFeature() + ".");
+			}
+		}
+	}
+
+	private BitSet getModuleFeatures(boolean sign) {
+		return sign ? this.positive : this.negative;
+	}
+
+	private BitSet getFeatureVersionIds(ModuleFeature moduleFeature, boolean assign) {
+		if (moduleFeature instanceof BaseModuleFeature) {
+			BaseModuleFeature baseModuleFeature = (BaseModuleFeature) moduleFeature;
+			return this.index.translate(baseModuleFeature.getFeatureVersionIds(), baseModuleFeature.getIndex(), assign);
+		}
+		BitSet ids = new BitSet();
+		for (FeatureVersion featureVersion : moduleFeature) {
+			int id = assign ? this.index.getId(featureVersion) : this.index.indexOf(featureVersion);
+			if (id < 0)
+				return null;
+			ids.set(id);
+		}
+		return ids;
+	}
+
+	private List<ModuleFeature> getModuleFeatures() {
+		List<ModuleFeature> moduleFeatures = new ArrayList<>();
+		this.addModuleFeatures(this.positive, true, moduleFeatures);
+		this.addModuleFeatures(this.negative, false, moduleFeatures);
+		return moduleFeatures;
+	}
+
+	private void addModuleFeatures(BitSet moduleFeatures, boolean sign, List<ModuleFeature> result) {
+		BitSet remaining = (BitSet) moduleFeatures.clone();
+		for (int id = remaining.nextSetBit(0); id >= 0; id = remaining.nextSetBit(id + 1)) {
+			BitSet featureVersions = (BitSet) remaining.clone();
+			featureVersions.and(this.index.getFeatureMask(id));
+			remaining.andNot(featureVersions);
+			Feature feature = this.index.getFeatureVersion(id).getFeature();
+			result.add(new BaseModuleFeature(this.index, feature, featureVersions, sign));
+		}
+	}
+
+	private int countModuleFeatures(BitSet moduleFeatures) {
+		if (moduleFeatures.isEmpty())
+			return 0;
+		BitSet remaining = (BitSet) moduleFeatures.clone();
+		int count = 0;
+		for (int id = remaining.nextSetBit(0); id >= 0; id = remaining.nextSetBit(id + 1)) {
+			remaining.andNot(this.index.getFeatureMask(id));
+			count++;
+		}
+		return count;
+	}
+
+	/**
+	 * Hashes the feature versions with the given ids. The hashes of the feature versions are mixed separately and do not depend on the ids, so that equal modules of different indices have the same hash code.
+	 */
+	static int hashCode(FeatureVersionIndex index, BitSet ids, boolean sign) {
+		int result = 0;
+		for (int id = ids.nextSetBit(0); id >= 0; id = ids.nextSetBit(id + 1))
+			result += sign ? index.getHash(id) : Integer.rotateLeft(index.getHash(id), 16) * 0x9E3779B9;
+		return result;
+	}
+
 	@Override
 	public int hashCode() {
-		return this.moduleFeatures.hashCode();
+		if (this.hash == 0)
+			this.hash = hashCode(this.index, this.positive, true) + hashCode(this.index, this.negative, false);
+		return this.hash;
 	}
 
 	@Override
@@ -71,7 +245,10 @@ public class BaseModule implements Module {
 
 		BaseModule that = (BaseModule) o;
 
-		return this.moduleFeatures.equals(that.moduleFeatures);
+		if (this.index == that.index)
+			return this.positive.equals(that.positive) && this.negative.equals(that.negative);
+		return this.positive.cardinality() == that.positive.cardinality() && this.negative.cardinality() == that.negative.cardinality()
+				&& this.positive.equals(this.index.translate(that.positive, that.index, false)) && this.negative.equals(this.index.translate(that.negative, that.index, false));
 	}
 
 	@Override
@@ -88,67 +265,147 @@ public class BaseModule implements Module {
 
 	@Override
 	public int size() {
-		return this.moduleFeatures.size();
+		return countModuleFeatures(this.positive) + countModuleFeatures(this.negative);
 	}
 
 	@Override
 	public boolean isEmpty() {
-		return this.moduleFeatures.isEmpty();
+		return this.positive.isEmpty() && this.negative.isEmpty();
 	}
 
 	@Override
 	public boolean contains(Object o) {
-		return this.moduleFeatures.contains(o);
+		if (!(o instanceof ModuleFeature))
+			return false;
+		ModuleFeature moduleFeature = (ModuleFeature) o;
+		BitSet ids = getFeatureVersionIds(moduleFeature, false);
+		if (ids == null || ids.isEmpty())
+			return false;
+		BitSet contained = (BitSet) this.getModuleFeatures(moduleFeature.getSign()).clone();
+		contained.and(this.index.getFeatureMask(ids.nextSetBit(0)));
+		return contained.equals(ids);
 	}
 
 	@Override
 	public Iterator<ModuleFeature> iterator() {
-		return this.moduleFeatures.iterator();
+		Iterator<ModuleFeature> it = this.getModuleFeatures().iterator();
+		return new Iterator<ModuleFeature>() {
+			private ModuleFeature last = null;
+
+			@Override
+			public boolean hasNext() {
+				return it.hasNext();
+			}
+
+			@Override
+			public ModuleFeature next() {
+				this.last = it.next();
+				return this.last;
+			}
+
+			@Override
+			public void remove() {
+				if (this.last == null)
+					throw new IllegalStateException();
+				BaseModule.this.remove(this.last);
+				this.last = null;
+			}
+		};
 	}
 
 	@Override
 	public Object[] toArray() {
-		return this.moduleFeatures.toArray();
+		return this.getModuleFeatures().toArray();
 	}
 
 	@Override
 	public <T> T[] toArray(T[] ts) {
-		return this.moduleFeatures.<T>toArray(ts);
+		return this.getModuleFeatures().toArray(ts);
 	}
 
+	/**
+	 * Adds the given module feature unless it is already contained.
+	 *
+	 * @param moduleFeature The module feature.
+	 * @return True if the module changed.
+	 * @throws EccoException If the module already contains a different module feature of the same feature with the same sign, as both cannot be represented at once.
+	 */
 	@Override
 	public boolean add(ModuleFeature moduleFeature) {
-		return this.moduleFeatures.add(moduleFeature);
+		BitSet ids = getFeatureVersionIds(moduleFeature, true);
+		BitSet moduleFeatures = this.getModuleFeatures(moduleFeature.getSign());
+		this.checkCompatible(moduleFeatures, ids);
+		int cardinality = moduleFeatures.cardinality();
+		moduleFeatures.or(ids);
+		this.hash = 0;
+		return moduleFeatures.cardinality() != cardinality;
 	}
 
 	@Override
 	public boolean remove(Object o) {
-		return this.moduleFeatures.remove(o);
+		if (!this.contains(o))
+			return false;
+		ModuleFeature moduleFeature = (ModuleFeature) o;
+		this.getModuleFeatures(moduleFeature.getSign()).andNot(getFeatureVersionIds(moduleFeature, false));
+		this.hash = 0;
+		return true;
 	}
 
 	@Override
 	public boolean containsAll(Collection<?> collection) {
-		return this.moduleFeatures.containsAll(collection);
+		for (Object o : collection) {
+			if (!this.contains(o))
+				return false;
+		}
+		return true;
 	}
 
 	@Override
 	public boolean addAll(Collection<? extends ModuleFeature> collection) {
-		return this.moduleFeatures.addAll(collection);
+		if (collection instanceof BaseModule) {
+			BaseModule module = (BaseModule) collection;
+			BitSet positive = this.index.translate(module.positive, module.index, true);
+			BitSet negative = this.index.translate(module.negative, module.index, true);
+			this.checkCompatible(this.positive, positive);
+			this.checkCompatible(this.negative, negative);
+			int cardinality = this.positive.cardinality() + this.negative.cardinality();
+			this.positive.or(positive);
+			this.negative.or(negative);
+			this.hash = 0;
+			return this.positive.cardinality() + this.negative.cardinality() != cardinality;
+		}
+		boolean changed = false;
+		for (ModuleFeature moduleFeature : collection)
+			changed |= this.add(moduleFeature);
+		return changed;
 	}
 
 	@Override
 	public boolean retainAll(Collection<?> collection) {
-		return this.moduleFeatures.retainAll(collection);
+		boolean changed = false;
+		Iterator<ModuleFeature> it = this.iterator();
+		while (it.hasNext()) {
+			if (!collection.contains(it.next())) {
+				it.remove();
+				changed = true;
+			}
+		}
+		return changed;
 	}
 
 	@Override
 	public boolean removeAll(Collection<?> collection) {
-		return this.moduleFeatures.removeAll(collection);
+		boolean changed = false;
+		for (Object o : collection)
+			changed |= this.remove(o);
+		return changed;
 	}
 
 	@Override
 	public void clear() {
-		this.moduleFeatures.clear();
+		this.positive.clear();
+		this.negative.clear();
+		this.hash = 0;
 	}
 
 }
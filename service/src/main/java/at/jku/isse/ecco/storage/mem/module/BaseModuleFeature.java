@@ -4,38 +4,48 @@ import at.jku.isse.ecco.feature.Feature;
 import at.jku.isse.ecco.feature.FeatureVersion;
 import at.jku.isse.ecco.module.ModuleFeature;
 
-import java.util.Collection;
-import java.util.HashSet;
-import java.util.Iterator;
-import java.util.Set;
+import java.util.*;
 import java.util.stream.Collectors;
 
+/**
+ * Memory implementation of {@link ModuleFeature}.
+ * <p>
+ * The feature versions are stored as a bitset of their ids in a {@link FeatureVersionIndex} and serialized together with the index.
+ */
 public class BaseModuleFeature implements ModuleFeature {
 
-	protected Set<FeatureVersion> featureVersions;
+	private static final long serialVersionUID = 1L;
+
+	protected final FeatureVersionIndex index;
+
+	protected BitSet featureVersions;
 
 	private Feature feature;
 	private boolean sign;
 
 	public BaseModuleFeature() {
-		this.feature = null;
-		this.sign = true;
-
-		this.featureVersions = new HashSet<FeatureVersion>();
+		this(new FeatureVersionIndex(), null, true);
 	}
 
-	public BaseModuleFeature(Feature feature, boolean sign) {
+	public BaseModuleFeature(FeatureVersionIndex index, Feature feature, boolean sign) {
+		this.index = index;
 		this.feature = feature;
 		this.sign = sign;
 
-		this.featureVersions = new HashSet<FeatureVersion>();
+		this.featureVersions = new BitSet();
+	}
+
+	public BaseModuleFeature(FeatureVersionIndex index, Feature feature, Collection<FeatureVersion> featureVersions, boolean sign) {
+		this(index, feature, sign);
+		this.addAll(featureVersions);
 	}
 
-	public BaseModuleFeature(Feature feature, Collection<FeatureVersion> featureVersions, boolean sign) {
+	BaseModuleFeature(FeatureVersionIndex index, Feature feature, BitSet featureVersions, boolean sign) {
+		this.index = index;
 		this.feature = feature;
 		this.sign = sign;
 
-		this.featureVersions = new HashSet<FeatureVersion>(featureVersions);
+		this.featureVersions = featureVersions;
 	}
 
 	@Override
@@ -48,11 +58,17 @@ public class BaseModuleFeature implements ModuleFeature {
 		return this.sign;
 	}
 
+	FeatureVersionIndex getIndex() {
+		return this.index;
+	}
+
+	BitSet getFeatureVersionIds() {
+		return this.featureVersions;
+	}
+
 	@Override
 	public int hashCode() {
-		int result = featureVersions.hashCode();
-		result = 31 * result + (sign ? 1 : 0);
-		return result;
+		return BaseModule.hashCode(this.index, this.featureVersions, this.sign);
 	}
 
 	@Override
@@ -63,7 +79,9 @@ public class BaseModuleFeature implements ModuleFeature {
 		BaseModuleFeature that = (BaseModuleFeature) o;
 
 		if (sign != that.sign) return false;
-		return featureVersions.equals(that.featureVersions);
+		if (this.index == that.index)
+			return featureVersions.equals(that.featureVersions);
+		return featureVersions.cardinality() == that.featureVersions.cardinality() && featureVersions.equals(this.index.translate(that.featureVersions, that.index, false));
 	}
 
 	@Override
@@ -77,7 +95,7 @@ public class BaseModuleFeature implements ModuleFeature {
 
 	@Override
 	public int size() {
-		return this.featureVersions.size();
+		return this.featureVersions.cardinality();
 	}
 
 	@Override
@@ -87,52 +105,105 @@ public class BaseModuleFeature implements ModuleFeature {
 
 	@Override
 	public boolean contains(Object o) {
-		return this.featureVersions.contains(o);
+		if (!(o instanceof FeatureVersion))
+			return false;
+		int id = this.index.indexOf((FeatureVersion) o);
+		return id >= 0 && this.featureVersions.get(id);
 	}
 
 	@Override
 	public Iterator<FeatureVersion> iterator() {
-		return this.featureVersions.iterator();
+		return new Iterator<FeatureVersion>() {
+			private int next = featureVersions.nextSetBit(0);
+			private int last = -1;
+
+			@Override
+			public boolean hasNext() {
+				return this.next >= 0;
+			}
+
+			@Override
+			public FeatureVersion next() {
+				if (this.next < 0)
+					throw new NoSuchElementException();
+				this.last = this.next;
+				this.next = featureVersions.nextSetBit(this.next + 1);
+				return index.getFeatureVersion(this.last);
+			}
+
+			@Override
+			public void remove() {
+				if (this.last < 0)
+					throw new IllegalStateException();
+				featureVersions.clear(this.last);
+				this.last = -1;
+			}
+		};
 	}
 
 	@Override
 	public Object[] toArray() {
-		return this.featureVersions.toArray();
+		return new ArrayList<>(this).toArray();
 	}
 
 	@Override
 	public <T> T[] toArray(T[] ts) {
-		return this.featureVersions.<T>toArray(ts);
+		return new ArrayList<>(this).toArray(ts);
 	}
 
 	@Override
 	public boolean add(FeatureVersion moduleFeature) {
-		return this.featureVersions.add(moduleFeature);
+		int id = this.index.getId(moduleFeature);
+		if (this.featureVersions.get(id))
+			return false;
+		this.featureVersions.set(id);
+		return true;
 	}
 
 	@Override
 	public boolean remove(Object o) {
-		return this.featureVersions.remove(o);
+		if (!this.contains(o))
+			return false;
+		this.featureVersions.clear(this.index.indexOf((FeatureVersion) o));
+		return true;
 	}
 
 	@Override
 	public boolean containsAll(Collection<?> collection) {
-		return this.featureVersions.containsAll(collection);
+		for (Object o : collection) {
+			if (!this.contains(o))
+				return false;
+		}
+		return true;
 	}
 
 	@Override
 	public boolean addAll(Collection<? extends FeatureVersion> collection) {
-		return this.featureVersions.addAll(collection);
+		boolean changed = false;
+		for (FeatureVersion featureVersion : collection)
+			changed |= this.add(featureVersion);
+		return changed;
 	}
 
 	@Override
 	public boolean retainAll(Collection<?> collection) {
-		return this.featureVersions.retainAll(collection);
+		boolean changed = false;
+		Iterator<FeatureVersion> it = this.iterator();
+		while (it.hasNext()) {
+			if (!collection.contains(it.next())) {
+				it.remove();
+				changed = true;
+			}
+		}
+		return changed;
 	}
 
 	@Override
 	public boolean removeAll(Collection<?> collection) {
-		return this.featureVersions.removeAll(collection);
+		boolean changed = false;
+		for (Object o : collection)
+			changed |= this.remove(o);
+		return changed;
 	}
 
 	@Override
@@ -5,24 +5,33 @@ import at.jku.isse.ecco.feature.*;
 import at.jku.isse.ecco.module.Module;
 import at.jku.isse.ecco.module.ModuleFeature;
 import at.jku.isse.ecco.module.PresenceCondition;
+import at.jku.isse.ecco.module.PresenceConditionEvaluator;
 import at.jku.isse.ecco.module.PresenceConditionOperator;
 import at.jku.isse.ecco.storage.mem.feature.BaseFeatureInstance;
 
-import java.util.ArrayList;
-import java.util.Collection;
-import java.util.HashSet;
-import java.util.Set;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.util.*;
 
 /**
  * Memory implementation of {@link PresenceCondition}.
+ * <p>
+ * The modules are {@link BaseModule}s, i.e. pairs of feature version bitsets, so that hashing and comparing modules in the module set operations reduces to a few word operations.
+ * Holds, adding feature instances and adding feature versions work on the bitsets directly.
+ * New modules are created in the {@link FeatureVersionIndex} of the presence condition, which is the index of the repository or entity factory that created it.
  *
  * @author JKU, ISSE
  * @version 1.0
  */
-public class BasePresenceCondition implements PresenceCondition, PresenceConditionOperator.PresenceConditionOperand {
+public class BasePresenceCondition implements PresenceCondition, PresenceConditionOperator.PresenceConditionOperand, PresenceConditionEvaluator.Evaluable, Serializable {
+
+	private static final long serialVersionUID = 1L;
 
 	private transient PresenceConditionOperator operator = new PresenceConditionOperator(this);
 
+	private final FeatureVersionIndex index;
+
 
 	// each of these is a list of "modules", i.e. a "module expression", i.e. an expression composed of modules
 	protected Set<Module> minModules = new HashSet<Module>();
@@ -41,18 +50,68 @@ public class BasePresenceCondition implements PresenceCondition, PresenceConditi
 
 
 	public BasePresenceCondition() {
-		super();
+		this(new FeatureVersionIndex());
 	}
 
-	public BasePresenceCondition(Configuration configuration, int maxOrder) {
+	public BasePresenceCondition(FeatureVersionIndex index) {
 		super();
+		this.index = index;
+	}
+
+	public BasePresenceCondition(FeatureVersionIndex index, Configuration configuration, int maxOrder) {
+		this(index);
 		this.operator.initialize(configuration, maxOrder);
 	}
 
 
 	@Override
 	public boolean holds(Configuration configuration) {
-		return this.operator.holds(configuration);
+		// a presence condition holds in a configuration when at least one of the modules in minModules or maxModules holds. the configuration is encoded only once for all modules of the index of the presence condition.
+		BitSet positiveInstances = new BitSet();
+		BitSet negativeInstances = new BitSet();
+		BaseModule.encode(this.index, configuration, positiveInstances, negativeInstances);
+
+		for (Module module : this.minModules) {
+			if (this.holds(module, configuration, positiveInstances, negativeInstances))
+				return true;
+		}
+		if (this.minModules.isEmpty()) {
+			for (Module module : this.maxModules) {
+				if (this.holds(module, configuration, positiveInstances, negativeInstances))
+					return true;
+			}
+		}
+		return false;
+	}
+
+	private boolean holds(Module module, Configuration configuration, BitSet positiveInstances, BitSet negativeInstances) {
+		if (module instanceof BaseModule && ((BaseModule) module).getIndex() == this.index)
+			return ((BaseModule) module).holds(positiveInstances, negativeInstances);
+		return module.holds(configuration);
+	}
+
+	@Override
+	public boolean holds(PresenceConditionEvaluator evaluator) {
+		// same as holds(Configuration), but the configuration is encoded only once per evaluator
+		BitSet[] instances = BaseModule.encode(this.index, evaluator);
+
+		for (Module module : this.minModules) {
+			if (this.holds(module, evaluator, instances))
+				return true;
+		}
+		if (this.minModules.isEmpty()) {
+			for (Module module : this.maxModules) {
+				if (this.holds(module, evaluator, instances))
+					return true;
+			}
+		}
+		return false;
+	}
+
+	private boolean holds(Module module, PresenceConditionEvaluator evaluator, BitSet[] instances) {
+		if (module instanceof BaseModule && ((BaseModule) module).getIndex() == this.index)
+			return ((BaseModule) module).holds(instances[0], instances[1]);
+		return evaluator.holds(module);
 	}
 
 	@Override
@@ -77,12 +136,51 @@ public class BasePresenceCondition implements PresenceCondition, PresenceConditi
 
 	@Override
 	public void addFeatureInstance(FeatureInstance featureInstance, int maxOrder) {
-		this.operator.addFeatureInstance(featureInstance, maxOrder);
+		// adds the feature instance to every module that does not already contain the feature
+		for (Set<Module> modules : Arrays.asList(this.minModules, this.maxModules, this.notModules, this.allModules)) {
+			List<Module> modulesToAdd = new ArrayList<>();
+			for (Module module : modules) {
+				BaseModule baseModule = this.toBaseModule(module);
+				int id = baseModule.getIndex().getId(featureInstance.getFeatureVersion());
+				BitSet featureMask = baseModule.getIndex().getFeatureMask(id);
+				if (baseModule.containsFeature(featureMask) || baseModule.size() >= maxOrder)
+					continue;
+				BaseModule newModule = new BaseModule(baseModule);
+				newModule.add(id, featureInstance.getSign());
+				modulesToAdd.add(newModule);
+			}
+			modules.addAll(modulesToAdd);
+		}
 	}
 
 	@Override
 	public void addFeatureVersion(FeatureVersion newFeatureVersion) {
-		this.operator.addFeatureVersion(newFeatureVersion);
+		// adds the feature version to the module features of every module that contains the feature but not the feature version
+		for (Set<Module> modules : Arrays.asList(this.minModules, this.maxModules, this.notModules, this.allModules)) {
+			List<Module> modulesToAdd = new ArrayList<>();
+			for (Module module : modules) {
+				BaseModule baseModule = this.toBaseModule(module);
+				int id = baseModule.getIndex().getId(newFeatureVersion);
+				BitSet featureMask = baseModule.getIndex().getFeatureMask(id);
+				boolean positiveContained = baseModule.positive.intersects(featureMask);
+				boolean negativeContained = baseModule.negative.intersects(featureMask);
+				if (!positiveContained && !negativeContained || baseModule.positive.get(id) || baseModule.negative.get(id))
+					continue;
+				BaseModule newModule = new BaseModule(baseModule);
+				if (positiveContained)
+					newModule.add(id, true);
+				if (negativeContained)
+					newModule.add(id, false);
+				modulesToAdd.add(newModule);
+			}
+			modules.addAll(modulesToAdd);
+		}
+	}
+
+	private BaseModule toBaseModule(Module module) {
+		if (module instanceof BaseModule)
+			return (BaseModule) module;
+		return new BaseModule(this.index, module);
 	}
 
 	@Override
@@ -120,7 +218,7 @@ public class BasePresenceCondition implements PresenceCondition, PresenceConditi
 
 	@Override
 	public Module createModule() {
-		return new BaseModule();
+		return new BaseModule(this.index);
 	}
 
 	@Override
@@ -135,12 +233,12 @@ public class BasePresenceCondition implements PresenceCondition, PresenceConditi
 
 	@Override
 	public ModuleFeature createModuleFeature(Feature feature, Collection<FeatureVersion> featureVersions, boolean sign) {
-		return new BaseModuleFeature(feature, featureVersions, sign);
+		return new BaseModuleFeature(this.index, feature, featureVersions, sign);
 	}
 
 	@Override
 	public PresenceConditionOperator.PresenceConditionOperand createPresenceCondition() {
-		return new BasePresenceCondition();
+		return new BasePresenceCondition(this.index);
 	}
 
 
@@ -406,4 +504,12 @@ public class BasePresenceCondition implements PresenceCondition, PresenceConditi
 //		return result;
 //	}
 
+
+	// SERIALIZATION
+
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		this.operator = new PresenceConditionOperator(this);
+		in.defaultReadObject();
+	}
+
 }
@@ -0,0 +1,214 @@
+package at.jku.isse.ecco.storage.mem.module;
+
+import at.jku.isse.ecco.feature.Feature;
+import at.jku.isse.ecco.feature.FeatureVersion;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.BitSet;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Assigns dense integer ids to feature versions so that modules and module features can be encoded as bitsets.
+ * <p>
+ * Every {@link at.jku.isse.ecco.storage.mem.repository.MemRepository} and every {@link at.jku.isse.ecco.storage.mem.dao.MemEntityFactory} has its own index which lives as long as its owner, modules and module features keep a reference to the index their ids belong to.
+ * Feature versions are identified by equality (i.e. feature id and version id) and ids are never reused within an index.
+ * Lookups are lock free, new ids are assigned under a lock.
+ * <p>
+ * Only the feature versions are serialized, the lookup maps are built again when the index is first used after it was read.
+ */
+public final class FeatureVersionIndex implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	private static final BitSet EMPTY = new BitSet();
+
+	private transient volatile Map<FeatureVersion, Integer> versionIds = null;
+	private transient Map<Feature, BitSet> featureMasks;
+	private transient volatile int[] hashes;
+
+	private transient volatile FeatureVersion[] versions;
+	private transient int size;
+
+
+	public FeatureVersionIndex() {
+		this.versionIds = new ConcurrentHashMap<>();
+		this.featureMasks = new ConcurrentHashMap<>();
+		this.versions = new FeatureVersion[64];
+		this.hashes = new int[64];
+		this.size = 0;
+	}
+
+
+	/**
+	 * Returns the id of the given feature version and assigns a new one if the feature version has none yet.
+	 *
+	 * @param featureVersion The feature version.
+	 * @return The id of the feature version.
+	 */
+	public int getId(FeatureVersion featureVersion) {
+		Integer id = this.getVersionIds().get(featureVersion);
+		if (id != null)
+			return id;
+
+		synchronized (this) {
+			id = this.versionIds.get(featureVersion);
+			if (id != null)
+				return id;
+
+			if (this.size >= this.versions.length) {
+				FeatureVersion[] newVersions = new FeatureVersion[this.versions.length * 2];
+				System.arraycopy(this.versions, 0, newVersions, 0, this.size);
+				int[] newHashes = new int[this.versions.length * 2];
+				System.arraycopy(this.hashes, 0, newHashes, 0, this.size);
+				this.hashes = newHashes;
+				this.versions = newVersions;
+			}
+			this.register(featureVersion, this.size, this.versionIds);
+
+			return this.size++;
+		}
+	}
+
+	/**
+	 * Returns the id of the given feature version or -1 if it has none.
+	 *
+	 * @param featureVersion The feature version.
+	 * @return The id of the feature version or -1.
+	 */
+	public int indexOf(FeatureVersion featureVersion) {
+		Integer id = this.getVersionIds().get(featureVersion);
+		return id == null ? -1 : id;
+	}
+
+	/**
+	 * Returns the feature version with the given id.
+	 *
+	 * @param id The id of the feature version.
+	 * @return The feature version.
+	 */
+	public FeatureVersion getFeatureVersion(int id) {
+		return this.versions[id];
+	}
+
+	/**
+	 * Returns the hash code of the feature version with the given id, mixed so that it can be summed up with the hashes of other feature versions.
+	 * It only depends on the feature version, i.e. it is the same in every index.
+	 *
+	 * @param id The id of the feature version.
+	 * @return The mixed hash code of the feature version.
+	 */
+	public int getHash(int id) {
+		this.getVersionIds();
+		return this.hashes[id];
+	}
+
+	/**
+	 * Returns the ids of all versions of the given feature. The returned bitset must not be modified.
+	 *
+	 * @param feature The feature.
+	 * @return The ids of the versions of the feature.
+	 */
+	public BitSet getFeatureMask(Feature feature) {
+		this.getVersionIds();
+		BitSet mask = this.featureMasks.get(feature);
+		return mask == null ? EMPTY : mask;
+	}
+
+	/**
+	 * Returns the ids of all versions of the feature of the feature version with the given id. The returned bitset must not be modified.
+	 *
+	 * @param id The id of the feature version.
+	 * @return The ids of the versions of the same feature.
+	 */
+	public BitSet getFeatureMask(int id) {
+		return this.getFeatureMask(this.versions[id].getFeature());
+	}
+
+	/**
+	 * Returns the ids in this index of the feature versions with the given ids in another index.
+	 *
+	 * @param ids    The ids of the feature versions in the other index.
+	 * @param index  The other index.
+	 * @param assign Whether feature versions that have no id in this index yet are assigned one.
+	 * @return The ids in this index or null if a feature version has no id in this index and none was assigned.
+	 */
+	BitSet translate(BitSet ids, FeatureVersionIndex index, boolean assign) {
+		if (index == this)
+			return ids;
+		BitSet result = new BitSet();
+		for (int id = ids.nextSetBit(0); id >= 0; id = ids.nextSetBit(id + 1)) {
+			FeatureVersion featureVersion = index.getFeatureVersion(id);
+			int newId = assign ? this.getId(featureVersion) : this.indexOf(featureVersion);
+			if (newId < 0)
+				return null;
+			result.set(newId);
+		}
+		return result;
+	}
+
+
+	private void register(FeatureVersion featureVersion, int id, Map<FeatureVersion, Integer> versionIds) {
+		this.versions[id] = featureVersion;
+
+		int h = featureVersion.hashCode() * 0x9E3779B9;
+		h ^= h >>> 16;
+		h *= 0x85EBCA6B;
+		h ^= h >>> 13;
+		this.hashes[id] = h;
+
+		// masks are copied on write so that readers never see them change
+		BitSet mask = this.featureMasks.get(featureVersion.getFeature());
+		BitSet newMask = mask == null ? new BitSet() : (BitSet) mask.clone();
+		newMask.set(id);
+		this.featureMasks.put(featureVersion.getFeature(), newMask);
+
+		versionIds.put(featureVersion, id);
+	}
+
+	/**
+	 * Returns the map from feature versions to ids and builds the lookup maps first if the index was just read.
+	 * They are not built while the index is read because the feature versions may not be completely read at that point.
+	 */
+	private Map<FeatureVersion, Integer> getVersionIds() {
+		Map<FeatureVersion, Integer> map = this.versionIds;
+		if (map != null)
+			return map;
+
+		synchronized (this) {
+			if (this.versionIds == null) {
+				this.featureMasks = new ConcurrentHashMap<>();
+				this.hashes = new int[this.versions.length];
+				Map<FeatureVersion, Integer> newVersionIds = new ConcurrentHashMap<>();
+				for (int id = 0; id < this.size; id++)
+					this.register(this.versions[id], id, newVersionIds);
+				this.versionIds = newVersionIds;
+			}
+			return this.versionIds;
+		}
+	}
+
+
+	// # SERIALIZATION ####################################################
+
+	private synchronized void writeObject(ObjectOutputStream out) throws IOException {
+		out.defaultWriteObject();
+		out.writeInt(this.size);
+		for (int id = 0; id < this.size; id++)
+			out.writeObject(this.versions[id]);
+	}
+
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		this.size = in.readInt();
+		FeatureVersion[] newVersions = new FeatureVersion[Math.max(64, Integer.highestOneBit(Math.max(1, this.size)) * 2)];
+		for (int id = 0; id < this.size; id++)
+			newVersions[id] = (FeatureVersion) in.readObject();
+		this.versions = newVersions;
+		this.versionIds = null;
+	}
+
+}
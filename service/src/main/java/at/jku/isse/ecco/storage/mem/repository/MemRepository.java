@@ -6,6 +6,7 @@ import at.jku.isse.ecco.core.Commit;
 import at.jku.isse.ecco.dao.EntityFactory;
 import at.jku.isse.ecco.storage.mem.dao.MemEntityFactory;
 import at.jku.isse.ecco.storage.mem.feature.BaseFeature;
+import at.jku.isse.ecco.storage.mem.module.FeatureVersionIndex;
 import at.jku.isse.ecco.feature.Configuration;
 import at.jku.isse.ecco.feature.Feature;
 import at.jku.isse.ecco.feature.FeatureVersion;
@@ -13,6 +14,9 @@ import at.jku.isse.ecco.repository.Repository;
 import at.jku.isse.ecco.repository.RepositoryOperator;
 import at.jku.isse.ecco.tree.Node;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
 import java.util.*;
 
 /**
@@ -21,7 +25,9 @@ import java.util.*;
  * @author JKU, ISSE
  * @version 1.0
  */
-public class MemRepository implements Repository, Repository.Op {
+public class MemRepository implements Repository, Repository.Op, Serializable {
+
+	private static final long serialVersionUID = 1L;
 
 	private transient RepositoryOperator operator;
 
@@ -29,15 +35,19 @@ public class MemRepository implements Repository, Repository.Op {
 	private Map<String, Feature> features;
 	private Collection<Association.Op> associations;
 
-	private EntityFactory entityFactory;
+	private final FeatureVersionIndex featureVersionIndex = new FeatureVersionIndex(); // shared by the modules of the repository and released together with it
+
+	private transient EntityFactory entityFactory;
 
 	private int maxOrder = 5;
 
+	private int sequenceGraphAlignmentBudget = 0;
+
 
 	public MemRepository() {
 		this.features = new HashMap<>();
 		this.associations = new ArrayList<>();
-		this.entityFactory = new MemEntityFactory();
+		this.entityFactory = new MemEntityFactory(this.featureVersionIndex);
 		this.maxOrder = 5;
 
 		this.operator = new RepositoryOperator(this);
@@ -122,9 +132,26 @@ public class MemRepository implements Repository, Repository.Op {
 		this.maxOrder = maxOrder;
 	}
 
+	@Override
+	public int getSequenceGraphAlignmentBudget() {
+		return this.sequenceGraphAlignmentBudget;
+	}
+
+	@Override
+	public void setSequenceGraphAlignmentBudget(int budget) {
+		this.sequenceGraphAlignmentBudget = budget;
+	}
+
 	@Override
 	public EntityFactory getEntityFactory() {
 		return this.entityFactory;
 	}
 
+
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		this.entityFactory = new MemEntityFactory(this.featureVersionIndex);
+		this.operator = new RepositoryOperator(this);
+	}
+
 }
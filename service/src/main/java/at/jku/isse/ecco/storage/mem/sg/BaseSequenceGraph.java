@@ -5,9 +5,14 @@ import at.jku.isse.ecco.artifact.Artifact;
 import at.jku.isse.ecco.sg.SequenceGraph;
 import at.jku.isse.ecco.sg.SequenceGraphOperator;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
 import java.util.*;
 
-public class BaseSequenceGraph implements SequenceGraph, SequenceGraph.Op {
+public class BaseSequenceGraph implements SequenceGraph, SequenceGraph.Op, Serializable {
+
+	private static final long serialVersionUID = 1L;
 
 	private transient SequenceGraphOperator operator = new SequenceGraphOperator(this);
 
@@ -345,4 +350,12 @@ public class BaseSequenceGraph implements SequenceGraph, SequenceGraph.Op {
 //		return gn;
 //	}
 
+
+	// SERIALIZATION
+
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		this.operator = new SequenceGraphOperator(this);
+		in.defaultReadObject();
+	}
+
 }
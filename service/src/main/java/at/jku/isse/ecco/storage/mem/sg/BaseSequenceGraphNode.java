@@ -3,10 +3,13 @@ package at.jku.isse.ecco.storage.mem.sg;
 import at.jku.isse.ecco.artifact.Artifact;
 import at.jku.isse.ecco.sg.SequenceGraph;
 
+import java.io.Serializable;
 import java.util.HashMap;
 import java.util.Map;
 
-public class BaseSequenceGraphNode implements SequenceGraph.Node, SequenceGraph.Node.Op {
+public class BaseSequenceGraphNode implements SequenceGraph.Node, SequenceGraph.Node.Op, Serializable {
+
+	private static final long serialVersionUID = 1L;
 
 	private HashMap<Artifact.Op<?>, SequenceGraph.Node.Op> children = new HashMap<>(); // maybe use linked hash map?
 
@@ -6,11 +6,16 @@ import at.jku.isse.ecco.core.Association;
 import at.jku.isse.ecco.tree.Node;
 import at.jku.isse.ecco.tree.NodeOperator;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
 import java.util.*;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
-public class BaseNode implements Node, Node.Op {
+public class BaseNode implements Node, Node.Op, Serializable {
+
+	private static final long serialVersionUID = 1L;
 
 	private transient NodeOperator operator = new NodeOperator(this);
 
@@ -91,11 +96,13 @@ public class BaseNode implements Node, Node.Op {
 	public void addChild(Op child) {
 		checkNotNull(child);
 
-		if (this.getArtifact() != null && !this.getArtifact().isOrdered() && this.children.contains(child))
+		if (this.getArtifact() != null && !this.getArtifact().isOrdered() && this.operator.getChild(child) != null)
 			throw new EccoException("An equivalent child is already contained. If multiple equivalent children are allowed use an ordered node.");
 
 		this.children.add(child);
 		child.setParent(this);
+
+		this.operator.childAdded(child);
 	}
 
 	@Override
@@ -108,10 +115,16 @@ public class BaseNode implements Node, Node.Op {
 	public void removeChild(Op child) {
 		checkNotNull(child);
 
-		this.children.remove(child);
+		if (NodeOperator.removeChild(this.children, child))
+			this.operator.childRemoved(child);
 		child.setParent(null);
 	}
 
+	@Override
+	public Op getChild(Node node) {
+		return this.operator.getChild(node);
+	}
+
 
 	@Override
 	public List<Op> getChildren() {
@@ -215,4 +228,13 @@ public class BaseNode implements Node, Node.Op {
 		return this.properties;
 	}
 
+
+	// SERIALIZATION
+
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		this.operator = new NodeOperator(this);
+		this.properties = new HashMap<>();
+		in.defaultReadObject();
+	}
+
 }
@@ -5,6 +5,8 @@ import at.jku.isse.ecco.tree.RootNode;
 
 public class BaseRootNode extends BaseNode implements RootNode, RootNode.Op {
 
+	private static final long serialVersionUID = 1L;
+
 	private Association containingAssociation;
 
 
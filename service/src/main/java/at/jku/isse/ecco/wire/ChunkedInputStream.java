@@ -0,0 +1,87 @@
+package at.jku.isse.ecco.wire;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Reads data written by a {@link ChunkedOutputStream}. The stream ends at the empty chunk that marks the end of the data and never reads beyond it.
+ */
+public class ChunkedInputStream extends InputStream {
+
+	private final DataInputStream in;
+	private int remaining = 0;
+	private boolean finished = false;
+
+	public ChunkedInputStream(InputStream in) {
+		checkNotNull(in);
+
+		this.in = new DataInputStream(in);
+	}
+
+
+	@Override
+	public int read() throws IOException {
+		if (!this.nextChunk())
+			return -1;
+		int b = this.in.read();
+		if (b == -1)
+			throw new EOFException("Unexpected end of chunk.");
+		this.remaining--;
+		return b;
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		if (len == 0)
+			return 0;
+		if (!this.nextChunk())
+			return -1;
+		int n = this.in.read(b, off, Math.min(len, this.remaining));
+		if (n == -1)
+			throw new EOFException("Unexpected end of chunk.");
+		this.remaining -= n;
+		return n;
+	}
+
+	@Override
+	public int available() throws IOException {
+		return this.finished ? 0 : Math.min(this.remaining, this.in.available());
+	}
+
+	/**
+	 * Skips the rest of the data up to and including the end of the chunks. The underlying stream is not closed.
+	 */
+	@Override
+	public void close() throws IOException {
+		while (this.nextChunk()) {
+			int n = this.in.skipBytes(this.remaining);
+			if (n == 0 && this.in.read() == -1)
+				throw new EOFException("Unexpected end of chunk.");
+			this.remaining -= Math.max(n, 1);
+		}
+	}
+
+	/**
+	 * Reads the header of the next chunk if the current one is exhausted.
+	 *
+	 * @return False if the end of the chunks has been reached, true otherwise.
+	 */
+	private boolean nextChunk() throws IOException {
+		while (this.remaining == 0) {
+			if (this.finished)
+				return false;
+			int length = this.in.readInt();
+			if (length < 0)
+				throw new IOException("Invalid chunk length " + length + ".");
+			if (length == 0)
+				this.finished = true;
+			this.remaining = length;
+		}
+		return true;
+	}
+
+}
@@ -0,0 +1,89 @@
+package at.jku.isse.ecco.wire;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Writes data of unknown length as a sequence of chunks, each prefixed by its length. The end of the data is marked by an empty chunk so that the underlying stream (e.g. a connection) can be used further afterwards.
+ */
+public class ChunkedOutputStream extends OutputStream {
+
+	public static final int DEFAULT_CHUNK_SIZE = 1 << 16;
+
+	private final DataOutputStream out;
+	private final byte[] buffer;
+	private int count = 0;
+	private boolean finished = false;
+
+	public ChunkedOutputStream(OutputStream out) {
+		this(out, DEFAULT_CHUNK_SIZE);
+	}
+
+	public ChunkedOutputStream(OutputStream out, int chunkSize) {
+		checkNotNull(out);
+
+		this.out = new DataOutputStream(out);
+		this.buffer = new byte[chunkSize];
+	}
+
+
+	@Override
+	public void write(int b) throws IOException {
+		if (this.count == this.buffer.length)
+			this.writeChunk();
+		this.buffer[this.count++] = (byte) b;
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+		while (len > 0) {
+			if (this.count == this.buffer.length)
+				this.writeChunk();
+			int n = Math.min(len, this.buffer.length - this.count);
+			System.arraycopy(b, off, this.buffer, this.count, n);
+			this.count += n;
+			off += n;
+			len -= n;
+		}
+	}
+
+	@Override
+	public void flush() throws IOException {
+		this.writeChunk();
+		this.out.flush();
+	}
+
+	/**
+	 * Writes the remaining data and the end of the chunks. The underlying stream is flushed but not closed.
+	 */
+	public void finish() throws IOException {
+		if (this.finished)
+			return;
+		this.writeChunk();
+		this.out.writeInt(0);
+		this.out.flush();
+		this.finished = true;
+	}
+
+	/**
+	 * Same as {@link #finish()}.
+	 */
+	@Override
+	public void close() throws IOException {
+		this.finish();
+	}
+
+	private void writeChunk() throws IOException {
+		if (this.finished)
+			throw new IOException("Chunked stream has already been finished.");
+		if (this.count == 0)
+			return;
+		this.out.writeInt(this.count);
+		this.out.write(this.buffer, 0, this.count);
+		this.count = 0;
+	}
+
+}
@@ -0,0 +1,285 @@
+package at.jku.isse.ecco.wire;
+
+import at.jku.isse.ecco.EccoException;
+import at.jku.isse.ecco.artifact.Artifact;
+import at.jku.isse.ecco.artifact.ArtifactReference;
+import at.jku.isse.ecco.core.Association;
+import at.jku.isse.ecco.feature.FeatureVersion;
+import at.jku.isse.ecco.module.Module;
+import at.jku.isse.ecco.module.ModuleFeature;
+import at.jku.isse.ecco.module.PresenceCondition;
+import at.jku.isse.ecco.repository.Repository;
+import at.jku.isse.ecco.sg.SequenceGraph;
+import at.jku.isse.ecco.tree.Node;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Determines which associations of a repository have to be transferred to a remote repository.
+ * <p>
+ * The receiver of a pull or push sends a digest of each of its associations. The digest covers the presence condition and the artifact tree of an association (artifact data, uses references and the structure of the tree), but not its id, which differs between repositories, nor the order of children or sequence numbers.
+ * The sender then only transfers the associations whose digest the receiver does not know, together with the associations they depend on.
+ * Merging an association into a repository that already contains an identical one only refines presence conditions the receiver can already derive, so leaving it out yields the same variants at a fraction of the size.
+ */
+public final class RepositoryDelta {
+
+	private RepositoryDelta() {
+		throw new AssertionError("Class cannot be instantiated.");
+	}
+
+
+	private static final String DIGEST_ALGORITHM = "SHA-1";
+
+
+	/**
+	 * Computes the digests of the given associations.
+	 *
+	 * @param associations The associations.
+	 * @return The digests of the associations.
+	 */
+	public static Set<ByteBuffer> digests(Collection<? extends Association> associations) {
+		checkNotNull(associations);
+
+		Digester digester = new Digester();
+		Set<ByteBuffer> digests = new HashSet<>();
+		for (Association association : associations)
+			digests.add(ByteBuffer.wrap(digester.digest(association)));
+		return digests;
+	}
+
+	/**
+	 * Removes the associations from the given repository whose digests are contained in the given known digests, unless another remaining association depends on them.
+	 * The sequence graphs of the remaining artifacts are trimmed to the remaining associations.
+	 *
+	 * @param repository The repository to be sent (e.g. a subset repository). It is changed in the process.
+	 * @param known      The digests of the associations of the receiving repository.
+	 * @return The number of removed associations.
+	 */
+	public static int removeKnownAssociations(Repository.Op repository, Set<ByteBuffer> known) {
+		checkNotNull(repository);
+		checkNotNull(known);
+
+		if (known.isEmpty())
+			return 0;
+
+		// select unknown associations
+		Digester digester = new Digester();
+		Set<Association> remaining = Collections.newSetFromMap(new IdentityHashMap<>());
+		Deque<Association> added = new ArrayDeque<>();
+		for (Association.Op association : repository.getAssociations()) {
+			if (!known.contains(ByteBuffer.wrap(digester.digest(association)))) {
+				remaining.add(association);
+				added.add(association);
+			}
+		}
+
+		// add associations that contain the targets of references of the remaining associations
+		while (!added.isEmpty()) {
+			Association association = added.pop();
+			for (Artifact.Op<?> artifact : artifacts(((Association.Op) association).getRootNode(), true)) {
+				for (ArtifactReference.Op reference : artifact.getUses()) {
+					Association target = containingAssociation(reference.getTarget());
+					if (target != null && remaining.add(target))
+						added.add(target);
+				}
+			}
+		}
+
+		// trim sequence graphs to the symbols of the remaining associations. this is done before the associations are removed as the containing associations of the symbols are determined via their trees.
+		Set<Artifact.Op<?>> trimmed = Collections.newSetFromMap(new IdentityHashMap<>());
+		for (Association association : remaining) {
+			for (Artifact.Op<?> artifact : artifacts(((Association.Op) association).getRootNode(), false)) {
+				SequenceGraph.Op sequenceGraph = artifact.getSequenceGraph();
+				if (sequenceGraph != null && trimmed.add(artifact)) {
+					Collection<Artifact.Op<?>> symbols = new ArrayList<>();
+					for (Artifact.Op<?> symbol : sequenceGraph.getSymbols()) {
+						if (remaining.contains(containingAssociation(symbol)))
+							symbols.add(symbol);
+					}
+					sequenceGraph.trim(symbols);
+				}
+			}
+		}
+
+		int removed = 0;
+		for (Association.Op association : new ArrayList<>(repository.getAssociations())) {
+			if (!remaining.contains(association)) {
+				repository.removeAssociation(association);
+				removed++;
+			}
+		}
+		return removed;
+	}
+
+
+	/**
+	 * @param unique Whether only artifacts of unique nodes are returned.
+	 * @return The artifacts in the tree of the given root.
+	 */
+	private static Collection<Artifact.Op<?>> artifacts(Node.Op root, boolean unique) {
+		Collection<Artifact.Op<?>> artifacts = new ArrayList<>();
+		Deque<Node.Op> nodes = new ArrayDeque<>();
+		nodes.push(root);
+		while (!nodes.isEmpty()) {
+			Node.Op node = nodes.pop();
+			if (node.getArtifact() != null && (node.isUnique() || !unique))
+				artifacts.add(node.getArtifact());
+			for (Node.Op child : node.getChildren())
+				nodes.push(child);
+		}
+		return artifacts;
+	}
+
+	private static Association containingAssociation(Artifact<?> artifact) {
+		Node node = artifact.getContainingNode();
+		return node == null ? null : node.getContainingAssociation();
+	}
+
+
+	/**
+	 * Computes digests of associations. The digests of artifact data are cached as artifacts are contained in the trees of several associations.
+	 */
+	private static class Digester {
+
+		private static final Comparator<byte[]> BYTES_COMPARATOR = (left, right) -> {
+			for (int i = 0; i < Math.min(left.length, right.length); i++) {
+				int result = Integer.compare(left[i] & 0xFF, right[i] & 0xFF);
+				if (result != 0)
+					return result;
+			}
+			return Integer.compare(left.length, right.length);
+		};
+
+		private final Map<Artifact<?>, byte[]> dataDigests = new IdentityHashMap<>();
+		private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+
+		private byte[] digest(Association association) {
+			MessageDigest md = newMessageDigest();
+			this.updatePresenceCondition(md, association.getPresenceCondition());
+			md.update(this.digestNode(association.getRootNode()));
+			return md.digest();
+		}
+
+		/**
+		 * Adds the modules of the presence condition in a canonical form (i.e. sorted and independent of the feature objects) to the given digest.
+		 */
+		private void updatePresenceCondition(MessageDigest md, PresenceCondition presenceCondition) {
+			for (Set<Module> modules : RepositoryWriter.modules(presenceCondition)) {
+				List<String> moduleStrings = new ArrayList<>();
+				for (Module module : modules) {
+					List<String> moduleFeatureStrings = new ArrayList<>();
+					for (ModuleFeature moduleFeature : module) {
+						List<String> versionIds = new ArrayList<>();
+						for (FeatureVersion featureVersion : moduleFeature)
+							versionIds.add(featureVersion.getId());
+						Collections.sort(versionIds);
+
+						StringBuilder sb = new StringBuilder();
+						sb.append(moduleFeature.getSign() ? '+' : '-');
+						appendToken(sb, moduleFeature.getFeature().getId());
+						sb.append(versionIds.size()).append(';');
+						for (String versionId : versionIds)
+							appendToken(sb, versionId);
+						moduleFeatureStrings.add(sb.toString());
+					}
+					Collections.sort(moduleFeatureStrings);
+
+					StringBuilder sb = new StringBuilder();
+					sb.append(moduleFeatureStrings.size()).append(';');
+					for (String moduleFeatureString : moduleFeatureStrings)
+						sb.append(moduleFeatureString);
+					moduleStrings.add(sb.toString());
+				}
+				Collections.sort(moduleStrings);
+
+				StringBuilder sb = new StringBuilder();
+				sb.append(moduleStrings.size()).append(';');
+				for (String moduleString : moduleStrings)
+					appendToken(sb, moduleString);
+				md.update(sb.toString().getBytes(StandardCharsets.UTF_8));
+			}
+		}
+
+		/**
+		 * Appends the token prefixed by its length, so that the concatenation of tokens is unambiguous.
+		 */
+		private static void appendToken(StringBuilder sb, String token) {
+			sb.append(token.length()).append(':').append(token);
+		}
+
+		/**
+		 * Computes the digest of a node from its artifact (for unique nodes including the uses references of the artifact) and the sorted digests of its children.
+		 */
+		private byte[] digestNode(Node node) {
+			List<byte[]> childDigests = new ArrayList<>(node.getChildren().size());
+			for (Node child : node.getChildren())
+				childDigests.add(this.digestNode(child));
+			childDigests.sort(BYTES_COMPARATOR);
+
+			MessageDigest md = newMessageDigest();
+			Artifact<?> artifact = node.getArtifact();
+			md.update((byte) ((node.isUnique() ? 1 : 0) | (artifact != null ? 2 : 0)));
+			if (artifact != null) {
+				md.update((byte) ((artifact.isAtomic() ? 1 : 0) | (artifact.isOrdered() ? 2 : 0)));
+				md.update(this.digestData(artifact));
+				if (node.isUnique()) {
+					List<byte[]> referenceDigests = new ArrayList<>();
+					for (ArtifactReference reference : artifact.getUses()) {
+						MessageDigest referenceMd = newMessageDigest();
+						referenceMd.update(this.digestData(reference.getTarget()));
+						if (reference.getType() != null)
+							referenceMd.update(reference.getType().getBytes(StandardCharsets.UTF_8));
+						referenceDigests.add(referenceMd.digest());
+					}
+					referenceDigests.sort(BYTES_COMPARATOR);
+					md.update(ByteBuffer.allocate(4).putInt(referenceDigests.size()).array());
+					for (byte[] referenceDigest : referenceDigests)
+						md.update(referenceDigest);
+				}
+			}
+			md.update(ByteBuffer.allocate(4).putInt(childDigests.size()).array());
+			for (byte[] childDigest : childDigests)
+				md.update(childDigest);
+			return md.digest();
+		}
+
+		/**
+		 * Computes the digest of the serialized artifact data, as the data types are defined by plugins and their serialized form is the only representation common to all of them.
+		 */
+		private byte[] digestData(Artifact<?> artifact) {
+			byte[] digest = this.dataDigests.get(artifact);
+			if (digest == null) {
+				this.buffer.reset();
+				try (ObjectOutputStream oos = new ObjectOutputStream(this.buffer)) {
+					oos.writeObject(artifact.getData());
+				} catch (IOException e) {
+					throw new EccoException("Error computing digest of artifact data.", e);
+				}
+				MessageDigest md = newMessageDigest();
+				md.update(this.buffer.toByteArray());
+				digest = md.digest();
+				this.dataDigests.put(artifact, digest);
+			}
+			return digest;
+		}
+
+		private static MessageDigest newMessageDigest() {
+			try {
+				return MessageDigest.getInstance(DIGEST_ALGORITHM);
+			} catch (NoSuchAlgorithmException e) {
+				throw new EccoException("Digest algorithm " + DIGEST_ALGORITHM + " is not available.", e);
+			}
+		}
+
+	}
+
+}
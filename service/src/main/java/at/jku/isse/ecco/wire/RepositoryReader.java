@@ -0,0 +1,350 @@
+package at.jku.isse.ecco.wire;
+
+import at.jku.isse.ecco.EccoException;
+import at.jku.isse.ecco.artifact.Artifact;
+import at.jku.isse.ecco.artifact.ArtifactData;
+import at.jku.isse.ecco.blob.BlobArtifactData;
+import at.jku.isse.ecco.blob.BlobStore;
+import at.jku.isse.ecco.core.Association;
+import at.jku.isse.ecco.dao.EntityFactory;
+import at.jku.isse.ecco.feature.Feature;
+import at.jku.isse.ecco.feature.FeatureVersion;
+import at.jku.isse.ecco.module.Module;
+import at.jku.isse.ecco.module.ModuleFeature;
+import at.jku.isse.ecco.module.PresenceCondition;
+import at.jku.isse.ecco.repository.Repository;
+import at.jku.isse.ecco.sg.SequenceGraph;
+import at.jku.isse.ecco.tree.Node;
+import at.jku.isse.ecco.tree.RootNode;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.util.*;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+import static at.jku.isse.ecco.wire.RepositoryWriter.*;
+import static at.jku.isse.ecco.wire.WireProtocol.*;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Reads features and repositories written by a {@link RepositoryWriter} and creates them with the given entity factory.
+ */
+public class RepositoryReader {
+
+	private final InputStream in;
+	private final EntityFactory entityFactory;
+	private final BlobStore blobStore;
+
+	/**
+	 * @param in            The stream to read from. Every payload is read completely but the stream is never closed.
+	 * @param entityFactory The entity factory used to create the features and repositories.
+	 */
+	public RepositoryReader(InputStream in, EntityFactory entityFactory) {
+		this(in, entityFactory, null);
+	}
+
+	/**
+	 * @param in            The stream to read from. Every payload is read completely but the stream is never closed.
+	 * @param entityFactory The entity factory used to create the features and repositories.
+	 * @param blobStore     The blob store the contents of artifacts are stored in, or null if the payloads contain no contents of artifacts.
+	 */
+	public RepositoryReader(InputStream in, EntityFactory entityFactory, BlobStore blobStore) {
+		checkNotNull(in);
+		checkNotNull(entityFactory);
+
+		this.in = in;
+		this.entityFactory = entityFactory;
+		this.blobStore = blobStore;
+	}
+
+
+	public Collection<Feature> readFeatures() throws IOException {
+		try (Payload payload = new Payload()) {
+			int numFeatures = readVarInt(payload.data);
+			Collection<Feature> features = new ArrayList<>(numFeatures);
+			for (int i = 0; i < numFeatures; i++)
+				features.add(payload.readFeature(null));
+			return features;
+		}
+	}
+
+	public Repository.Op readRepository() throws IOException {
+		return this.readRepository(this.entityFactory.createRepository());
+	}
+
+	/**
+	 * Reads a repository into the given repository, which must be empty.
+	 *
+	 * @param repository The empty repository the features and associations are added to.
+	 * @return The given repository.
+	 */
+	public Repository.Op readRepository(Repository.Op repository) throws IOException {
+		checkNotNull(repository);
+
+		try (Payload payload = new Payload()) {
+			return payload.readRepository(repository);
+		}
+	}
+
+
+	/**
+	 * The content of a single payload and the dictionaries used while reading it.
+	 */
+	private class Payload implements AutoCloseable {
+
+		private final ChunkedInputStream chunks;
+		private final Inflater inflater;
+		private final ObjectInputStream data;
+
+		private final List<String> strings = new ArrayList<>();
+		private final List<ArtifactData> artifactData = new ArrayList<>();
+		private final boolean blobs;
+
+		private Payload() throws IOException {
+			int flags = RepositoryReader.this.in.read();
+			if (flags == -1)
+				throw new EccoException("Unexpected end of data.");
+			this.blobs = (flags & FLAG_BLOBS) != 0;
+			this.chunks = new ChunkedInputStream(RepositoryReader.this.in);
+			if ((flags & FLAG_COMPRESSED) != 0) {
+				this.inflater = new Inflater();
+				this.data = new ObjectInputStream(new InflaterInputStream(this.chunks, this.inflater, 1 << 13));
+			} else {
+				this.inflater = null;
+				this.data = new ObjectInputStream(this.chunks);
+			}
+		}
+
+		@Override
+		public void close() throws IOException {
+			try {
+				this.chunks.close();
+			} finally {
+				if (this.inflater != null)
+					this.inflater.end();
+			}
+		}
+
+
+		// # DICTIONARIES ####################################################
+
+		private String readDictionaryString() throws IOException {
+			int index = readVarInt(this.data);
+			if (index == 0)
+				return null;
+			if (index == 1) {
+				String value = readString(this.data);
+				this.strings.add(value);
+				return value;
+			}
+			return this.strings.get(index - 2);
+		}
+
+		private ArtifactData readArtifactData() throws IOException {
+			int index = readVarInt(this.data);
+			if (index > 0)
+				return this.artifactData.get(index - 1);
+			try {
+				ArtifactData value = (ArtifactData) this.data.readObject();
+				this.artifactData.add(value);
+				if (value instanceof BlobArtifactData && this.blobs)
+					this.readBlob(((BlobArtifactData) value).getBlobDigest());
+				return value;
+			} catch (ClassNotFoundException | ClassCastException e) {
+				throw new EccoException("Error reading artifact data.", e);
+			}
+		}
+
+
+		private void readBlob(String digest) throws IOException {
+			if (RepositoryReader.this.blobStore == null)
+				throw new EccoException("No blob store to read blob " + digest + " into.");
+			RepositoryReader.this.blobStore.put(digest, this.data, this.data.readLong());
+		}
+
+
+		// # FEATURES ####################################################
+
+		/**
+		 * Reads a feature and its versions and adds it to the given repository, or creates it with the entity factory if the repository is null.
+		 */
+		private Feature readFeature(Repository.Op repository) throws IOException {
+			String id = this.readDictionaryString();
+			String name = this.readDictionaryString();
+			String description = this.readDictionaryString();
+			Feature feature;
+			if (repository != null)
+				feature = repository.addFeature(id, name, description);
+			else
+				feature = RepositoryReader.this.entityFactory.createFeature(id, name, description);
+			int numVersions = readVarInt(this.data);
+			for (int i = 0; i < numVersions; i++) {
+				FeatureVersion featureVersion = feature.addVersion(this.readDictionaryString());
+				featureVersion.setDescription(this.readDictionaryString());
+			}
+			return feature;
+		}
+
+
+		// # REPOSITORY ####################################################
+
+		private Repository.Op readRepository(Repository.Op repository) throws IOException {
+			EntityFactory entityFactory = RepositoryReader.this.entityFactory;
+
+			repository.setMaxOrder(readVarInt(this.data));
+			repository.setSequenceGraphAlignmentBudget(readSignedVarInt(this.data));
+
+			// features
+			int numRepositoryFeatures = readVarInt(this.data);
+			int numOtherFeatures = readVarInt(this.data);
+			List<Feature> features = new ArrayList<>(numRepositoryFeatures + numOtherFeatures);
+			for (int i = 0; i < numRepositoryFeatures; i++)
+				features.add(this.readFeature(repository));
+			for (int i = 0; i < numOtherFeatures; i++)
+				features.add(this.readFeature(null));
+
+			// artifacts
+			int numArtifacts = readVarInt(this.data);
+			List<Artifact.Op<?>> artifacts = new ArrayList<>(numArtifacts);
+			BitSet sequenced = new BitSet(numArtifacts);
+			for (int i = 0; i < numArtifacts; i++) {
+				Artifact.Op<?> artifact = entityFactory.createArtifact(this.readArtifactData());
+				int flags = this.data.readUnsignedByte();
+				artifact.setAtomic((flags & ARTIFACT_ATOMIC) != 0);
+				artifact.setOrdered((flags & ARTIFACT_ORDERED) != 0);
+				artifact.setUseReferencesInEquals((flags & ARTIFACT_USE_REFERENCES_IN_EQUALS) != 0);
+				sequenced.set(i, (flags & ARTIFACT_SEQUENCE_GRAPH) != 0);
+				artifact.setSequenceNumber(readSignedVarInt(this.data));
+				artifacts.add(artifact);
+			}
+
+			// references
+			for (Artifact.Op<?> artifact : artifacts) {
+				int numUses = readVarInt(this.data);
+				for (int i = 0; i < numUses; i++) {
+					Artifact.Op<?> target = artifacts.get(readVarInt(this.data));
+					String type = this.readDictionaryString();
+					if (type != null)
+						artifact.addUses(target, type);
+					else
+						artifact.addUses(target);
+				}
+			}
+
+			// sequence graphs
+			for (int i = sequenced.nextSetBit(0); i >= 0; i = sequenced.nextSetBit(i + 1)) {
+				Artifact.Op<?> artifact = artifacts.get(i);
+				SequenceGraph.Op sequenceGraph = artifact.createSequenceGraph();
+				artifact.setSequenceGraph(sequenceGraph);
+				this.readSequenceGraph(sequenceGraph, artifacts);
+			}
+
+			// associations
+			int numAssociations = readVarInt(this.data);
+			for (int i = 0; i < numAssociations; i++) {
+				Association.Op association = entityFactory.createAssociation();
+				association.setId(this.readDictionaryString());
+				association.setName(this.readDictionaryString());
+				PresenceCondition presenceCondition = entityFactory.createPresenceCondition();
+				this.readPresenceCondition(presenceCondition, features);
+				association.setPresenceCondition(presenceCondition);
+				RootNode.Op rootNode = entityFactory.createRootNode();
+				this.readTree(rootNode, artifacts);
+				association.setRootNode(rootNode);
+				repository.addAssociation(association);
+			}
+
+			return repository;
+		}
+
+		private void readPresenceCondition(PresenceCondition presenceCondition, List<Feature> features) throws IOException {
+			EntityFactory entityFactory = RepositoryReader.this.entityFactory;
+
+			for (Set<Module> modules : modules(presenceCondition)) {
+				int numModules = readVarInt(this.data);
+				for (int i = 0; i < numModules; i++) {
+					Module module = entityFactory.createModule();
+					int numModuleFeatures = readVarInt(this.data);
+					for (int j = 0; j < numModuleFeatures; j++) {
+						Feature feature = features.get(readVarInt(this.data));
+						boolean sign = this.data.readBoolean();
+						byte[] bytes = new byte[readVarInt(this.data)];
+						this.data.readFully(bytes);
+
+						BitSet bits = BitSet.valueOf(bytes);
+						List<? extends FeatureVersion> versions = feature.getVersions();
+						Collection<FeatureVersion> featureVersions = new ArrayList<>(bits.cardinality());
+						for (int k = bits.nextSetBit(0); k >= 0; k = bits.nextSetBit(k + 1)) {
+							if (k >= versions.size())
+								throw new EccoException("Invalid feature version of feature " + feature + ".");
+							featureVersions.add(versions.get(k));
+						}
+						// the module feature is complete before it is added, as its hash code depends on its feature versions
+						ModuleFeature moduleFeature = entityFactory.createModuleFeature(feature, featureVersions, sign);
+						module.add(moduleFeature);
+					}
+					modules.add(module);
+				}
+			}
+		}
+
+		/**
+		 * Reads the children of the given root that were written in preorder.
+		 */
+		private void readTree(RootNode.Op root, List<Artifact.Op<?>> artifacts) throws IOException {
+			Deque<Node.Op> parents = new ArrayDeque<>();
+			Deque<Integer> remaining = new ArrayDeque<>();
+			parents.push(root);
+			remaining.push(readVarInt(this.data));
+			while (!parents.isEmpty()) {
+				if (remaining.peek() == 0) {
+					parents.pop();
+					remaining.pop();
+					continue;
+				}
+				remaining.push(remaining.pop() - 1);
+
+				Node.Op node = RepositoryReader.this.entityFactory.createNode();
+				int flags = this.data.readUnsignedByte();
+				node.setUnique((flags & NODE_UNIQUE) != 0);
+				if ((flags & NODE_ARTIFACT) != 0) {
+					Artifact.Op<?> artifact = artifacts.get(readVarInt(this.data));
+					node.setArtifact(artifact);
+					if (node.isUnique())
+						artifact.setContainingNode(node);
+				}
+				parents.peek().addChild(node);
+
+				int numChildren = readVarInt(this.data);
+				if (numChildren > 0) {
+					parents.push(node);
+					remaining.push(numChildren);
+				}
+			}
+		}
+
+		private void readSequenceGraph(SequenceGraph.Op sequenceGraph, List<Artifact.Op<?>> artifacts) throws IOException {
+			sequenceGraph.setCurrentSequenceNumber(readSignedVarInt(this.data));
+			sequenceGraph.setPol(this.data.readBoolean());
+
+			int numNodes = readVarInt(this.data);
+			List<SequenceGraph.Node.Op> nodes = new ArrayList<>(numNodes);
+			nodes.add(sequenceGraph.getRoot());
+			for (int i = 1; i < numNodes; i++)
+				nodes.add(sequenceGraph.createSequenceGraphNode(sequenceGraph.getPol()));
+
+			for (SequenceGraph.Node.Op node : nodes) {
+				node.setPol(this.data.readBoolean());
+				int numChildren = readVarInt(this.data);
+				for (int i = 0; i < numChildren; i++) {
+					Artifact.Op<?> symbol = artifacts.get(readVarInt(this.data));
+					node.getChildren().put(symbol, nodes.get(readVarInt(this.data)));
+				}
+			}
+		}
+
+	}
+
+}
@@ -0,0 +1,415 @@
+package at.jku.isse.ecco.wire;
+
+import at.jku.isse.ecco.EccoException;
+import at.jku.isse.ecco.artifact.Artifact;
+import at.jku.isse.ecco.artifact.ArtifactData;
+import at.jku.isse.ecco.artifact.ArtifactReference;
+import at.jku.isse.ecco.blob.BlobArtifactData;
+import at.jku.isse.ecco.blob.BlobStore;
+import at.jku.isse.ecco.core.Association;
+import at.jku.isse.ecco.feature.Feature;
+import at.jku.isse.ecco.feature.FeatureVersion;
+import at.jku.isse.ecco.module.Module;
+import at.jku.isse.ecco.module.ModuleFeature;
+import at.jku.isse.ecco.module.PresenceCondition;
+import at.jku.isse.ecco.repository.Repository;
+import at.jku.isse.ecco.sg.SequenceGraph;
+import at.jku.isse.ecco.tree.Node;
+
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.*;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+import static at.jku.isse.ecco.wire.WireProtocol.*;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Writes features and repositories in the binary format of the {@link WireProtocol} directly to a stream, without buffering the whole data in memory.
+ * <p>
+ * Every call writes one payload: a flags byte that tells if the payload is compressed and contains the contents of blobs, followed by the (compressed) content as chunks (see {@link ChunkedOutputStream}).
+ * Strings and artifact data objects are written once and referenced by their index afterwards.
+ * The structure of a repository (features, presence conditions, artifact trees, references and sequence graphs) is encoded with varints, the feature versions of module features as bitsets and trees iteratively in preorder.
+ * Only artifact data objects, whose types are defined by the plugins, are written with Java serialization.
+ * The content of artifact data objects that keep it in the blob store of the repository (see {@link BlobArtifactData}) follows the serialized object as size and bytes, unless the writer has no blob store to read it from.
+ * <p>
+ * A repository is written in this order:
+ * <ol>
+ * <li>max order and sequence graph alignment budget</li>
+ * <li>features of the repository and features that are only referenced by modules</li>
+ * <li>artifacts (data, flags and sequence number)</li>
+ * <li>uses references of the artifacts</li>
+ * <li>sequence graphs of the artifacts</li>
+ * <li>associations (id, name, presence condition and artifact tree)</li>
+ * </ol>
+ * The references are written before the artifact trees because they may be part of the equality of artifacts (see {@link Artifact.Op#useReferencesInEquals()}), which is used when the children are added to nodes.
+ */
+public class RepositoryWriter {
+
+	static final int FLAG_COMPRESSED = 1;
+	static final int FLAG_BLOBS = 1 << 1;
+
+	static final int ARTIFACT_ATOMIC = 1;
+	static final int ARTIFACT_ORDERED = 1 << 1;
+	static final int ARTIFACT_USE_REFERENCES_IN_EQUALS = 1 << 2;
+	static final int ARTIFACT_SEQUENCE_GRAPH = 1 << 3;
+
+	static final int NODE_UNIQUE = 1;
+	static final int NODE_ARTIFACT = 1 << 1;
+
+
+	private final OutputStream out;
+	private final boolean compressed;
+	private final BlobStore blobStore;
+
+	/**
+	 * @param out        The stream to write to. It is flushed after every payload but never closed.
+	 * @param compressed Whether the payloads are compressed.
+	 */
+	public RepositoryWriter(OutputStream out, boolean compressed) {
+		this(out, compressed, null);
+	}
+
+	/**
+	 * @param out        The stream to write to. It is flushed after every payload but never closed.
+	 * @param compressed Whether the payloads are compressed.
+	 * @param blobStore  The blob store the contents of artifacts are read from, or null to write only the digests of the contents (e.g. if the reader uses the same blob store).
+	 */
+	public RepositoryWriter(OutputStream out, boolean compressed, BlobStore blobStore) {
+		checkNotNull(out);
+
+		this.out = out;
+		this.compressed = compressed;
+		this.blobStore = blobStore;
+	}
+
+
+	public void writeFeatures(Collection<? extends Feature> features) throws IOException {
+		checkNotNull(features);
+
+		try (Payload payload = new Payload()) {
+			writeVarInt(payload.data, features.size());
+			for (Feature feature : features)
+				payload.writeFeature(feature);
+		}
+	}
+
+	public void writeRepository(Repository.Op repository) throws IOException {
+		checkNotNull(repository);
+
+		try (Payload payload = new Payload()) {
+			payload.writeRepository(repository);
+		}
+	}
+
+
+	/**
+	 * The content of a single payload and the dictionaries used while writing it.
+	 */
+	private class Payload implements AutoCloseable {
+
+		private final ChunkedOutputStream chunks;
+		private final Deflater deflater;
+		private final DeflaterOutputStream deflaterStream;
+		private final ObjectOutputStream data;
+
+		private final Map<String, Integer> strings = new HashMap<>();
+		private final Map<ArtifactData, Integer> artifactData = new IdentityHashMap<>();
+
+		private final Map<Feature, Integer> featureIndices = new HashMap<>();
+		private final List<Feature> features = new ArrayList<>();
+		private final Map<Artifact.Op<?>, Integer> artifactIndices = new IdentityHashMap<>();
+		private final List<Artifact.Op<?>> artifacts = new ArrayList<>();
+
+		private Payload() throws IOException {
+			RepositoryWriter.this.out.write((RepositoryWriter.this.compressed ? FLAG_COMPRESSED : 0) | (RepositoryWriter.this.blobStore != null ? FLAG_BLOBS : 0));
+			this.chunks = new ChunkedOutputStream(RepositoryWriter.this.out);
+			if (RepositoryWriter.this.compressed) {
+				this.deflater = new Deflater(Deflater.BEST_SPEED);
+				this.deflaterStream = new DeflaterOutputStream(this.chunks, this.deflater, 1 << 13);
+				this.data = new ObjectOutputStream(this.deflaterStream);
+			} else {
+				this.deflater = null;
+				this.deflaterStream = null;
+				this.data = new ObjectOutputStream(this.chunks);
+			}
+		}
+
+		@Override
+		public void close() throws IOException {
+			try {
+				this.data.flush();
+				if (this.deflaterStream != null)
+					this.deflaterStream.finish();
+				this.chunks.finish();
+			} finally {
+				if (this.deflater != null)
+					this.deflater.end();
+			}
+		}
+
+
+		// # DICTIONARIES ####################################################
+
+		/**
+		 * Writes 0 for null, the index plus 2 for a string that has already been written, or 1 followed by the string for a new one.
+		 */
+		private void writeDictionaryString(String value) throws IOException {
+			if (value == null) {
+				writeVarInt(this.data, 0);
+				return;
+			}
+			Integer index = this.strings.get(value);
+			if (index != null) {
+				writeVarInt(this.data, index + 2);
+			} else {
+				this.strings.put(value, this.strings.size());
+				writeVarInt(this.data, 1);
+				writeString(this.data, value);
+			}
+		}
+
+		/**
+		 * Writes the index plus 1 for an artifact data object that has already been written, or 0 followed by the serialized object for a new one.
+		 */
+		private void writeArtifactData(ArtifactData value) throws IOException {
+			Integer index = this.artifactData.get(value);
+			if (index != null) {
+				writeVarInt(this.data, index + 1);
+			} else {
+				this.artifactData.put(value, this.artifactData.size());
+				writeVarInt(this.data, 0);
+				this.data.writeObject(value);
+				if (value instanceof BlobArtifactData && RepositoryWriter.this.blobStore != null)
+					this.writeBlob(((BlobArtifactData) value).getBlobDigest());
+			}
+		}
+
+		private void writeBlob(String digest) throws IOException {
+			this.data.writeLong(Files.size(RepositoryWriter.this.blobStore.getPath(digest)));
+			RepositoryWriter.this.blobStore.copyTo(digest, this.data);
+		}
+
+
+		// # FEATURES ####################################################
+
+		private void writeFeature(Feature feature) throws IOException {
+			this.writeDictionaryString(feature.getId());
+			this.writeDictionaryString(feature.getName());
+			this.writeDictionaryString(feature.getDescription());
+			writeVarInt(this.data, feature.getVersions().size());
+			for (FeatureVersion featureVersion : feature.getVersions()) {
+				this.writeDictionaryString(featureVersion.getId());
+				this.writeDictionaryString(featureVersion.getDescription());
+			}
+		}
+
+		private void addFeature(Feature feature) {
+			if (!this.featureIndices.containsKey(feature)) {
+				this.featureIndices.put(feature, this.features.size());
+				this.features.add(feature);
+			}
+		}
+
+
+		// # REPOSITORY ####################################################
+
+		private void writeRepository(Repository.Op repository) throws IOException {
+			writeVarInt(this.data, repository.getMaxOrder());
+			writeSignedVarInt(this.data, repository.getSequenceGraphAlignmentBudget());
+
+			// collect the features and artifacts first, so that they can be referenced by their index
+			for (Feature feature : repository.getFeatures())
+				this.addFeature(feature);
+			int numRepositoryFeatures = this.features.size();
+			for (Association.Op association : repository.getAssociations()) {
+				for (Set<Module> modules : modules(association.getPresenceCondition()))
+					for (Module module : modules)
+						for (ModuleFeature moduleFeature : module)
+							this.addFeature(moduleFeature.getFeature());
+				this.collectArtifacts(association.getRootNode());
+			}
+			for (int i = 0; i < this.artifacts.size(); i++) { // referenced artifacts and symbols are appended while iterating
+				Artifact.Op<?> artifact = this.artifacts.get(i);
+				for (ArtifactReference.Op reference : artifact.getUses())
+					this.addArtifact(reference.getTarget());
+				if (artifact.getSequenceGraph() != null)
+					for (SequenceGraph.Node.Op sequenceGraphNode : sequenceGraphNodes(artifact.getSequenceGraph()))
+						for (Artifact.Op<?> symbol : sequenceGraphNode.getChildren().keySet())
+							this.addArtifact(symbol);
+			}
+
+			// features
+			writeVarInt(this.data, numRepositoryFeatures);
+			writeVarInt(this.data, this.features.size() - numRepositoryFeatures);
+			for (Feature feature : this.features)
+				this.writeFeature(feature);
+
+			// artifacts
+			writeVarInt(this.data, this.artifacts.size());
+			for (Artifact.Op<?> artifact : this.artifacts) {
+				this.writeArtifactData(artifact.getData());
+				int flags = (artifact.isAtomic() ? ARTIFACT_ATOMIC : 0)
+						| (artifact.isOrdered() ? ARTIFACT_ORDERED : 0)
+						| (artifact.useReferencesInEquals() ? ARTIFACT_USE_REFERENCES_IN_EQUALS : 0)
+						| (artifact.getSequenceGraph() != null ? ARTIFACT_SEQUENCE_GRAPH : 0);
+				this.data.writeByte(flags);
+				writeSignedVarInt(this.data, artifact.getSequenceNumber());
+			}
+
+			// references
+			for (Artifact.Op<?> artifact : this.artifacts) {
+				writeVarInt(this.data, artifact.getUses().size());
+				for (ArtifactReference.Op reference : artifact.getUses()) {
+					writeVarInt(this.data, this.artifactIndices.get(reference.getTarget()));
+					this.writeDictionaryString(reference.getType());
+				}
+			}
+
+			// sequence graphs
+			for (Artifact.Op<?> artifact : this.artifacts) {
+				if (artifact.getSequenceGraph() != null)
+					this.writeSequenceGraph(artifact.getSequenceGraph());
+			}
+
+			// associations
+			writeVarInt(this.data, repository.getAssociations().size());
+			for (Association.Op association : repository.getAssociations()) {
+				this.writeDictionaryString(association.getId());
+				this.writeDictionaryString(association.getName());
+				this.writePresenceCondition(association.getPresenceCondition());
+				this.writeTree(association.getRootNode());
+			}
+		}
+
+		private void addArtifact(Artifact.Op<?> artifact) {
+			if (!this.artifactIndices.containsKey(artifact)) {
+				this.artifactIndices.put(artifact, this.artifacts.size());
+				this.artifacts.add(artifact);
+			}
+		}
+
+		/**
+		 * Adds the artifacts of a tree in the same order in which {@link #writeTree(Node.Op)} writes the tree.
+		 */
+		private void collectArtifacts(Node.Op root) {
+			Deque<Iterator<? extends Node.Op>> stack = new ArrayDeque<>();
+			stack.push(root.getChildren().iterator());
+			while (!stack.isEmpty()) {
+				Iterator<? extends Node.Op> iterator = stack.peek();
+				if (!iterator.hasNext()) {
+					stack.pop();
+					continue;
+				}
+				Node.Op node = iterator.next();
+				if (node.getArtifact() != null)
+					this.addArtifact(node.getArtifact());
+				if (!node.getChildren().isEmpty())
+					stack.push(node.getChildren().iterator());
+			}
+		}
+
+		private void writePresenceCondition(PresenceCondition presenceCondition) throws IOException {
+			for (Set<Module> modules : modules(presenceCondition)) {
+				writeVarInt(this.data, modules.size());
+				for (Module module : modules) {
+					writeVarInt(this.data, module.size());
+					for (ModuleFeature moduleFeature : module) {
+						int featureIndex = this.featureIndices.get(moduleFeature.getFeature());
+						writeVarInt(this.data, featureIndex);
+						this.data.writeBoolean(moduleFeature.getSign());
+
+						// the feature versions as bitset over the versions of the written feature
+						List<? extends FeatureVersion> versions = this.features.get(featureIndex).getVersions();
+						BitSet bits = new BitSet(versions.size());
+						for (FeatureVersion featureVersion : moduleFeature) {
+							int versionIndex = versions.indexOf(featureVersion);
+							if (versionIndex < 0)
+								throw new EccoException("Feature version " + featureVersion + " of module feature is not a version of its feature.");
+							bits.set(versionIndex);
+						}
+						byte[] bytes = bits.toByteArray();
+						writeVarInt(this.data, bytes.length);
+						this.data.write(bytes);
+					}
+				}
+			}
+		}
+
+		/**
+		 * Writes the children of the given root in preorder, each node as flags, artifact index and number of children.
+		 */
+		private void writeTree(Node.Op root) throws IOException {
+			writeVarInt(this.data, root.getChildren().size());
+			Deque<Iterator<? extends Node.Op>> stack = new ArrayDeque<>();
+			stack.push(root.getChildren().iterator());
+			while (!stack.isEmpty()) {
+				Iterator<? extends Node.Op> iterator = stack.peek();
+				if (!iterator.hasNext()) {
+					stack.pop();
+					continue;
+				}
+				Node.Op node = iterator.next();
+				this.data.writeByte((node.isUnique() ? NODE_UNIQUE : 0) | (node.getArtifact() != null ? NODE_ARTIFACT : 0));
+				if (node.getArtifact() != null)
+					writeVarInt(this.data, this.artifactIndices.get(node.getArtifact()));
+				writeVarInt(this.data, node.getChildren().size());
+				if (!node.getChildren().isEmpty())
+					stack.push(node.getChildren().iterator());
+			}
+		}
+
+		/**
+		 * Writes the nodes of a sequence graph numbered in breadth first order, the root being node 0. Every node is written as polarity and its children as pairs of symbol (artifact index) and node number.
+		 */
+		private void writeSequenceGraph(SequenceGraph.Op sequenceGraph) throws IOException {
+			writeSignedVarInt(this.data, sequenceGraph.getCurrentSequenceNumber());
+			this.data.writeBoolean(sequenceGraph.getPol());
+
+			List<SequenceGraph.Node.Op> nodes = sequenceGraphNodes(sequenceGraph);
+			Map<SequenceGraph.Node.Op, Integer> nodeIndices = new IdentityHashMap<>();
+			for (SequenceGraph.Node.Op node : nodes)
+				nodeIndices.put(node, nodeIndices.size());
+
+			writeVarInt(this.data, nodes.size());
+			for (SequenceGraph.Node.Op node : nodes) {
+				this.data.writeBoolean(node.getPol());
+				writeVarInt(this.data, node.getChildren().size());
+				for (Map.Entry<Artifact.Op<?>, SequenceGraph.Node.Op> child : node.getChildren().entrySet()) {
+					writeVarInt(this.data, this.artifactIndices.get(child.getKey()));
+					writeVarInt(this.data, nodeIndices.get(child.getValue()));
+				}
+			}
+		}
+
+	}
+
+
+	/**
+	 * @return The sets of modules of the presence condition in the order in which they are written: min, max, not and all modules.
+	 */
+	static List<Set<Module>> modules(PresenceCondition presenceCondition) {
+		return Arrays.asList(presenceCondition.getMinModules(), presenceCondition.getMaxModules(), presenceCondition.getNotModules(), presenceCondition.getAllModules());
+	}
+
+	/**
+	 * @return The nodes of the sequence graph in breadth first order, starting with the root.
+	 */
+	static List<SequenceGraph.Node.Op> sequenceGraphNodes(SequenceGraph.Op sequenceGraph) {
+		List<SequenceGraph.Node.Op> nodes = new ArrayList<>();
+		Set<SequenceGraph.Node.Op> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+		nodes.add(sequenceGraph.getRoot());
+		visited.add(sequenceGraph.getRoot());
+		for (int i = 0; i < nodes.size(); i++) {
+			for (SequenceGraph.Node.Op child : nodes.get(i).getChildren().values()) {
+				if (visited.add(child))
+					nodes.add(child);
+			}
+		}
+		return nodes;
+	}
+
+}
@@ -0,0 +1,156 @@
+package at.jku.isse.ecco.wire;
+
+import at.jku.isse.ecco.EccoException;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Protocol between an ECCO server and its clients.
+ * <p>
+ * A client starts a request with {@link #MAGIC}, the protocol {@link #VERSION} and the command. The server answers every request with a status, followed by the requested data if the status is {@link #STATUS_OK}.
+ * Features and repositories are transferred with the {@link RepositoryWriter} and the {@link RepositoryReader}, together with the contents of their artifacts that are kept in the blob store of the repository.
+ * <p>
+ * Pulls and pushes only transfer the associations the receiver does not have yet (see {@link RepositoryDelta}): for a pull the client sends the digests of its associations with the request, for a push the server answers the request with the digests of its associations before the client sends the repository.
+ */
+public final class WireProtocol {
+
+	private WireProtocol() {
+		throw new AssertionError("Class cannot be instantiated.");
+	}
+
+
+	public static final int MAGIC = 0x45434357; // "ECCW"
+	public static final int VERSION = 3;
+
+	public static final String FETCH = "FETCH";
+	public static final String PULL = "PULL";
+	public static final String PUSH = "PUSH";
+
+	public static final int STATUS_OK = 0;
+	public static final int STATUS_ERROR = 1;
+
+
+	// # REQUESTS AND RESPONSES ####################################################
+
+	public static void writeRequest(DataOutput out, String command) throws IOException {
+		out.writeInt(MAGIC);
+		out.writeByte(VERSION);
+		writeString(out, command);
+	}
+
+	/**
+	 * Reads the header of a request.
+	 *
+	 * @param in The input of the request.
+	 * @return The command of the request.
+	 * @throws EccoException If the request is not an ECCO request or uses another version of the protocol.
+	 */
+	public static String readRequest(DataInput in) throws IOException {
+		if (in.readInt() != MAGIC)
+			throw new EccoException("Invalid request.");
+		int version = in.readUnsignedByte();
+		if (version != VERSION)
+			throw new EccoException("Unsupported protocol version " + version + ", expected version " + VERSION + ".");
+		return readString(in);
+	}
+
+	public static void writeOk(DataOutput out) throws IOException {
+		out.writeByte(STATUS_OK);
+	}
+
+	public static void writeError(DataOutput out, String message) throws IOException {
+		out.writeByte(STATUS_ERROR);
+		writeString(out, message == null ? "" : message);
+	}
+
+	/**
+	 * Reads the status of a response.
+	 *
+	 * @param in The input of the response.
+	 * @throws EccoException With the message of the server if the request failed.
+	 */
+	public static void readStatus(DataInput in) throws IOException {
+		int status = in.readUnsignedByte();
+		if (status == STATUS_ERROR)
+			throw new EccoException("Remote error: " + readString(in));
+		else if (status != STATUS_OK)
+			throw new EccoException("Invalid response status " + status + ".");
+	}
+
+
+	public static void writeDigests(DataOutput out, Collection<ByteBuffer> digests) throws IOException {
+		writeVarInt(out, digests.size());
+		for (ByteBuffer digest : digests) {
+			byte[] bytes = new byte[digest.remaining()];
+			digest.duplicate().get(bytes);
+			writeVarInt(out, bytes.length);
+			out.write(bytes);
+		}
+	}
+
+	public static Set<ByteBuffer> readDigests(DataInput in) throws IOException {
+		int size = readVarInt(in);
+		Set<ByteBuffer> digests = new HashSet<>(size);
+		for (int i = 0; i < size; i++) {
+			byte[] bytes = new byte[readVarInt(in)];
+			in.readFully(bytes);
+			digests.add(ByteBuffer.wrap(bytes));
+		}
+		return digests;
+	}
+
+
+	// # ENCODING ####################################################
+
+	public static void writeVarInt(DataOutput out, int value) throws IOException {
+		while ((value & ~0x7F) != 0) {
+			out.writeByte((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		out.writeByte(value);
+	}
+
+	public static int readVarInt(DataInput in) throws IOException {
+		int value = 0;
+		for (int shift = 0; shift < 32; shift += 7) {
+			int b = in.readUnsignedByte();
+			value |= (b & 0x7F) << shift;
+			if ((b & 0x80) == 0)
+				return value;
+		}
+		throw new EccoException("Malformed varint.");
+	}
+
+	/**
+	 * Writes a signed value as varint so that small negative values (e.g. -1) stay small.
+	 */
+	public static void writeSignedVarInt(DataOutput out, int value) throws IOException {
+		writeVarInt(out, (value << 1) ^ (value >> 31));
+	}
+
+	public static int readSignedVarInt(DataInput in) throws IOException {
+		int value = readVarInt(in);
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+	/**
+	 * Writes a string as UTF-8 prefixed by its length. Unlike {@link DataOutput#writeUTF(String)} the length of the string is not limited.
+	 */
+	public static void writeString(DataOutput out, String value) throws IOException {
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		writeVarInt(out, bytes.length);
+		out.write(bytes);
+	}
+
+	public static String readString(DataInput in) throws IOException {
+		byte[] bytes = new byte[readVarInt(in)];
+		in.readFully(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+}
@@ -7,7 +7,7 @@ import at.jku.isse.ecco.artifact.ArtifactReference;
 import at.jku.isse.ecco.storage.perst.sg.PerstSequenceGraph;
 import at.jku.isse.ecco.sg.SequenceGraph;
 import at.jku.isse.ecco.tree.Node;
-import org.garret.perst.Persistent;
+import at.jku.isse.ecco.storage.perst.dao.TrackedPersistent;
 
 import java.io.*;
 import java.util.*;
@@ -21,7 +21,7 @@ import static com.google.common.base.Preconditions.checkNotNull;
  * @author Hannes Thaller
  * @version 1.0
  */
-public class PerstArtifact<DataType extends ArtifactData> extends Persistent implements Artifact<DataType>, Artifact.Op<DataType> {
+public class PerstArtifact<DataType extends ArtifactData> extends TrackedPersistent implements Artifact<DataType>, Artifact.Op<DataType> {
 
 	private transient ArtifactOperator operator = new ArtifactOperator(this);
 
@@ -313,7 +313,7 @@ public class PerstArtifact<DataType extends ArtifactData> extends Persistent imp
 		if (this.uses(target))
 			return;
 
-		ArtifactReference.Op artifactReference = new PerstArtifactReference();
+		ArtifactReference.Op artifactReference = new PerstArtifactReference(type);
 		artifactReference.setSource(this);
 		artifactReference.setTarget(target);
 		this.addUses(artifactReference);
@@ -2,7 +2,7 @@ package at.jku.isse.ecco.storage.perst.artifact;
 
 import at.jku.isse.ecco.artifact.Artifact;
 import at.jku.isse.ecco.artifact.ArtifactReference;
-import org.garret.perst.Persistent;
+import at.jku.isse.ecco.storage.perst.dao.TrackedPersistent;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
@@ -13,7 +13,7 @@ import static com.google.common.base.Preconditions.checkNotNull;
  * @author Hannes Thaller
  * @version 1.0
  */
-public class PerstArtifactReference extends Persistent implements ArtifactReference, ArtifactReference.Op {
+public class PerstArtifactReference extends TrackedPersistent implements ArtifactReference, ArtifactReference.Op {
 
 	private final String type;
 
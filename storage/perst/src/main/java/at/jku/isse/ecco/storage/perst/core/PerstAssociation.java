@@ -5,20 +5,21 @@ import at.jku.isse.ecco.module.Module;
 import at.jku.isse.ecco.module.ModuleFeature;
 import at.jku.isse.ecco.module.PresenceCondition;
 import at.jku.isse.ecco.tree.RootNode;
-import org.garret.perst.Persistent;
+import at.jku.isse.ecco.storage.perst.module.PerstPresenceCondition;
+import at.jku.isse.ecco.storage.perst.dao.TrackedPersistent;
 
 import java.util.*;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
 /**
- * Perst implementation of {@link Association}.
+ * Perst implementation of {@link Association}. Associations are not loaded recursively together with the repository but on demand as soon as any of their members is accessed.
  *
  * @author JKU, ISSE
  * @author Hannes Thaller
  * @version 1.0
  */
-public class PerstAssociation extends Persistent implements Association, Association.Op {
+public class PerstAssociation extends TrackedPersistent implements Association, Association.Op {
 
 	private String id;
 	private String name = "";
@@ -32,26 +33,34 @@ public class PerstAssociation extends Persistent implements Association, Associa
 
 	@Override
 	public PresenceCondition getPresenceCondition() {
+		this.load();
+		// the presence condition is referenced by a lazily loaded association and therefore not loaded together with it
+		if (this.presenceCondition instanceof PerstPresenceCondition)
+			((PerstPresenceCondition) this.presenceCondition).load();
 		return this.presenceCondition;
 	}
 
 	@Override
 	public void setPresenceCondition(PresenceCondition presenceCondition) {
+		this.load();
 		this.presenceCondition = presenceCondition;
 	}
 
 	@Override
 	public String getId() {
+		this.load();
 		return this.id;
 	}
 
 	@Override
 	public void setId(final String id) {
+		this.load();
 		this.id = id;
 	}
 
 	@Override
 	public String getName() {
+		this.load();
 		return name;
 	}
 
@@ -59,23 +68,33 @@ public class PerstAssociation extends Persistent implements Association, Associa
 	public void setName(final String name) {
 		checkNotNull(name);
 
+		this.load();
 		this.name = name;
 	}
 
 	@Override
 	public RootNode.Op getRootNode() {
+		this.load();
 		return rootNode;
 	}
 
 	@Override
 	public void setRootNode(final RootNode.Op root) {
+		this.load();
 		this.rootNode = root;
 		root.setContainingAssociation(this);
 	}
 
 	@Override
 	public String toString() {
+		this.load();
 		return String.format("Id: %s, Name: %s, Artifact Tree: %s", this.id, this.name, rootNode.toString());
 	}
 
+
+	@Override
+	public boolean recursiveLoading() {
+		return false;
+	}
+
 }
@@ -8,6 +8,7 @@ import at.jku.isse.ecco.storage.perst.feature.PerstFeature;
 import at.jku.isse.ecco.storage.perst.repository.PerstRepository;
 import at.jku.isse.ecco.repository.Repository;
 import org.garret.perst.FieldIndex;
+import org.garret.perst.Link;
 import org.garret.perst.Persistent;
 
 import java.util.HashMap;
@@ -40,12 +41,14 @@ public class DatabaseRoot extends Persistent {
 	/**
 	 * Constructs a new DatabaseRoot with the given indexers.
 	 *
-	 * @param associationIndex used to index {@link PerstAssociation}
-	 * @param featureIndex     used to index {@link PerstFeature}
-	 * @param commitIndex      used to index {@link PerstCommit}
-	 * @param variantIndex     used to index {@link PerstVariant}
+	 * @param associationLink used to store the {@link PerstAssociation}s of the repository
+	 * @param featureIndex    used to index the {@link PerstFeature}s of the repository
+	 * @param commitIndex     used to index {@link PerstCommit}
+	 * @param variantIndex    used to index {@link PerstVariant}
 	 */
-	public DatabaseRoot(final FieldIndex<PerstAssociation> associationIndex, final FieldIndex<PerstFeature> featureIndex, final FieldIndex<PerstCommit> commitIndex, final FieldIndex<PerstVariant> variantIndex, final FieldIndex<PerstRemote> remoteIndex) {
+	public DatabaseRoot(final Link<PerstAssociation> associationLink, final FieldIndex<PerstFeature> featureIndex, final FieldIndex<PerstCommit> commitIndex, final FieldIndex<PerstVariant> variantIndex, final FieldIndex<PerstRemote> remoteIndex) {
+		checkNotNull(associationLink);
+		checkNotNull(featureIndex);
 		checkNotNull(commitIndex);
 		checkNotNull(variantIndex);
 		checkNotNull(remoteIndex);
@@ -54,7 +57,7 @@ public class DatabaseRoot extends Persistent {
 		this.variantIndex = variantIndex;
 		this.remoteIndex = remoteIndex;
 
-		this.repository = new PerstRepository();
+		this.repository = new PerstRepository(featureIndex, associationLink);
 	}
 
 
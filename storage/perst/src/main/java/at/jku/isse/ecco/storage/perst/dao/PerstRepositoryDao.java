@@ -43,19 +43,23 @@ public class PerstRepositoryDao extends PerstAbstractGenericDao implements Repos
 	public void store(Repository.Op repository) {
 		PerstRepository perstRepository = (PerstRepository) repository;
 
+		// repositories of databases created before features and associations were stored separately
+		if (!perstRepository.isIndexed() && perstRepository.getStorage() != null)
+			perstRepository.index(perstRepository.getStorage().createFieldIndex(PerstFeature.class, "id", true), perstRepository.getStorage().createLink());
+
 		perstRepository.store();
 
 		// features
 		for (PerstFeature feature : perstRepository.getFeatures()) {
-			feature.store();
+			feature.storeIfChanged();
 			for (PerstFeatureVersion featureVersion : feature.getVersions()) {
-				featureVersion.store();
+				featureVersion.storeIfChanged();
 			}
 		}
 
-		// associations
-		for (PerstAssociation association : perstRepository.getAssociations()) {
-			association.store();
+		// associations (associations that were not loaded cannot have been changed)
+		for (PerstAssociation association : perstRepository.getLoadedAssociations()) {
+			association.storeIfChanged();
 			this.savePresenceCondition(association.getPresenceCondition());
 			this.saveNode(association.getRootNode());
 		}
@@ -79,13 +83,13 @@ public class PerstRepositoryDao extends PerstAbstractGenericDao implements Repos
 		if (entity instanceof PerstNode) {
 			//this.openDatabase();
 			PerstNode node = (PerstNode) entity;
-			node.store();
+			node.storeIfChanged();
 			for (Node child : node.getChildren()) {
 				this.saveNode(child);
 			}
 			if (node.getArtifact() != null) {
 				// store artifact itself
-				((PerstArtifact) node.getArtifact()).store();
+				((PerstArtifact) node.getArtifact()).storeIfChanged();
 				// store sequence graph
 				if (node.getArtifact().getSequenceGraph() != null && node.getArtifact().getSequenceGraph() instanceof PerstSequenceGraph) {
 					((PerstSequenceGraph) node.getArtifact().getSequenceGraph()).storeRecursively();
@@ -93,22 +97,22 @@ public class PerstRepositoryDao extends PerstAbstractGenericDao implements Repos
 				// store artifact references
 				for (ArtifactReference ref : node.getArtifact().getUses())
 					if (ref instanceof PerstArtifactReference)
-						((PerstArtifactReference) ref).store();
+						((PerstArtifactReference) ref).storeIfChanged();
 				for (ArtifactReference ref : node.getArtifact().getUsedBy())
 					if (ref instanceof PerstArtifactReference)
-						((PerstArtifactReference) ref).store();
+						((PerstArtifactReference) ref).storeIfChanged();
 			}
 			//this.closeDatabase();
 			return node;
 		} else if (entity instanceof PerstRootNode) {
 			//this.openDatabase();
 			PerstRootNode node = (PerstRootNode) entity;
-			node.store();
+			node.storeIfChanged();
 			for (Node child : node.getChildren()) {
 				this.saveNode(child);
 			}
 			if (node.getArtifact() != null) {
-				((PerstArtifact) node.getArtifact()).store();
+				((PerstArtifact) node.getArtifact()).storeIfChanged();
 				if (node.getArtifact().getSequenceGraph() instanceof PerstSequenceGraph) {
 					((PerstSequenceGraph) node.getArtifact().getSequenceGraph()).storeRecursively();
 				}
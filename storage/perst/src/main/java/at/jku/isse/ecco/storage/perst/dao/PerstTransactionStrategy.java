@@ -11,6 +11,7 @@ import com.google.inject.Inject;
 import com.google.inject.Singleton;
 import com.google.inject.name.Named;
 import org.garret.perst.FieldIndex;
+import org.garret.perst.Link;
 import org.garret.perst.Storage;
 import org.garret.perst.StorageFactory;
 
@@ -18,6 +19,11 @@ import java.nio.file.Path;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
+/**
+ * Transaction strategy of the Perst backend.
+ * <p>
+ * Every thread has its own (possibly nested) Perst thread transaction. Write transactions are exclusive, read-only transactions hold a shared lock and can therefore run concurrently with other read-only transactions.
+ */
 @Singleton
 public class PerstTransactionStrategy implements TransactionStrategy {
 
@@ -25,8 +31,6 @@ public class PerstTransactionStrategy implements TransactionStrategy {
 	protected Storage database = null;
 	protected boolean initialized = false;
 
-	protected int numBegin = 0;
-
 	@Inject
 	public PerstTransactionStrategy(@Named("repositoryDir") final Path repositoryDir) {
 		checkNotNull(repositoryDir);
@@ -35,7 +39,21 @@ public class PerstTransactionStrategy implements TransactionStrategy {
 	}
 
 
-	private DatabaseRoot currentDatabaseRoot = null;
+	/**
+	 * The transaction of a thread.
+	 */
+	private static class Transaction {
+		private final DatabaseRoot databaseRoot;
+		private final boolean readOnly;
+		private int numBegin = 1;
+
+		private Transaction(DatabaseRoot databaseRoot, boolean readOnly) {
+			this.databaseRoot = databaseRoot;
+			this.readOnly = readOnly;
+		}
+	}
+
+	private final ThreadLocal<Transaction> currentTransaction = new ThreadLocal<>();
 
 
 	@Override
@@ -58,7 +76,7 @@ public class PerstTransactionStrategy implements TransactionStrategy {
 
 			// open database and keep it open
 			this.database.open(connectionString);
-			this.currentDatabaseRoot = null;
+			this.currentTransaction.remove();
 
 			this.initialized = true;
 		}
@@ -70,20 +88,20 @@ public class PerstTransactionStrategy implements TransactionStrategy {
 			if (this.database.isOpened())
 				this.database.close();
 
-			this.currentDatabaseRoot = null;
+			this.currentTransaction.remove();
 
 			this.initialized = false;
 		}
 	}
 
 	protected DatabaseRoot createDatabaseRoot() {
-		final FieldIndex<PerstFeature> featureIndex = database.<PerstFeature>createFieldIndex(PerstFeature.class, "name", true);
-		final FieldIndex<PerstAssociation> associationIndex = database.<PerstAssociation>createFieldIndex(PerstAssociation.class, "id", true);
+		final FieldIndex<PerstFeature> featureIndex = database.<PerstFeature>createFieldIndex(PerstFeature.class, "id", true);
+		final Link<PerstAssociation> associationLink = database.<PerstAssociation>createLink();
 		final FieldIndex<PerstCommit> commitIndex = database.<PerstCommit>createFieldIndex(PerstCommit.class, "id", true);
 		final FieldIndex<PerstVariant> variantIndex = database.<PerstVariant>createFieldIndex(PerstVariant.class, "name", true);
 		final FieldIndex<PerstRemote> remoteIndex = database.<PerstRemote>createFieldIndex(PerstRemote.class, "name", true);
 
-		return new DatabaseRoot(associationIndex, featureIndex, commitIndex, variantIndex, remoteIndex);
+		return new DatabaseRoot(associationLink, featureIndex, commitIndex, variantIndex, remoteIndex);
 	}
 
 	protected void checkInitialized() throws EccoException {
@@ -96,42 +114,47 @@ public class PerstTransactionStrategy implements TransactionStrategy {
 	public void begin() throws EccoException {
 		this.checkInitialized();
 
-		this.numBegin++;
-
-		if (this.currentDatabaseRoot == null) {
-			this.database.beginThreadTransaction(Storage.EXCLUSIVE_TRANSACTION);
+		Transaction transaction = this.currentTransaction.get();
+		if (transaction == null) {
+			this.database.beginThreadTransaction(Storage.READ_WRITE_TRANSACTION);
 
-			this.currentDatabaseRoot = this.database.getRoot();
+			this.currentTransaction.set(new Transaction(this.database.getRoot(), false));
+		} else if (transaction.readOnly) {
+			// the shared lock of the read-only transaction cannot be upgraded to an exclusive lock
+			throw new EccoException("Cannot begin a write transaction within a read-only transaction.");
 		} else {
-			//throw new EccoException("Transaction is already in progress.");
-			// do nothing
+			transaction.numBegin++;
 		}
 	}
 
-	public void beginReadOnly() {
-
-	}
+	@Override
+	public void beginReadOnly() throws EccoException {
+		this.checkInitialized();
 
-	public void beginReadWrite() {
+		Transaction transaction = this.currentTransaction.get();
+		if (transaction == null) {
+			this.database.beginThreadTransaction(Storage.READ_ONLY_TRANSACTION);
 
+			this.currentTransaction.set(new Transaction(this.database.getRoot(), true));
+		} else { // nested transactions become part of the outer transaction
+			transaction.numBegin++;
+		}
 	}
 
-	// TODO: improve transactions!
-
 	@Override
 	public void end() throws EccoException {
 		this.checkInitialized();
 
-		if (this.currentDatabaseRoot == null) { // no explicit transaction
+		Transaction transaction = this.currentTransaction.get();
+		if (transaction == null) // no explicit transaction
 			throw new EccoException("No transaction in progress.");
-		} else { // explicit transaction
-			this.numBegin--;
 
-			if (this.numBegin == 0) {
-				this.database.endThreadTransaction();
+		transaction.numBegin--;
 
-				this.currentDatabaseRoot = null;
-			}
+		if (transaction.numBegin == 0) {
+			this.currentTransaction.remove();
+
+			this.database.endThreadTransaction();
 		}
 	}
 
@@ -139,16 +162,19 @@ public class PerstTransactionStrategy implements TransactionStrategy {
 	public void rollback() throws EccoException {
 		this.checkInitialized();
 
-		if (this.currentDatabaseRoot == null) { // no explicit transaction
+		Transaction transaction = this.currentTransaction.get();
+		if (transaction == null) // no explicit transaction
 			throw new EccoException("No transaction in progress.");
-		} else { // explicit transaction
-			this.numBegin--;
 
-			if (this.numBegin == 0) {
-				this.database.rollbackThreadTransaction();
+		transaction.numBegin--;
 
-				this.currentDatabaseRoot = null;
-			}
+		if (transaction.numBegin == 0) {
+			this.currentTransaction.remove();
+
+			if (transaction.readOnly)
+				this.database.endThreadTransaction();
+			else
+				this.database.rollbackThreadTransaction();
 		}
 	}
 
@@ -156,15 +182,16 @@ public class PerstTransactionStrategy implements TransactionStrategy {
 	protected DatabaseRoot getDatabaseRoot() throws EccoException {
 		this.checkInitialized();
 
-		if (this.currentDatabaseRoot == null) { // no explicit transaction
+		Transaction transaction = this.currentTransaction.get();
+		if (transaction == null) { // no explicit transaction
 			return this.database.getRoot();
 		} else { // explicit transaction
-			return this.currentDatabaseRoot;
+			return transaction.databaseRoot;
 		}
 	}
 
 	protected void done() {
-		if (this.currentDatabaseRoot == null) { // no explicit transaction
+		if (this.currentTransaction.get() == null) { // no explicit transaction
 			this.database.commit();
 		}
 	}
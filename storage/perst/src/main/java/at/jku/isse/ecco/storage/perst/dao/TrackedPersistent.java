@@ -0,0 +1,186 @@
+package at.jku.isse.ecco.storage.perst.dao;
+
+import at.jku.isse.ecco.EccoException;
+import org.garret.perst.IPersistent;
+import org.garret.perst.Persistent;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Persistent object that remembers the state it was last loaded or stored with so that unchanged objects do not have to be written again.
+ * <p>
+ * The entities are mostly changed by the generic operators (e.g. via the collections returned by their getters) and therefore cannot call {@link #modify()} themselves.
+ * Instead, a copy of the state is kept that contains the same fields Perst stores (i.e. all non-static, non-transient fields), where referenced persistent objects are kept by their identity and collections, maps and arrays by their elements in iteration order.
+ * An object is only considered unchanged if its current state equals the copy exactly. Values of other mutable types cannot be copied, objects with such values are always considered changed.
+ */
+public abstract class TrackedPersistent extends Persistent {
+
+	private static final ClassValue<Field[]> FIELDS = new ClassValue<Field[]>() {
+		@Override
+		protected Field[] computeValue(Class<?> type) {
+			List<Field> fields = new ArrayList<>();
+			for (Class<?> c = type; c != TrackedPersistent.class; c = c.getSuperclass()) {
+				for (Field field : c.getDeclaredFields()) {
+					if (!Modifier.isStatic(field.getModifiers()) && !Modifier.isTransient(field.getModifiers())) {
+						field.setAccessible(true);
+						fields.add(field);
+					}
+				}
+			}
+			return fields.toArray(new Field[fields.size()]);
+		}
+	};
+
+	/**
+	 * Stands in for values that cannot be copied. It equals no value, so that objects with such values are always stored.
+	 */
+	private static final Object UNKNOWN = new Object();
+
+
+	private transient Object[] storedState = null;
+
+	@Override
+	public void onLoad() {
+		super.onLoad();
+		this.storedState = this.copyState();
+	}
+
+	/**
+	 * Checks if the object is not persistent yet or was changed since it was loaded or stored the last time. Objects that were not loaded yet cannot have been changed.
+	 *
+	 * @return True if the object has to be stored, false otherwise.
+	 */
+	public boolean isChanged() {
+		if (this.isRaw())
+			return false;
+		return !this.isPersistent() || this.storedState == null || !this.matchesState(this.storedState);
+	}
+
+	/**
+	 * Stores the object if it is new or changed.
+	 *
+	 * @return True if the object was stored, false otherwise.
+	 */
+	public boolean storeIfChanged() {
+		if (!this.isChanged())
+			return false;
+		this.store();
+		this.storedState = this.copyState();
+		return true;
+	}
+
+
+	private Object[] copyState() {
+		Field[] fields = FIELDS.get(this.getClass());
+		Object[] state = new Object[fields.length];
+		try {
+			for (int i = 0; i < fields.length; i++)
+				state[i] = copy(fields[i].get(this));
+		} catch (IllegalAccessException e) {
+			throw new EccoException("Error copying state of persistent object.", e);
+		}
+		return state;
+	}
+
+	private boolean matchesState(Object[] state) {
+		Field[] fields = FIELDS.get(this.getClass());
+		try {
+			for (int i = 0; i < fields.length; i++) {
+				if (!matches(state[i], fields[i].get(this)))
+					return false;
+			}
+		} catch (IllegalAccessException e) {
+			throw new EccoException("Error comparing state of persistent object.", e);
+		}
+		return true;
+	}
+
+	private static boolean isImmutable(Object value) {
+		return value instanceof String || value instanceof Number && value.getClass().getName().startsWith("java.lang.") || value instanceof Boolean || value instanceof Character || value instanceof Enum;
+	}
+
+	/**
+	 * Copies a field value: persistent objects and immutable values are kept as they are, collections, maps and arrays are copied element by element (maps as keys and values in turn).
+	 */
+	private static Object copy(Object value) {
+		if (value == null || value instanceof IPersistent || isImmutable(value))
+			return value;
+		if (value instanceof byte[])
+			return ((byte[]) value).clone();
+		if (value instanceof Collection) {
+			Object[] copy = new Object[((Collection<?>) value).size()];
+			int i = 0;
+			for (Object element : (Collection<?>) value)
+				copy[i++] = copy(element);
+			return copy;
+		}
+		if (value instanceof Map) {
+			Object[] copy = new Object[2 * ((Map<?, ?>) value).size()];
+			int i = 0;
+			for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+				copy[i++] = copy(entry.getKey());
+				copy[i++] = copy(entry.getValue());
+			}
+			return copy;
+		}
+		if (value.getClass().isArray()) {
+			Object[] copy = new Object[Array.getLength(value)];
+			for (int i = 0; i < copy.length; i++)
+				copy[i] = copy(Array.get(value, i));
+			return copy;
+		}
+		return UNKNOWN;
+	}
+
+	/**
+	 * Checks if a field value still equals its copy made by {@link #copy(Object)}. Collections and maps that contain the same elements in a different order do not match, which only causes an unnecessary store.
+	 */
+	private static boolean matches(Object copy, Object value) {
+		if (value == null || value instanceof IPersistent)
+			return copy == value;
+		if (isImmutable(value))
+			return value.equals(copy);
+		if (value instanceof byte[])
+			return copy instanceof byte[] && Arrays.equals((byte[]) copy, (byte[]) value);
+		if (!(copy instanceof Object[]))
+			return false;
+		Object[] elements = (Object[]) copy;
+		int i = 0;
+		if (value instanceof Collection) {
+			if (elements.length != ((Collection<?>) value).size())
+				return false;
+			for (Object element : (Collection<?>) value) {
+				if (!matches(elements[i++], element))
+					return false;
+			}
+			return true;
+		}
+		if (value instanceof Map) {
+			if (elements.length != 2 * ((Map<?, ?>) value).size())
+				return false;
+			for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+				if (!matches(elements[i++], entry.getKey()) || !matches(elements[i++], entry.getValue()))
+					return false;
+			}
+			return true;
+		}
+		if (value.getClass().isArray()) {
+			if (elements.length != Array.getLength(value))
+				return false;
+			for (; i < elements.length; i++) {
+				if (!matches(elements[i], Array.get(value, i)))
+					return false;
+			}
+			return true;
+		}
+		return false;
+	}
+
+}
@@ -10,6 +10,7 @@ import org.garret.perst.Persistent;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.Set;
 
 /**
@@ -91,4 +92,14 @@ public class PerstConfiguration extends Persistent implements Configuration, Con
 		return this.operator.computeModules(maxOrder);
 	}
 
+	@Override
+	public long countModules(int maxOrder) {
+		return this.operator.countModules(maxOrder);
+	}
+
+	@Override
+	public Iterator<Module> iterateModules(int maxOrder) {
+		return this.operator.iterateModules(maxOrder);
+	}
+
 }
@@ -2,7 +2,7 @@ package at.jku.isse.ecco.storage.perst.feature;
 
 import at.jku.isse.ecco.feature.Feature;
 import at.jku.isse.ecco.feature.FeatureVersion;
-import org.garret.perst.Persistent;
+import at.jku.isse.ecco.storage.perst.dao.TrackedPersistent;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -19,7 +19,7 @@ import static com.google.common.base.Preconditions.checkNotNull;
  * @author Hannes Thaller
  * @version 1.0
  */
-public class PerstFeature extends Persistent implements Feature {
+public class PerstFeature extends TrackedPersistent implements Feature {
 
 	private String id = "";
 	private String name = "";
@@ -3,7 +3,7 @@ package at.jku.isse.ecco.storage.perst.feature;
 import at.jku.isse.ecco.feature.Feature;
 import at.jku.isse.ecco.feature.FeatureInstance;
 import at.jku.isse.ecco.feature.FeatureVersion;
-import org.garret.perst.Persistent;
+import at.jku.isse.ecco.storage.perst.dao.TrackedPersistent;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
@@ -14,7 +14,7 @@ import static com.google.common.base.Preconditions.checkNotNull;
  * @author Hannes Thaller
  * @version 1.0
  */
-public class PerstFeatureVersion extends Persistent implements FeatureVersion {
+public class PerstFeatureVersion extends TrackedPersistent implements FeatureVersion {
 
 	private Feature feature;
 	private String id;
@@ -6,7 +6,7 @@ import at.jku.isse.ecco.feature.FeatureInstance;
 import at.jku.isse.ecco.feature.FeatureVersion;
 import at.jku.isse.ecco.module.Module;
 import at.jku.isse.ecco.module.ModuleFeature;
-import org.garret.perst.Persistent;
+import at.jku.isse.ecco.storage.perst.dao.TrackedPersistent;
 
 import java.util.Collection;
 import java.util.HashSet;
@@ -21,7 +21,7 @@ import java.util.stream.Collectors;
  * @author Hannes Thaller
  * @version 1.0
  */
-public class PerstModule extends Persistent implements Module {
+public class PerstModule extends TrackedPersistent implements Module {
 
 
 	// constructors
@@ -38,12 +38,12 @@ public class PerstModule extends Persistent implements Module {
 	// perst
 
 	public void storeRecursively() {
-		this.store();
+		this.storeIfChanged();
 
 		// store all children
 		for (ModuleFeature mf : this.moduleFeatures) {
 			if (mf instanceof PerstModuleFeature)
-				((PerstModuleFeature) mf).store();
+				((PerstModuleFeature) mf).storeIfChanged();
 		}
 	}
 
@@ -3,7 +3,7 @@ package at.jku.isse.ecco.storage.perst.module;
 import at.jku.isse.ecco.feature.Feature;
 import at.jku.isse.ecco.feature.FeatureVersion;
 import at.jku.isse.ecco.module.ModuleFeature;
-import org.garret.perst.Persistent;
+import at.jku.isse.ecco.storage.perst.dao.TrackedPersistent;
 
 import java.util.Collection;
 import java.util.HashSet;
@@ -11,7 +11,7 @@ import java.util.Iterator;
 import java.util.Set;
 import java.util.stream.Collectors;
 
-public class PerstModuleFeature extends Persistent implements ModuleFeature {
+public class PerstModuleFeature extends TrackedPersistent implements ModuleFeature {
 
 	public PerstModuleFeature() {
 		this.feature = null;
@@ -7,7 +7,7 @@ import at.jku.isse.ecco.module.ModuleFeature;
 import at.jku.isse.ecco.module.PresenceCondition;
 import at.jku.isse.ecco.module.PresenceConditionOperator;
 import at.jku.isse.ecco.storage.perst.feature.PerstFeatureInstance;
-import org.garret.perst.Persistent;
+import at.jku.isse.ecco.storage.perst.dao.TrackedPersistent;
 
 import java.util.*;
 
@@ -18,7 +18,7 @@ import java.util.*;
  * @author Hannes Thaller
  * @version 1.0
  */
-public class PerstPresenceCondition extends Persistent implements PresenceCondition, PresenceConditionOperator.PresenceConditionOperand {
+public class PerstPresenceCondition extends TrackedPersistent implements PresenceCondition, PresenceConditionOperator.PresenceConditionOperand {
 
 	private transient PresenceConditionOperator operator = new PresenceConditionOperator(this);
 
@@ -88,13 +88,13 @@ public class PerstPresenceCondition extends Persistent implements PresenceCondit
 	// perst
 
 	public void storeRecursively() {
-		this.store();
+		this.storeIfChanged();
 
 		// store all children
 		for (Set<Module> modules : Arrays.asList(this.minModules, this.maxModules, this.notModules, this.allModules)) {
 			for (Module module : modules) {
 				if (module instanceof PerstModule)
-					((PerstModule) module).store();
+					((PerstModule) module).storeIfChanged();
 			}
 		}
 	}
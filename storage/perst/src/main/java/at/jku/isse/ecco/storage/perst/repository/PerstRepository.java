@@ -13,6 +13,8 @@ import at.jku.isse.ecco.storage.perst.feature.PerstFeature;
 import at.jku.isse.ecco.repository.Repository;
 import at.jku.isse.ecco.repository.RepositoryOperator;
 import at.jku.isse.ecco.tree.Node;
+import org.garret.perst.FieldIndex;
+import org.garret.perst.Link;
 import org.garret.perst.Persistent;
 
 import java.util.*;
@@ -20,7 +22,13 @@ import java.util.*;
 import static com.google.common.base.Preconditions.checkArgument;
 
 /**
- * Memory implementation of {@link Repository}.
+ * Perst implementation of {@link Repository}.
+ * <p>
+ * The features and associations of a repository that is stored in a database are kept in an index and a link, i.e. they are separate persistent objects that are not written together with the repository.
+ * The associations are only loaded when they are accessed.
+ * Repositories that are not stored in a database (e.g. subsets created by the entity factory) and repositories of databases created before keep them in a map and a list instead.
+ * <p>
+ * Read-only transactions may access a repository concurrently, therefore the caches of loaded features and associations are only accessed while holding the lock of the repository.
  *
  * @author JKU, ISSE
  * @version 1.0
@@ -30,6 +38,11 @@ public class PerstRepository extends Persistent implements Repository, Repositor
 	private transient RepositoryOperator operator;
 
 
+	private FieldIndex<PerstFeature> featureIndex = null;
+	private Link<PerstAssociation> associationLink = null;
+	private transient Set<PerstAssociation> loadedAssociations = new LinkedHashSet<>();
+	private transient Map<String, PerstFeature> loadedFeatures = null;
+
 	private Map<String, PerstFeature> features;
 	private Collection<PerstAssociation> associations;
 
@@ -37,6 +50,8 @@ public class PerstRepository extends Persistent implements Repository, Repositor
 
 	private int maxOrder = 5;
 
+	private int sequenceGraphAlignmentBudget = 0;
+
 
 	public PerstRepository() {
 		this.features = new HashMap<>();
@@ -47,6 +62,73 @@ public class PerstRepository extends Persistent implements Repository, Repositor
 		this.operator = new RepositoryOperator(this);
 	}
 
+	public PerstRepository(FieldIndex<PerstFeature> featureIndex, Link<PerstAssociation> associationLink) {
+		this();
+		this.index(featureIndex, associationLink);
+	}
+
+
+	/**
+	 * Moves the features and associations from the map and list into the given index and link.
+	 *
+	 * @param featureIndex    The feature index with the feature id as key.
+	 * @param associationLink The association link.
+	 */
+	public void index(FieldIndex<PerstFeature> featureIndex, Link<PerstAssociation> associationLink) {
+		for (PerstFeature feature : this.features.values())
+			featureIndex.put(feature);
+		associationLink.addAll(this.associations);
+		synchronized (this) {
+			this.loadedAssociations.addAll(this.associations);
+		}
+
+		this.featureIndex = featureIndex;
+		this.associationLink = associationLink;
+		this.features = null;
+		this.associations = null;
+	}
+
+	public boolean isIndexed() {
+		return this.featureIndex != null;
+	}
+
+	/**
+	 * Returns the associations that were loaded or added since the repository was loaded. Associations that were not loaded cannot have been changed.
+	 *
+	 * @return The loaded associations.
+	 */
+	public Collection<PerstAssociation> getLoadedAssociations() {
+		if (!this.isIndexed())
+			return this.getAssociations();
+		synchronized (this) {
+			return new ArrayList<>(this.loadedAssociations);
+		}
+	}
+
+	@Override
+	public void onLoad() {
+		super.onLoad();
+		this.loadedAssociations = new LinkedHashSet<>();
+		this.loadedFeatures = null;
+	}
+
+	/**
+	 * Returns the features by their id. The features of an indexed repository are read from the index once so that they can also be accessed outside of a transaction afterwards.
+	 * The returned map is only changed in write transactions, which do not run concurrently with other transactions.
+	 *
+	 * @return The features by their id.
+	 */
+	private synchronized Map<String, PerstFeature> getFeatureMap() {
+		if (!this.isIndexed())
+			return this.features;
+		if (this.loadedFeatures == null) {
+			this.loadedFeatures = new LinkedHashMap<>();
+			for (PerstFeature feature : this.featureIndex)
+				this.loadedFeatures.put(feature.getId(), feature);
+		}
+		return this.loadedFeatures;
+	}
+
 
 	@Override
 	public Commit extract(Configuration configuration, Set<Node.Op> nodes) {
@@ -76,20 +158,31 @@ public class PerstRepository extends Persistent implements Repository, Repositor
 
 	@Override
 	public Collection<PerstFeature> getFeatures() {
-		return new ArrayList<>(this.features.values());
+		return new ArrayList<>(this.getFeatureMap().values());
 	}
 
 
 	@Override
 	public Collection<PerstAssociation> getAssociations() {
 		//return new ArrayList<>(this.associations);
+		if (this.isIndexed()) {
+			List<PerstAssociation> associations = new ArrayList<>(this.associationLink.size());
+			for (PerstAssociation association : this.associationLink) {
+				association.load();
+				associations.add(association);
+			}
+			synchronized (this) {
+				this.loadedAssociations.addAll(associations);
+			}
+			return Collections.unmodifiableCollection(associations);
+		}
 		return Collections.unmodifiableCollection(this.associations);
 	}
 
 
 	@Override
 	public Feature getFeature(String id) {
-		return this.features.get(id);
+		return this.getFeatureMap().get(id);
 	}
 
 	@Override
@@ -100,7 +193,9 @@ public class PerstRepository extends Persistent implements Repository, Repositor
 	@Override
 	public Feature addFeature(String id, String name, String description) {
 		PerstFeature feature = new PerstFeature(id, name, description);
-		this.features.put(feature.getId(), feature);
+		if (this.isIndexed())
+			this.featureIndex.put(feature);
+		this.getFeatureMap().put(feature.getId(), feature);
 		return feature;
 	}
 
@@ -108,12 +203,26 @@ public class PerstRepository extends Persistent implements Repository, Repositor
 	@Override
 	public void addAssociation(Association.Op association) {
 		checkArgument(association instanceof PerstAssociation);
-		this.associations.add((PerstAssociation) association);
+		if (this.isIndexed()) {
+			this.associationLink.add((PerstAssociation) association);
+			synchronized (this) {
+				this.loadedAssociations.add((PerstAssociation) association);
+			}
+		}
+		else
+			this.associations.add((PerstAssociation) association);
 	}
 
 	@Override
 	public void removeAssociation(Association.Op association) {
-		this.associations.remove(association);
+		if (this.isIndexed()) {
+			this.associationLink.remove(association);
+			synchronized (this) {
+				this.loadedAssociations.remove(association);
+			}
+		}
+		else
+			this.associations.remove(association);
 	}
 
 
@@ -127,6 +236,16 @@ public class PerstRepository extends Persistent implements Repository, Repositor
 		this.maxOrder = maxOrder;
 	}
 
+	@Override
+	public int getSequenceGraphAlignmentBudget() {
+		return this.sequenceGraphAlignmentBudget;
+	}
+
+	@Override
+	public void setSequenceGraphAlignmentBudget(int budget) {
+		this.sequenceGraphAlignmentBudget = budget;
+	}
+
 	@Override
 	public EntityFactory getEntityFactory() {
 		return this.entityFactory;
@@ -4,13 +4,13 @@ import at.jku.isse.ecco.EccoException;
 import at.jku.isse.ecco.artifact.Artifact;
 import at.jku.isse.ecco.sg.SequenceGraph;
 import at.jku.isse.ecco.sg.SequenceGraphOperator;
-import org.garret.perst.Persistent;
+import at.jku.isse.ecco.storage.perst.dao.TrackedPersistent;
 
 import java.util.Collection;
 import java.util.List;
 import java.util.Set;
 
-public class PerstSequenceGraph extends Persistent implements SequenceGraph, SequenceGraph.Op {
+public class PerstSequenceGraph extends TrackedPersistent implements SequenceGraph, SequenceGraph.Op {
 
 	private transient SequenceGraphOperator operator = new SequenceGraphOperator(this);
 
@@ -87,7 +87,7 @@ public class PerstSequenceGraph extends Persistent implements SequenceGraph, Seq
 	// perst
 
 	public void storeRecursively() {
-		this.store();
+		this.storeIfChanged();
 
 //		Set<SequenceGraphNode> nodes = new HashSet<>();
 //		this.collectNodes(this.getRoot(), nodes);
@@ -99,7 +99,7 @@ public class PerstSequenceGraph extends Persistent implements SequenceGraph, Seq
 //		}
 
 		for (Node node : this.operator.collectNodes()) {
-			((PerstSequenceGraphNode) node).store();
+			((PerstSequenceGraphNode) node).storeIfChanged();
 		}
 	}
 
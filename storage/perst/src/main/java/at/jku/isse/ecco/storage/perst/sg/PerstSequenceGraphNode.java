@@ -2,12 +2,12 @@ package at.jku.isse.ecco.storage.perst.sg;
 
 import at.jku.isse.ecco.artifact.Artifact;
 import at.jku.isse.ecco.sg.SequenceGraph;
-import org.garret.perst.Persistent;
+import at.jku.isse.ecco.storage.perst.dao.TrackedPersistent;
 
 import java.util.HashMap;
 import java.util.Map;
 
-public class PerstSequenceGraphNode extends Persistent implements SequenceGraph.Node, SequenceGraph.Node.Op {
+public class PerstSequenceGraphNode extends TrackedPersistent implements SequenceGraph.Node, SequenceGraph.Node.Op {
 
 	public PerstSequenceGraphNode() {
 		this(false);
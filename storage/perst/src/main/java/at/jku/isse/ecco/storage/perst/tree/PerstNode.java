@@ -5,7 +5,7 @@ import at.jku.isse.ecco.artifact.Artifact;
 import at.jku.isse.ecco.core.Association;
 import at.jku.isse.ecco.tree.Node;
 import at.jku.isse.ecco.tree.NodeOperator;
-import org.garret.perst.Persistent;
+import at.jku.isse.ecco.storage.perst.dao.TrackedPersistent;
 
 import java.util.*;
 
@@ -17,7 +17,7 @@ import static com.google.common.base.Preconditions.checkNotNull;
  * @author Hannes Thaller
  * @version 1.0
  */
-public class PerstNode extends Persistent implements Node, Node.Op {
+public class PerstNode extends TrackedPersistent implements Node, Node.Op {
 
 	private transient NodeOperator operator = new NodeOperator(this);
 
@@ -108,11 +108,13 @@ public class PerstNode extends Persistent implements Node, Node.Op {
 
 		this.load();
 
-		if (this.getArtifact() != null && !this.getArtifact().isOrdered() && this.children.contains(child))
+		if (this.getArtifact() != null && !this.getArtifact().isOrdered() && this.operator.getChild(child) != null)
 			throw new EccoException("An equivalent child is already contained. If multiple equivalent children are allowed use an ordered node.");
 
 		this.children.add(child);
 		child.setParent(this);
+
+		this.operator.childAdded(child);
 	}
 
 	@Override
@@ -127,10 +129,17 @@ public class PerstNode extends Persistent implements Node, Node.Op {
 
 		this.load();
 
-		this.children.remove(child);
+		if (NodeOperator.removeChild(this.children, child))
+			this.operator.childRemoved(child);
 		child.setParent(null);
 	}
 
+	@Override
+	public Op getChild(Node node) {
+		this.load();
+		return this.operator.getChild(node);
+	}
+
 
 	@Override
 	public List<Op> getChildren() {